@@ -0,0 +1,130 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Columnar export vs CSV for a per-step edge table (edge_id, time, avg_speed):
+ * writing all rows, and reading the speed column back (e.g. to average it).
+ * Run with: mvn -Pjmh compile exec:exec -Djmh.args=ColumnarExportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnarExportBenchmark {
+
+	@Param({"100000", "1000000"})
+	int rows;
+
+	String[] edgeIds;
+	double[] times;
+	double[] speeds;
+	Path directory;
+	Path csvFile;
+	Path columnarFile;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		Random random = new Random(42);
+		String[] edges = new String[500];
+		for (int i = 0; i < edges.length; i++) edges[i] = "edge_" + i;
+		edgeIds = new String[rows];
+		times = new double[rows];
+		speeds = new double[rows];
+		for (int i = 0; i < rows; i++) {
+			edgeIds[i] = edges[i % edges.length];
+			times[i] = (i / edges.length) * 0.1;
+			speeds[i] = random.nextDouble() * 15.0;
+		}
+		directory = Files.createTempDirectory("columnar-bench");
+		csvFile = directory.resolve("read.csv");
+		columnarFile = directory.resolve("read.tscol");
+		writeCsv(csvFile);
+		writeColumnar(columnarFile);
+		System.out.printf("%n%d rows: CSV %d bytes, columnar %d bytes%n", rows, Files.size(csvFile), Files.size(columnarFile));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (var files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) Files.deleteIfExists(file);
+		}
+		Files.deleteIfExists(directory);
+	}
+
+	private void writeCsv(Path file) {
+		try (ChannelCsvWriter writer = new ChannelCsvWriter(file, false)) {
+			writer.writeRow("edge_id", "time", "avg_speed");
+			for (int i = 0; i < rows; i++) writer.writeRow(edgeIds[i], times[i], speeds[i]);
+		}
+	}
+
+	private void writeColumnar(Path file) {
+		try (ColumnarWriter writer = new ColumnarWriter(file)) {
+			ColumnarWriter.Table table = writer.table("avg_speed",
+					ColumnarWriter.Column.string("edge_id"), ColumnarWriter.Column.float64("time"), ColumnarWriter.Column.float64("avg_speed"));
+			for (int i = 0; i < rows; i++) table.putString(0, edgeIds[i]).putDouble(1, times[i]).putDouble(2, speeds[i]).endRow();
+		}
+	}
+
+	// --- write ---
+
+	@Benchmark
+	public long writeCsv() throws IOException {
+		Path file = directory.resolve("write.csv");
+		writeCsv(file);
+		return Files.size(file);
+	}
+
+	@Benchmark
+	public long writeColumnar() throws IOException {
+		Path file = directory.resolve("write.tscol");
+		writeColumnar(file);
+		return Files.size(file);
+	}
+
+	// --- read one column ---
+
+	@Benchmark
+	public double readSpeedsCsv() throws IOException {
+		double sum = 0.0;
+		try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+			reader.readLine();
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				sum += Double.parseDouble(line.substring(line.lastIndexOf(',') + 1));
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double readSpeedsColumnar() {
+		double sum = 0.0;
+		try (ColumnarReader reader = new ColumnarReader(columnarFile)) {
+			for (double speed : reader.getTable("avg_speed").readDoubles("avg_speed")) sum += speed;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,115 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scalar vs SIMD ReductionKernels at fleet / edge-set sizes of 10k, 100k and 1M elements.
+ * Run with: mvn -Pjmh,vector compile exec:exec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ReductionKernelsBenchmark {
+
+	@Param({"10000", "100000", "1000000"})
+	int size;
+
+	double[] speeds;
+	int[] counts;
+	double[] lengths;
+	double[] densities;
+	int[] stopped;
+	int[] selected;
+	int[] target;
+	ReductionKernels.Kernels scalar = ReductionKernels.SCALAR;
+	ReductionKernels.Kernels vector = ReductionKernels.VECTOR;
+
+	@Setup
+	public void setup() {
+		if (vector == null) throw new IllegalStateException("SIMD kernels not available, run with -Pjmh,vector");
+		Random random = new Random(42);
+		speeds = new double[size];
+		counts = new int[size];
+		lengths = new double[size];
+		densities = new double[size];
+		stopped = new int[size];
+		selected = new int[size];
+		target = new int[size];
+		for (int i = 0; i < size; i++) {
+			// About a fifth of the fleet stands still
+			speeds[i] = random.nextInt(5) == 0 ? 0.0 : random.nextDouble() * 15.0;
+			counts[i] = random.nextInt(20);
+			lengths[i] = random.nextInt(100) == 0 ? 0.0 : 20.0 + random.nextDouble() * 300.0;
+			// Few edges are congested
+			stopped[i] = random.nextInt(50) == 0 ? 3 + random.nextInt(10) : random.nextInt(3);
+		}
+	}
+
+	// --- speed sum + moving count ---
+
+	@Benchmark
+	public double[] sumAndCountAboveScalar() {
+		return scalar.sumAndCountAbove(speeds, size, 0.0);
+	}
+
+	@Benchmark
+	public double[] sumAndCountAboveVector() {
+		return vector.sumAndCountAbove(speeds, size, 0.0);
+	}
+
+	// --- density = count / length ---
+
+	@Benchmark
+	public double[] divideScalar() {
+		scalar.divide(counts, lengths, densities, size);
+		return densities;
+	}
+
+	@Benchmark
+	public double[] divideVector() {
+		vector.divide(counts, lengths, densities, size);
+		return densities;
+	}
+
+	// --- congestion threshold ---
+
+	@Benchmark
+	public int selectAtLeastScalar() {
+		return scalar.selectAtLeast(stopped, size, 3, selected);
+	}
+
+	@Benchmark
+	public int selectAtLeastVector() {
+		return vector.selectAtLeast(stopped, size, 3, selected);
+	}
+
+	// --- partial merge ---
+
+	@Benchmark
+	public int[] addScalar() {
+		scalar.add(target, stopped, size);
+		return target;
+	}
+
+	@Benchmark
+	public int[] addVector() {
+		vector.add(target, stopped, size);
+		return target;
+	}
+}
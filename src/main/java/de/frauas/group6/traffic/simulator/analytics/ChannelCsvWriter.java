@@ -0,0 +1,221 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Append-only CSV file writer backed by a FileChannel.
+ * Rows are encoded into a large direct buffer; full buffers are handed to a dedicated
+ * I/O thread (double buffering), so the caller never waits for the disk unless both
+ * buffers are in use. Optional gzip compression also runs on the I/O thread.
+ */
+public class ChannelCsvWriter implements AutoCloseable {
+
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20; // 1 MB
+
+	// gzip member header: magic, deflate, no flags, no mtime, no extra flags, unknown OS
+	private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+	private final Path file;
+	private final FileChannel channel;
+	private final ExecutorService io;
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+	private final StringBuilder line = new StringBuilder(128);
+
+	private ByteBuffer active;
+	private ByteBuffer spare;
+	private Future<?> pendingWrite;
+	private boolean closed = false;
+
+	// --- gzip state (only touched by the I/O thread) ---
+	private final Deflater deflater;
+	private final CRC32 crc;
+	private final ByteBuffer compressed;
+	private long uncompressedSize = 0;
+
+	public ChannelCsvWriter(Path file, boolean gzip) {
+		this(file, gzip, DEFAULT_BUFFER_SIZE);
+	}
+
+	public ChannelCsvWriter(Path file, boolean gzip, int bufferSize) {
+		this.file = file;
+		try {
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot open export file: " + file, e);
+		}
+		this.active = ByteBuffer.allocateDirect(bufferSize);
+		this.spare = ByteBuffer.allocateDirect(bufferSize);
+		this.io = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "Csv-Writer-" + file.getFileName());
+			t.setDaemon(true);
+			return t;
+		});
+		if (gzip) {
+			this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			this.crc = new CRC32();
+			this.compressed = ByteBuffer.allocateDirect(bufferSize);
+			// The header is written as is, not through the deflater
+			submit(() -> writeFully(ByteBuffer.wrap(GZIP_HEADER)));
+		} else {
+			this.deflater = null;
+			this.crc = null;
+			this.compressed = null;
+		}
+	}
+
+	//===========================
+	// ROW API
+	//===========================
+
+	// Writes one row; values are joined with ',' and terminated with '\n'
+	public void writeRow(Object... values) {
+		line.setLength(0);
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) line.append(',');
+			line.append(values[i]);
+		}
+		line.append('\n');
+		writeRaw(line);
+	}
+
+	// Writes already formatted text (must contain its own line breaks)
+	public void writeRaw(CharSequence text) {
+		if (closed) throw new AnalyticsException("Export file already closed: " + file);
+		CharBuffer chars = CharBuffer.wrap(text);
+		while (true) {
+			CoderResult result = encoder.encode(chars, active, true);
+			if (result.isUnderflow()) break;
+			if (result.isOverflow()) handOff();
+			else throw new AnalyticsException("Cannot encode row for " + file + ": " + result);
+		}
+		encoder.reset();
+	}
+
+	// Hands buffered rows to the I/O thread and waits until they are written
+	public void flush() {
+		if (closed) return;
+		handOff();
+		submit(this::syncCompressed);
+		awaitPending();
+	}
+
+	@Override
+	public void close() {
+		if (closed) return;
+		handOff();
+		submit(this::finishFile);
+		awaitPending();
+		closed = true;
+		io.shutdown();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot close export file: " + file, e);
+		}
+	}
+
+	//===========================
+	// BUFFER HAND-OFF
+	//===========================
+
+	private void handOff() {
+		if (active.position() == 0) return;
+		// The spare buffer is free once the previous write finished
+		awaitPending();
+		ByteBuffer full = active;
+		full.flip();
+		active = spare;
+		active.clear();
+		spare = full;
+		submit(() -> writeBuffer(full));
+	}
+
+	private void submit(IoTask task) {
+		awaitPending();
+		pendingWrite = io.submit(() -> {
+			task.run();
+			return null;
+		});
+	}
+
+	private void awaitPending() {
+		if (pendingWrite == null) return;
+		try {
+			pendingWrite.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AnalyticsException("Interrupted while writing " + file, e);
+		} catch (ExecutionException e) {
+			throw new AnalyticsException("Write failed: " + file, e.getCause());
+		} finally {
+			pendingWrite = null;
+		}
+	}
+
+	//===========================
+	// I/O THREAD
+	//===========================
+
+	private void writeBuffer(ByteBuffer buffer) throws IOException {
+		if (deflater == null) {
+			writeFully(buffer);
+			return;
+		}
+		crc.update(buffer.duplicate());
+		uncompressedSize += buffer.remaining();
+		deflater.setInput(buffer);
+		while (!deflater.needsInput()) drain(Deflater.NO_FLUSH);
+	}
+
+	// Makes everything written so far decodable (gzip sync flush)
+	private void syncCompressed() throws IOException {
+		if (deflater == null) return;
+		drain(Deflater.SYNC_FLUSH);
+	}
+
+	private void finishFile() throws IOException {
+		if (deflater == null) return;
+		deflater.finish();
+		while (!deflater.finished()) drain(Deflater.NO_FLUSH);
+		deflater.end();
+		ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		trailer.putInt((int) crc.getValue());
+		trailer.putInt((int) uncompressedSize);
+		trailer.flip();
+		writeFully(trailer);
+	}
+
+	private void drain(int flushMode) throws IOException {
+		int produced;
+		do {
+			compressed.clear();
+			produced = deflater.deflate(compressed, flushMode);
+			compressed.flip();
+			writeFully(compressed);
+		} while (produced == compressed.capacity()); // Output buffer was full: more may be pending
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) channel.write(buffer);
+	}
+
+	@FunctionalInterface
+	private interface IoTask {
+		void run() throws IOException;
+	}
+}
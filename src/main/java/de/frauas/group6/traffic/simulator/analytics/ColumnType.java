@@ -0,0 +1,8 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+// Column types of the binary columnar export (see ColumnarWriter)
+public enum ColumnType {
+	INT32,		// 4 bytes per value
+	FLOAT64,	// 8 bytes per value
+	STRING		// dictionary encoded: 4 byte code per value, dictionary in the footer
+}
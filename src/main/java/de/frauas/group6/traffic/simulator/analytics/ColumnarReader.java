@@ -0,0 +1,341 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader for files written by ColumnarWriter.
+ * Only the footer is read up front. Each row group is memory-mapped on first access (file
+ * offsets are longs, so files may exceed 2 GB; a single row group must stay below 2 GB) and
+ * its column chunks are decoded with bulk copies. Row group min/max statistics allow
+ * skipping whole row groups that cannot match a predicate.
+ */
+public class ColumnarReader implements AutoCloseable {
+
+	private final Path file;
+	private final FileChannel channel;
+	private final Map<String, Table> tables = new LinkedHashMap<>();
+
+	public ColumnarReader(Path file) {
+		this.file = file;
+		try {
+			this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot open columnar file: " + file, e);
+		}
+		try {
+			readFooter();
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private void readFooter() {
+		int magicLength = ColumnarWriter.MAGIC.length;
+		long size;
+		try {
+			size = channel.size();
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot read columnar file: " + file, e);
+		}
+		if (size < 2 * magicLength + 8 || !hasMagic(read(0, magicLength)) || !hasMagic(read(size - magicLength, magicLength))) {
+			throw new AnalyticsException("Not a columnar export file: " + file);
+		}
+		long footerOffset = read(size - magicLength - 8, 8).getLong();
+		long footerLength = size - magicLength - 8 - footerOffset;
+		if (footerOffset < magicLength || footerLength > Integer.MAX_VALUE) {
+			throw new AnalyticsException("Corrupt columnar footer in " + file);
+		}
+		ByteBuffer footer = read(footerOffset, (int) footerLength);
+
+		int tableCount = footer.getInt();
+		for (int t = 0; t < tableCount; t++) {
+			String name = readString(footer);
+			int columnCount = footer.getInt();
+			long rowCount = footer.getLong();
+			String[] names = new String[columnCount];
+			ColumnType[] types = new ColumnType[columnCount];
+			String[][] dictionaries = new String[columnCount][];
+			for (int c = 0; c < columnCount; c++) {
+				names[c] = readString(footer);
+				types[c] = ColumnType.values()[footer.get()];
+				if (types[c] == ColumnType.STRING) {
+					String[] dict = new String[footer.getInt()];
+					for (int i = 0; i < dict.length; i++) dict[i] = readString(footer);
+					dictionaries[c] = dict;
+				}
+			}
+			int rowGroupCount = footer.getInt();
+			List<RowGroup> rowGroups = new ArrayList<>(rowGroupCount);
+			Table table = new Table(name, rowCount, names, types, dictionaries, rowGroups);
+			for (int g = 0; g < rowGroupCount; g++) {
+				RowGroup rg = new RowGroup(table, footer.getInt(), columnCount);
+				for (int c = 0; c < columnCount; c++) {
+					rg.offsets[c] = footer.getLong();
+					rg.lengths[c] = footer.getInt();
+					rg.min[c] = footer.getDouble();
+					rg.max[c] = footer.getDouble();
+				}
+				rowGroups.add(rg);
+			}
+			tables.put(name, table);
+		}
+	}
+
+	private static boolean hasMagic(ByteBuffer buf) {
+		for (int i = 0; i < ColumnarWriter.MAGIC.length; i++) {
+			if (buf.get(i) != ColumnarWriter.MAGIC[i]) return false;
+		}
+		return true;
+	}
+
+	// Reads length bytes at a file offset into a heap buffer
+	private ByteBuffer read(long offset, int length) {
+		ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			while (buf.hasRemaining()) {
+				if (channel.read(buf, offset + buf.position()) < 0) throw new AnalyticsException("Unexpected end of columnar file: " + file);
+			}
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot read columnar file: " + file, e);
+		}
+		return buf.flip();
+	}
+
+	private static String readString(ByteBuffer buf) {
+		byte[] bytes = new byte[buf.getInt()];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot close columnar file: " + file, e);
+		}
+	}
+
+	//===========================
+	// TABLES
+	//===========================
+
+	public List<String> getTableNames() {
+		return new ArrayList<>(tables.keySet());
+	}
+
+	public boolean hasTable(String name) {
+		return tables.containsKey(name);
+	}
+
+	public Table getTable(String name) {
+		Table table = tables.get(name);
+		if (table == null) throw new AnalyticsException("No table '" + name + "' in " + file);
+		return table;
+	}
+
+	public final class Table {
+		private final String name;
+		private final long rowCount;
+		private final String[] columnNames;
+		private final ColumnType[] types;
+		private final String[][] dictionaries;
+		private final List<RowGroup> rowGroups;
+
+		private Table(String name, long rowCount, String[] columnNames, ColumnType[] types, String[][] dictionaries, List<RowGroup> rowGroups) {
+			this.name = name;
+			this.rowCount = rowCount;
+			this.columnNames = columnNames;
+			this.types = types;
+			this.dictionaries = dictionaries;
+			this.rowGroups = rowGroups;
+		}
+
+		public String getName() { return name; }
+
+		public long getRowCount() { return rowCount; }
+
+		public List<String> getColumnNames() { return Collections.unmodifiableList(Arrays.asList(columnNames)); }
+
+		public ColumnType getColumnType(String column) { return types[columnIndex(column)]; }
+
+		public List<RowGroup> getRowGroups() { return Collections.unmodifiableList(rowGroups); }
+
+		// Distinct values of a STRING column
+		public List<String> getDictionary(String column) {
+			int c = checkType(columnIndex(column), ColumnType.STRING);
+			return Collections.unmodifiableList(Arrays.asList(dictionaries[c]));
+		}
+
+		// Row groups whose [min, max] of a numeric column overlaps [from, to]
+		public List<RowGroup> rowGroupsInRange(String column, double from, double to) {
+			int c = columnIndex(column);
+			if (types[c] == ColumnType.STRING) throw new AnalyticsException("Range predicate on STRING column " + column);
+			List<RowGroup> result = new ArrayList<>();
+			for (RowGroup rg : rowGroups) {
+				if (rg.max[c] >= from && rg.min[c] <= to) result.add(rg);
+			}
+			return result;
+		}
+
+		// Row groups that may contain the given value of a STRING column
+		public List<RowGroup> rowGroupsContaining(String column, String value) {
+			int c = checkType(columnIndex(column), ColumnType.STRING);
+			int code = Arrays.asList(dictionaries[c]).indexOf(value);
+			List<RowGroup> result = new ArrayList<>();
+			if (code < 0) return result;
+			for (RowGroup rg : rowGroups) {
+				if (code >= rg.min[c] && code <= rg.max[c]) result.add(rg);
+			}
+			return result;
+		}
+
+		// Whole column (all row groups); tables above 2^31 - 1 rows must be read per row group
+		public double[] readDoubles(String column) {
+			double[] out = new double[rows()];
+			int pos = 0;
+			for (RowGroup rg : rowGroups) pos += rg.readDoubles(columnIndex(column), out, pos);
+			return out;
+		}
+
+		public int[] readInts(String column) {
+			int c = checkType(columnIndex(column), ColumnType.INT32);
+			int[] out = new int[rows()];
+			int pos = 0;
+			for (RowGroup rg : rowGroups) pos += rg.readCodes(c, out, pos);
+			return out;
+		}
+
+		public String[] readStrings(String column) {
+			int c = checkType(columnIndex(column), ColumnType.STRING);
+			String[] out = new String[rows()];
+			int pos = 0;
+			for (RowGroup rg : rowGroups) {
+				String[] part = rg.getStrings(column);
+				System.arraycopy(part, 0, out, pos, part.length);
+				pos += part.length;
+			}
+			return out;
+		}
+
+		private int rows() {
+			if (rowCount > Integer.MAX_VALUE) throw new AnalyticsException("Table " + name + " has too many rows to read at once: " + rowCount);
+			return (int) rowCount;
+		}
+
+		int columnIndex(String column) {
+			for (int c = 0; c < columnNames.length; c++) {
+				if (columnNames[c].equals(column)) return c;
+			}
+			throw new AnalyticsException("No column '" + column + "' in table " + name);
+		}
+
+		int checkType(int c, ColumnType expected) {
+			if (types[c] != expected) {
+				throw new AnalyticsException("Column " + columnNames[c] + " of " + name + " is " + types[c] + ", not " + expected);
+			}
+			return c;
+		}
+	}
+
+	//===========================
+	// ROW GROUPS
+	//===========================
+
+	public final class RowGroup {
+		private final Table table;
+		private final int rowCount;
+		private final long[] offsets;
+		private final int[] lengths;
+		private final double[] min;
+		private final double[] max;
+		// Mapped on first access, see chunk()
+		private volatile ByteBuffer data;
+
+		private RowGroup(Table table, int rowCount, int columnCount) {
+			this.table = table;
+			this.rowCount = rowCount;
+			this.offsets = new long[columnCount];
+			this.lengths = new int[columnCount];
+			this.min = new double[columnCount];
+			this.max = new double[columnCount];
+		}
+
+		public int getRowCount() { return rowCount; }
+
+		/**
+		 * Smallest value of a numeric column in this row group. For STRING columns min/max are
+		 * dictionary codes (in order of first appearance, not lexical order): they only tell
+		 * whether a value can occur in the row group (see rowGroupsContaining).
+		 */
+		public double getMin(String column) { return min[table.columnIndex(column)]; }
+
+		public double getMax(String column) { return max[table.columnIndex(column)]; }
+
+		public double[] getDoubles(String column) {
+			double[] out = new double[rowCount];
+			readDoubles(table.columnIndex(column), out, 0);
+			return out;
+		}
+
+		public int[] getInts(String column) {
+			int[] out = new int[rowCount];
+			readCodes(table.checkType(table.columnIndex(column), ColumnType.INT32), out, 0);
+			return out;
+		}
+
+		public String[] getStrings(String column) {
+			int c = table.checkType(table.columnIndex(column), ColumnType.STRING);
+			int[] codes = new int[rowCount];
+			readCodes(c, codes, 0);
+			String[] dict = table.dictionaries[c];
+			String[] out = new String[rowCount];
+			for (int i = 0; i < rowCount; i++) out[i] = dict[codes[i]];
+			return out;
+		}
+
+		private int readDoubles(int c, double[] out, int pos) {
+			table.checkType(c, ColumnType.FLOAT64);
+			chunk(c).asDoubleBuffer().get(out, pos, rowCount);
+			return rowCount;
+		}
+
+		private int readCodes(int c, int[] out, int pos) {
+			chunk(c).asIntBuffer().get(out, pos, rowCount);
+			return rowCount;
+		}
+
+		private ByteBuffer chunk(int c) {
+			return map().slice((int) (offsets[c] - offsets[0]), lengths[c]).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		// Column chunks of a row group are written back to back, so one mapping covers all of them
+		private ByteBuffer map() {
+			ByteBuffer mapped = data;
+			if (mapped != null) return mapped;
+			int last = offsets.length - 1;
+			long length = offsets[last] + lengths[last] - offsets[0];
+			if (length > Integer.MAX_VALUE) throw new AnalyticsException("Row group too large to map in " + file);
+			try {
+				mapped = channel.map(FileChannel.MapMode.READ_ONLY, offsets[0], length);
+			} catch (IOException e) {
+				throw new AnalyticsException("Cannot map row group of " + table.name + " in " + file, e);
+			}
+			data = mapped;
+			return mapped;
+		}
+	}
+}
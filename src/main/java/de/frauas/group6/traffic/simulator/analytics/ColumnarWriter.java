@@ -0,0 +1,325 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming writer for the binary columnar export format.
+ * A file holds several named tables with typed primitive columns. Rows are buffered per
+ * table only until a row group is full; the row group is then written column by column
+ * together with min/max statistics, so full tables are never held in memory.
+ * Strings are dictionary encoded, the dictionaries and the row group directory are
+ * written to the footer on close.
+ *
+ * Layout (little endian):
+ *   MAGIC | column chunks ... | footer | footer offset (long) | MAGIC
+ * The chunks of one row group are written back to back; row group statistics are min/max
+ * values, or min/max dictionary codes for STRING columns.
+ */
+public class ColumnarWriter implements AutoCloseable {
+
+	static final byte[] MAGIC = {'T', 'S', 'C', 'O', 'L', '0', '1', '\n'};
+	public static final int DEFAULT_ROW_GROUP_SIZE = 64 * 1024;
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final Path file;
+	private final FileChannel channel;
+	private final int rowGroupSize;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private long written = 0; // bytes already handed to the channel
+	private final Map<String, Table> tables = new LinkedHashMap<>();
+	private boolean closed = false;
+
+	public ColumnarWriter(Path file) {
+		this(file, DEFAULT_ROW_GROUP_SIZE);
+	}
+
+	public ColumnarWriter(Path file, int rowGroupSize) {
+		if (rowGroupSize <= 0) throw new AnalyticsException("rowGroupSize must be positive");
+		this.file = file;
+		this.rowGroupSize = rowGroupSize;
+		try {
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot open export file: " + file, e);
+		}
+		buffer.put(MAGIC);
+	}
+
+	// Column definition of a table
+	public static final class Column {
+		final String name;
+		final ColumnType type;
+
+		public Column(String name, ColumnType type) {
+			this.name = name;
+			this.type = type;
+		}
+
+		public static Column int32(String name) { return new Column(name, ColumnType.INT32); }
+
+		public static Column float64(String name) { return new Column(name, ColumnType.FLOAT64); }
+
+		public static Column string(String name) { return new Column(name, ColumnType.STRING); }
+	}
+
+	// Creates a new table; rows of several tables may be written interleaved
+	public Table table(String name, Column... columns) {
+		if (closed) throw new AnalyticsException("Columnar file already closed: " + file);
+		if (tables.containsKey(name)) throw new AnalyticsException("Duplicate table: " + name);
+		if (columns.length == 0) throw new AnalyticsException("Table needs at least one column: " + name);
+		Table table = new Table(name, columns);
+		tables.put(name, table);
+		return table;
+	}
+
+	//===========================
+	// TABLE (ROW API)
+	//===========================
+
+	/**
+	 * Row writer of one table. Set every column, then call endRow():
+	 * table.putString(0, edgeId).putDouble(1, speed).endRow();
+	 */
+	public final class Table {
+		private final String name;
+		private final Column[] columns;
+		private final double[][] doubles;
+		private final int[][] ints;
+		private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+		private final List<List<String>> dictionaryValues = new ArrayList<>();
+		private final List<RowGroupInfo> rowGroups = new ArrayList<>();
+		private int rows = 0;
+		private long totalRows = 0;
+
+		private Table(String name, Column[] columns) {
+			this.name = name;
+			this.columns = columns.clone();
+			this.doubles = new double[columns.length][];
+			this.ints = new int[columns.length][];
+			for (int c = 0; c < columns.length; c++) {
+				if (columns[c].type == ColumnType.FLOAT64) doubles[c] = new double[rowGroupSize];
+				else ints[c] = new int[rowGroupSize];
+				dictionaries.add(columns[c].type == ColumnType.STRING ? new HashMap<>() : null);
+				dictionaryValues.add(columns[c].type == ColumnType.STRING ? new ArrayList<>() : null);
+			}
+		}
+
+		public Table putDouble(int column, double value) {
+			doubles[checkType(column, ColumnType.FLOAT64)][rows] = value;
+			return this;
+		}
+
+		public Table putInt(int column, int value) {
+			ints[checkType(column, ColumnType.INT32)][rows] = value;
+			return this;
+		}
+
+		// null is stored as an empty string
+		public Table putString(int column, String value) {
+			String v = value == null ? "" : value;
+			Integer code = dictionaries.get(checkType(column, ColumnType.STRING)).get(v);
+			if (code == null) {
+				code = dictionaryValues.get(column).size();
+				dictionaries.get(column).put(v, code);
+				dictionaryValues.get(column).add(v);
+			}
+			ints[column][rows] = code;
+			return this;
+		}
+
+		public void endRow() {
+			if (closed) throw new AnalyticsException("Columnar file already closed: " + file);
+			rows++;
+			totalRows++;
+			if (rows == rowGroupSize) flushRowGroup();
+		}
+
+		public long getRowCount() { return totalRows; }
+
+		private int checkType(int column, ColumnType expected) {
+			if (columns[column].type != expected) {
+				throw new AnalyticsException("Column " + columns[column].name + " of " + name + " is " + columns[column].type + ", not " + expected);
+			}
+			return column;
+		}
+
+		// Writes the buffered rows as one row group
+		private void flushRowGroup() {
+			if (rows == 0) return;
+			RowGroupInfo info = new RowGroupInfo(rows, columns.length);
+			for (int c = 0; c < columns.length; c++) {
+				info.offsets[c] = position();
+				if (columns[c].type == ColumnType.FLOAT64) {
+					double[] values = doubles[c];
+					double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+					for (int i = 0; i < rows; i++) {
+						min = Math.min(min, values[i]);
+						max = Math.max(max, values[i]);
+					}
+					info.min[c] = min;
+					info.max[c] = max;
+					writeDoubles(values, rows);
+				} else {
+					int[] values = ints[c];
+					int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+					for (int i = 0; i < rows; i++) {
+						min = Math.min(min, values[i]);
+						max = Math.max(max, values[i]);
+					}
+					// For STRING columns these are dictionary codes in order of first appearance:
+					// usable for equality skipping, not for string ranges
+					info.min[c] = min;
+					info.max[c] = max;
+					writeInts(values, rows);
+				}
+				info.lengths[c] = (int) (position() - info.offsets[c]);
+			}
+			rowGroups.add(info);
+			rows = 0;
+		}
+	}
+
+	private static final class RowGroupInfo {
+		final int rows;
+		final long[] offsets;
+		final int[] lengths;
+		final double[] min;
+		final double[] max;
+
+		RowGroupInfo(int rows, int columnCount) {
+			this.rows = rows;
+			this.offsets = new long[columnCount];
+			this.lengths = new int[columnCount];
+			this.min = new double[columnCount];
+			this.max = new double[columnCount];
+		}
+	}
+
+	//===========================
+	// CLOSE / FOOTER
+	//===========================
+
+	@Override
+	public void close() {
+		if (closed) return;
+		try {
+			for (Table t : tables.values()) t.flushRowGroup();
+			long footerOffset = position();
+			writeFooter();
+			ensure(8 + MAGIC.length);
+			buffer.putLong(footerOffset);
+			buffer.put(MAGIC);
+			drain();
+		} finally {
+			closed = true;
+			try {
+				channel.close();
+			} catch (IOException e) {
+				throw new AnalyticsException("Cannot close export file: " + file, e);
+			}
+		}
+	}
+
+	private void writeFooter() {
+		ensure(4);
+		buffer.putInt(tables.size());
+		for (Table t : tables.values()) {
+			writeString(t.name);
+			ensure(4 + 8);
+			buffer.putInt(t.columns.length);
+			buffer.putLong(t.totalRows);
+			for (int c = 0; c < t.columns.length; c++) {
+				writeString(t.columns[c].name);
+				ensure(1);
+				buffer.put((byte) t.columns[c].type.ordinal());
+				if (t.columns[c].type == ColumnType.STRING) {
+					List<String> dict = t.dictionaryValues.get(c);
+					ensure(4);
+					buffer.putInt(dict.size());
+					for (String s : dict) writeString(s);
+				}
+			}
+			ensure(4);
+			buffer.putInt(t.rowGroups.size());
+			for (RowGroupInfo rg : t.rowGroups) {
+				ensure(4);
+				buffer.putInt(rg.rows);
+				for (int c = 0; c < t.columns.length; c++) {
+					ensure(8 + 4 + 8 + 8);
+					buffer.putLong(rg.offsets[c]);
+					buffer.putInt(rg.lengths[c]);
+					buffer.putDouble(rg.min[c]);
+					buffer.putDouble(rg.max[c]);
+				}
+			}
+		}
+	}
+
+	//===========================
+	// BUFFERED OUTPUT
+	//===========================
+
+	private void writeDoubles(double[] values, int count) {
+		int done = 0;
+		while (done < count) {
+			ensure(8);
+			int n = Math.min(count - done, buffer.remaining() / 8);
+			buffer.asDoubleBuffer().put(values, done, n);
+			buffer.position(buffer.position() + n * 8);
+			done += n;
+		}
+	}
+
+	private void writeInts(int[] values, int count) {
+		int done = 0;
+		while (done < count) {
+			ensure(4);
+			int n = Math.min(count - done, buffer.remaining() / 4);
+			buffer.asIntBuffer().put(values, done, n);
+			buffer.position(buffer.position() + n * 4);
+			done += n;
+		}
+	}
+
+	private void writeString(String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length + 4 > buffer.capacity()) {
+			drain();
+			buffer = ByteBuffer.allocateDirect(bytes.length + 4).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		ensure(4 + bytes.length);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	// File offset of the next byte
+	private long position() {
+		return written + buffer.position();
+	}
+
+	// Makes room for at least n bytes
+	private void ensure(int n) {
+		if (buffer.remaining() < n) drain();
+	}
+
+	private void drain() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) written += channel.write(buffer);
+		} catch (IOException e) {
+			throw new AnalyticsException("Write failed: " + file, e);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,45 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense index of edge ids, so per-edge step values can live in primitive arrays
+ * (see StepKernel.Partial, ReductionKernels). Indices are assigned on first use and never change.
+ * Thread-safe: lookups are lock-free, only new edges take the lock.
+ */
+final class EdgeIndex {
+
+	private final Map<String, Integer> index = new ConcurrentHashMap<>();
+	private volatile String[] names = new String[64];
+	private volatile int size = 0;
+
+	// Index of the edge, -1 for null
+	int indexOf(String edgeId) {
+		if (edgeId == null) return -1;
+		Integer i = index.get(edgeId);
+		return i != null ? i : add(edgeId);
+	}
+
+	private synchronized int add(String edgeId) {
+		Integer existing = index.get(edgeId);
+		if (existing != null) return existing;
+		int i = size;
+		String[] current = names;
+		if (i == current.length) current = Arrays.copyOf(current, i * 2);
+		current[i] = edgeId;
+		names = current;
+		size = i + 1;
+		index.put(edgeId, i);
+		return i;
+	}
+
+	String name(int i) {
+		return names[i];
+	}
+
+	int size() {
+		return size;
+	}
+}
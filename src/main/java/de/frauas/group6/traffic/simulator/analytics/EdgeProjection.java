@@ -0,0 +1,53 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+
+/**
+ * Edge shape as a polyline with cumulative lengths, to turn a vehicle position (x, y) into the
+ * distance from the start of the edge (TraCI's lane position is not polled per vehicle).
+ */
+final class EdgeProjection {
+
+	private final double[] xs;
+	private final double[] ys;
+	// Distance from the start to point i
+	private final double[] along;
+
+	EdgeProjection(List<Point2D> shape) {
+		int n = shape.size();
+		xs = new double[n];
+		ys = new double[n];
+		along = new double[n];
+		for (int i = 0; i < n; i++) {
+			xs[i] = shape.get(i).getX();
+			ys[i] = shape.get(i).getY();
+			if (i > 0) along[i] = along[i - 1] + Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+		}
+	}
+
+	double length() {
+		return along.length > 0 ? along[along.length - 1] : 0.0;
+	}
+
+	// Distance along the shape of the closest point on it
+	double project(double x, double y) {
+		double best = Double.MAX_VALUE;
+		double result = 0.0;
+		for (int i = 1; i < xs.length; i++) {
+			double dx = xs[i] - xs[i - 1];
+			double dy = ys[i] - ys[i - 1];
+			double segment = dx * dx + dy * dy;
+			double t = segment > 0 ? ((x - xs[i - 1]) * dx + (y - ys[i - 1]) * dy) / segment : 0.0;
+			t = Math.max(0.0, Math.min(1.0, t));
+			double px = xs[i - 1] + t * dx - x;
+			double py = ys[i - 1] + t * dy - y;
+			double distance = px * px + py * py;
+			if (distance < best) {
+				best = distance;
+				result = along[i - 1] + t * (along[i] - along[i - 1]);
+			}
+		}
+		return result;
+	}
+}
@@ -20,6 +20,12 @@ public class ExportFilter {
 	private boolean onlyCongestedEdges;
 	private Double minEdgeDensity;
 	
+	// -----------------
+	// TIME FILTER
+	// -----------------
+	private Double fromTime;
+	private Double toTime;
+	
 
 	//--------------------
 	// SETTER
@@ -36,6 +42,9 @@ public class ExportFilter {
 	
 	public void setMinEdgeDensity (Double minEdgeDensity) { this.minEdgeDensity = minEdgeDensity; }
 	
+	// Simulation time range in seconds (either bound may be null = open)
+	public void setTimeRange (Double fromTime, Double toTime) { this.fromTime = fromTime; this.toTime = toTime; }
+	
 	//--------------------
 	// GETTER
 	//--------------------
@@ -52,6 +61,10 @@ public class ExportFilter {
 	
 	public Double getMinEdgeDensity() { return minEdgeDensity; }
 	
+	public Double getFromTime() { return fromTime; }
+	
+	public Double getToTime() { return toTime; }
+	
 	
 	public boolean hasVehicleColorFilter() { return vehicleColor != null; }
 
@@ -65,13 +78,16 @@ public class ExportFilter {
 
 	public boolean hasMinAverageTravelTimeFilter() { return minAverageTravelTime != null; }
 
+	public boolean hasTimeRangeFilter() { return fromTime != null || toTime != null; }
+
 	public boolean isEmpty() {
 	    return !hasVehicleColorFilter()
 	        && !hasOnlyRouteIdFilter()
 	        && !hasOnlyEdgeIdFilter()
 	        && !hasMinAverageTravelTimeFilter()
 	        && !hasMinEdgeDensityFilter()
-	        && !hasOnlyCongestedEdgesFilter();
+	        && !hasOnlyCongestedEdgesFilter()
+	        && !hasTimeRangeFilter();
 	}
 
 	// toString() for PDF export
@@ -104,6 +120,17 @@ public class ExportFilter {
 	    		if (onlyRouteId != null) sb.append("onlyRouteId = ").append(onlyRouteId).append("\n");
 	    		break;
 	    		
+	    	case VEHICLE_TRACES:
+	    		if (vehicleColor != null) sb.append("vehicleColor = ").append(vehicleColor).append("\n");
+	    		if (onlyEdgeId != null) sb.append("onlyEdgeId = ").append(onlyEdgeId).append("\n");
+	    		if (fromTime != null) sb.append("fromTime = ").append(fromTime).append("\n");
+	    		if (toTime != null) sb.append("toTime = ").append(toTime).append("\n");
+	    		break;
+	    		
+	    	case SPACE_TIME:
+	    		if (onlyEdgeId != null) sb.append("onlyEdgeId = ").append(onlyEdgeId).append("\n");
+	    		break;
+	    		
 	    	case SUMMARY: break;
 		    
 	    }    
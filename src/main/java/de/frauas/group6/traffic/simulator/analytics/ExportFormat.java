@@ -0,0 +1,8 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+// Output formats of the export job service
+public enum ExportFormat {
+	CSV,
+	PDF,
+	COLUMNAR
+}
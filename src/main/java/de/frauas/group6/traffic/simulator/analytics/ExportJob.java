@@ -0,0 +1,66 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handle of an export that runs on the background export worker.
+ * Progress is reported to the listener from the worker thread; cancel() stops the export
+ * at its next checkpoint and the partial file is removed.
+ */
+public class ExportJob {
+
+	@FunctionalInterface
+	public interface ProgressListener {
+		// fraction in [0, 1]; called from the export worker thread
+		void onProgress(double fraction, String message);
+	}
+
+	private final ExportFormat format;
+	private final String filePath;
+	private final ProgressListener listener;
+	private final CompletableFuture<String> result = new CompletableFuture<>();
+	private volatile boolean cancelled = false;
+
+	ExportJob(ExportFormat format, String filePath, ProgressListener listener) {
+		this.format = format;
+		this.filePath = filePath;
+		this.listener = listener;
+	}
+
+	public ExportFormat getFormat() { return format; }
+
+	public String getFilePath() { return filePath; }
+
+	// Completes with the file path, or exceptionally with a CancellationException / AnalyticsException
+	public CompletableFuture<String> getResult() { return result; }
+
+	public void cancel() { cancelled = true; }
+
+	public boolean isCancelled() { return cancelled; }
+
+	public boolean isDone() { return result.isDone(); }
+
+	//===========================
+	// USED BY THE EXPORTER
+	//===========================
+
+	// Reports progress and doubles as a cancellation checkpoint
+	void progress(double fraction, String message) {
+		checkCancelled();
+		if (listener != null) listener.onProgress(Math.max(0.0, Math.min(1.0, fraction)), message);
+	}
+
+	void checkCancelled() {
+		if (cancelled) throw new CancellationException("Export cancelled: " + filePath);
+	}
+
+	void complete() {
+		if (listener != null) listener.onProgress(1.0, "Done");
+		result.complete(filePath);
+	}
+
+	void fail(Throwable error) {
+		result.completeExceptionally(error);
+	}
+}
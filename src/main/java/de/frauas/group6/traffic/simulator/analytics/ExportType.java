@@ -12,6 +12,10 @@ public enum ExportType {
 	
 	VEHICLE_TRAVEL_TIMES,	// Travel Time per Vehicle
 	
+	VEHICLE_TRACES,			// Per-step Vehicle State from the History Spill (time range via the filter)
+	
+	SPACE_TIME,				// Occupancy and Speed per Edge/Lane, Position and Time (OccupancyCube)
+	
 	SUMMARY					// Simulation Summary
 	
 }
@@ -0,0 +1,214 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Bit-level codec of the trajectory store (Gorilla style, see Facebook's Gorilla TSDB paper).
+ * Per point: time as delta-of-delta in milliseconds, x/y as delta-of-delta in centimeters
+ * (positions move almost linearly from step to step, so the second difference is tiny),
+ * speed as XOR against the previous value (constant speeds cost a single bit).
+ * The first point of a chunk is stored raw.
+ */
+final class GorillaCodec {
+
+	private GorillaCodec() {}
+
+	static long timeKey(double seconds) { return Math.round(seconds * 1000.0); }
+
+	static long positionKey(double meters) { return Math.round(meters * 100.0); }
+
+	//===========================
+	// ENCODER
+	//===========================
+
+	static final class Encoder {
+		private long[] words = new long[8];
+		private int bits = 0;
+		private int count = 0;
+
+		private long prevTime, prevTimeDelta;
+		private long prevX, prevXDelta;
+		private long prevY, prevYDelta;
+		private long prevSpeed;
+		private int prevLeading = -1, prevTrailing;
+
+		void append(double time, double x, double y, double speed) {
+			long t = timeKey(time), px = positionKey(x), py = positionKey(y);
+			long s = Double.doubleToRawLongBits(speed);
+			if (count == 0) {
+				write(t, 64);
+				write(px, 64);
+				write(py, 64);
+				write(s, 64);
+			} else {
+				prevTimeDelta = writeDeltaOfDelta(t - prevTime, prevTimeDelta);
+				prevXDelta = writeDeltaOfDelta(px - prevX, prevXDelta);
+				prevYDelta = writeDeltaOfDelta(py - prevY, prevYDelta);
+				writeXor(s ^ prevSpeed);
+			}
+			prevTime = t;
+			prevX = px;
+			prevY = py;
+			prevSpeed = s;
+			count++;
+		}
+
+		int count() { return count; }
+
+		int bitLength() { return bits; }
+
+		// Backing words (shared, not copied)
+		long[] words() { return words; }
+
+		// Exactly as many words as used
+		long[] trimmedWords() { return Arrays.copyOf(words, (bits + 63) >>> 6); }
+
+		long sizeInBytes() { return (long) words.length * 8; }
+
+		// Returns the delta, which becomes the reference of the next point
+		private long writeDeltaOfDelta(long delta, long prevDelta) {
+			long dod = delta - prevDelta;
+			if (dod == 0) {
+				write(0, 1);
+			} else if (dod >= -63 && dod <= 64) {
+				write(0b10, 2);
+				write(dod + 63, 7);
+			} else if (dod >= -255 && dod <= 256) {
+				write(0b110, 3);
+				write(dod + 255, 9);
+			} else if (dod >= -2047 && dod <= 2048) {
+				write(0b1110, 4);
+				write(dod + 2047, 12);
+			} else {
+				write(0b1111, 4);
+				write(dod, 64);
+			}
+			return delta;
+		}
+
+		private void writeXor(long xor) {
+			if (xor == 0) {
+				write(0, 1);
+				return;
+			}
+			write(1, 1);
+			int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+			int trailing = Long.numberOfTrailingZeros(xor);
+			if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+				// Meaningful bits fit into the window of the previous value
+				write(0, 1);
+				write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+			} else {
+				int length = 64 - leading - trailing;
+				write(1, 1);
+				write(leading, 5);
+				write(length - 1, 6);
+				write(xor >>> trailing, length);
+				prevLeading = leading;
+				prevTrailing = trailing;
+			}
+		}
+
+		// Appends the lowest n bits of value, most significant bit first
+		private void write(long value, int n) {
+			if (bits + n > (long) words.length * 64) {
+				words = Arrays.copyOf(words, words.length + (words.length >> 1) + 2);
+			}
+			long v = n == 64 ? value : value & ((1L << n) - 1);
+			int index = bits >>> 6;
+			int free = 64 - (bits & 63);
+			if (n <= free) {
+				words[index] |= v << (free - n);
+			} else {
+				words[index] |= v >>> (n - free);
+				words[index + 1] |= v << (64 - (n - free));
+			}
+			bits += n;
+		}
+	}
+
+	//===========================
+	// DECODER
+	//===========================
+
+	// Iterates the points of one chunk; after next() the current point is in time/x/y/speed
+	static final class Decoder {
+		private final long[] words;
+		private final int count;
+		private int position = 0;
+		private int index = 0;
+
+		double time, x, y, speed;
+
+		private long prevTime, prevTimeDelta;
+		private long prevX, prevXDelta;
+		private long prevY, prevYDelta;
+		private long prevSpeed;
+		private int prevLeading, prevTrailing;
+
+		Decoder(long[] words, int count) {
+			this.words = words;
+			this.count = count;
+		}
+
+		boolean hasNext() { return index < count; }
+
+		// Index of the current point
+		int index() { return index - 1; }
+
+		void next() {
+			if (index == 0) {
+				prevTime = read(64);
+				prevX = read(64);
+				prevY = read(64);
+				prevSpeed = read(64);
+			} else {
+				prevTimeDelta = readDeltaOfDelta(prevTimeDelta);
+				prevTime += prevTimeDelta;
+				prevXDelta = readDeltaOfDelta(prevXDelta);
+				prevX += prevXDelta;
+				prevYDelta = readDeltaOfDelta(prevYDelta);
+				prevY += prevYDelta;
+				prevSpeed ^= readXor();
+			}
+			index++;
+			time = prevTime / 1000.0;
+			x = prevX / 100.0;
+			y = prevY / 100.0;
+			speed = Double.longBitsToDouble(prevSpeed);
+		}
+
+		private long readDeltaOfDelta(long prevDelta) {
+			if (read(1) == 0) return prevDelta;
+			if (read(1) == 0) return prevDelta + read(7) - 63;
+			if (read(1) == 0) return prevDelta + read(9) - 255;
+			if (read(1) == 0) return prevDelta + read(12) - 2047;
+			return prevDelta + read(64);
+		}
+
+		private long readXor() {
+			if (read(1) == 0) return 0;
+			if (read(1) == 0) {
+				return read(64 - prevLeading - prevTrailing) << prevTrailing;
+			}
+			prevLeading = (int) read(5);
+			int length = (int) read(6) + 1;
+			prevTrailing = 64 - prevLeading - length;
+			return read(length) << prevTrailing;
+		}
+
+		private long read(int n) {
+			int wordIndex = position >>> 6;
+			int free = 64 - (position & 63);
+			long r;
+			if (n <= free) {
+				r = words[wordIndex] >>> (free - n);
+			} else {
+				int rest = n - free;
+				r = (words[wordIndex] << rest) | (words[wordIndex + 1] >>> (64 - rest));
+			}
+			position += n;
+			return n == 64 ? r : r & ((1L << n) - 1);
+		}
+	}
+}
@@ -0,0 +1,504 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Optional disk-backed history tier for full per-step vehicle state.
+ * Fixed-width records are appended to memory-mapped segment files; only a small index
+ * (time range per segment and the id dictionaries) lives on the heap, so the heap stays
+ * flat while the history grows on local disk. Readers get read-only views of the mapped
+ * segments and decode records in place without copying.
+ * Every run writes into its own directory: the segments, the id dictionaries (vehicles.dict,
+ * edges.dict: one id per line, the line number is the code) and an index file with the time
+ * range per segment, so a finished run can be reopened and decoded later (open()).
+ * Segments are mapped at full size while they are written; close() truncates every segment
+ * file to its records, so a short run does not leave a full-size segment behind.
+ * One writer (the simulation thread), any number of readers.
+ */
+public class HistorySpillStore implements AutoCloseable {
+
+	private static final Logger LOGGER = Logger.getLogger(HistorySpillStore.class.getName());
+
+	// -----------------
+	// RECORD LAYOUT
+	// -----------------
+	public static final int RECORD_SIZE = 48;
+	private static final int OFF_TIME = 0;		// double	simulation time
+	private static final int OFF_STEP = 8;		// int		step counter
+	private static final int OFF_VEHICLE = 12;	// int		vehicle dictionary code
+	private static final int OFF_EDGE = 16;		// int		edge dictionary code (-1 = none)
+	private static final int OFF_LANE = 20;		// int		lane index
+	private static final int OFF_SPEED = 24;	// double	speed (m/s)
+	private static final int OFF_X = 32;		// double	x position
+	private static final int OFF_Y = 40;		// double	y position
+
+	public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20; // 48 MB mapped per open segment
+
+	// -----------------
+	// RUN FILES
+	// -----------------
+	static final String INDEX_FILE = "history.idx";
+	static final String VEHICLE_DICTIONARY = "vehicles.dict";
+	static final String EDGE_DICTIONARY = "edges.dict";
+	private static final String INDEX_HEADER = "history-spill 1";
+	private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("'run-'yyyyMMdd-HHmmss");
+
+	private final Path directory;
+	private final int recordsPerSegment;
+	private final List<Segment> segments = new ArrayList<>();
+	private volatile Segment[] publishedSegments = new Segment[0];
+	private final Dictionary vehicleIds;
+	private final Dictionary edgeIds;
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates a new store in a fresh run directory below baseDirectory
+	 * (run-yyyyMMdd-HHmmss, with a suffix if it exists), so earlier runs are never overwritten.
+	 */
+	public static HistorySpillStore createRun(Path baseDirectory) {
+		return createRun(baseDirectory, DEFAULT_RECORDS_PER_SEGMENT);
+	}
+
+	public static HistorySpillStore createRun(Path baseDirectory, int recordsPerSegment) {
+		String name = LocalDateTime.now().format(RUN_NAME);
+		try {
+			Files.createDirectories(baseDirectory);
+			for (int i = 0; ; i++) {
+				Path runDirectory = baseDirectory.resolve(i == 0 ? name : name + "-" + i);
+				try {
+					Files.createDirectory(runDirectory);
+				} catch (FileAlreadyExistsException e) {
+					// Two runs in the same second: try the next suffix
+					continue;
+				}
+				return new HistorySpillStore(runDirectory, recordsPerSegment);
+			}
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot create history directory below " + baseDirectory, e);
+		}
+	}
+
+	// Writes into an empty directory (see createRun); existing run files are never overwritten
+	public HistorySpillStore(Path directory, int recordsPerSegment) {
+		if (recordsPerSegment <= 0) throw new AnalyticsException("recordsPerSegment must be positive");
+		this.directory = directory;
+		this.recordsPerSegment = recordsPerSegment;
+		try {
+			Files.createDirectories(directory);
+			this.vehicleIds = new Dictionary(directory.resolve(VEHICLE_DICTIONARY));
+			this.edgeIds = new Dictionary(directory.resolve(EDGE_DICTIONARY));
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot create history files in " + directory, e);
+		}
+		LOGGER.info("History spill enabled in " + directory.toAbsolutePath());
+	}
+
+	// Read-only store over the files of a finished run
+	private HistorySpillStore(Path directory, int recordsPerSegment, List<Segment> segments, Dictionary vehicleIds, Dictionary edgeIds) {
+		this.directory = directory;
+		this.recordsPerSegment = recordsPerSegment;
+		this.segments.addAll(segments);
+		this.publishedSegments = segments.toArray(new Segment[0]);
+		this.vehicleIds = vehicleIds;
+		this.edgeIds = edgeIds;
+		this.closed = true;
+	}
+
+	/**
+	 * Reopens the run written to runDirectory (read-only, segments mapped again, records decoded in place).
+	 */
+	public static HistorySpillStore open(Path runDirectory) {
+		try {
+			List<String> index = Files.readAllLines(runDirectory.resolve(INDEX_FILE), StandardCharsets.UTF_8);
+			if (index.size() < 2 || !INDEX_HEADER.equals(index.get(0))) {
+				throw new AnalyticsException("Not a history index: " + runDirectory.resolve(INDEX_FILE));
+			}
+			int recordsPerSegment = Integer.parseInt(index.get(1).split(" ")[1]);
+			List<Segment> segments = new ArrayList<>();
+			for (String line : index.subList(2, index.size())) {
+				// segment <file> <count> <firstTime> <lastTime>
+				String[] f = line.split(" ");
+				Path file = runDirectory.resolve(f[1]);
+				int count = Integer.parseInt(f[2]);
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+					// Map only the records listed in the index: a run that was not closed has full-size segments
+					long length = (long) count * RECORD_SIZE;
+					if (channel.size() < length) {
+						throw new AnalyticsException("History segment " + file + " is shorter than its " + count + " records");
+					}
+					Segment segment = new Segment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+					segment.count = count;
+					segment.firstTime = Double.parseDouble(f[3]);
+					segment.lastTime = Double.parseDouble(f[4]);
+					segments.add(segment);
+				}
+			}
+			return new HistorySpillStore(runDirectory, recordsPerSegment, segments,
+					Dictionary.load(runDirectory.resolve(VEHICLE_DICTIONARY)), Dictionary.load(runDirectory.resolve(EDGE_DICTIONARY)));
+		} catch (IOException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			throw new AnalyticsException("Cannot open history run: " + runDirectory, e);
+		}
+	}
+
+	// Directory of this run's files
+	public Path getDirectory() {
+		return directory;
+	}
+
+	//===========================
+	// WRITE
+	//===========================
+
+	// Appends one vehicle state. Calls must be in non-decreasing time order.
+	public synchronized void append(int step, double time, String vehicleId, String edgeId, int lane, double speed, double x, double y) {
+		if (closed) throw new AnalyticsException("History store is closed");
+		Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+		if (segment == null || segment.count == recordsPerSegment) {
+			segment = openSegment(segments.size());
+			segments.add(segment);
+			publishedSegments = segments.toArray(new Segment[0]);
+			// The index always lists the segments written so far
+			writeIndex();
+		}
+		int base = segment.count * RECORD_SIZE;
+		MappedByteBuffer buf = segment.buffer;
+		buf.putDouble(base + OFF_TIME, time);
+		buf.putInt(base + OFF_STEP, step);
+		buf.putInt(base + OFF_VEHICLE, vehicleIds.code(vehicleId));
+		buf.putInt(base + OFF_EDGE, edgeId == null || edgeId.isEmpty() ? -1 : edgeIds.code(edgeId));
+		buf.putInt(base + OFF_LANE, lane);
+		buf.putDouble(base + OFF_SPEED, speed);
+		buf.putDouble(base + OFF_X, x);
+		buf.putDouble(base + OFF_Y, y);
+		if (segment.count == 0) segment.firstTime = time;
+		segment.lastTime = time;
+		// Volatile write publishes the record to readers
+		segment.count = segment.count + 1;
+	}
+
+	private Segment openSegment(int index) {
+		Path file = directory.resolve(String.format("history-%05d.seg", index));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			// The mapping stays valid after the channel is closed
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+			return new Segment(file, buffer);
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot map history segment: " + file, e);
+		}
+	}
+
+	// Forces written records, the dictionaries and the index to disk
+	public synchronized void flush() {
+		if (closed) return;
+		for (Segment s : segments) s.buffer.force();
+		vehicleIds.flush();
+		edgeIds.flush();
+		writeIndex();
+	}
+
+	// Flushes and closes the dictionary files and truncates the segments; the records stay readable
+	@Override
+	public synchronized void close() {
+		if (closed) return;
+		flush();
+		closed = true;
+		vehicleIds.close();
+		edgeIds.close();
+		for (Segment s : segments) truncate(s);
+		LOGGER.info("History spill closed: " + size() + " records in " + directory.toAbsolutePath());
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Cuts a segment file down to its records and maps it again read-only at that size.
+	 * Views handed out before keep the old mapping; they only read records below count,
+	 * which stay inside the file. Some platforms refuse to truncate a mapped file: the
+	 * segment then keeps its full size and open() still maps only its records.
+	 */
+	private static void truncate(Segment segment) {
+		long length = (long) segment.count * RECORD_SIZE;
+		try (FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			channel.truncate(length);
+			segment.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		} catch (IOException e) {
+			LOGGER.warning("Could not truncate history segment " + segment.file + ": " + e.getMessage());
+		}
+	}
+
+	// Index file: header, segment size, one line per segment (written to a temp file, then moved over the old one)
+	private void writeIndex() {
+		StringBuilder sb = new StringBuilder(INDEX_HEADER).append('\n');
+		sb.append("recordsPerSegment ").append(recordsPerSegment).append('\n');
+		for (Segment s : segments) {
+			sb.append(String.format(Locale.US, "segment %s %d %s %s%n", s.file.getFileName(), s.count,
+					Double.toString(s.firstTime), Double.toString(s.lastTime)));
+		}
+		Path index = directory.resolve(INDEX_FILE);
+		Path tmp = directory.resolve(INDEX_FILE + ".tmp");
+		try {
+			Files.writeString(tmp, sb, StandardCharsets.UTF_8);
+			Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot write history index: " + index, e);
+		}
+	}
+
+	/**
+	 * Closes the store and removes its run files.
+	 * Java cannot unmap a buffer explicitly: the store drops its own mappings here, but a
+	 * mapping lives until its buffer is garbage collected. On Linux and macOS a mapped file can
+	 * be deleted (its disk space is freed with the last mapping); on Windows deleting a file that
+	 * is still mapped fails and is only logged. Cursors and slices obtained before must not be
+	 * used after delete().
+	 */
+	public synchronized void delete() {
+		close();
+		List<Path> files = new ArrayList<>();
+		for (Segment s : segments) files.add(s.file);
+		segments.clear();
+		publishedSegments = new Segment[0];
+		files.add(directory.resolve(INDEX_FILE));
+		files.add(directory.resolve(VEHICLE_DICTIONARY));
+		files.add(directory.resolve(EDGE_DICTIONARY));
+		files.add(directory);
+		for (Path file : files) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				LOGGER.warning("Could not delete history file " + file + ": " + e.getMessage());
+			}
+		}
+	}
+
+	//===========================
+	// READ
+	//===========================
+
+	public long size() {
+		long total = 0;
+		for (Segment s : publishedSegments) total += s.count;
+		return total;
+	}
+
+	public String getVehicleId(int code) { return vehicleIds.id(code); }
+
+	public String getEdgeId(int code) { return code < 0 ? null : edgeIds.id(code); }
+
+	/**
+	 * Returns read-only views over all records with fromTime <= time <= toTime.
+	 * Each buffer is positioned at its first record and limited after its last one,
+	 * records are RECORD_SIZE bytes wide. Nothing is copied.
+	 */
+	public List<ByteBuffer> slices(double fromTime, double toTime) {
+		return slices(fromTime, toTime, Long.MAX_VALUE);
+	}
+
+	// Same as slices(fromTime, toTime), restricted to the first endRecord records ever appended
+	public List<ByteBuffer> slices(double fromTime, double toTime, long endRecord) {
+		List<ByteBuffer> result = new ArrayList<>();
+		Segment[] published = publishedSegments;
+		for (int i = 0; i < published.length; i++) {
+			Segment s = published[i];
+			int count = (int) Math.min(s.count, Math.max(0, endRecord - (long) i * recordsPerSegment));
+			if (count == 0 || s.lastTime < fromTime || s.firstTime > toTime) continue;
+			ByteBuffer view = s.buffer.asReadOnlyBuffer();
+			int first = firstRecordAtOrAfter(view, count, fromTime);
+			int end = firstRecordAtOrAfter(view, count, Math.nextUp(toTime));
+			if (first >= end) continue;
+			view.limit(end * RECORD_SIZE);
+			view.position(first * RECORD_SIZE);
+			result.add(view);
+		}
+		return result;
+	}
+
+	// Cursor over the records of a time range, decoding fields directly from the mapped segments
+	public Cursor query(double fromTime, double toTime) {
+		return new Cursor(slices(fromTime, toTime));
+	}
+
+	/**
+	 * Cursor over the records of a time range among the first endRecord records (e.g. size() at
+	 * snapshot time), so readers see a fixed point-in-time prefix while the writer keeps appending.
+	 */
+	public Cursor query(double fromTime, double toTime, long endRecord) {
+		return new Cursor(slices(fromTime, toTime, endRecord));
+	}
+
+	// Visits all records of a time range
+	public void forEach(double fromTime, double toTime, RecordVisitor visitor) {
+		Cursor cursor = query(fromTime, toTime);
+		while (cursor.next()) visitor.visit(cursor);
+	}
+
+	private static int firstRecordAtOrAfter(ByteBuffer buf, int count, double time) {
+		int lo = 0, hi = count;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (buf.getDouble(mid * RECORD_SIZE + OFF_TIME) < time) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	@FunctionalInterface
+	public interface RecordVisitor {
+		void visit(Cursor record);
+	}
+
+	// Forward-only cursor; getters refer to the current record
+	public final class Cursor {
+		private final List<ByteBuffer> slices;
+		private int sliceIndex = 0;
+		private ByteBuffer current;
+		private int offset = -1;
+
+		private Cursor(List<ByteBuffer> slices) {
+			this.slices = slices;
+		}
+
+		public boolean next() {
+			while (true) {
+				if (current != null) {
+					int nextOffset = offset < 0 ? current.position() : offset + RECORD_SIZE;
+					if (nextOffset < current.limit()) {
+						offset = nextOffset;
+						return true;
+					}
+				}
+				if (sliceIndex >= slices.size()) return false;
+				current = slices.get(sliceIndex++);
+				offset = -1;
+			}
+		}
+
+		public double getTime() { return current.getDouble(offset + OFF_TIME); }
+
+		public int getStep() { return current.getInt(offset + OFF_STEP); }
+
+		public int getVehicleCode() { return current.getInt(offset + OFF_VEHICLE); }
+
+		public String getVehicleId() { return vehicleIds.id(getVehicleCode()); }
+
+		public int getEdgeCode() { return current.getInt(offset + OFF_EDGE); }
+
+		public String getEdgeId() { return HistorySpillStore.this.getEdgeId(getEdgeCode()); }
+
+		public int getLane() { return current.getInt(offset + OFF_LANE); }
+
+		public double getSpeed() { return current.getDouble(offset + OFF_SPEED); }
+
+		public double getX() { return current.getDouble(offset + OFF_X); }
+
+		public double getY() { return current.getDouble(offset + OFF_Y); }
+	}
+
+	//===========================
+	// INTERNAL TYPES
+	//===========================
+
+	private static final class Segment {
+		final Path file;
+		// Replaced by a read-only mapping of the truncated file on close
+		volatile MappedByteBuffer buffer;
+		volatile int count = 0;
+		volatile double firstTime;
+		volatile double lastTime;
+
+		Segment(Path file, MappedByteBuffer buffer) {
+			this.file = file;
+			this.buffer = buffer;
+		}
+	}
+
+	// String <-> int code mapping; codes are published before records that reference them.
+	// New ids are appended to the dictionary file (one per line, line number = code).
+	private static final class Dictionary {
+		private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+		private volatile String[] ids = new String[256];
+		private int size = 0;
+		// Null for a reopened (read-only) dictionary
+		private final BufferedWriter file;
+
+		Dictionary(Path path) throws IOException {
+			this.file = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		}
+
+		private Dictionary() {
+			this.file = null;
+		}
+
+		static Dictionary load(Path path) throws IOException {
+			Dictionary dictionary = new Dictionary();
+			for (String id : Files.readAllLines(path, StandardCharsets.UTF_8)) dictionary.add(id);
+			return dictionary;
+		}
+
+		int code(String id) {
+			Integer code = codes.get(id);
+			if (code != null) return code;
+			if (file != null) {
+				try {
+					file.write(id);
+					file.newLine();
+				} catch (IOException e) {
+					throw new AnalyticsException("Cannot write history dictionary", e);
+				}
+			}
+			return add(id);
+		}
+
+		private int add(String id) {
+			if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+			String[] current = ids;
+			current[size] = id;
+			ids = current; // republish after the write
+			codes.put(id, size);
+			return size++;
+		}
+
+		void flush() {
+			try {
+				if (file != null) file.flush();
+			} catch (IOException e) {
+				throw new AnalyticsException("Cannot write history dictionary", e);
+			}
+		}
+
+		void close() {
+			try {
+				if (file != null) file.close();
+			} catch (IOException e) {
+				LOGGER.warning("Could not close history dictionary: " + e.getMessage());
+			}
+		}
+
+		String id(int code) {
+			String[] current = ids;
+			return code >= 0 && code < current.length ? current[code] : null;
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package de.frauas.group6.traffic.simulator.analytics;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -11,15 +12,53 @@ public interface IStatsCollector {
 	
 	List<Double> getSpeedHistory();
 	
+	double[] getSpeedHistorySince(int fromIndex);
+	
+	TimeSeries.Points getSpeedHistoryDownsampled(int maxPoints);
+	
 	Map<String, Double> getAverageTravelTime();
 	
 	Map<String, Double> getEdgeDensity();
 	
 	Map<String, Integer> getCongestedEdgeIds();
 	
+	// Latest (sampled) step only, immutable; used by the live views and the map heatmap
+	Map<String, Integer> getCurrentCongestedEdgeIds();
+	
+	Map<String, Double> getCurrentEdgeDensities();
+	
+	Map<String, Double> getCurrentEdgeSpeeds();
+	
 	void exportToCsv(String filepath, ExportFilter filter, List<ExportType> types);
 	
 	void exportToPdf(String filepath, ExportFilter filter, List<ExportType> types);
 	
+	void exportToColumnar(String filepath, ExportFilter filter, List<ExportType> types);
+	
+	// Exports a snapshot of the current statistics on a background worker
+	ExportJob exportAsync(ExportFormat format, String filepath, ExportFilter filter, List<ExportType> types, ExportJob.ProgressListener listener);
+	
+	void startLiveCsvExport(String basePath, List<ExportType> types, boolean gzip);
+	
+	void stopLiveCsvExport();
+	
+	// Per-metric sampling intervals, can be changed while the simulation runs
+	SamplingSchedule getSamplingSchedule();
+	
+	// Compressed per-vehicle trajectories, null if not recorded
+	TrajectoryStore getTrajectoryStore();
+	
+	// Space-time occupancy per edge/lane, null if not recorded
+	OccupancyCube getOccupancyCube();
+	
+	// Offline mode: computes the reports from SUMO's net/route/fcd-output/tripinfo files (any may be null)
+	void ingestSumoOutput(Path netFile, Path routeFile, Path fcdFile, Path tripinfoFile);
+	
+	// Stores the aggregates of the current run in a run archive for later comparison
+	RunArchive.RunInfo archiveRun(RunArchive archive, String scenario);
+	
+	// End of the run: closes live exports and archives the run (if enabled)
+	void finishRun();
+	
 
 }
@@ -0,0 +1,139 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+/**
+ * Live CSV export: rows are appended while the simulation runs instead of being
+ * computed at the end. Every ExportType gets its own file and its own writer thread,
+ * so the files are written in parallel and a crash only loses the unflushed tail.
+ * Called from the simulation thread; start/stop may come from the FX thread.
+ */
+public class LiveCsvExporter {
+
+	private static final Logger LOGGER = Logger.getLogger(LiveCsvExporter.class.getName());
+
+	// Buffered rows are pushed to disk at least this often (in simulation steps)
+	private static final int FLUSH_INTERVAL_STEPS = 60;
+
+	private final Map<ExportType, ChannelCsvWriter> writers = new EnumMap<>(ExportType.class);
+	private int stepsSinceFlush = 0;
+	private boolean closed = false;
+
+	/**
+	 * @param basePath	path prefix, e.g. "reports/run1" -> "reports/run1_avg_speed.csv"
+	 * @param types		report types to stream (SUMMARY = all)
+	 * @param gzip		compress files with gzip (".csv.gz")
+	 */
+	public LiveCsvExporter(String basePath, List<ExportType> types, boolean gzip) {
+		List<ExportType> effectiveTypes = new ArrayList<>();
+		for (ExportType t : types.contains(ExportType.SUMMARY) ? List.of(ExportType.values()) : types) {
+			// Space-time cells are only final once their time bin is over, they are exported from the cube;
+			// vehicle traces are already on disk in the history spill
+			if (t == ExportType.SPACE_TIME || t == ExportType.VEHICLE_TRACES) continue;
+			if (t != ExportType.SUMMARY && !effectiveTypes.contains(t)) effectiveTypes.add(t);
+		}
+		try {
+			for (ExportType type : effectiveTypes) {
+				Path file = Paths.get(basePath + "_" + type.name().toLowerCase() + (gzip ? ".csv.gz" : ".csv"));
+				ChannelCsvWriter writer = new ChannelCsvWriter(file, gzip);
+				writer.writeRaw(headerFor(type));
+				writers.put(type, writer);
+			}
+		} catch (RuntimeException e) {
+			writers.values().forEach(ChannelCsvWriter::close);
+			throw e;
+		}
+		LOGGER.info("Live CSV export started: " + basePath + " " + writers.keySet());
+	}
+
+	private static String headerFor(ExportType type) {
+		switch (type) {
+			case AVG_SPEED:				return "Step,Time(s),AverageSpeed(m/s)\n";
+			case AVG_TRAVEL_TIME:		return "RouteId,RouteEdges,AverageTravelTime(s)\n";
+			case EDGE_DENSITY:			return "Step,Time(s),EdgeId,Density(veh/m)\n";
+			case CONGESTED_EDGES:		return "Step,Time(s),EdgeId,StoppedVehicles\n";
+			case VEHICLE_TRAVEL_TIMES:	return "vehicleId,color,routeId,travelTime(s)\n";
+			default:					return "";
+		}
+	}
+
+	//===========================
+	// ROWS (simulation thread)
+	//===========================
+
+	public synchronized void onAverageSpeed(int step, double time, double avgSpeed) {
+		ChannelCsvWriter w = writer(ExportType.AVG_SPEED);
+		if (w != null) w.writeRow(step, format(time, 2), format(avgSpeed, 2));
+	}
+
+	public synchronized void onEdgeDensity(int step, double time, String edgeId, double density) {
+		ChannelCsvWriter w = writer(ExportType.EDGE_DENSITY);
+		if (w != null) w.writeRow(step, format(time, 2), edgeId, format(density, 4));
+	}
+
+	public synchronized void onCongestion(int step, double time, String edgeId, int stoppedVehicles) {
+		ChannelCsvWriter w = writer(ExportType.CONGESTED_EDGES);
+		if (w != null) w.writeRow(step, format(time, 2), edgeId, stoppedVehicles);
+	}
+
+	// One row per vehicle when it arrives
+	public synchronized void onTrip(String vehicleId, String color, String routeId, double travelTime) {
+		ChannelCsvWriter w = writer(ExportType.VEHICLE_TRAVEL_TIMES);
+		if (w != null) w.writeRow(vehicleId, color, routeId, format(travelTime, 2));
+	}
+
+	// Called once per step after all rows of the step were written
+	public synchronized void endStep() {
+		if (closed || ++stepsSinceFlush < FLUSH_INTERVAL_STEPS) return;
+		stepsSinceFlush = 0;
+		flushAll();
+	}
+
+	//===========================
+	// FINISH
+	//===========================
+
+	/**
+	 * Writes the per-route averages (only known at the end) and closes all files.
+	 * The remaining buffers are flushed in parallel.
+	 */
+	public synchronized void close(Map<String, Double> avgTravelTimeRoute, Map<String, List<String>> routeEdges) {
+		if (closed) return;
+		ChannelCsvWriter w = writer(ExportType.AVG_TRAVEL_TIME);
+		if (w != null) {
+			avgTravelTimeRoute.forEach((routeId, avgTime) -> {
+				List<String> edges = routeEdges.getOrDefault(routeId, List.of());
+				w.writeRow(routeId, "(" + String.join(" ", edges) + ")", format(avgTime, 2));
+			});
+		}
+		closed = true;
+		CompletableFuture.allOf(writers.values().stream()
+				.map(writer -> CompletableFuture.runAsync(writer::close))
+				.toArray(CompletableFuture[]::new)).join();
+		LOGGER.info("Live CSV export finished " + writers.keySet());
+	}
+
+	public synchronized boolean isClosed() { return closed; }
+
+	private void flushAll() {
+		CompletableFuture.allOf(writers.values().stream()
+				.map(writer -> CompletableFuture.runAsync(writer::flush))
+				.toArray(CompletableFuture[]::new)).join();
+	}
+
+	private ChannelCsvWriter writer(ExportType type) {
+		return closed ? null : writers.get(type);
+	}
+
+	private static String format(double value, int decimals) {
+		return String.format(Locale.US, "%." + decimals + "f", value);
+	}
+}
@@ -0,0 +1,38 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running sum / count / mean that many threads can update at once.
+ * Both parts are striped adders, so concurrent add() calls do not contend on a single
+ * memory location. Reads are weakly consistent (sum and count are read separately);
+ * StatsCollector validates its snapshots against the running step when an exact pair is needed.
+ */
+public final class MeanAccumulator {
+
+	private final DoubleAdder sum = new DoubleAdder();
+	private final LongAdder count = new LongAdder();
+
+	public void add(double value) {
+		sum.add(value);
+		count.increment();
+	}
+
+	// Merges a partial result (e.g. of one worker thread)
+	public void add(double partialSum, long partialCount) {
+		if (partialCount == 0) return;
+		sum.add(partialSum);
+		count.add(partialCount);
+	}
+
+	public double sum() { return sum.sum(); }
+
+	public long count() { return count.sum(); }
+
+	// 0.0 if nothing was added yet
+	public double mean() {
+		long n = count.sum();
+		return n > 0 ? sum.sum() / n : 0.0;
+	}
+}
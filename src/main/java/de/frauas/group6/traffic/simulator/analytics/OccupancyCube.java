@@ -0,0 +1,330 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Binned space-time accumulator: row (edge or lane) x position bin x time bin, holding the number
+ * of vehicle observations and the speed sum per cell in primitive arrays.
+ * Filled incrementally from the per-step vehicle state, it gives space-time diagrams
+ * (position along the edge over time, colored by speed) and lane occupancy heatmaps without
+ * keeping any per-vehicle history.
+ * Memory is fixed: the time axis is a ring of timeBins bins (the oldest bin is reused when time
+ * moves on), rows are allocated on first use while they fit into the memory budget; vehicles on
+ * rows beyond the budget are not counted (see getDroppedRows).
+ * All methods are thread-safe; steps come from the simulation thread, slices are read from anywhere.
+ */
+public class OccupancyCube {
+
+	private static final Logger LOGGER = Logger.getLogger(OccupancyCube.class.getName());
+
+	public enum Granularity { EDGE, LANE }
+
+	// Spec of -Dsimulator.occupancy=on: lanes, 20 position bins, 10 s bins, 1 hour, 16 MB
+	public static final String DEFAULT_SPEC = "LANE:20:10:360:16";
+	// int count + float speed sum
+	static final int BYTES_PER_CELL = 4 + 4;
+
+	private final Granularity granularity;
+	private final int positionBins;
+	private final double timeBinSeconds;
+	private final int timeBins;
+	private final long budgetBytes;
+	private final int maxRows;
+
+	// Row dictionary in order of first appearance
+	private final Map<String, Integer> rowIndex = new HashMap<>();
+	private final List<String> rowIds = new ArrayList<>();
+	private final List<String> rowEdges = new ArrayList<>();
+	private int[][] counts = new int[0][];
+	private float[][] speedSums = new float[0][];
+	// Edge lengths in m; vehicles on edges without a length (e.g. junction internals) are not binned
+	private final Map<String, Double> edgeLengths = new HashMap<>();
+	// Ring of time bins: absolute bin index held by each slot (-1 = empty) and steps recorded in it
+	private final long[] slotBin;
+	private final int[] slotSteps;
+	private long newestBin = -1;
+	private int droppedRows = 0;
+	private long version = 0;
+	// Slices of all rows as of copiedVersion (see getSlices), shared until the next step
+	private List<Slice> copiedSlices;
+	private long copiedVersion = -1;
+
+	public OccupancyCube(Granularity granularity, int positionBins, double timeBinSeconds, int timeBins, long budgetBytes) {
+		if (granularity == null) throw new AnalyticsException("Occupancy granularity must be set");
+		if (positionBins <= 0 || timeBins <= 0) throw new AnalyticsException("Occupancy bins must be positive: " + positionBins + " x " + timeBins);
+		if (!(timeBinSeconds > 0) || Double.isInfinite(timeBinSeconds)) throw new AnalyticsException("Invalid occupancy time bin: " + timeBinSeconds);
+		long rowBytes = (long) positionBins * timeBins * BYTES_PER_CELL;
+		if (budgetBytes < rowBytes) throw new AnalyticsException("Occupancy budget of " + budgetBytes + " bytes is smaller than one row (" + rowBytes + " bytes)");
+		this.granularity = granularity;
+		this.positionBins = positionBins;
+		this.timeBinSeconds = timeBinSeconds;
+		this.timeBins = timeBins;
+		this.budgetBytes = budgetBytes;
+		this.maxRows = (int) Math.min(Integer.MAX_VALUE, budgetBytes / rowBytes);
+		this.slotBin = new long[timeBins];
+		this.slotSteps = new int[timeBins];
+		Arrays.fill(slotBin, -1);
+	}
+
+	/**
+	 * Parses a spec "GRANULARITY:positionBins:timeBinSeconds:timeBins:budgetMB", e.g. "LANE:20:10:360:16".
+	 * Returns null for "off", "on" uses DEFAULT_SPEC.
+	 */
+	public static OccupancyCube fromSpec(String spec) {
+		if (spec == null || spec.isBlank() || "off".equalsIgnoreCase(spec.trim())) return null;
+		if ("on".equalsIgnoreCase(spec.trim())) spec = DEFAULT_SPEC;
+		String[] f = spec.split(":");
+		if (f.length != 5) throw new AnalyticsException("Invalid occupancy spec '" + spec + "', expected GRANULARITY:positionBins:timeBinSeconds:timeBins:budgetMB");
+		try {
+			return new OccupancyCube(Granularity.valueOf(f[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(f[1].trim()),
+					Double.parseDouble(f[2].trim()), Integer.parseInt(f[3].trim()), (long) (Double.parseDouble(f[4].trim()) * 1024 * 1024));
+		} catch (IllegalArgumentException e) {
+			throw new AnalyticsException("Invalid occupancy spec '" + spec + "'", e);
+		}
+	}
+
+	//===========================
+	// WRITE
+	//===========================
+
+	// Length of an edge in m (lane 0), needed to bin positions along it
+	public synchronized void setEdgeLength(String edgeId, double length) {
+		if (edgeId != null && length > 0 && !Double.valueOf(length).equals(edgeLengths.put(edgeId, length))) version++;
+	}
+
+	synchronized boolean hasEdgeLengths() {
+		return !edgeLengths.isEmpty();
+	}
+
+	/**
+	 * Adds the vehicles of one step; the first n entries of the arrays are used.
+	 * Steps must arrive in time order, steps older than the time window are ignored.
+	 * @param positions	distance from the start of the edge in m
+	 */
+	synchronized void addStep(double time, int n, String[] edgeIds, int[] lanes, double[] positions, double[] speeds) {
+		int slot = slotFor(time);
+		if (slot < 0) return;
+		slotSteps[slot]++;
+		int cellBase = slot * positionBins;
+		for (int i = 0; i < n; i++) {
+			String edgeId = edgeIds[i];
+			if (edgeId == null) continue;
+			Double length = edgeLengths.get(edgeId);
+			if (length == null) continue;
+			int row = rowFor(edgeId, lanes[i]);
+			if (row < 0) continue;
+			int bin = (int) (positions[i] / length * positionBins);
+			if (bin < 0) bin = 0;
+			else if (bin >= positionBins) bin = positionBins - 1;
+			counts[row][cellBase + bin]++;
+			speedSums[row][cellBase + bin] += (float) speeds[i];
+		}
+		version++;
+	}
+
+	// Ring slot of the time, clearing slots that are reused; -1 if the time is older than the window
+	private int slotFor(double time) {
+		long bin = (long) Math.floor(time / timeBinSeconds);
+		if (bin < 0) bin = 0;
+		if (newestBin >= 0 && bin <= newestBin - timeBins) return -1;
+		if (bin > newestBin) {
+			long first = Math.max(newestBin + 1, bin - timeBins + 1);
+			for (long b = first; b <= bin; b++) {
+				int slot = (int) (b % timeBins);
+				if (slotBin[slot] >= 0) clearSlot(slot);
+				slotBin[slot] = b;
+				slotSteps[slot] = 0;
+			}
+			newestBin = bin;
+		}
+		return (int) (bin % timeBins);
+	}
+
+	private void clearSlot(int slot) {
+		int from = slot * positionBins;
+		for (int r = 0; r < rowIds.size(); r++) {
+			Arrays.fill(counts[r], from, from + positionBins, 0);
+			Arrays.fill(speedSums[r], from, from + positionBins, 0f);
+		}
+	}
+
+	private int rowFor(String edgeId, int lane) {
+		String rowId = granularity == Granularity.LANE ? edgeId + "_" + lane : edgeId;
+		Integer row = rowIndex.get(rowId);
+		if (row != null) return row;
+		if (rowIds.size() >= maxRows) {
+			if (droppedRows++ == 0) LOGGER.warning("Occupancy budget of " + budgetBytes + " bytes is full (" + maxRows + " rows), further rows are not recorded");
+			rowIndex.put(rowId, -1);
+			return -1;
+		}
+		int index = rowIds.size();
+		if (index == counts.length) {
+			int size = Math.min(maxRows, Math.max(16, index * 2));
+			counts = Arrays.copyOf(counts, size);
+			speedSums = Arrays.copyOf(speedSums, size);
+		}
+		counts[index] = new int[positionBins * timeBins];
+		speedSums[index] = new float[positionBins * timeBins];
+		rowIndex.put(rowId, index);
+		rowIds.add(rowId);
+		rowEdges.add(edgeId);
+		return index;
+	}
+
+	//===========================
+	// QUERIES
+	//===========================
+
+	public Granularity getGranularity() { return granularity; }
+
+	public int getPositionBins() { return positionBins; }
+
+	public double getTimeBinSeconds() { return timeBinSeconds; }
+
+	public int getTimeBins() { return timeBins; }
+
+	public long getBudgetBytes() { return budgetBytes; }
+
+	public synchronized long getAllocatedBytes() {
+		return (long) rowIds.size() * positionBins * timeBins * BYTES_PER_CELL;
+	}
+
+	// Rows (edges or lanes) that were seen but did not fit into the budget
+	public synchronized int getDroppedRows() { return droppedRows; }
+
+	// Changes with every recorded step (views redraw only when it changed)
+	public synchronized long getVersion() { return version; }
+
+	// Row ids in order of first appearance ("<edge>" or "<edge>_<lane>")
+	public synchronized List<String> getRowIds() {
+		return Collections.unmodifiableList(new ArrayList<>(rowIds));
+	}
+
+	// Rows of one edge: the edge itself, or its lanes in lane order
+	public synchronized List<String> getRowIdsOfEdge(String edgeId) {
+		List<String> result = new ArrayList<>();
+		for (int r = 0; r < rowIds.size(); r++) {
+			if (rowEdges.get(r).equals(edgeId)) result.add(rowIds.get(r));
+		}
+		result.sort((a, b) -> a.length() != b.length() ? a.length() - b.length() : a.compareTo(b));
+		return result;
+	}
+
+	// Edges with at least one row, in order of first appearance
+	public synchronized List<String> getEdgeIds() {
+		return new ArrayList<>(new LinkedHashSet<>(rowEdges));
+	}
+
+	// Copy of the retained time window of one row, null if the row is unknown
+	public synchronized Slice getSlice(String rowId) {
+		Integer row = rowIndex.get(rowId);
+		if (row == null || row < 0 || newestBin < 0) return null;
+		long oldest = Math.max(0, newestBin - timeBins + 1);
+		int bins = (int) (newestBin - oldest + 1);
+		float[] occupancy = new float[bins * positionBins];
+		float[] meanSpeed = new float[bins * positionBins];
+		for (int t = 0; t < bins; t++) {
+			long bin = oldest + t;
+			int slot = (int) (bin % timeBins);
+			int steps = slotBin[slot] == bin ? slotSteps[slot] : 0;
+			for (int p = 0; p < positionBins; p++) {
+				int cell = slot * positionBins + p;
+				int count = steps > 0 ? counts[row][cell] : 0;
+				occupancy[t * positionBins + p] = steps > 0 ? (float) count / steps : 0f;
+				meanSpeed[t * positionBins + p] = count > 0 ? speedSums[row][cell] / count : Float.NaN;
+			}
+		}
+		return new Slice(rowId, rowEdges.get(row), edgeLengths.getOrDefault(rowEdges.get(row), 0.0), oldest * timeBinSeconds,
+				timeBinSeconds, bins, positionBins, occupancy, meanSpeed);
+	}
+
+	// Copies of all rows in row order; the same copy is returned until the next step is recorded
+	public synchronized List<Slice> getSlices() {
+		if (copiedSlices == null || copiedVersion != version) {
+			List<Slice> slices = new ArrayList<>(rowIds.size());
+			for (String rowId : rowIds) {
+				Slice slice = getSlice(rowId);
+				if (slice != null) slices.add(slice);
+			}
+			copiedSlices = Collections.unmodifiableList(slices);
+			copiedVersion = version;
+		}
+		return copiedSlices;
+	}
+
+	/**
+	 * Immutable copy of one row: time bins (oldest first) x position bins.
+	 * Occupancy is the mean number of vehicles in a cell per recorded step.
+	 */
+	public static final class Slice {
+		private final String rowId;
+		private final String edgeId;
+		private final double edgeLength;
+		private final double startTime;
+		private final double timeBinSeconds;
+		private final int timeBins;
+		private final int positionBins;
+		private final float[] occupancy;
+		private final float[] meanSpeed;
+
+		Slice(String rowId, String edgeId, double edgeLength, double startTime, double timeBinSeconds, int timeBins, int positionBins,
+				float[] occupancy, float[] meanSpeed) {
+			this.rowId = rowId;
+			this.edgeId = edgeId;
+			this.edgeLength = edgeLength;
+			this.startTime = startTime;
+			this.timeBinSeconds = timeBinSeconds;
+			this.timeBins = timeBins;
+			this.positionBins = positionBins;
+			this.occupancy = occupancy;
+			this.meanSpeed = meanSpeed;
+		}
+
+		public String getRowId() { return rowId; }
+
+		public String getEdgeId() { return edgeId; }
+
+		public double getEdgeLength() { return edgeLength; }
+
+		// Simulation time at the start of time bin 0
+		public double getStartTime() { return startTime; }
+
+		public double getTimeBinSeconds() { return timeBinSeconds; }
+
+		public int getTimeBins() { return timeBins; }
+
+		public int getPositionBins() { return positionBins; }
+
+		// Distance from the start of the edge where a position bin begins, in m
+		public double getPositionStart(int positionBin) { return edgeLength * positionBin / positionBins; }
+
+		public double getOccupancy(int timeBin, int positionBin) { return occupancy[timeBin * positionBins + positionBin]; }
+
+		// Vehicles per m in the cell
+		public double getDensity(int timeBin, int positionBin) {
+			return edgeLength > 0 ? occupancy[timeBin * positionBins + positionBin] / (edgeLength / positionBins) : 0.0;
+		}
+
+		// NaN where no vehicle was seen
+		public double getMeanSpeed(int timeBin, int positionBin) { return meanSpeed[timeBin * positionBins + positionBin]; }
+
+		// Mean occupancy per position bin over the whole window (lane heatmaps)
+		public double[] getOccupancyProfile() {
+			double[] profile = new double[positionBins];
+			if (timeBins == 0) return profile;
+			for (int t = 0; t < timeBins; t++) {
+				for (int p = 0; p < positionBins; p++) profile[p] += occupancy[t * positionBins + p];
+			}
+			for (int p = 0; p < positionBins; p++) profile[p] /= timeBins;
+			return profile;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.awt.Color;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Font;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+
+/**
+ * Writes a (possibly very large) result table into a PDF document page by page.
+ * The table is used in OpenPDF's "large table" mode: every FLUSH_ROWS rows the rows added
+ * so far are laid out, written to the document and dropped from memory. The header row is
+ * repeated on every page. Cost grows with the number of rows, memory stays constant.
+ */
+class PdfTableStream {
+
+	private static final int FLUSH_ROWS = 200;
+	private static final Font HEADER_FONT = new Font(Font.HELVETICA, 10, Font.BOLD, new Color(60, 60, 60));
+	private static final Font BODY_FONT = new Font(Font.HELVETICA, 9);
+
+	private final Document document;
+	private final PdfPTable table;
+	private int pendingRows = 0;
+	private long rowCount = 0;
+
+	PdfTableStream(Document document, float widthPercentage, float[] widths, String... headers) {
+		this.document = document;
+		this.table = new PdfPTable(widths.length);
+		try {
+			table.setWidths(widths);
+		} catch (DocumentException e) {
+			throw new AnalyticsException("Invalid PDF table widths", e);
+		}
+		table.setWidthPercentage(widthPercentage);
+		table.setHeaderRows(1);
+		table.setComplete(false);
+		for (String header : headers) table.addCell(new PdfPCell(new Phrase(header, HEADER_FONT)));
+	}
+
+	void addRow(String... cells) {
+		for (String cell : cells) table.addCell(new Phrase(cell == null ? "" : cell, BODY_FONT));
+		rowCount++;
+		if (++pendingRows == FLUSH_ROWS) {
+			add();
+			pendingRows = 0;
+		}
+	}
+
+	// Writes the remaining rows; returns false if the table had no rows (nothing is written then)
+	boolean finish() {
+		if (rowCount == 0) return false;
+		table.setComplete(true);
+		add();
+		return true;
+	}
+
+	private void add() {
+		try {
+			document.add(table);
+		} catch (DocumentException e) {
+			throw new AnalyticsException("Failed to write PDF table", e);
+		}
+	}
+}
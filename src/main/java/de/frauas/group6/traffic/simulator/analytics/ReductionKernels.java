@@ -0,0 +1,134 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.logging.Logger;
+
+/**
+ * Primitive-array kernels for the per-step reductions (speed sums, moving-vehicle counts,
+ * density = count / length, congestion threshold counts).
+ * Every kernel has a scalar version and a SIMD version (VectorReductionKernels, jdk.incubator.vector).
+ * The SIMD version lives in src/vector/java and is only compiled with the vector profile (mvn -Pvector),
+ * so it is loaded reflectively. Which one runs is decided at runtime: -Dsimulator.simd=auto (default:
+ * SIMD if it was compiled in and the JVM was started with --add-modules jdk.incubator.vector), true or
+ * false, or setVectorEnabled(...).
+ * Both versions give the same results; sums may differ in the last bits (different addition order).
+ */
+final class ReductionKernels {
+
+	private static final Logger LOGGER = Logger.getLogger(ReductionKernels.class.getName());
+
+	private static final String VECTOR_CLASS = ReductionKernels.class.getPackageName() + ".VectorReductionKernels";
+
+	static final Kernels SCALAR = new Scalar();
+	// null if the vector profile was not built or the vector module is not loaded
+	static final Kernels VECTOR = loadVector();
+	static final boolean VECTOR_AVAILABLE = VECTOR != null;
+	private static volatile Kernels active = initialMode() ? VECTOR : SCALAR;
+
+	private ReductionKernels() {}
+
+	// The four kernels, implemented by Scalar and VectorReductionKernels
+	interface Kernels {
+		double[] sumAndCountAbove(double[] values, int n, double threshold);
+		void divide(int[] counts, double[] lengths, double[] out, int n);
+		int selectAtLeast(int[] values, int n, int threshold, int[] outIndices);
+		void add(int[] target, int[] source, int n);
+	}
+
+	private static Kernels loadVector() {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+		try {
+			return (Kernels) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+		} catch (ClassNotFoundException e) {
+			LOGGER.info("SIMD kernels not compiled in (build with -Pvector), using scalar kernels");
+			return null;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			LOGGER.warning("Cannot load SIMD kernels, using scalar kernels: " + e);
+			return null;
+		}
+	}
+
+	private static boolean initialMode() {
+		String mode = System.getProperty("simulator.simd", "auto").trim();
+		boolean wanted = !"false".equalsIgnoreCase(mode);
+		if (wanted && !VECTOR_AVAILABLE && "true".equalsIgnoreCase(mode)) {
+			LOGGER.warning("SIMD kernels requested but not available (build with -Pvector, run with --add-modules jdk.incubator.vector), using scalar kernels");
+		}
+		return wanted && VECTOR_AVAILABLE;
+	}
+
+	static boolean isVectorEnabled() {
+		return active == VECTOR;
+	}
+
+	// Runtime switch; stays scalar if the vector kernels are not available. Returns the mode now in use
+	static boolean setVectorEnabled(boolean enabled) {
+		active = enabled && VECTOR_AVAILABLE ? VECTOR : SCALAR;
+		return isVectorEnabled();
+	}
+
+	//===========================
+	// DISPATCH
+	//===========================
+
+	// {sum, count} of the first n values that are > threshold
+	static double[] sumAndCountAbove(double[] values, int n, double threshold) {
+		return active.sumAndCountAbove(values, n, threshold);
+	}
+
+	// out[i] = counts[i] / lengths[i], 0 where the length is not positive
+	static void divide(int[] counts, double[] lengths, double[] out, int n) {
+		active.divide(counts, lengths, out, n);
+	}
+
+	// Writes the indices i < n with values[i] >= threshold to outIndices (ascending), returns how many
+	static int selectAtLeast(int[] values, int n, int threshold, int[] outIndices) {
+		return active.selectAtLeast(values, n, threshold, outIndices);
+	}
+
+	// target[i] += source[i] for i < n
+	static void add(int[] target, int[] source, int n) {
+		active.add(target, source, n);
+	}
+
+	//===========================
+	// SCALAR
+	//===========================
+
+	static final class Scalar implements Kernels {
+
+		private Scalar() {}
+
+		@Override
+		public double[] sumAndCountAbove(double[] values, int n, double threshold) {
+			double sum = 0.0;
+			int count = 0;
+			for (int i = 0; i < n; i++) {
+				double v = values[i];
+				if (v > threshold) {
+					sum += v;
+					count++;
+				}
+			}
+			return new double[] {sum, count};
+		}
+
+		@Override
+		public void divide(int[] counts, double[] lengths, double[] out, int n) {
+			for (int i = 0; i < n; i++) out[i] = lengths[i] > 0 ? counts[i] / lengths[i] : 0.0;
+		}
+
+		@Override
+		public int selectAtLeast(int[] values, int n, int threshold, int[] outIndices) {
+			int found = 0;
+			for (int i = 0; i < n; i++) {
+				if (values[i] >= threshold) outIndices[found++] = i;
+			}
+			return found;
+		}
+
+		@Override
+		public void add(int[] target, int[] source, int n) {
+			for (int i = 0; i < n; i++) target[i] += source[i];
+		}
+	}
+}
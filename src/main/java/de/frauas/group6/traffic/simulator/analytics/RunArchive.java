@@ -0,0 +1,308 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Local archive of finished runs for comparisons across runs.
+ * Every run is stored as one columnar file (see ColumnarWriter) with its aggregates:
+ *   meta				key, value (scenario, date, config hash, steps, sim time, trips)
+ *   route_summary		route, trips, mean, p50, p90, p95, max travel time
+ *   route_sketch		route, bucket, count (TravelTimeSketch, mergeable across runs)
+ *   edge_density		edge, window, start time, mean density per window
+ *   congestion_max		edge, maximum number of stopped vehicles
+ * Runs are listed in index.csv (scenario, date, file, config hash, ...), so finding the runs of
+ * a scenario in a date range never opens a run file.
+ */
+public class RunArchive {
+
+	private static final Logger LOGGER = Logger.getLogger(RunArchive.class.getName());
+	private static final String INDEX_FILE = "index.csv";
+	private static final String INDEX_HEADER = "scenario,date,file,configHash,steps,simTime,trips\n";
+	private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+	private final Path directory;
+	private final List<RunInfo> runs = new ArrayList<>();
+
+	public RunArchive(Path directory) {
+		this.directory = directory;
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot create run archive " + directory, e);
+		}
+		loadIndex();
+	}
+
+	public Path getDirectory() { return directory; }
+
+	//===========================
+	// ARCHIVE A RUN
+	//===========================
+
+	/**
+	 * Stores the aggregates of a finished run and adds it to the index.
+	 * @param scenario		name used to group comparable runs (e.g. the route file)
+	 * @param configHash	see configHash(...); runs with different hashes are not like for like
+	 */
+	public synchronized RunInfo archive(StatsSnapshot snapshot, String scenario, String configHash) {
+		LocalDateTime date = LocalDateTime.now();
+		Path scenarioDir = directory.resolve(sanitize(scenario));
+		String name = FILE_DATE.format(date);
+		Path file = scenarioDir.resolve(name + ".tscol");
+		// Two runs archived within the same millisecond must not overwrite each other
+		for (int n = 2; Files.exists(file); n++) file = scenarioDir.resolve(name + "-" + n + ".tscol");
+		try {
+			Files.createDirectories(file.getParent());
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot create run archive directory for " + scenario, e);
+		}
+		RunInfo info = new RunInfo(escape(scenario), date, directory.relativize(file).toString().replace('\\', '/'), configHash,
+				snapshot.step, snapshot.simTime, snapshot.trips.size());
+		writeRun(file, snapshot, info);
+		appendIndex(info);
+		runs.add(info);
+		LOGGER.info("Archived run " + info.getFile() + " (" + info.getTrips() + " trips)");
+		return info;
+	}
+
+	private void writeRun(Path file, StatsSnapshot snapshot, RunInfo info) {
+		try (ColumnarWriter writer = new ColumnarWriter(file)) {
+			ColumnarWriter.Table meta = writer.table("meta", ColumnarWriter.Column.string("key"), ColumnarWriter.Column.string("value"));
+			meta.putString(0, "scenario").putString(1, info.scenario).endRow();
+			meta.putString(0, "date").putString(1, info.date.toString()).endRow();
+			meta.putString(0, "configHash").putString(1, info.configHash).endRow();
+			meta.putString(0, "steps").putString(1, Integer.toString(info.steps)).endRow();
+			meta.putString(0, "simTime").putString(1, Double.toString(info.simTime)).endRow();
+			meta.putString(0, "densityWindowSeconds").putString(1, Double.toString(StatsCollector.DENSITY_WINDOW_SECONDS)).endRow();
+
+			// Travel time sketch per route
+			Map<String, TravelTimeSketch> sketches = new LinkedHashMap<>();
+			for (StatsSnapshot.Trip trip : snapshot.trips) {
+				String route = trip.routeId != null ? trip.routeId : "";
+				sketches.computeIfAbsent(route, r -> new TravelTimeSketch()).add(trip.travelTime);
+			}
+			ColumnarWriter.Table summary = writer.table("route_summary", ColumnarWriter.Column.string("route"), ColumnarWriter.Column.int32("trips"),
+					ColumnarWriter.Column.float64("mean"), ColumnarWriter.Column.float64("p50"), ColumnarWriter.Column.float64("p90"),
+					ColumnarWriter.Column.float64("p95"), ColumnarWriter.Column.float64("max"));
+			ColumnarWriter.Table sketchTable = writer.table("route_sketch", ColumnarWriter.Column.string("route"),
+					ColumnarWriter.Column.int32("bucket"), ColumnarWriter.Column.int32("count"));
+			sketches.forEach((route, sketch) -> {
+				summary.putString(0, route).putInt(1, (int) sketch.count()).putDouble(2, sketch.mean()).putDouble(3, sketch.quantile(0.5))
+						.putDouble(4, sketch.quantile(0.9)).putDouble(5, sketch.quantile(0.95)).putDouble(6, sketch.max()).endRow();
+				sketch.buckets().forEach((bucket, n) -> sketchTable.putString(0, route).putInt(1, bucket).putInt(2, n.intValue()).endRow());
+			});
+
+			ColumnarWriter.Table density = writer.table("edge_density", ColumnarWriter.Column.string("edge"), ColumnarWriter.Column.int32("window"),
+					ColumnarWriter.Column.float64("start"), ColumnarWriter.Column.float64("density"));
+			snapshot.densityWindows.forEach((edge, perWindow) -> perWindow.forEach((window, value) ->
+					density.putString(0, edge).putInt(1, window).putDouble(2, window * StatsCollector.DENSITY_WINDOW_SECONDS).putDouble(3, value).endRow()));
+
+			ColumnarWriter.Table congestion = writer.table("congestion_max", ColumnarWriter.Column.string("edge"), ColumnarWriter.Column.int32("stopped"));
+			snapshot.congestion.forEach((edge, stopped) -> congestion.putString(0, edge).putInt(1, stopped).endRow());
+		}
+	}
+
+	//===========================
+	// INDEX
+	//===========================
+
+	private void loadIndex() {
+		Path index = directory.resolve(INDEX_FILE);
+		if (!Files.exists(index)) return;
+		try {
+			List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+			for (int i = 1; i < lines.size(); i++) {
+				String line = lines.get(i);
+				if (line.isBlank()) continue;
+				String[] f = line.split(",", -1);
+				if (f.length < 7) {
+					LOGGER.warning("Skipping malformed run archive index line " + (i + 1) + ": " + line);
+					continue;
+				}
+				runs.add(new RunInfo(f[0], LocalDateTime.parse(f[1]), f[2], f[3], Integer.parseInt(f[4]),
+						Double.parseDouble(f[5]), Integer.parseInt(f[6])));
+			}
+		} catch (IOException | RuntimeException e) {
+			throw new AnalyticsException("Cannot read run archive index " + index, e);
+		}
+	}
+
+	private void appendIndex(RunInfo info) {
+		Path index = directory.resolve(INDEX_FILE);
+		String line = String.join(",", info.scenario, info.date.toString(), info.file, info.configHash,
+				Integer.toString(info.steps), Double.toString(info.simTime), Integer.toString(info.trips)) + "\n";
+		try {
+			if (!Files.exists(index)) Files.writeString(index, INDEX_HEADER, StandardCharsets.UTF_8);
+			Files.writeString(index, line, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot update run archive index " + index, e);
+		}
+	}
+
+	// All runs in archive order
+	public synchronized List<RunInfo> getRuns() {
+		return Collections.unmodifiableList(new ArrayList<>(runs));
+	}
+
+	// Runs of a scenario with from <= date <= to (null = open end), oldest first
+	public synchronized List<RunInfo> find(String scenario, LocalDateTime from, LocalDateTime to) {
+		List<RunInfo> result = new ArrayList<>();
+		for (RunInfo run : runs) {
+			if (scenario != null && !scenario.equals(run.scenario)) continue;
+			if (from != null && run.date.isBefore(from)) continue;
+			if (to != null && run.date.isAfter(to)) continue;
+			result.add(run);
+		}
+		result.sort((a, b) -> a.date.compareTo(b.date));
+		return result;
+	}
+
+	//===========================
+	// COMPARISON
+	//===========================
+
+	// Loads the summary columns of the given runs (in parallel) for comparison
+	public RunComparison compare(List<RunInfo> runsToCompare) {
+		return RunComparison.load(directory, runsToCompare);
+	}
+
+	// Merged travel time sketch of a route over several runs (e.g. a baseline of the last N runs)
+	public double[] routeTravelTimeQuantiles(List<RunInfo> runsToMerge, String routeId, double... quantiles) {
+		TravelTimeSketch merged = new TravelTimeSketch();
+		for (RunInfo run : runsToMerge) {
+			try (ColumnarReader reader = new ColumnarReader(directory.resolve(run.file))) {
+				ColumnarReader.Table table = reader.getTable("route_sketch");
+				for (ColumnarReader.RowGroup rg : table.rowGroupsContaining("route", routeId)) {
+					String[] routes = rg.getStrings("route");
+					int[] buckets = rg.getInts("bucket");
+					int[] counts = rg.getInts("count");
+					for (int i = 0; i < routes.length; i++) {
+						if (routes[i].equals(routeId)) merged.addBucket(buckets[i], counts[i]);
+					}
+				}
+			}
+		}
+		double[] result = new double[quantiles.length];
+		for (int i = 0; i < quantiles.length; i++) result[i] = merged.quantile(quantiles[i]);
+		return result;
+	}
+
+	//===========================
+	// HELPERS
+	//===========================
+
+	// Stable hash of everything that makes two runs comparable (config files, sampling, ...)
+	public static String configHash(Iterable<Path> files, String... settings) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (Path file : files) {
+				if (file != null && Files.exists(file)) digest.update(Files.readAllBytes(file));
+				digest.update((byte) 0);
+			}
+			for (String setting : settings) {
+				digest.update(String.valueOf(setting).getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+			return HexFormat.of().formatHex(digest.digest(), 0, 8);
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot hash run configuration", e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new AnalyticsException("SHA-256 not available", e);
+		}
+	}
+
+	// The .sumocfg and the net, route and additional files it references (resolved relative to it)
+	public static List<Path> sumoConfigFiles(Path sumocfg) {
+		List<Path> files = new ArrayList<>();
+		files.add(sumocfg);
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			org.w3c.dom.Document doc = factory.newDocumentBuilder().parse(sumocfg.toFile());
+			Path dir = sumocfg.toAbsolutePath().getParent();
+			for (String tag : new String[] {"net-file", "route-files", "additional-files"}) {
+				NodeList nodes = doc.getElementsByTagName(tag);
+				for (int i = 0; i < nodes.getLength(); i++) {
+					for (String name : ((Element) nodes.item(i)).getAttribute("value").split("[,\\s]+")) {
+						if (!name.isEmpty()) files.add(dir.resolve(name));
+					}
+				}
+			}
+		} catch (Exception e) {
+			// Still hashed as a whole, only the referenced files are missing
+			LOGGER.warning("Cannot read SUMO configuration " + sumocfg + ": " + e.getMessage());
+		}
+		return files;
+	}
+
+	private static String sanitize(String scenario) {
+		String s = scenario == null || scenario.isBlank() ? "default" : scenario;
+		return s.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+
+	// The index is a plain CSV without quoting
+	private static String escape(String value) {
+		return value.replace(',', ';').replace('\n', ' ');
+	}
+
+	// One archived run (an index entry)
+	public static final class RunInfo {
+		private final String scenario;
+		private final LocalDateTime date;
+		private final String file;
+		private final String configHash;
+		private final int steps;
+		private final double simTime;
+		private final int trips;
+
+		RunInfo(String scenario, LocalDateTime date, String file, String configHash, int steps, double simTime, int trips) {
+			this.scenario = scenario;
+			this.date = date;
+			this.file = file;
+			this.configHash = configHash;
+			this.steps = steps;
+			this.simTime = simTime;
+			this.trips = trips;
+		}
+
+		public String getScenario() { return scenario; }
+
+		public LocalDateTime getDate() { return date; }
+
+		// Path relative to the archive directory
+		public String getFile() { return file; }
+
+		public String getConfigHash() { return configHash; }
+
+		public int getSteps() { return steps; }
+
+		public double getSimTime() { return simTime; }
+
+		public int getTrips() { return trips; }
+
+		@Override
+		public String toString() {
+			return scenario + "@" + date + " (" + configHash + ")";
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Side-by-side aggregates of several archived runs.
+ * Only the columns needed for the comparison are read from each run file (route summary,
+ * congestion maxima and the density column), the run files are loaded in parallel.
+ * All getters return one value per run, in the order of getRuns(); NaN (or -1 for counts)
+ * where a run has no data for that route / edge.
+ */
+public class RunComparison {
+
+	// Travel time statistic per route
+	public enum Stat { TRIPS, MEAN, P50, P90, P95, MAX }
+
+	private final List<RunArchive.RunInfo> runs;
+	private final List<RunData> data;
+
+	private RunComparison(List<RunArchive.RunInfo> runs, List<RunData> data) {
+		this.runs = runs;
+		this.data = data;
+	}
+
+	static RunComparison load(Path directory, List<RunArchive.RunInfo> runs) {
+		List<RunArchive.RunInfo> ordered = List.copyOf(runs);
+		RunData[] loaded = new RunData[ordered.size()];
+		IntStream.range(0, loaded.length).parallel()
+				.forEach(i -> loaded[i] = RunData.read(directory.resolve(ordered.get(i).getFile())));
+		return new RunComparison(ordered, Arrays.asList(loaded));
+	}
+
+	public List<RunArchive.RunInfo> getRuns() { return runs; }
+
+	// Union of the routes of all runs
+	public List<String> getRouteIds() {
+		Set<String> ids = new LinkedHashSet<>();
+		for (RunData d : data) ids.addAll(d.routeStats.keySet());
+		return new ArrayList<>(ids);
+	}
+
+	// Union of the edges with density or congestion data
+	public List<String> getEdgeIds() {
+		Set<String> ids = new LinkedHashSet<>();
+		for (RunData d : data) {
+			ids.addAll(d.meanDensity.keySet());
+			ids.addAll(d.congestionMax.keySet());
+		}
+		return new ArrayList<>(ids);
+	}
+
+	public double[] getRouteTravelTime(String routeId, Stat stat) {
+		double[] values = new double[data.size()];
+		for (int r = 0; r < values.length; r++) {
+			double[] stats = data.get(r).routeStats.get(routeId);
+			values[r] = stats != null ? stats[stat.ordinal()] : Double.NaN;
+		}
+		return values;
+	}
+
+	public int[] getMaxCongestion(String edgeId) {
+		int[] values = new int[data.size()];
+		for (int r = 0; r < values.length; r++) values[r] = data.get(r).congestionMax.getOrDefault(edgeId, -1);
+		return values;
+	}
+
+	// Mean over all density windows of a run
+	public double[] getMeanDensity(String edgeId) {
+		double[] values = new double[data.size()];
+		for (int r = 0; r < values.length; r++) values[r] = data.get(r).meanDensity.getOrDefault(edgeId, Double.NaN);
+		return values;
+	}
+
+	// Highest window density of a run
+	public double[] getPeakDensity(String edgeId) {
+		double[] values = new double[data.size()];
+		for (int r = 0; r < values.length; r++) values[r] = data.get(r).peakDensity.getOrDefault(edgeId, Double.NaN);
+		return values;
+	}
+
+	//===========================
+	// REPORT
+	//===========================
+
+	/**
+	 * Comparison report as CSV: one section per metric, one row per route / edge,
+	 * one column per run, plus the change of the last run against the first one.
+	 */
+	public void writeCsv(String filepath) {
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(filepath), StandardCharsets.UTF_8))) {
+			StringBuilder header = new StringBuilder();
+			for (RunArchive.RunInfo run : runs) header.append(',').append(run.getScenario()).append('@').append(run.getDate());
+			header.append(",Change(last vs first)");
+
+			writer.println("Runs");
+			writer.println("Run,Date,ConfigHash,Steps,SimTime(s),Trips");
+			for (int r = 0; r < runs.size(); r++) {
+				RunArchive.RunInfo run = runs.get(r);
+				writer.println((r + 1) + "," + run.getDate() + "," + run.getConfigHash() + "," + run.getSteps() + ","
+						+ format(run.getSimTime()) + "," + run.getTrips());
+			}
+			for (Stat stat : new Stat[] {Stat.MEAN, Stat.P50, Stat.P95}) {
+				writer.println();
+				writer.println("TravelTime " + stat + " (s) per route");
+				writer.println("RouteId" + header);
+				for (String route : getRouteIds()) writeRow(writer, route, getRouteTravelTime(route, stat));
+			}
+			writer.println();
+			writer.println("Peak window density (veh/m) per edge");
+			writer.println("EdgeId" + header);
+			for (String edge : getEdgeIds()) writeRow(writer, edge, getPeakDensity(edge));
+			writer.println();
+			writer.println("Max stopped vehicles per edge");
+			writer.println("EdgeId" + header);
+			for (String edge : getEdgeIds()) {
+				int[] counts = getMaxCongestion(edge);
+				writeRow(writer, edge, Arrays.stream(counts).mapToDouble(c -> c < 0 ? Double.NaN : c).toArray());
+			}
+			if (writer.checkError()) throw new AnalyticsException("Write failed: " + filepath);
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot write comparison report " + filepath, e);
+		}
+	}
+
+	private static void writeRow(PrintWriter writer, String key, double[] values) {
+		StringBuilder row = new StringBuilder(key);
+		for (double v : values) row.append(',').append(Double.isNaN(v) ? "" : format(v));
+		double first = values.length > 0 ? values[0] : Double.NaN;
+		double last = values.length > 0 ? values[values.length - 1] : Double.NaN;
+		row.append(',');
+		if (!Double.isNaN(first) && !Double.isNaN(last) && first != 0) {
+			row.append(String.format(Locale.US, "%+.1f%%", (last - first) / first * 100.0));
+		}
+		writer.println(row);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.US, "%.4f", value);
+	}
+
+	//===========================
+	// RUN DATA (needed columns only)
+	//===========================
+
+	private static final class RunData {
+		// route -> values indexed by Stat
+		final Map<String, double[]> routeStats = new HashMap<>();
+		final Map<String, Integer> congestionMax = new HashMap<>();
+		final Map<String, Double> meanDensity = new HashMap<>();
+		final Map<String, Double> peakDensity = new HashMap<>();
+
+		static RunData read(Path file) {
+			RunData d = new RunData();
+			try (ColumnarReader reader = new ColumnarReader(file)) {
+				ColumnarReader.Table routes = reader.getTable("route_summary");
+				String[] ids = routes.readStrings("route");
+				int[] trips = routes.readInts("trips");
+				double[] mean = routes.readDoubles("mean");
+				double[] p50 = routes.readDoubles("p50");
+				double[] p90 = routes.readDoubles("p90");
+				double[] p95 = routes.readDoubles("p95");
+				double[] max = routes.readDoubles("max");
+				for (int i = 0; i < ids.length; i++) {
+					d.routeStats.put(ids[i], new double[] {trips[i], mean[i], p50[i], p90[i], p95[i], max[i]});
+				}
+
+				ColumnarReader.Table congestion = reader.getTable("congestion_max");
+				String[] edges = congestion.readStrings("edge");
+				int[] stopped = congestion.readInts("stopped");
+				for (int i = 0; i < edges.length; i++) d.congestionMax.put(edges[i], stopped[i]);
+
+				// The window and start columns are not needed here
+				ColumnarReader.Table density = reader.getTable("edge_density");
+				String[] densityEdges = density.readStrings("edge");
+				double[] values = density.readDoubles("density");
+				Map<String, double[]> acc = new HashMap<>();
+				for (int i = 0; i < densityEdges.length; i++) {
+					double[] a = acc.computeIfAbsent(densityEdges[i], e -> new double[] {0, 0, Double.NEGATIVE_INFINITY});
+					a[0] += values[i];
+					a[1]++;
+					a[2] = Math.max(a[2], values[i]);
+				}
+				acc.forEach((edge, a) -> {
+					d.meanDensity.put(edge, a[0] / a[1]);
+					d.peakDensity.put(edge, a[2]);
+				});
+			}
+			return d;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Per-metric sampling intervals of the StatsCollector, in simulation seconds.
+ * A metric is sampled on the first step whose simulation time falls into a new interval
+ * (intervals are aligned to multiples of the interval length, not counted in steps), so the
+ * resolution stays the same whatever the step length is. Interval 0 means every step.
+ * Intervals may be changed at any time from any thread; the change applies to the next step.
+ */
+public class SamplingSchedule {
+
+	public enum Metric {
+		AVG_SPEED,			// network average speed and speed per edge/color
+		EDGE_DENSITY,		// density per edge (two TraCI calls per edge)
+		CONGESTION,			// stopped vehicles per edge
+		VEHICLE_TRACES		// per-vehicle state of the history spill
+	}
+
+	private static final Metric[] METRICS = Metric.values();
+	// Tolerance for simulation times like 9.999999 that are meant to be 10.0
+	private static final double EPSILON = 1e-6;
+
+	private final double[] intervals = new double[METRICS.length];
+	// Interval index of the last sample per metric; only touched by the simulation thread
+	private final long[] lastSlot = new long[METRICS.length];
+	// Bumped on every change; a changed schedule restarts the intervals
+	private int version = 0;
+	private int appliedVersion = -1;
+
+	public SamplingSchedule() {
+		Arrays.fill(lastSlot, Long.MIN_VALUE);
+	}
+
+	// Sampling interval in simulation seconds (0 = every step)
+	public synchronized void setInterval(Metric metric, double seconds) {
+		if (!(seconds >= 0) || Double.isInfinite(seconds)) {
+			throw new AnalyticsException("Invalid sampling interval for " + metric + ": " + seconds);
+		}
+		intervals[metric.ordinal()] = seconds;
+		version++;
+	}
+
+	public synchronized double getInterval(Metric metric) {
+		return intervals[metric.ordinal()];
+	}
+
+	/**
+	 * Applies a spec like "AVG_SPEED:10,EDGE_DENSITY:60" (metric names are case-insensitive).
+	 * Metrics not mentioned keep their interval.
+	 */
+	public void apply(String spec) {
+		if (spec == null || spec.isBlank()) return;
+		for (String part : spec.split(",")) {
+			String[] kv = part.split(":");
+			if (kv.length != 2) throw new AnalyticsException("Invalid sampling spec '" + part + "', expected METRIC:seconds");
+			try {
+				setInterval(Metric.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), Double.parseDouble(kv[1].trim()));
+			} catch (IllegalArgumentException e) {
+				throw new AnalyticsException("Invalid sampling spec '" + part + "'", e);
+			}
+		}
+	}
+
+	/**
+	 * Decides which metrics are sampled at the given simulation time and marks them as taken.
+	 * Called once per step by the simulation thread.
+	 */
+	boolean[] due(double simTime) {
+		double[] current = currentIntervals();
+		boolean[] due = new boolean[METRICS.length];
+		for (int m = 0; m < METRICS.length; m++) {
+			if (current[m] <= 0) {
+				due[m] = true;
+				continue;
+			}
+			long slot = (long) Math.floor(simTime / current[m] + EPSILON);
+			if (slot != lastSlot[m]) {
+				lastSlot[m] = slot;
+				due[m] = true;
+			}
+		}
+		return due;
+	}
+
+	// Snapshot of the intervals; a changed schedule samples every metric once right away
+	private synchronized double[] currentIntervals() {
+		if (appliedVersion != version) {
+			appliedVersion = version;
+			Arrays.fill(lastSlot, Long.MIN_VALUE);
+		}
+		return intervals.clone();
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Metric m : METRICS) {
+			if (sb.length() > 0) sb.append(',');
+			sb.append(m).append(':').append(intervals[m.ordinal()]);
+		}
+		return sb.toString();
+	}
+}
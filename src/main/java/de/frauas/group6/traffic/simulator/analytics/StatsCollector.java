@@ -2,14 +2,28 @@ package de.frauas.group6.traffic.simulator.analytics;
 
 // --- Java utility and concurrency classes (collections, maps, Logging) ---
 import java.util.*;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.logging.Logger;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
 // --- Java I/O classes for CSV and in-memory text handling ---
 import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 // --- PDF generation using OpenPDF ---
 import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
 import com.lowagie.text.Paragraph;
 import com.lowagie.text.pdf.PdfWriter;
 // --- Date and time utilities for report timestamps ---
@@ -24,8 +38,11 @@ import org.jfree.chart.axis.NumberAxis;
 import org.jfree.chart.axis.NumberTickUnit;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
 // --- Java image rendering and in-memory I/O ---
 import java.awt.image.BufferedImage;
+import java.awt.geom.Point2D;
 import javax.imageio.ImageIO;
 import java.io.ByteArrayOutputStream;
 // --- Number formatting for chart axes ---
@@ -34,11 +51,6 @@ import org.jfree.chart.renderer.category.BarRenderer;
 import java.awt.Color;
 import org.jfree.chart.renderer.category.StandardBarPainter;
 import java.awt.BasicStroke;
-// --- PDF Table ---
-import com.lowagie.text.pdf.PdfPTable;
-import com.lowagie.text.pdf.PdfPCell;
-import com.lowagie.text.Phrase;
-import com.lowagie.text.Font;
 // --- Simulation core and domain interfaces ---
 import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
 import de.frauas.group6.traffic.simulator.vehicles.IVehicle;
@@ -51,31 +63,75 @@ public class StatsCollector implements IStatsCollector {
 	private final IVehicleManager vehicleManager;
 	private final IInfrastructureManager infrastructureManager;
 	private final ISimulationEngine simulationEngine;
-	private final Map<String, IVehicle> vehicleById = new HashMap<>();
-	private final Map<String, List<Double>> speedPerVehiclePerStep = new HashMap<>();
-	private final Map<String, List<String>> edgePerVehiclePerStep = new  HashMap<>();
-	private final ConcurrentSkipListMap<Integer,Double> avgSpeedPerStep = new ConcurrentSkipListMap<>();
-	private final Map<String, Double> enterTime = new HashMap<>();
-	private final Map<String, Double> exitTime = new HashMap<>();
-	private final Map<String, List<String>> routeEdges = new HashMap<>();
-	private final Map<String, List<Double>> TravelTimeRouteList = new HashMap<>();
-	private final Map<String, Double> avgTravelTimeRoute = new HashMap<>();
-	private final Map<String, List<Double>> edgeDensityPerStepList = new HashMap<>();
-	private final Map<String, Double> edgeDensity = new HashMap<>();
-	private final Map<String, Integer> congestionList = new HashMap<>();
-	private final Map<String, Integer> currentStepCongestion = new HashMap<>();
+	/*
+	 * All statistics are concurrent structures with striped accumulators, so updates and
+	 * reads need no global lock. Step updates (collectData, ingestStep, ingestOccupancy) hold
+	 * the write side of this lock, which only orders them among themselves. snapshot() reads
+	 * optimistically (seqlock style): it copies the aggregates without locking and retries
+	 * if a step was applied meanwhile, so a snapshot never sees half of a step and never
+	 * stops the simulation. Trips are not part of a step and take no lock at all.
+	 */
+	private final StampedLock stepLock = new StampedLock();
+	// Optimistic snapshot attempts before snapshot() waits for the running step (see snapshot())
+	private static final int OPTIMISTIC_SNAPSHOT_ATTEMPTS = 16;
+	private final Map<String, IVehicle> vehicleById = new ConcurrentHashMap<>();
+	// Edge id -> dense index for the per-edge step arrays (see StepKernel, ReductionKernels)
+	private final EdgeIndex edgeIndex = new EdgeIndex();
+	// edgeId -> normalized vehicle color -> speed of moving vehicles
+	private final Map<String, Map<String, MeanAccumulator>> speedPerEdgeAndColor = new ConcurrentHashMap<>();
+	// Network average speed per step, columnar with rollups for the dashboard charts
+	private final TimeSeries avgSpeedSeries = new TimeSeries();
+	private final Map<String, Double> enterTime = new ConcurrentHashMap<>();
+	private final Map<String, Double> exitTime = new ConcurrentHashMap<>();
+	// Ids active in the previous step (exit detection = previous minus current); simulation thread only
+	private Set<String> previousActiveIds = Set.of();
+	// Loaded once in the constructor, read-only afterwards
+	private final Map<String, List<String>> routeEdges;
+	private final Map<String, MeanAccumulator> travelTimePerRoute = new ConcurrentHashMap<>();
+	private final Queue<StatsSnapshot.Trip> trips = new ConcurrentLinkedQueue<>();
+	private final Map<String, MeanAccumulator> densityPerEdge = new ConcurrentHashMap<>();
+	// edgeId -> window index (DENSITY_WINDOW_SECONDS of sim time) -> density, for the run archive
+	private final Map<String, Map<Integer, MeanAccumulator>> densityWindows = new ConcurrentHashMap<>();
+	// Historical maximum of stopped vehicles per edge
+	private final Map<String, Integer> congestionList = new ConcurrentHashMap<>();
+	// Replaced as a whole every step (immutable), readers never see a partial step
+	private volatile Map<String, Integer> currentStepCongestion = Map.of();
+	// Edge density and mean speed of moving vehicles of the latest sampled step (immutable, like above)
+	private volatile Map<String, Double> currentStepDensity = Map.of();
+	private volatile Map<String, Double> currentStepSpeed = Map.of();
+	// Optional disk-backed per-step vehicle history (full traces; the aggregates above are always kept)
+	private volatile HistorySpillStore historyStore;
+	// Optional compressed in-memory trajectories for incident review
+	private volatile TrajectoryStore trajectoryStore;
+	// Background worker for export jobs, created on first use
+	private ExecutorService exportExecutor;
+	// Optional live CSV export, rows are streamed while the simulation runs
+	private volatile LiveCsvExporter liveExporter;
+	// Network edges of ingested SUMO output (see SumoOutputIngester)
+	private volatile List<String> ingestedEdgeIds = List.of();
+	// Optional space-time occupancy per edge/lane (fixed memory)
+	private volatile OccupancyCube occupancyCube;
+	// edgeId -> edge shape, to place vehicles along their edge; built on first use
+	private volatile Map<String, EdgeProjection> edgeProjections = Map.of();
+	// Optional archive of finished runs
+	private RunArchive runArchive;
+	private String runScenario;
+	// Files that define the run (SUMO config, net, routes), part of the archived config hash
+	private volatile List<Path> runConfigFiles = List.of();
+	// Sampling interval per metric (default: every step)
+	private final SamplingSchedule samplingSchedule = new SamplingSchedule();
 	
-	private void initRoutesFromInfrastructure(String resourceName) {
+	private static Map<String, List<String>> initRoutesFromInfrastructure(IInfrastructureManager infrastructureManager, String resourceName) {
 		// Routes, Edges
-	   Map<String, List<String>> routes = infrastructureManager.loadRoutes(resourceName);
-       routeEdges.putAll(routes);
+	   Map<String, List<String>> routes = new HashMap<>();
+	   infrastructureManager.loadRoutes(resourceName).forEach((routeId, edges) -> routes.put(routeId, List.copyOf(edges)));
+       return Collections.unmodifiableMap(routes);
 	}
 
 	
 	private void initAvgTravelTimeRouteList() {
 	    for (String routeId : routeEdges.keySet()) {
-	        TravelTimeRouteList.put(routeId, new ArrayList<>());
-	        avgTravelTimeRoute.put(routeId, 0.0);
+	        travelTimePerRoute.put(routeId, new MeanAccumulator());
 	    }
 	}
 
@@ -84,196 +140,590 @@ public class StatsCollector implements IStatsCollector {
 		this.vehicleManager = vehicleManager;
 	    this.infrastructureManager = infrastructureManager;
 	    this.simulationEngine = simulationEngine;
-	    initRoutesFromInfrastructure("minimal.rou.xml");
+	    this.routeEdges = initRoutesFromInfrastructure(infrastructureManager, "minimal.rou.xml");
 	    initAvgTravelTimeRouteList();       
 	}
 	
-	private void storeVehicleState (Collection<IVehicle> vehicles) {
-		// Append the current speed of each vehicle to its speed history
-	    for (IVehicle v : vehicles) {
-	        speedPerVehiclePerStep.computeIfAbsent(v.getId(), id -> new ArrayList<>()).add(v.getSpeed());
-	        edgePerVehiclePerStep.computeIfAbsent(v.getId(), id -> new ArrayList<>()).add(v.getEdgeId());
-	    }
+	private void storeVehicleState (int step, double simTime, IVehicle[] vehicles) {
+		HistorySpillStore history = historyStore;
+		// Closed at the end of the run (finishRun), still readable afterwards
+		if (history != null && history.isClosed()) history = null;
+		TrajectoryStore trajectories = trajectoryStore;
+		if (history == null && trajectories == null) return;
+		// Full vehicle state goes to the mapped history segments and/or the compressed trajectories
+		// (sequential: both writers are single-threaded)
+		for (IVehicle v : vehicles) {
+			Point2D pos = v.getPosition();
+			double x = pos != null ? pos.getX() : 0.0;
+			double y = pos != null ? pos.getY() : 0.0;
+			if (history != null) history.append(step, simTime, v.getId(), v.getEdgeId(), v.getEdgeLane(), v.getSpeed(), x, y);
+			if (trajectories != null) trajectories.append(v.getId(), simTime, x, y, v.getSpeed(), v.getEdgeId());
+		}
 	}
 	
-	private void computeAverageSpeedForStep (int step, Collection<IVehicle> vehicles) {
-	    double speedSum = 0.0;
-	    int movingVehicleCount  = 0;
-	    // Consider only moving vehicles
-	    for (IVehicle v : vehicles) {
-	        double speed = v.getSpeed();
-	        if (speed > 0.0) {          
-	        	speedSum += speed;
-	        	movingVehicleCount++;
-	        }
-	    }
-	    double avgSpeed = movingVehicleCount > 0 ? speedSum / movingVehicleCount : 0.0;
+	// Adds the speed of moving vehicles per edge and color of one step (only what the reports need)
+	private void accumulateSpeedPerEdge(StepKernel.Partial stepTotals) {
+		stepTotals.speedPerEdgeAndColor.forEach((edgeId, perColor) -> {
+			Map<String, MeanAccumulator> target = speedPerEdgeAndColor.computeIfAbsent(edgeId, id -> new ConcurrentHashMap<>());
+			perColor.forEach((color, acc) -> target.computeIfAbsent(color, c -> new MeanAccumulator()).add(acc[0], (long) acc[1]));
+		});
+	}
+	
+	// Mean speed per edge over all colors of one step
+	private static Map<String, Double> edgeSpeeds(StepKernel.Partial stepTotals) {
+		Map<String, Double> result = new HashMap<>();
+		stepTotals.speedPerEdgeAndColor.forEach((edgeId, perColor) -> {
+			double sum = 0.0, samples = 0.0;
+			for (double[] acc : perColor.values()) {
+				sum += acc[0];
+				samples += acc[1];
+			}
+			if (samples > 0) result.put(edgeId, sum / samples);
+		});
+		return Collections.unmodifiableMap(result);
+	}
+	
+	static String colorKey(String color) {
+		return color == null ? "" : color.trim().toLowerCase(Locale.ROOT);
+	}
+	
+	private void computeAverageSpeedForStep (int step, double simTime, StepKernel.Partial stepTotals) {
+	    // Only moving vehicles are counted (see StepKernel)
+	    double avgSpeed = stepTotals.averageSpeed();
 	    // Store average speed for this simulation step
-	    avgSpeedPerStep.put(step, avgSpeed);
+	    avgSpeedSeries.append(simTime, avgSpeed);
+	    LiveCsvExporter live = liveExporter;
+	    if (live != null) live.onAverageSpeed(step, simTime, avgSpeed);
 	}
 
-	private void collectEdgeDensity() {
-		
-		for (IEdge edge : infrastructureManager.getAllEdges()) {
-	    	String edgeId = edge.getId();
+	// Queries the density of every edge (TraCI calls, done outside the stats lock)
+	private Map<String, Double> measureEdgeDensity() {
+		List<IEdge> edges = infrastructureManager.getAllEdges();
+		int n = edges.size();
+		int[] vehiclesOnEdge = new int[n];
+		double[] edgeLengths = new double[n];
+		for (int i = 0; i < n; i++) {
+	    	String edgeId = edges.get(i).getId();
 	    	// Number of vehicles on this edge in the current step
-	    	int vehiclesOnEdge = simulationEngine.getEdgeVehicleCount(edgeId);
+	    	vehiclesOnEdge[i] = simulationEngine.getEdgeVehicleCount(edgeId);
 	    	// Length of the edge 
-	    	double edgeLength = simulationEngine.getEdgeLength(edgeId);
-	    	double densityThisStep = 0.0;
-	    	if (edgeLength > 0) { densityThisStep = (double) vehiclesOnEdge / edgeLength; }
-	    	// Store density per edge and per step
-	    	edgeDensityPerStepList.computeIfAbsent(edgeId, k -> new ArrayList<>()).add(densityThisStep);
+	    	edgeLengths[i] = simulationEngine.getEdgeLength(edgeId);
 		}
+		return densityMap(edges.stream().map(IEdge::getId).toList(), vehiclesOnEdge, edgeLengths);
+	}
+
+	// Density = vehicles / length per edge (0 for edges without length), in edge order
+	static Map<String, Double> densityMap(List<String> edgeIds, int[] vehicles, double[] lengths) {
+		double[] densities = new double[edgeIds.size()];
+		ReductionKernels.divide(vehicles, lengths, densities, densities.length);
+		Map<String, Double> result = new LinkedHashMap<>();
+		for (int i = 0; i < densities.length; i++) result.put(edgeIds.get(i), densities[i]);
+		return result;
+	}
+
+	private void collectEdgeDensity(int step, double simTime, Map<String, Double> densities) {
+		LiveCsvExporter live = liveExporter;
+		int window = (int) (simTime / DENSITY_WINDOW_SECONDS);
+		densities.forEach((edgeId, densityThisStep) -> {
+	    	// Accumulate density per edge
+	    	densityPerEdge.computeIfAbsent(edgeId, k -> new MeanAccumulator()).add(densityThisStep);
+	    	densityWindows.computeIfAbsent(edgeId, k -> new ConcurrentHashMap<>())
+	    			.computeIfAbsent(window, w -> new MeanAccumulator()).add(densityThisStep);
+	    	if (live != null) live.onEdgeDensity(step, simTime, edgeId, densityThisStep);
+		});
 	}
 
 	// Identifies congested edges by counting stopped vehicles per edge
 	// and updates current and historical congestion statistics.
-    private void detectCongestion(Collection<IVehicle> vehicles) {
-        // 1.Reset instant congestion for this step
-        currentStepCongestion.clear();
-        Map<String, Integer> stoppedCountPerEdge = new HashMap<>();
-
-        // 2. A single loop on the vehicles
-        for (IVehicle v : vehicles) {
-            // If the vehicle is stationary and on a valid road
-            if (v.getSpeed() <= 0.5 && v.getEdgeId() != null) {
-                stoppedCountPerEdge.merge(v.getEdgeId(), 1, Integer::sum);
-            }
-        }
+    private void detectCongestion(int step, double simTime, StepKernel.Partial stepTotals) {
+        // 1.Instant congestion of this step, published as a whole at the end
+        Map<String, Integer> stepCongestion = new HashMap<>();
 
+        // 2.Stopped vehicles per edge were counted in the vehicle pass (StepKernel),
+        //   the edges over the threshold are selected by a kernel
+        int[] stopped = stepTotals.stoppedPerEdge;
+        int[] congested = new int[stopped.length];
+        int congestedCount = ReductionKernels.selectAtLeast(stopped, stopped.length, MIN_STOPPED_VEHICLES, congested);
         // 3.Update the stats
-        stoppedCountPerEdge.forEach((edgeId, count) -> {
-            if (count >= MIN_STOPPED_VEHICLES) {
-            	LOGGER.fine("Congestion detected on edge " + edgeId + " with " + count + " stopped vehicles");
-                //For the Real-Time Dashboard
-                currentStepCongestion.put(edgeId, count);
+        LiveCsvExporter live = liveExporter;
+        for (int k = 0; k < congestedCount; k++) {
+            String edgeId = stepTotals.edges.name(congested[k]);
+            int count = stopped[congested[k]];
+            LOGGER.fine("Congestion detected on edge " + edgeId + " with " + count + " stopped vehicles");
+            //For the Real-Time Dashboard
+            stepCongestion.put(edgeId, count);
+            if (live != null) live.onCongestion(step, simTime, edgeId, count);
 
-                // For the Final Report (Historical Maximum)	
-                int previousMax = congestionList.getOrDefault(edgeId, 0);
-                if (count > previousMax) {
-                    congestionList.put(edgeId, count);
-                }
-            }
-        });
+            // For the Final Report (Historical Maximum), atomic per edge
+            congestionList.merge(edgeId, count, Math::max);
+        }
+        currentStepCongestion = Collections.unmodifiableMap(stepCongestion);
     }
 
+    // Immutable view of the congestion of the latest step
+    @Override
     public Map<String, Integer> getCurrentCongestedEdgeIds() {
-        return new HashMap<>(currentStepCongestion);
+    	return currentStepCongestion;
+    }
+
+    // Immutable view of the edge densities of the latest sampled step (vehicles per meter)
+    @Override
+    public Map<String, Double> getCurrentEdgeDensities() {
+    	return currentStepDensity;
+    }
+
+    // Immutable view of the mean speed of moving vehicles per edge of the latest sampled step
+    @Override
+    public Map<String, Double> getCurrentEdgeSpeeds() {
+    	return currentStepSpeed;
+    }
+
+	//===========================
+	// SAMPLING
+	//===========================
+
+    // Live schedule: changes apply from the next simulation step on
+    @Override
+    public SamplingSchedule getSamplingSchedule() {
+    	return samplingSchedule;
+    }
+
+	//===========================
+	// HISTORY SPILL
+	//===========================
+
+    // Switches per-step vehicle history to memory-mapped segment files in a new run directory below baseDirectory
+    public void enableHistorySpill(Path baseDirectory) {
+    	if (historyStore != null) return;
+    	historyStore = HistorySpillStore.createRun(baseDirectory);
+    }
+
+    // Null if the history spill is not enabled
+    public HistorySpillStore getHistoryStore() {
+    	return historyStore;
+    }
+
+    // Per-step vehicle states, read by time range from the snapshot's prefix of the history spill
+    private void exportVehicleTracesInternal(PrintWriter writer, StatsSnapshot snapshot, ExportFilter filter, ExportJob job) {
+    	if (snapshot.history == null) {
+    		LOGGER.warning("No VEHICLE_TRACES data available for export (history spill disabled)");
+    		return;
+    	}
+    	writer.println("Time(s),Step,VehicleId,EdgeId,Lane,Speed(m/s),X,Y");
+    	forEachVehicleTrace(snapshot, filter, job, r -> writer.println(String.format(Locale.US, "%.2f,%d,%s,%s,%d,%.2f,%.2f,%.2f",
+    			r.getTime(), r.getStep(), r.getVehicleId(), r.getEdgeId() != null ? r.getEdgeId() : "", r.getLane(), r.getSpeed(), r.getX(), r.getY())));
+    }
+
+    /**
+     * Visits the history records of the snapshot that match the filter (time range, edge, vehicle color).
+     * Records are decoded in place from the mapped segments; nothing is collected on the heap.
+     */
+    private void forEachVehicleTrace(StatsSnapshot snapshot, ExportFilter filter, ExportJob job, HistorySpillStore.RecordVisitor visitor) {
+    	HistorySpillStore history = snapshot.history;
+    	if (history == null) return;
+    	double from = filter != null && filter.getFromTime() != null ? filter.getFromTime() : Double.NEGATIVE_INFINITY;
+    	double to = filter != null && filter.getToTime() != null ? filter.getToTime() : Double.POSITIVE_INFINITY;
+    	String onlyEdgeId = filter != null && filter.hasOnlyEdgeIdFilter() ? filter.getOnlyEdgeId() : null;
+    	String colorKey = filter != null && filter.hasVehicleColorFilter() ? colorKey(filter.getVehicleColor()) : null;
+    	HistorySpillStore.Cursor cursor = history.query(from, to, snapshot.historyRecords);
+    	long rows = 0;
+    	while (cursor.next()) {
+    		if ((rows++ & CANCEL_CHECK_MASK) == 0) job.checkCancelled();
+    		if (onlyEdgeId != null && !onlyEdgeId.equals(cursor.getEdgeId())) continue;
+    		if (colorKey != null) {
+    			IVehicle vehicle = vehicleById.get(cursor.getVehicleId());
+    			if (vehicle == null || !colorKey.equals(colorKey(vehicle.getColor()))) continue;
+    		}
+    		visitor.visit(cursor);
+    	}
+    }
+
+	//===========================
+	// SPACE-TIME OCCUPANCY
+	//===========================
+
+    // Enables the occupancy cube (null disables it); edge lengths come from the network shapes
+    public void enableOccupancyCube(OccupancyCube cube) {
+    	occupancyCube = cube;
+    	edgeProjections = Map.of();
+    	if (cube != null) LOGGER.info("Occupancy cube enabled: " + cube.getGranularity() + ", " + cube.getPositionBins() + " position bins x "
+    			+ cube.getTimeBins() + " time bins of " + cube.getTimeBinSeconds() + " s, budget " + cube.getBudgetBytes() / (1024 * 1024) + " MB");
+    }
+
+    @Override
+    public OccupancyCube getOccupancyCube() {
+    	return occupancyCube;
+    }
+
+    // Places every vehicle on its edge (projection onto the edge shape) and bins it; simulation thread only
+    private void fillOccupancy(double simTime, IVehicle[] vehicles) {
+    	OccupancyCube cube = occupancyCube;
+    	if (cube == null) return;
+    	Map<String, EdgeProjection> projections = edgeProjections(cube);
+    	int n = vehicles.length;
+    	String[] edgeIds = new String[n];
+    	int[] lanes = new int[n];
+    	double[] positions = new double[n];
+    	double[] speeds = new double[n];
+    	for (int i = 0; i < n; i++) {
+    		IVehicle v = vehicles[i];
+    		EdgeProjection projection = projections.get(v.getEdgeId());
+    		Point2D pos = v.getPosition();
+    		// Vehicles on junction internals have no edge shape and are skipped (edge id stays null)
+    		if (projection == null || pos == null) continue;
+    		edgeIds[i] = v.getEdgeId();
+    		lanes[i] = v.getEdgeLane();
+    		positions[i] = projection.project(pos.getX(), pos.getY());
+    		speeds[i] = v.getSpeed();
+    	}
+    	cube.addStep(simTime, n, edgeIds, lanes, positions, speeds);
+    }
+
+    private Map<String, EdgeProjection> edgeProjections(OccupancyCube cube) {
+    	Map<String, EdgeProjection> projections = edgeProjections;
+    	if (!projections.isEmpty()) return projections;
+    	Map<String, EdgeProjection> built = new HashMap<>();
+    	for (IEdge edge : infrastructureManager.getAllEdges()) {
+    		if (edge.getShape() == null || edge.getShape().size() < 2) continue;
+    		EdgeProjection projection = new EdgeProjection(edge.getShape());
+    		built.put(edge.getId(), projection);
+    		cube.setEdgeLength(edge.getId(), projection.length());
+    	}
+    	edgeProjections = Collections.unmodifiableMap(built);
+    	return edgeProjections;
+    }
+
+    // Ingested vehicles of one FCD timestep (positions from the file, see SumoOutputIngester)
+    void ingestOccupancy(double simTime, int n, String[] edgeIds, int[] lanes, double[] positions, double[] speeds) {
+    	OccupancyCube cube = occupancyCube;
+    	if (cube == null) return;
+    	long stamp = stepLock.writeLock();
+    	try {
+    		cube.addStep(simTime, n, edgeIds, lanes, positions, speeds);
+    	} finally {
+    		stepLock.unlockWrite(stamp);
+    	}
+    }
+
+    // Non-empty cells of the cube as of the snapshot (onlyEdgeId filter applied)
+    private void exportSpaceTimeInternal(PrintWriter writer, StatsSnapshot snapshot, ExportFilter filter, ExportJob job) {
+    	if (snapshot.spaceTime == null) {
+    		LOGGER.warning("No SPACE_TIME data available for export (occupancy cube disabled)");
+    		return;
+    	}
+    	writer.println("RowId,EdgeId,TimeStart(s),PositionStart(m),MeanVehicles,Density(veh/m),MeanSpeed(m/s)");
+    	forEachSpaceTimeRow(snapshot, filter, job, slice -> {
+    		for (int t = 0; t < slice.getTimeBins(); t++) {
+    			for (int p = 0; p < slice.getPositionBins(); p++) {
+    				if (slice.getOccupancy(t, p) <= 0) continue;
+    				writer.println(slice.getRowId() + "," + slice.getEdgeId() + "," + String.format(Locale.US, "%.1f,%.1f,%.4f,%.5f,%.2f",
+    						slice.getStartTime() + t * slice.getTimeBinSeconds(), slice.getPositionStart(p), slice.getOccupancy(t, p),
+    						slice.getDensity(t, p), slice.getMeanSpeed(t, p)));
+    			}
+    		}
+    	});
+    }
+
+    // Rows in order of first appearance; the rows of one edge (onlyEdgeId) in lane order, like OccupancyCube.getRowIdsOfEdge
+    private void forEachSpaceTimeRow(StatsSnapshot snapshot, ExportFilter filter, ExportJob job, Consumer<OccupancyCube.Slice> action) {
+    	List<OccupancyCube.Slice> slices = snapshot.spaceTime;
+    	if (filter != null && filter.hasOnlyEdgeIdFilter()) {
+    		slices = new ArrayList<>(slices);
+    		slices.removeIf(slice -> !slice.getEdgeId().equals(filter.getOnlyEdgeId()));
+    		slices.sort(Comparator.comparing((OccupancyCube.Slice slice) -> slice.getRowId().length()).thenComparing(OccupancyCube.Slice::getRowId));
+    	}
+    	for (OccupancyCube.Slice slice : slices) {
+    		job.checkCancelled();
+    		action.accept(slice);
+    	}
+    }
+
+	//===========================
+	// RUN ARCHIVE
+	//===========================
+
+    // Finished runs are stored in the archive (see finishRun); configFiles are hashed into every run
+    public synchronized void enableRunArchive(RunArchive archive, String scenario, List<Path> configFiles) {
+    	this.runArchive = archive;
+    	this.runScenario = scenario;
+    	this.runConfigFiles = List.copyOf(configFiles);
+    }
+
+    // Stores the aggregates of the current run; the config hash covers the config files, the routes and the sampling
+    @Override
+    public RunArchive.RunInfo archiveRun(RunArchive archive, String scenario) {
+    	String configHash = RunArchive.configHash(runConfigFiles, new TreeMap<>(routeEdges).toString(), samplingSchedule.toString(),
+    			Double.toString(DENSITY_WINDOW_SECONDS));
+    	return archive.archive(snapshot(), scenario, configHash);
+    }
+
+    // End of a run: finishes the live CSV files, closes the history spill and archives the run if an archive is enabled
+    @Override
+    public synchronized void finishRun() {
+    	stopLiveCsvExport();
+    	HistorySpillStore history = historyStore;
+    	if (history != null) history.close();
+    	if (runArchive != null && currentStep.get() > 0) archiveRun(runArchive, runScenario);
+    }
+
+	//===========================
+	// TRAJECTORIES
+	//===========================
+
+    // Starts recording compressed per-vehicle trajectories (sampled like VEHICLE_TRACES)
+    public synchronized void enableTrajectoryStore() {
+    	if (trajectoryStore == null) trajectoryStore = new TrajectoryStore();
+    }
+
+    // Null if trajectories are not recorded
+    @Override
+    public TrajectoryStore getTrajectoryStore() {
+    	return trajectoryStore;
+    }
+
+	//===========================
+	// LIVE CSV EXPORT
+	//===========================
+
+    @Override
+    public synchronized void startLiveCsvExport(String basePath, List<ExportType> types, boolean gzip) {
+    	if (liveExporter != null) stopLiveCsvExport();
+    	liveExporter = new LiveCsvExporter(basePath, types, gzip);
+    }
+
+    @Override
+    public synchronized void stopLiveCsvExport() {
+    	LiveCsvExporter live = liveExporter;
+    	if (live == null) return;
+    	liveExporter = null;
+    	// Per-route averages are only known at the end; everything else is already on disk
+    	live.close(getAverageTravelTime(), routeEdges);
+    }
+
+    // Records the trip of a vehicle that just left the simulation
+    private void recordTrip(String vehicleId) {
+    	Double enter = enterTime.get(vehicleId);
+    	Double exit = exitTime.get(vehicleId);
+    	IVehicle vehicle = vehicleById.get(vehicleId);
+    	// The trajectory of an arrived vehicle is complete
+    	TrajectoryStore trajectories = trajectoryStore;
+    	if (trajectories != null) trajectories.seal(vehicleId);
+    	if (enter == null || exit == null || exit <= enter || vehicle == null) return;
+    	recordTrip(vehicleId, vehicle.getColor(), vehicle.getRouteId(), exit - enter);
+    }
+
+    // Shared by the live collection and the ingestion of SUMO output files
+    void recordTrip(String vehicleId, String color, String routeId, double travelTime) {
+    	trips.add(new StatsSnapshot.Trip(vehicleId, color, routeId, travelTime));
+    	
+    	MeanAccumulator acc = routeId != null ? travelTimePerRoute.get(routeId) : null;
+    	if (acc != null) {
+    		acc.add(travelTime);
+    	} else {
+    		LOGGER.warning("Vehicle '" + vehicleId + "' references unknown routeId '" + routeId + "' - skipped in route averages");
+    	}
+    	
+    	LiveCsvExporter live = liveExporter;
+    	if (live != null) live.onTrip(vehicleId, color, routeId, travelTime);
     }
 	
 	private static final Logger LOGGER =Logger.getLogger(StatsCollector.class.getName());
-	private int currentStep = 0;
+	private final AtomicInteger currentStep = new AtomicInteger();
 	private static final int MIN_STOPPED_VEHICLES = 3;
+	// Length of the density windows kept for the run archive (sim seconds)
+	static final double DENSITY_WINDOW_SECONDS = 300.0;
+	// Long row loops of an export check for cancellation every 4096 rows
+	private static final int CANCEL_CHECK_MASK = 4096 - 1;
+	// PDF charts: at most this many bars (more are not readable at the image size), rendered on up to CHART_THREADS threads
+	private static final int MAX_CHART_BARS = 40;
+	private static final int CHART_THREADS = 4;
 
 	//===========================
 	// COLLECT DATA PER STEP
 	//===========================
 	
 public void collectData() {
-	LOGGER.fine("Collecting data for simulation step " + simulationEngine.getCurrentSimulationTime());
+	// Query the simulation time once per step instead of once per vehicle
+	double simTime = simulationEngine.getCurrentSimulationTime();
+	LOGGER.fine("Collecting data for simulation step " + simTime);
 	try {
-		// STEP COUNTER
-		// Increase the Simulation step counter (usually starts at 1)
-	    currentStep++;
+	    // Metrics to sample in this step (aligned to simulation time, see SamplingSchedule)
+	    boolean[] due = samplingSchedule.due(simTime);
+	    boolean sampleSpeed = due[SamplingSchedule.Metric.AVG_SPEED.ordinal()];
+	    boolean sampleCongestion = due[SamplingSchedule.Metric.CONGESTION.ordinal()];
 	    // Get all currently active vehicles
-	    Collection<IVehicle> vehicles = vehicleManager.getAllVehicles();
+	    IVehicle[] vehicles = vehicleManager.getAllVehicles().toArray(new IVehicle[0]);
+	    // Edge densities need TraCI calls: query them before taking the lock, only when sampled
+	    Map<String, Double> densities = due[SamplingSchedule.Metric.EDGE_DENSITY.ordinal()] ? measureEdgeDensity() : null;
 	    
-	    // VEHICLE ENTER TIME DETECTION
-	    // Store the time when a vehicle first appears in the simulation
-	    for (IVehicle v : vehicles) {
-	        enterTime.putIfAbsent(v.getId(), simulationEngine.getCurrentSimulationTime());
-	        vehicleById.put(v.getId(), v);
+	    // Marks the step as in progress for snapshot(); readers are never blocked by it
+	    long stamp = stepLock.writeLock();
+	    try {
+		    // STEP COUNTER
+		    // Increase the Simulation step counter (usually starts at 1)
+		    int step = currentStep.incrementAndGet();
+		    
+		    // SINGLE PASS OVER THE VEHICLES (parallel for large fleets)
+		    // Enter time detection runs inside the pass every step (trip times need it);
+		    // speeds and stopped vehicles are only summed when their metric is sampled
+		    Set<String> activeIds = ConcurrentHashMap.newKeySet(Math.max(16, vehicles.length * 4 / 3));
+		    StepKernel.Partial stepTotals = StepKernel.aggregate(vehicles, edgeIndex, v -> {
+		    	// Store the time when a vehicle first appears in the simulation
+		    	enterTime.putIfAbsent(v.getId(), simTime);
+		    	vehicleById.put(v.getId(), v);
+		    	activeIds.add(v.getId());
+		    }, sampleSpeed, sampleCongestion);
+		    
+		    // VEHICLE EXIT TIME DETECTION
+		    // Vehicles that were active in the previous step but not in this one
+		    for (String vid : previousActiveIds) {
+		        // If the vehicle disappeared and no exit time was recorded yet
+		        if (!activeIds.contains(vid) && !exitTime.containsKey(vid)) {
+		        	exitTime.put(vid, simTime);
+		        	recordTrip(vid);
+		        }
+		    }
+		    previousActiveIds = activeIds;
+
+		    // Spill the raw state / record trajectories if enabled
+		    if (due[SamplingSchedule.Metric.VEHICLE_TRACES.ordinal()]) storeVehicleState(step, simTime, vehicles);
+		    // Bin the vehicles into the occupancy cube (every step, the cube has its own time bins)
+		    fillOccupancy(simTime, vehicles);
+		    applyStep(step, simTime, sampleSpeed, sampleCongestion, stepTotals, densities);
+	    } finally {
+	    	stepLock.unlockWrite(stamp);
 	    }
 	    
-	    // VEHICLE EXIT TIME DETECTION
-	    // Check vehicles that were present before but are no Longer active
-	    for (String vid : new ArrayList<>(enterTime.keySet())) {
-	        boolean stillActive = false;
-	        for (IVehicle v : vehicles) {
-	            if (v.getId().equals(vid)) {
-	                stillActive = true;
-	                break;
-	            }
-	        }
-	        // If the vehicle disappeared and no exit time was recorded yet
-	        if (!stillActive && !exitTime.containsKey(vid)) { exitTime.put(vid, simulationEngine.getCurrentSimulationTime()); }
-	    }
-
-	    // Store raw speed values per vehicle
-	    storeVehicleState(vehicles);
-	    // Compute and store average speed for this step
-	    computeAverageSpeedForStep(currentStep, vehicles);
-	    // Compute and store edge density per step
-	    collectEdgeDensity();
-	    // Detect congested edges for this step
-	    detectCongestion(vehicles);
+	    LiveCsvExporter live = liveExporter;
+	    if (live != null) live.endStep();
 	  
 	} catch (Exception e) {
-		throw new AnalyticsException("Error collecting statistics at simulation step" + currentStep, e);
+		throw new AnalyticsException("Error collecting statistics at simulation step" + currentStep.get(), e);
 	}
 	    
 }
 
+// Folds the aggregated vehicles of one step into the statistics; caller holds the step lock
+private void applyStep(int step, double simTime, boolean sampleSpeed, boolean sampleCongestion, StepKernel.Partial stepTotals, Map<String, Double> densities) {
+    if (sampleSpeed) {
+    	// Accumulate speed per edge and color
+    	accumulateSpeedPerEdge(stepTotals);
+    	// Compute and store average speed for this step
+    	computeAverageSpeedForStep(step, simTime, stepTotals);
+    	currentStepSpeed = edgeSpeeds(stepTotals);
+    }
+    // Accumulate edge density
+    if (densities != null) {
+    	collectEdgeDensity(step, simTime, densities);
+    	currentStepDensity = Collections.unmodifiableMap(densities);
+    }
+    // Detect congested edges for this step (the dashboard keeps the last sample in between)
+    if (sampleCongestion) detectCongestion(step, simTime, stepTotals);
+}
+
+	//===========================
+	// INGESTION OF SUMO OUTPUT FILES
+	//===========================
+
+    // Computes all reports from SUMO's own output files instead of polling TraCI (see SumoOutputIngester)
+    @Override
+    public void ingestSumoOutput(Path netFile, Path routeFile, Path fcdFile, Path tripinfoFile) {
+    	new SumoOutputIngester(this, netFile, routeFile, fcdFile, tripinfoFile).run();
+    }
+
+    // Edges of the ingested network, used when no live infrastructure is loaded
+    EdgeIndex edgeIndex() {
+    	return edgeIndex;
+    }
+
+    void setIngestedEdgeIds(List<String> edgeIds) {
+    	ingestedEdgeIds = List.copyOf(edgeIds);
+    }
+
+    // One timestep of an FCD file, steps must arrive in time order
+    void ingestStep(double simTime, StepKernel.Partial stepTotals, Map<String, Double> densities) {
+    	boolean[] due = samplingSchedule.due(simTime);
+    	long stamp = stepLock.writeLock();
+    	try {
+    		int step = currentStep.incrementAndGet();
+    		applyStep(step, simTime, due[SamplingSchedule.Metric.AVG_SPEED.ordinal()], due[SamplingSchedule.Metric.CONGESTION.ordinal()],
+    				stepTotals, due[SamplingSchedule.Metric.EDGE_DENSITY.ordinal()] ? densities : null);
+    	} finally {
+    		stepLock.unlockWrite(stamp);
+    	}
+    	LiveCsvExporter live = liveExporter;
+    	if (live != null) live.endStep();
+    }
+
+    // Trips need no step lock: snapshot() derives its route means from the trips it copied
+    void ingestTrip(String vehicleId, String color, String routeId, double travelTime) {
+    	recordTrip(vehicleId, color, routeId, travelTime);
+    }
+
+    // Network edges in report order: the live infrastructure, or the ingested network file
+    private List<String> knownEdgeIds() {
+    	List<IEdge> edges = infrastructureManager.getAllEdges();
+    	if (edges.isEmpty()) return ingestedEdgeIds;
+    	List<String> ids = new ArrayList<>(edges.size());
+    	for (IEdge edge : edges) ids.add(edge.getId());
+    	return ids;
+    }
+
 	//===========================
 	// AVERAGE SPEED
 	//===========================
 
  @Override
  public double getAverageSpeed() {
-	 if (currentStep <= 0) return 0.0;
-	 // Return the average speed of the current step. If for some reason the step is missing, return 0.0
-     return avgSpeedPerStep.getOrDefault(currentStep, 0.0);
+	 if (currentStep.get() <= 0) return 0.0;
+	 // Return the average speed of the latest step. If no step was recorded yet, return 0.0
+     return avgSpeedSeries.lastValue();
  }
 
  @Override
  public List<Double> getSpeedHistory() {
-	 if (currentStep == 0) return Collections.emptyList();
-	 // Return a copy of all average speed values
-     return new ArrayList<>(avgSpeedPerStep.values());
+	 if (currentStep.get() == 0) return Collections.emptyList();
+	 // Return a copy of all average speed values (full copy, prefer the incremental/downsampled variants)
+     return avgSpeedSeries.toList();
+ }
+
+ @Override
+ public double[] getSpeedHistorySince(int fromIndex) {
+	 // Only the values recorded after fromIndex, so live charts can append instead of rebuilding
+	 return avgSpeedSeries.valuesSince(fromIndex);
+ }
+
+ @Override
+ public TimeSeries.Points getSpeedHistoryDownsampled(int maxPoints) {
+	 // Whole run reduced to maxPoints (e.g. the chart width in pixels) using rollups + LTTB
+	 return avgSpeedSeries.downsample(maxPoints);
  }
  
- private Map<String, Double> calculateAverageSpeedPerEdge (ExportFilter filter) {
+ private Map<String, Double> calculateAverageSpeedPerEdge (StatsSnapshot snapshot, ExportFilter filter) {
 	 
 	 Map<String, Double> result = new LinkedHashMap<>();
 	 // --- Relevant filters for speed ---
 	 boolean filterByColor = filter != null && filter.hasVehicleColorFilter();
 	 boolean filterByEdge = filter != null && filter.hasOnlyEdgeIdFilter();
 	 boolean filterByCongested = filter != null && filter.hasOnlyCongestedEdgesFilter();
+	 String colorKey = filterByColor ? colorKey(filter.getVehicleColor()) : null;
 	// --- Iterate over all edges ---
-    for (IEdge edge : infrastructureManager.getAllEdges()) {
-        String edgeId = edge.getId();
+    for (String edgeId : snapshot.edgeIds) {
 
         // If a specific edge is requested, skip others
         if (filterByEdge && !edgeId.equals(filter.getOnlyEdgeId())) continue;
-        if (filterByCongested && !congestionList.containsKey(edgeId)) continue;
+        if (filterByCongested && !snapshot.congestion.containsKey(edgeId)) continue;
         
         double sum = 0.0;
-        int count = 0;
-        // --- Iterate over all vehicles ---
-        for (String vehicleId : speedPerVehiclePerStep.keySet()) {
-            IVehicle vehicle = vehicleById.get(vehicleId);
-            if (vehicle == null) continue;
-         
+        double count = 0;
+        // --- Accumulated speeds per color on this edge ---
+        Map<String, double[]> perColor = snapshot.speedPerEdgeAndColor.getOrDefault(edgeId, Map.of());
+        for (Map.Entry<String, double[]> entry : perColor.entrySet()) {
             // Apply vehicle color filter (if any)
-            if (filterByColor && !vehicle.getColor().trim().equalsIgnoreCase(filter.getVehicleColor().trim())) { continue; }
-
-            List<Double> speeds = speedPerVehiclePerStep.get(vehicleId);
-            List<String> edges  = edgePerVehiclePerStep.get(vehicleId);
-
-            if (speeds == null || edges == null) continue;
-            // Iterate only while both lists have values
-            int steps = Math.min(speeds.size(), edges.size());
-            // --- Accumulate speeds for this edge ---
-            for (int i = 0; i < steps; i++) {
-                if (!edgeId.equals(edges.get(i))) continue;
-                double speed = speeds.get(i);
-                if (speed > 0.0) {
-                    sum += speed;
-                    count++;
-                }
-            }
-	     }
+            if (filterByColor && !entry.getKey().equals(colorKey)) continue;
+            sum += entry.getValue()[0];
+            count += entry.getValue()[1];
+        }
 
 	        double avgSpeed = count > 0 ? sum / count : 0.0;
 	        result.put(edgeId, avgSpeed);
@@ -281,16 +731,9 @@ public void collectData() {
     	return result;
  }
  
- private void exportAverageSpeedInternal(PrintWriter writer, Map<String, Double> data, boolean forPdf) {
-	// --- Header / title ---
-	if (!forPdf) { writer.println("EdgeId,AverageSpeed(m/s)"); }
-	else { writer.println("Average Speed per Edge"); }
-	
-	data.forEach((edgeId,avgSpeed) -> {
-	    // --- Output ---
-	    if (!forPdf) {writer.println(edgeId + "," + String.format(Locale.US, "%.2f", avgSpeed));
-	    } else if (avgSpeed != 0){ writer.println("Edge " + edgeId +" average speed: " + String.format(Locale.US, "%.2f m/s", avgSpeed)); }
-	});
+ private void exportAverageSpeedInternal(PrintWriter writer, Map<String, Double> data) {
+	writer.println("EdgeId,AverageSpeed(m/s)");
+	data.forEach((edgeId,avgSpeed) -> writer.println(edgeId + "," + String.format(Locale.US, "%.2f", avgSpeed)));
 }
  
 //Builds a bar chart image for the average speed per edge.
@@ -304,11 +747,11 @@ public void collectData() {
      DefaultCategoryDataset dataset = new DefaultCategoryDataset();
 
      // Fill dataset: edgeId -> avgSpeed
-     data.forEach((edgeId, avgSpeed) -> dataset.addValue(avgSpeed, "Average Speed", edgeId));
+     topForChart(data).forEach((edgeId, avgSpeed) -> dataset.addValue(avgSpeed, "Average Speed", edgeId));
 
      // Create the bar chart
      JFreeChart chart = ChartFactory.createBarChart(
-             "Average Speed per Edge",     // chart title
+             chartTitle("Average Speed per Edge", data),     // chart title
              "Edge ID",                    // X-axis label
              "Average Speed (m/s)",        // Y-axis label
              dataset
@@ -343,65 +786,88 @@ public void collectData() {
 	 }
  }
  
+ // Line chart of the network average speed; the series is reduced to one point per pixel column
+ private Image buildAverageSpeedOverTimeChart(TimeSeries.Points series) {
+	 try {
+	 final int width = 550;
+	 TimeSeries.Points points = TimeSeries.downsample(series, width);
+	 XYSeries xy = new XYSeries("Average Speed");
+	 for (int i = 0; i < points.size(); i++) xy.add(points.getTime(i), points.getValue(i), false);
+	 
+	 JFreeChart chart = ChartFactory.createXYLineChart(
+			 "Network Average Speed over Time",
+			 "Simulation Time (s)",
+			 "Average Speed (m/s)",
+			 new XYSeriesCollection(xy),
+			 PlotOrientation.VERTICAL,
+			 false,
+			 false,
+			 false
+	 );
+	 BufferedImage image = chart.createBufferedImage(width, 300);
+	 ByteArrayOutputStream baos = new ByteArrayOutputStream();
+	 ImageIO.write(image, "png", baos);
+	 return Image.getInstance(baos.toByteArray());
+	 } catch (Exception e) {
+		 throw new AnalyticsException("Failed to build average speed over time chart", e);
+	 }
+ }
+ 
+ // Keeps the MAX_CHART_BARS largest values (in their original order); more bars are not readable
+ private static Map<String, Double> topForChart(Map<String, Double> data) {
+	 if (data.size() <= MAX_CHART_BARS) return data;
+	 Set<String> top = new HashSet<>();
+	 data.entrySet().stream()
+	 	.sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+	 	.limit(MAX_CHART_BARS)
+	 	.forEach(e -> top.add(e.getKey()));
+	 Map<String, Double> result = new LinkedHashMap<>();
+	 data.forEach((key, value) -> { if (top.contains(key)) result.put(key, value); });
+	 return result;
+ }
+ 
+ private static String chartTitle(String title, Map<String, Double> data) {
+	 return data.size() <= MAX_CHART_BARS ? title : title + " (top " + MAX_CHART_BARS + " of " + data.size() + ")";
+ }
+ 
 	//===============================
 	// AVERAGE TRAVEL TIME PER ROUTE
 	//===============================
 
- // Flag to ensure that average travel times are calculated only once
- //private boolean travelTimeCalculated = false;
- private void allAverageTravelTimesPerRoute() {
-	//if (travelTimeCalculated) return;
-	// Step 1: Collect individual travel times per route
-	for (String vid : exitTime.keySet()) {
-		IVehicle vehicle = vehicleById.get(vid);
-		if (vehicle == null) continue;
-		String routeId = vehicle.getRouteId();
-		if (routeId == null) {
-			LOGGER.warning("Vehicle '" + vid + "' has no routeId assigned - skipped");
-			continue;
-		}
-		List<Double> list = TravelTimeRouteList.get(routeId);
-	    Double enter = enterTime.get(vid);
-	    Double exit = exitTime.get(vid);
-	    if (enter != null && exit != null && exit > enter) {
-	        double travelTime = (exit - enter);
-	        if (list == null) { throw new AnalyticsException("Vehicle '" + vid + "' references unknown routeId '" + routeId + "'"); }
-	        list.add(travelTime);
-	    }
-	}
-	// Step 2: Compute average travel time per route
-	for (String route : TravelTimeRouteList.keySet()) {
-		List<Double> times = TravelTimeRouteList.get(route);
-		if (times.isEmpty()) {
-			avgTravelTimeRoute.put(route, 0.0);
-			continue;
-		}
-		double sum = 0.0;
-		for (double t : times) {
-			sum += t;
-		}
-		double avg = (double) sum / times.size();
-		avgTravelTimeRoute.put(route, avg);
-	}
-	// Mark calculations as completed
-	//travelTimeCalculated = true;
- }
- 
  @Override
  public Map<String, Double> getAverageTravelTime() {	
-	 // Ensure averages are computed before accessing them
-	 allAverageTravelTimesPerRoute();
-	 // Return average travel time per route
-     return new HashMap<>(avgTravelTimeRoute);
+	 return averageTravelTimes();
  }
- private Map<String, Double> calculateAverageTravelTimePerRoute(ExportFilter filter) {
-	 allAverageTravelTimesPerRoute();
+ 
+ // Immutable copy of the average travel time per route (routes without trips -> 0.0)
+ private Map<String, Double> averageTravelTimes() {
+	 Map<String, Double> result = new HashMap<>();
+	 travelTimePerRoute.forEach((routeId, acc) -> result.put(routeId, acc.mean()));
+	 return Collections.unmodifiableMap(result);
+ }
+
+ // Mean travel time per known route over the given trips (0.0 without trips, like MeanAccumulator)
+ private Map<String, Double> averageTravelTimes(List<StatsSnapshot.Trip> tripList) {
+	 Map<String, double[]> sums = new HashMap<>();
+	 for (String routeId : routeEdges.keySet()) sums.put(routeId, new double[2]);
+	 for (StatsSnapshot.Trip trip : tripList) {
+		 double[] acc = trip.routeId != null ? sums.get(trip.routeId) : null;
+		 if (acc == null) continue;
+		 acc[0] += trip.travelTime;
+		 acc[1]++;
+	 }
+	 Map<String, Double> result = new HashMap<>();
+	 sums.forEach((routeId, acc) -> result.put(routeId, acc[1] > 0 ? acc[0] / acc[1] : 0.0));
+	 return Collections.unmodifiableMap(result);
+ }
+ 
+ private Map<String, Double> calculateAverageTravelTimePerRoute(StatsSnapshot snapshot, ExportFilter filter) {
 	 Map<String, Double> result = new LinkedHashMap<>();
 	 
 	 boolean filterByRouteId = filter != null && filter.hasOnlyRouteIdFilter();
 	 boolean filterByMinAvgTime = filter != null && filter.hasMinAverageTravelTimeFilter();
-	 for (String routeId : routeEdges.keySet()) {
-		 double avgTime = avgTravelTimeRoute.get(routeId);
+	 for (String routeId : snapshot.routeEdges.keySet()) {
+		 double avgTime = snapshot.averageTravelTime.getOrDefault(routeId, 0.0);
 		 
 		// -----------------Filter-----------------
     	 if (filterByRouteId && !routeId.equals(filter.getOnlyRouteId())) { continue; }
@@ -426,27 +892,20 @@ public void collectData() {
 
 	    return Math.ceil(maxValue / 10.0) * 10;
  }
- private void exportAverageTravelTimeInternal (PrintWriter writer,  Map<String, Double> data, boolean forPdf) {
-	 
-	 if (!forPdf) {
-	     writer.println("RouteId,RouteEdges,AverageTravelTime(s)");
-	 } else { writer.println("Average Travel Time per Route"); }
+ private void exportAverageTravelTimeInternal (PrintWriter writer,  Map<String, Double> data) {
 	 
-	 boolean anyRoutePrinted = false;
+	 writer.println("RouteId,RouteEdges,AverageTravelTime(s)");
 	 for (Map.Entry<String, Double> entry : data.entrySet()) {
 		 String routeId = entry.getKey();
 		 double avgTime = entry.getValue();
-		 
-    	 anyRoutePrinted = true;
-    	 List<String> edges = routeEdges.get(routeId);
-    	 String edgesFormatted = "(" + String.join(" ", edges) + ")";
-    	 
-    	 if (!forPdf) { writer.println(routeId + "," + edgesFormatted + "," +  String.format(Locale.US, "%.2f", avgTime)); }
-    	 else if (avgTime != 0){ writer.println("Route " + routeId + "  " + edgesFormatted + "  Avg travel time: " + String.format(Locale.US, "%.2f s", avgTime)); }
-    	 
+    	 writer.println(routeId + "," + formatRouteEdges(routeId) + "," +  String.format(Locale.US, "%.2f", avgTime));
 	 }
-	 if (forPdf && !anyRoutePrinted) { writer.println("No routes match the selected filters."); }
 }
+ 
+ // "(E45 E48 E49)"
+ private String formatRouteEdges(String routeId) {
+	 return "(" + String.join(" ", routeEdges.getOrDefault(routeId, List.of())) + ")";
+ }
 	
  private Image buildAverageTravelTimeHorizontalBarChart(Map<String, Double> data) {
 	 if (data == null || data.isEmpty()) {
@@ -455,16 +914,15 @@ public void collectData() {
 	 try {
 	 // Create dataset for horizontal bar chart
 	 DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-	 data.forEach((routeId, avgTime) -> {
+	 topForChart(data).forEach((routeId, avgTime) -> {
 		// Build label: R0 (E45 E48 E49)
-		 List<String> edges = routeEdges.get(routeId);
-		 String label = routeId + " (" + String.join(" ", edges) + ")";
+		 String label = routeId + " " + formatRouteEdges(routeId);
 		 dataset.addValue(avgTime, "Average Travel Time", label);
 	 });
 	 
 	// Create horizontal bar chart
 	 JFreeChart chart = ChartFactory.createBarChart(
-	            "Average Travel Time per Route",   // chart title
+	            chartTitle("Average Travel Time per Route", data),   // chart title
 	            "Route",         // X-axis label
 	            "Average Travel Time (s)",                           // Y-axis label
 	            dataset,
@@ -513,34 +971,32 @@ public void collectData() {
  
  @Override
  public Map<String, Double> getEdgeDensity () {
-	 
-	 edgeDensity.clear();
-	 // Get the density history for each edge
-     for (String edgeId : edgeDensityPerStepList.keySet()) {
-    	 List<Double> history = edgeDensityPerStepList.get(edgeId);
-    	 if (history == null || history.isEmpty()) {
-    		 LOGGER.fine("No density data available for edge " + edgeId);
-    		 edgeDensity.put(edgeId, 0.0);
-    		 continue;
-    	 }
-    	 double sum = 0.0;
-    	 for (double density : history) { sum += density; }
-    	 double edgeDen = sum / history.size();
-    	 edgeDensity.put(edgeId, edgeDen);
-     }
-     
-     return new HashMap<>(edgeDensity);
+	 // Read-only: computed from the accumulators, nothing is written on the reader side
+	 return averageDensities();
+ }
+ 
+ // Immutable copy of the average density per edge over all steps, in network edge order
+ private Map<String, Double> averageDensities() {
+	 return averageDensities(knownEdgeIds());
+ }
+
+ private Map<String, Double> averageDensities(List<String> edgeIds) {
+	 Map<String, Double> result = new LinkedHashMap<>();
+	 for (String edgeId : edgeIds) {
+		 MeanAccumulator acc = densityPerEdge.get(edgeId);
+		 if (acc != null) result.put(edgeId, acc.mean());
+	 }
+	 return Collections.unmodifiableMap(result);
  }
- private Map<String, Double> calculateAverageEdgeDensity(ExportFilter filter) {
-	// Use the precomputed average edge density
-	 Map<String, Double> avgEdgeDensity = getEdgeDensity();
+ 
+ private Map<String, Double> calculateAverageEdgeDensity(StatsSnapshot snapshot, ExportFilter filter) {
 	 Map<String, Double> result = new LinkedHashMap<>();
 	 
 	 boolean filterByEdgeId = filter != null && filter.hasOnlyEdgeIdFilter();
 	 boolean filterByMinDensity = filter != null && filter.hasMinEdgeDensityFilter();
 	 boolean filterByCongested = filter != null && filter.hasOnlyCongestedEdgesFilter();
 	 
-	 for (Map.Entry<String, Double> entry : avgEdgeDensity.entrySet()) {
+	 for (Map.Entry<String, Double> entry : snapshot.averageDensity.entrySet()) {
 		 String edgeId = entry.getKey();
 		 double avgDensity = entry.getValue();
 		 
@@ -549,7 +1005,7 @@ public void collectData() {
 		 // minEdgeDensity filter
 		 if (filterByMinDensity && avgDensity < filter.getMinEdgeDensity()) { continue; }
 		 
-		 boolean congestedEver = congestionList.containsKey(edgeId);
+		 boolean congestedEver = snapshot.congestion.containsKey(edgeId);
 		 // congestion filter
 		 if (filterByCongested && !congestedEver) { continue; }
 		 result.put(edgeId, avgDensity);
@@ -557,22 +1013,10 @@ public void collectData() {
 	 
 	 return result;
  }
- private void exportEdgeDensityInternal (PrintWriter writer, Map<String, Double> data, boolean forPdf) {
-	 
-	 if (forPdf) { writer.println("Edge Density Summary"); } 
-	 else { writer.println("EdgeId,AverageDensity(veh/m)"); }
+ private void exportEdgeDensityInternal (PrintWriter writer, Map<String, Double> data) {
 	 
-	 boolean anyEdgePrinted = false;
-	 for (Map.Entry<String, Double> entry : data.entrySet()) {
-		 String edgeId = entry.getKey();
-		 double avgDensity = entry.getValue();
-		 boolean congestedEver = congestionList.containsKey(edgeId);
-		 anyEdgePrinted = true;
-		 if(!forPdf) { 
-			 writer.println(edgeId + "," + String.format(Locale.US, "%.4f", avgDensity)); }
-		 else if (avgDensity > 0){writer.println("Edge " + edgeId + "  Average density: " + String.format(Locale.US, "%.4f veh/m", avgDensity) + (congestedEver ? " (congested)" : "")); }
-	 }
-	 if (forPdf && !anyEdgePrinted) { writer.println("No edges match the selected filters."); }
+	 writer.println("EdgeId,AverageDensity(veh/m)");
+	 data.forEach((edgeId, avgDensity) -> writer.println(edgeId + "," + String.format(Locale.US, "%.4f", avgDensity)));
  }	 
  
  private Image buildEdgeDensityBarChart(Map<String, Double> data) {
@@ -581,10 +1025,10 @@ public void collectData() {
 	 }
 	 try {
 	 DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-	 data.forEach((edgeId, avgDensity) -> dataset.addValue(avgDensity, "Edge Density", edgeId));
+	 topForChart(data).forEach((edgeId, avgDensity) -> dataset.addValue(avgDensity, "Edge Density", edgeId));
 	 
 	 JFreeChart chart = ChartFactory.createBarChart(
-	            "Average Edge Density",
+	            chartTitle("Average Edge Density", data),
 	            "Edge ID",
 	            "Average Density (veh/m)",
 	            dataset
@@ -622,108 +1066,56 @@ public void collectData() {
 
  @Override// Map with edgeId and count of Vehicles 
  public Map<String, Integer> getCongestedEdgeIds() {
-	 return new HashMap<>(congestionList);
+	 return Collections.unmodifiableMap(new HashMap<>(congestionList));
  }
 
- private void exportCongestedEdgesInternal (PrintWriter writer, ExportFilter filter, boolean forPdf) {
-	 
-	 writer.println(forPdf ? "Congested Edges" : "EdgeId,StoppedVehicles");
+ // Historical maximum of stopped vehicles per congested edge, onlyEdgeId filter applied
+ private Map<String, Integer> collectCongestedEdges(StatsSnapshot snapshot, ExportFilter filter) {
 	 boolean filterByEdgeId = filter != null && filter.hasOnlyEdgeIdFilter();
-	 
-	 boolean anyEdgePrinted = false;
-	 for (Map.Entry<String, Integer> entry : congestionList.entrySet()) {
-		 String edgeId = entry.getKey();
-		 int stoppedVehicles = entry.getValue();
-		 
-		 // onlyEdgeId filter
-		 if (filterByEdgeId && !edgeId.equals(filter.getOnlyEdgeId())) { continue; }
-		 anyEdgePrinted = true;
-		 
-		 if (forPdf) { writer.println("Edge " + edgeId + " congested (stopped vehicles: " + stoppedVehicles + ")"); }
-		 else { writer.println(edgeId + "," + stoppedVehicles); }
-	 }
-	 if (forPdf && !anyEdgePrinted) { writer.println("No congested edges match the selected filters."); }
+	 Map<String, Integer> result = new LinkedHashMap<>();
+	 snapshot.congestion.forEach((edgeId, stoppedVehicles) -> {
+		 if (filterByEdgeId && !edgeId.equals(filter.getOnlyEdgeId())) return;
+		 result.put(edgeId, stoppedVehicles);
+	 });
+	 return result;
+ }
+
+ private void exportCongestedEdgesInternal (PrintWriter writer, Map<String, Integer> data) {
+	 writer.println("EdgeId,StoppedVehicles");
+	 data.forEach((edgeId, stoppedVehicles) -> writer.println(edgeId + "," + stoppedVehicles));
  }
  
  	//=========================
 	// VEHICLE TRAVEL TIME
 	//=========================
  
- private static class VehicleTravelRow {
-    String vehicleId;
-    String color;
-    String routeId;
-    double travelTime;
-
-    VehicleTravelRow(String vehicleId, String color, String routeId, double travelTime) {
-        this.vehicleId = vehicleId;
-        this.color = color;
-        this.routeId = routeId;
-        this.travelTime = travelTime;
-    }
-}
-
- private void exportVehicleTravelTimesInternal (PrintWriter writer,Document document, ExportFilter filter, boolean forPdf) throws Exception {
-
+ // Completed trips of the snapshot that pass the color / route filters
+ private List<StatsSnapshot.Trip> collectVehicleTravelRows(StatsSnapshot snapshot, ExportFilter filter) {
 	 boolean filterByColor = filter != null && filter.hasVehicleColorFilter();
 	 boolean filterByRoute =filter != null && filter.hasOnlyRouteIdFilter();
 	 
-	 List<VehicleTravelRow> rows = new ArrayList<>();
+	 List<StatsSnapshot.Trip> rows = new ArrayList<>();
 	 
 	 // ONE SINGLE LOOP		
-	for (String vehicleId : exitTime.keySet()) {
-	    Double enter = enterTime.get(vehicleId);
-	    Double exit  = exitTime.get(vehicleId);
-	    if (enter == null || exit == null || exit <= enter) continue;
-	    IVehicle vehicle = vehicleById.get(vehicleId);
-	    if (vehicle == null) continue;
+	for (StatsSnapshot.Trip trip : snapshot.trips) {
 	  //--------------------FILTERS------------------
 		// vehicleColor filter
-		if (filterByColor && !vehicle.getColor().equalsIgnoreCase(filter.getVehicleColor())) { continue; }
+		if (filterByColor && !colorKey(trip.color).equals(colorKey(filter.getVehicleColor()))) { continue; }
 		// onlyRouteId filter
-		if (filterByRoute && !vehicle.getRouteId().equals(filter.getOnlyRouteId())) { continue; }
-	    double travelTime = exit - enter;
+		if (filterByRoute && !filter.getOnlyRouteId().equals(trip.routeId)) { continue; }
 	    
-	    rows.add(new VehicleTravelRow(vehicleId, vehicle.getColor(), vehicle.getRouteId(), travelTime));
-	}
-	
-	// ---------- CSV ------------
-	if (!forPdf) { 
-		writer.println("vehicleId,color,routeId,travelTime(s)");
-		for (VehicleTravelRow row : rows) {
-			writer.println(row.vehicleId + "," + row.color + "," + row.routeId + "," + String.format(Locale.US, "%.2f", row.travelTime));
-		}
-		return;
-	}
-	
-	if (document == null) {throw new AnalyticsException("PDF document is required for VEHICLE_TRAVEL_TIMES export");}
-	
-	// ---------- PDF (TABLE) -----------
-	document.add(new Paragraph("Vehicle Travel Times"));
-	document.add(new Paragraph(" "));
-	
-	if (rows.isEmpty()) {
-		document.add(new Paragraph("No vehicles match the selected filters."));
-		return;
-	}
-	PdfPTable table = new PdfPTable(4);
-	table.setWidthPercentage(70);
-	table.setWidths(new float[] {1f, 0.6f, 0.6f, 1f} );
-	
-	Font headerFont = new Font(Font.HELVETICA, 10, Font.BOLD, new Color(60, 60, 60));
-	table.addCell(new PdfPCell(new Phrase("VehicleId", headerFont)));
-	table.addCell(new PdfPCell(new Phrase("Color", headerFont)));
-	table.addCell(new PdfPCell(new Phrase("RouteId",headerFont)));
-	table.addCell(new PdfPCell(new Phrase("Travel Time (s)", headerFont)));
-	
-	for (VehicleTravelRow row : rows) {
-		table.addCell(row.vehicleId);
-		table.addCell(row.color);
-		table.addCell(row.routeId);
-		table.addCell(String.format(Locale.US, "%.2f", row.travelTime));
+	    rows.add(trip);
 	}
+	return rows;
+ }
 
-	document.add(table);
+ private void exportVehicleTravelTimesInternal (PrintWriter writer, List<StatsSnapshot.Trip> rows, ExportJob job) {
+	writer.println("vehicleId,color,routeId,travelTime(s)");
+	for (int i = 0; i < rows.size(); i++) {
+		StatsSnapshot.Trip row = rows.get(i);
+		writer.println(row.vehicleId + "," + row.color + "," + row.routeId + "," + String.format(Locale.US, "%.2f", row.travelTime));
+		if ((i & CANCEL_CHECK_MASK) == 0) job.checkCancelled();
+	}
  }
 
 	//=============
@@ -735,54 +1127,161 @@ public void collectData() {
 	 
 	 List<ExportType> expanded = new ArrayList<>();
 	 for (ExportType t : ExportType.values()) {
+		 // The space-time section is only part of the summary when the cube is recorded
+		 if (t == ExportType.SPACE_TIME && occupancyCube == null) continue;
+		 // Vehicle traces only when the history spill is enabled
+		 if (t == ExportType.VEHICLE_TRACES && historyStore == null) continue;
 		 if (t != ExportType.SUMMARY) expanded.add(t);
 	 }
 	 
 	 return expanded;
  }
 
+	//=================
+	// EXPORT JOBS
+	//=================
+ 
+ /**
+  * Consistent point-in-time copy of the aggregates; cheap enough to take on any thread.
+  * The copy is taken without locking and discarded if a step was applied while it was
+  * made (StampedLock optimistic read). Only if that happens OPTIMISTIC_SNAPSHOT_ATTEMPTS
+  * times in a row, i.e. copying takes longer than a step, the last attempt waits for the
+  * running step and holds off the next one while it copies, so a snapshot cannot starve.
+  */
+ public StatsSnapshot snapshot() {
+	 // Trips carry no step invariant: copy them once, the route means are derived from this copy
+	 List<StatsSnapshot.Trip> tripsCopy = List.copyOf(trips);
+	 Map<String, Double> travelTimes = averageTravelTimes(tripsCopy);
+	 List<String> edgeIds = knownEdgeIds();
+	 for (int attempt = 1; attempt < OPTIMISTIC_SNAPSHOT_ATTEMPTS; attempt++) {
+		 long stamp = stepLock.tryOptimisticRead();
+		 if (stamp != 0) {
+			 StatsSnapshot snapshot = copyAggregates(edgeIds, travelTimes, tripsCopy);
+			 if (stepLock.validate(stamp)) return snapshot;
+		 }
+		 Thread.onSpinWait();
+	 }
+	 long stamp = stepLock.readLock();
+	 try {
+		 return copyAggregates(edgeIds, travelTimes, tripsCopy);
+	 } finally {
+		 stepLock.unlockRead(stamp);
+	 }
+ }
+
+ private StatsSnapshot copyAggregates(List<String> edgeIds, Map<String, Double> travelTimes, List<StatsSnapshot.Trip> tripsCopy) {
+	 return new StatsSnapshot(currentStep.get(), avgSpeedSeries.lastTime(),
+			 edgeIds, speedPerEdgeAndColor, averageDensities(edgeIds),
+			 congestionList, travelTimes, routeEdges, tripsCopy, avgSpeedSeries.raw(), densityWindows, historyStore, occupancyCube);
+ }
+ 
+ /**
+  * Runs an export on the background export worker.
+  * The snapshot is taken immediately, so the file reflects the moment of the call even
+  * though the simulation keeps running while it is written.
+  */
+ @Override
+ public ExportJob exportAsync(ExportFormat format, String filePath, ExportFilter filter, List<ExportType> types, ExportJob.ProgressListener listener) {
+	 ExportJob job = new ExportJob(format, filePath, listener);
+	 StatsSnapshot snapshot = snapshot();
+	 exportExecutor().execute(() -> runExport(job, snapshot, filter, types));
+	 return job;
+ }
+ 
+ private synchronized ExecutorService exportExecutor() {
+	 if (exportExecutor == null) {
+		 exportExecutor = Executors.newSingleThreadExecutor(r -> {
+			 Thread t = new Thread(r, "Stats-Export");
+			 t.setDaemon(true);
+			 return t;
+		 });
+	 }
+	 return exportExecutor;
+ }
+ 
+ private void runExport(ExportJob job, StatsSnapshot snapshot, ExportFilter filter, List<ExportType> types) {
+	 try {
+		 job.checkCancelled();
+		 switch (job.getFormat()) {
+		 	case CSV -> writeCsv(snapshot, job.getFilePath(), filter, types, job);
+		 	case PDF -> writePdf(snapshot, job.getFilePath(), filter, types, job);
+		 	case COLUMNAR -> writeColumnar(snapshot, job.getFilePath(), filter, types, job);
+		 }
+		 job.complete();
+	 } catch (Exception e) {
+		 // Cancelled or failed: do not leave a half-written file behind
+		 try {
+			 Files.deleteIfExists(Paths.get(job.getFilePath()));
+		 } catch (Exception ignored) {
+			 LOGGER.warning("Could not delete partial export " + job.getFilePath());
+		 }
+		 Throwable cause = e instanceof AnalyticsException && e.getCause() instanceof CancellationException ? e.getCause() : e;
+		 if (cause instanceof CancellationException) LOGGER.info("Export cancelled: " + job.getFilePath());
+		 job.fail(cause);
+	 }
+ }
+ 
+ // Synchronous exports (interface methods) run the same code without progress or cancellation
+ private static ExportJob detachedJob(ExportFormat format, String filePath) {
+	 return new ExportJob(format, filePath, null);
+ }
+ 
+ private static void sectionProgress(ExportJob job, int index, int count, ExportType type) {
+	 job.progress((double) index / count, "Writing " + type);
+ }
+
 	//=================
 	// EXPORT TO CSV
 	//=================
  
  @Override
  public void exportToCsv (String filePath, ExportFilter filter, List<ExportType> types) {
+	 writeCsv(snapshot(), filePath, filter, types, detachedJob(ExportFormat.CSV, filePath));
+ }
+ 
+ private void writeCsv (StatsSnapshot snapshot, String filePath, ExportFilter filter, List<ExportType> types, ExportJob job) {
 	 LOGGER.info("Exporting statistics to CSV: " + filePath);
 	 List<ExportType> effectiveTypes = expandSummary(types);
      try (PrintWriter writer = new PrintWriter(filePath, "UTF-8")) {
     	 
-    	 for (ExportType type : effectiveTypes) {
+    	 for (int i = 0; i < effectiveTypes.size(); i++) {
+    		 ExportType type = effectiveTypes.get(i);
+    		 sectionProgress(job, i, effectiveTypes.size(), type);
 	         
     		 switch(type) {
 	        	 
 	        	 case AVG_SPEED -> { 
 	        		 // calculate data
-	        		 Map<String, Double> data = calculateAverageSpeedPerEdge(filter);
+	        		 Map<String, Double> data = calculateAverageSpeedPerEdge(snapshot, filter);
 	        		 if (data.isEmpty()) {
 	        			    LOGGER.warning("No AVG_SPEED data available for export");
 	        			}
-	        		 exportAverageSpeedInternal(writer,data, false);
+	        		 exportAverageSpeedInternal(writer, data);
 	        	 }
 	        	 
 	        	 case AVG_TRAVEL_TIME -> {
-	        		 Map<String, Double> data = calculateAverageTravelTimePerRoute(filter);
+	        		 Map<String, Double> data = calculateAverageTravelTimePerRoute(snapshot, filter);
 	        		 if (data.isEmpty()) {
 	        			    LOGGER.warning("No AVG_TRAVEL_TIME data available for export");
 	        			}
-	        		 exportAverageTravelTimeInternal(writer, data, false);
+	        		 exportAverageTravelTimeInternal(writer, data);
 	        	 }
 	        	 
 	        	 case EDGE_DENSITY -> {
-	        		 Map<String, Double> data = calculateAverageEdgeDensity(filter);
+	        		 Map<String, Double> data = calculateAverageEdgeDensity(snapshot, filter);
 	        		 if (data.isEmpty()) {
 	        			    LOGGER.warning("No EDGE_DENSITY data available for export");
 	        			}
-	        		 exportEdgeDensityInternal(writer, data, false);
+	        		 exportEdgeDensityInternal(writer, data);
 	        	 }
 	        	 
-	        	 case CONGESTED_EDGES -> exportCongestedEdgesInternal(writer, filter, false);
+	        	 case CONGESTED_EDGES -> exportCongestedEdgesInternal(writer, collectCongestedEdges(snapshot, filter));
+	        	 
+	        	 case VEHICLE_TRAVEL_TIMES -> exportVehicleTravelTimesInternal(writer, collectVehicleTravelRows(snapshot, filter), job);
 	        	 
-	        	 case VEHICLE_TRAVEL_TIMES -> exportVehicleTravelTimesInternal(writer,null, filter, false);
+	        	 case VEHICLE_TRACES -> exportVehicleTracesInternal(writer, snapshot, filter, job);
+	        	 
+	        	 case SPACE_TIME -> exportSpaceTimeInternal(writer, snapshot, filter, job);
 	        	 
 	         }
 	         writer.println();	// empty Line between sections
@@ -796,11 +1295,114 @@ public void collectData() {
 	}
  }
 
+	//======================
+	// EXPORT TO COLUMNAR
+	//======================
+ 
+ /**
+  * Binary columnar export (see ColumnarWriter), one table per export type plus the
+  * per-step average speed series. Much faster to write and to read back than CSV for large runs.
+  */
+ @Override
+ public void exportToColumnar (String filePath, ExportFilter filter, List<ExportType> types) {
+	 writeColumnar(snapshot(), filePath, filter, types, detachedJob(ExportFormat.COLUMNAR, filePath));
+ }
+ 
+ private void writeColumnar (StatsSnapshot snapshot, String filePath, ExportFilter filter, List<ExportType> types, ExportJob job) {
+	 LOGGER.info("Exporting statistics to columnar file: " + filePath);
+	 List<ExportType> effectiveTypes = expandSummary(types);
+	 try (ColumnarWriter writer = new ColumnarWriter(Paths.get(filePath))) {
+		 
+		 for (int i = 0; i < effectiveTypes.size(); i++) {
+			 ExportType type = effectiveTypes.get(i);
+			 sectionProgress(job, i, effectiveTypes.size(), type);
+			 
+			 switch(type) {
+			 
+			 	case AVG_SPEED -> {
+			 		ColumnarWriter.Table table = writer.table("avg_speed",
+			 				ColumnarWriter.Column.string("edge_id"), ColumnarWriter.Column.float64("avg_speed"));
+			 		calculateAverageSpeedPerEdge(snapshot, filter).forEach((edgeId, speed) -> table.putString(0, edgeId).putDouble(1, speed).endRow());
+			 		
+			 		ColumnarWriter.Table series = writer.table("avg_speed_series",
+			 				ColumnarWriter.Column.float64("time"), ColumnarWriter.Column.float64("avg_speed"));
+			 		TimeSeries.Points points = snapshot.speedSeries;
+			 		for (int p = 0; p < points.size(); p++) series.putDouble(0, points.getTime(p)).putDouble(1, points.getValue(p)).endRow();
+			 	}
+			 	
+			 	case AVG_TRAVEL_TIME -> {
+			 		ColumnarWriter.Table table = writer.table("avg_travel_time",
+			 				ColumnarWriter.Column.string("route_id"), ColumnarWriter.Column.string("route_edges"),
+			 				ColumnarWriter.Column.float64("avg_travel_time"));
+			 		calculateAverageTravelTimePerRoute(snapshot, filter).forEach((routeId, avgTime) -> table.putString(0, routeId)
+			 				.putString(1, String.join(" ", snapshot.routeEdges.getOrDefault(routeId, List.of()))).putDouble(2, avgTime).endRow());
+			 	}
+			 	
+			 	case EDGE_DENSITY -> {
+			 		ColumnarWriter.Table table = writer.table("edge_density",
+			 				ColumnarWriter.Column.string("edge_id"), ColumnarWriter.Column.float64("density"));
+			 		calculateAverageEdgeDensity(snapshot, filter).forEach((edgeId, density) -> table.putString(0, edgeId).putDouble(1, density).endRow());
+			 	}
+			 	
+			 	case CONGESTED_EDGES -> {
+			 		ColumnarWriter.Table table = writer.table("congested_edges",
+			 				ColumnarWriter.Column.string("edge_id"), ColumnarWriter.Column.int32("stopped_vehicles"));
+			 		collectCongestedEdges(snapshot, filter).forEach((edgeId, count) -> table.putString(0, edgeId).putInt(1, count).endRow());
+			 	}
+			 	
+			 	case VEHICLE_TRAVEL_TIMES -> {
+			 		ColumnarWriter.Table table = writer.table("vehicle_travel_times",
+			 				ColumnarWriter.Column.string("vehicle_id"), ColumnarWriter.Column.string("color"),
+			 				ColumnarWriter.Column.string("route_id"), ColumnarWriter.Column.float64("travel_time"));
+			 		List<StatsSnapshot.Trip> rows = collectVehicleTravelRows(snapshot, filter);
+			 		for (int r = 0; r < rows.size(); r++) {
+			 			StatsSnapshot.Trip row = rows.get(r);
+			 			if ((r & CANCEL_CHECK_MASK) == 0) job.checkCancelled();
+			 			table.putString(0, row.vehicleId).putString(1, row.color).putString(2, row.routeId).putDouble(3, row.travelTime).endRow();
+			 		}
+			 	}
+			 	
+			 	case VEHICLE_TRACES -> {
+			 		if (snapshot.history == null) break;
+			 		ColumnarWriter.Table table = writer.table("vehicle_traces",
+			 				ColumnarWriter.Column.float64("time"), ColumnarWriter.Column.int32("step"), ColumnarWriter.Column.string("vehicle_id"),
+			 				ColumnarWriter.Column.string("edge_id"), ColumnarWriter.Column.int32("lane"), ColumnarWriter.Column.float64("speed"),
+			 				ColumnarWriter.Column.float64("x"), ColumnarWriter.Column.float64("y"));
+			 		forEachVehicleTrace(snapshot, filter, job, r -> table.putDouble(0, r.getTime()).putInt(1, r.getStep())
+			 				.putString(2, r.getVehicleId()).putString(3, r.getEdgeId()).putInt(4, r.getLane()).putDouble(5, r.getSpeed())
+			 				.putDouble(6, r.getX()).putDouble(7, r.getY()).endRow());
+			 	}
+			 	
+			 	case SPACE_TIME -> {
+			 		if (snapshot.spaceTime == null) break;
+			 		ColumnarWriter.Table table = writer.table("space_time",
+			 				ColumnarWriter.Column.string("row_id"), ColumnarWriter.Column.string("edge_id"), ColumnarWriter.Column.float64("time"),
+			 				ColumnarWriter.Column.float64("position"), ColumnarWriter.Column.float64("mean_vehicles"), ColumnarWriter.Column.float64("mean_speed"));
+			 		forEachSpaceTimeRow(snapshot, filter, job, slice -> {
+			 			for (int t = 0; t < slice.getTimeBins(); t++) {
+			 				for (int p = 0; p < slice.getPositionBins(); p++) {
+			 					if (slice.getOccupancy(t, p) <= 0) continue;
+			 					table.putString(0, slice.getRowId()).putString(1, slice.getEdgeId()).putDouble(2, slice.getStartTime() + t * slice.getTimeBinSeconds())
+			 							.putDouble(3, slice.getPositionStart(p)).putDouble(4, slice.getOccupancy(t, p)).putDouble(5, slice.getMeanSpeed(t, p)).endRow();
+			 				}
+			 			}
+			 		});
+			 	}
+			 	
+			 }
+		 }
+		 
+	 } catch (Exception e) {
+		 LOGGER.severe("Columnar export failed: " + filePath + " - " + e.getMessage());
+		 throw new AnalyticsException("Columnar export failed: " + filePath, e);
+	 }
+ }
+
 	//=================
 	// EXPORT TO PDF
 	//=================
  
- private String getDescriptionForType(ExportType type) {
+ String getDescriptionForType(ExportType type) {
 
 	    switch (type) {
 
@@ -819,25 +1421,89 @@ public void collectData() {
 	        case VEHICLE_TRAVEL_TIMES:
 	            return "This report shows the individual travel times of vehicles that completed their routes. Results may be filtered by vehicle color and route.";
 
+	        case VEHICLE_TRACES:
+	            return "This report summarizes the recorded per-step vehicle states (history spill) per vehicle: samples, time span and speeds. Results may be filtered by vehicle color, edge and time range; CSV and columnar exports contain every record.";
+
+	        case SPACE_TIME:
+	            return "This report summarizes the space-time occupancy per edge or lane: vehicles and mean speed per position bin along the edge, over the recorded time window. Results may be filtered by edge.";
+
 	        case SUMMARY:
+	        	// Same sections as the summary export itself (traces / space-time only when recorded)
+	        	List<String> sections = new ArrayList<>();
+	        	for (ExportType section : expandSummary(List.of(ExportType.SUMMARY))) sections.add(getTitleForType(section));
 	            return "SUMMARY export selected.\n"
-	            		+ "This report includes all available export sections (Average Speed, Average Travel Time, Edge Density, Congested Edges, Vehicle Travel Times).\n"
+	            		+ "This report includes all available export sections (" + String.join(", ", sections) + ").\n"
 	            		+ "Any filters applied are evaluated individually for each export type.";
 	        default:
 	            return "No description available for this report type.";
 	    }
 	}
  
+ private static String getTitleForType(ExportType type) {
+	 return switch (type) {
+	 	case AVG_SPEED -> "Average Speed";
+	 	case AVG_TRAVEL_TIME -> "Average Travel Time";
+	 	case EDGE_DENSITY -> "Edge Density";
+	 	case CONGESTED_EDGES -> "Congested Edges";
+	 	case VEHICLE_TRAVEL_TIMES -> "Vehicle Travel Times";
+	 	case VEHICLE_TRACES -> "Vehicle Traces";
+	 	case SPACE_TIME -> "Space-Time Occupancy";
+	 	case SUMMARY -> "Summary";
+	 };
+ }
+ 
  @Override
  public void exportToPdf (String filePath, ExportFilter filter, List<ExportType> types) {
+	 writePdf(snapshot(), filePath, filter, types, detachedJob(ExportFormat.PDF, filePath));
+ }
+ 
+ private void writePdf (StatsSnapshot snapshot, String filePath, ExportFilter filter, List<ExportType> types, ExportJob job) {
 	 LOGGER.info("Exporting statistics to PDF: " + filePath);
 	 List<ExportType> effectiveTypes = expandSummary(types);
-     try {
+	 
+	 // Calculate all section data up front (cheap, from the snapshot) ...
+	 Map<ExportType, Map<String, Double>> sectionData = new EnumMap<>(ExportType.class);
+	 for (ExportType type : effectiveTypes) {
+		 switch (type) {
+		 	case AVG_SPEED -> sectionData.put(type, calculateAverageSpeedPerEdge(snapshot, filter));
+		 	case AVG_TRAVEL_TIME -> sectionData.put(type, calculateAverageTravelTimePerRoute(snapshot, filter));
+		 	case EDGE_DENSITY -> sectionData.put(type, calculateAverageEdgeDensity(snapshot, filter));
+		 	default -> { }
+		 }
+		 if (sectionData.containsKey(type) && sectionData.get(type).isEmpty()) {
+			 LOGGER.warning("No " + type + " data available for export");
+		 }
+	 }
+	 // ... so that all charts can be rendered in parallel while the tables are written
+	 ExecutorService chartPool = Executors.newFixedThreadPool(Math.max(1, Math.min(CHART_THREADS, sectionData.size() + 1)), r -> {
+		 Thread t = new Thread(r, "Pdf-Chart");
+		 t.setDaemon(true);
+		 return t;
+	 });
+	 Map<ExportType, List<Future<Image>>> charts = new EnumMap<>(ExportType.class);
+	 sectionData.forEach((type, data) -> {
+		 List<Future<Image>> futures = new ArrayList<>();
+		 if (!data.isEmpty()) {
+			 switch (type) {
+			 	case AVG_SPEED -> {
+			 		futures.add(chartPool.submit(() -> buildAverageSpeedBarChart(data)));
+			 		if (snapshot.speedSeries.size() > 1) futures.add(chartPool.submit(() -> buildAverageSpeedOverTimeChart(snapshot.speedSeries)));
+			 	}
+			 	case AVG_TRAVEL_TIME -> futures.add(chartPool.submit(() -> buildAverageTravelTimeHorizontalBarChart(data)));
+			 	case EDGE_DENSITY -> futures.add(chartPool.submit(() -> buildEdgeDensityBarChart(data)));
+			 	default -> { }
+			 }
+		 }
+		 charts.put(type, futures);
+	 });
+	 
+	 // Pages are written to the file while the document grows
+     try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath))) {
     	 
     	 // Create the PDF document
     	 Document document = new Document();
     	 // Bind the document to a file
-    	 PdfWriter.getInstance(document, new FileOutputStream(filePath));
+    	 PdfWriter.getInstance(document, out);
     	 // Open the document
     	 document.open();
     	 
@@ -857,7 +1523,9 @@ public void collectData() {
     		 document.add(new Paragraph(" "));
     	 }
     	 
-    	 for (ExportType type : effectiveTypes) {
+    	 for (int i = 0; i < effectiveTypes.size(); i++) {
+    		 ExportType type = effectiveTypes.get(i);
+    		 sectionProgress(job, i, effectiveTypes.size(), type);
 	    	 // Which Export Type
 	    	 document.add(new Paragraph("Export Type: " + type));
 	    	 // Type description
@@ -870,68 +1538,138 @@ public void collectData() {
 	    		 document.add(new Paragraph(filter.toString(type)));
 	    	 } else { document.add(new Paragraph("No filters applied")); }
 	    	 document.add(new Paragraph( hasFilters ? "Filtered Results" : "Results (no filters applied)"));
-	    	 
-	    	 // Collect output using existing export methods
-	    	 StringWriter sw = new StringWriter();
-	    	 PrintWriter pw = new PrintWriter(sw);
-	    	 Image chartImage = null;
+	    	 document.add(new Paragraph(" "));
 	    	 
 	    	 switch(type) {
-	    	 
-	    	 	case AVG_SPEED -> {
-	    	 		// Calculate data once
-	    	 		Map<String, Double> data = calculateAverageSpeedPerEdge(filter);
-	    	 		if (data.isEmpty()) {
-        			    LOGGER.warning("No AVG_SPEED data available for export");
-        			}
-	    	 		// Export textual results to PDF 
-	    	 		exportAverageSpeedInternal(pw, data, true);
-	    	 		chartImage = buildAverageSpeedBarChart(data);
-	    	 	}
-	    	 	
-	    	 	case AVG_TRAVEL_TIME -> {
-	    	 		Map<String, Double> data = calculateAverageTravelTimePerRoute(filter);
-	    	 		if (data.isEmpty()) {
-        			    LOGGER.warning("No AVG_TRAVEL_TIME data available for export");
-        			}
-	    	 		exportAverageTravelTimeInternal(pw, data, true);
-	    	 		chartImage = buildAverageTravelTimeHorizontalBarChart(data);
-	    	 	}
-	    	 
-	    	 	case EDGE_DENSITY -> {
-	    	 		Map<String, Double> data = calculateAverageEdgeDensity(filter);
-	    	 		if (data.isEmpty()) {
-        			    LOGGER.warning("No EDGE_DENSITY data available for export");
-        			}
-	    	 		exportEdgeDensityInternal(pw, data, true);
-	    	 		chartImage = buildEdgeDensityBarChart(data);
-	    	 	}
-	    	 
-	    	 	case CONGESTED_EDGES -> exportCongestedEdgesInternal(pw, filter, true);
-	    	 
-	    	 	case VEHICLE_TRAVEL_TIMES -> exportVehicleTravelTimesInternal(pw, document, filter, true);
-	    	 
+	    	 	case AVG_SPEED -> writeAverageSpeedPdf(document, sectionData.get(type));
+	    	 	case AVG_TRAVEL_TIME -> writeAverageTravelTimePdf(document, sectionData.get(type));
+	    	 	case EDGE_DENSITY -> writeEdgeDensityPdf(document, snapshot, sectionData.get(type));
+	    	 	case CONGESTED_EDGES -> writeCongestedEdgesPdf(document, collectCongestedEdges(snapshot, filter));
+	    	 	case VEHICLE_TRAVEL_TIMES -> writeVehicleTravelTimesPdf(document, collectVehicleTravelRows(snapshot, filter), job);
+	    	 	case VEHICLE_TRACES -> writeVehicleTracesPdf(document, snapshot, filter, job);
+	    	 	case SPACE_TIME -> writeSpaceTimePdf(document, snapshot, filter, job);
+	    	 	default -> { }
 	    	 }
+	    	 document.add(new Paragraph(" "));
 	    	 
-	    	 pw.flush();
-    	 	// Write lines into PDF
-	    	if (type != ExportType.VEHICLE_TRAVEL_TIMES) {
-   	    	for (String line : sw.toString().split("\n")) { document.add(new Paragraph(line)); }
-   	    	document.add(new Paragraph(" "));
-	    	}
-	    	
-   	    	if (chartImage != null) {
-   	    		document.add(chartImage);
-   	    		document.add(new Paragraph(" "));
-   	    	}
-	   	     
+	    	 // Charts were rendered in the background meanwhile
+	    	 for (Future<Image> chart : charts.getOrDefault(type, List.of())) {
+	    		 document.add(chart.get());
+	    		 document.add(new Paragraph(" "));
+	    	 }
     	 }
     	 // Close the document
     	 document.close();
 
+     } catch (ExecutionException e) {
+         throw new AnalyticsException("PDF export failed: " + filePath, e.getCause());
      } catch (Exception e) {
          throw new AnalyticsException("PDF export failed: " + filePath, e);
+     } finally {
+    	 chartPool.shutdownNow();
      }
  }
  
+ // --- PDF sections: result rows as tables that are flushed page by page ---
+ 
+ private void writeAverageSpeedPdf(Document document, Map<String, Double> data) throws DocumentException {
+	 document.add(new Paragraph("Average Speed per Edge"));
+	 PdfTableStream table = new PdfTableStream(document, 60, new float[] {1f, 1f}, "Edge", "Average Speed (m/s)");
+	 data.forEach((edgeId, avgSpeed) -> {
+		 if (avgSpeed != 0) table.addRow(edgeId, String.format(Locale.US, "%.2f", avgSpeed));
+	 });
+	 if (!table.finish()) document.add(new Paragraph("No edges match the selected filters."));
+ }
+ 
+ private void writeAverageTravelTimePdf(Document document, Map<String, Double> data) throws DocumentException {
+	 document.add(new Paragraph("Average Travel Time per Route"));
+	 PdfTableStream table = new PdfTableStream(document, 90, new float[] {0.6f, 2f, 0.8f}, "Route", "Edges", "Avg Travel Time (s)");
+	 data.forEach((routeId, avgTime) -> {
+		 if (avgTime != 0) table.addRow(routeId, formatRouteEdges(routeId), String.format(Locale.US, "%.2f", avgTime));
+	 });
+	 if (!table.finish()) document.add(new Paragraph("No routes match the selected filters."));
+ }
+ 
+ private void writeEdgeDensityPdf(Document document, StatsSnapshot snapshot, Map<String, Double> data) throws DocumentException {
+	 document.add(new Paragraph("Edge Density Summary"));
+	 PdfTableStream table = new PdfTableStream(document, 70, new float[] {1f, 1f, 0.6f}, "Edge", "Average Density (veh/m)", "Congested");
+	 data.forEach((edgeId, avgDensity) -> {
+		 if (avgDensity > 0) table.addRow(edgeId, String.format(Locale.US, "%.4f", avgDensity), snapshot.congestion.containsKey(edgeId) ? "yes" : "");
+	 });
+	 if (!table.finish()) document.add(new Paragraph("No edges match the selected filters."));
+ }
+ 
+ private void writeCongestedEdgesPdf(Document document, Map<String, Integer> data) throws DocumentException {
+	 document.add(new Paragraph("Congested Edges"));
+	 PdfTableStream table = new PdfTableStream(document, 60, new float[] {1f, 1f}, "Edge", "Max Stopped Vehicles");
+	 data.forEach((edgeId, stoppedVehicles) -> table.addRow(edgeId, String.valueOf(stoppedVehicles)));
+	 if (!table.finish()) document.add(new Paragraph("No congested edges match the selected filters."));
+ }
+ 
+ private void writeVehicleTravelTimesPdf(Document document, List<StatsSnapshot.Trip> rows, ExportJob job) throws DocumentException {
+	 document.add(new Paragraph("Vehicle Travel Times"));
+	 PdfTableStream table = new PdfTableStream(document, 70, new float[] {1f, 0.6f, 0.6f, 1f}, "VehicleId", "Color", "RouteId", "Travel Time (s)");
+	 for (int i = 0; i < rows.size(); i++) {
+		 StatsSnapshot.Trip row = rows.get(i);
+		 if ((i & CANCEL_CHECK_MASK) == 0) job.checkCancelled();
+		 table.addRow(row.vehicleId, row.color, row.routeId, String.format(Locale.US, "%.2f", row.travelTime));
+	 }
+	 if (!table.finish()) document.add(new Paragraph("No vehicles match the selected filters."));
+ }
+
+ // One row per vehicle: the records are too many for a table, the PDF summarizes each vehicle's trace
+ private void writeVehicleTracesPdf(Document document, StatsSnapshot snapshot, ExportFilter filter, ExportJob job) throws DocumentException {
+	 document.add(new Paragraph("Vehicle Traces"));
+	 if (snapshot.history == null) {
+		 document.add(new Paragraph("The history spill is disabled (-Dsimulator.historyDir)."));
+		 return;
+	 }
+	 // vehicleId -> {samples, first time, last time, speed sum, max speed}
+	 Map<String, double[]> perVehicle = new TreeMap<>();
+	 forEachVehicleTrace(snapshot, filter, job, r -> {
+		 double[] acc = perVehicle.computeIfAbsent(r.getVehicleId(), id -> new double[] {0, r.getTime(), 0, 0, 0});
+		 acc[0]++;
+		 acc[2] = r.getTime();
+		 acc[3] += r.getSpeed();
+		 acc[4] = Math.max(acc[4], r.getSpeed());
+	 });
+	 PdfTableStream table = new PdfTableStream(document, 80, new float[] {1f, 0.6f, 1f, 0.8f, 0.8f},
+			 "VehicleId", "Samples", "From - To (s)", "Mean Speed (m/s)", "Max Speed (m/s)");
+	 perVehicle.forEach((vehicleId, acc) -> table.addRow(vehicleId, String.valueOf((long) acc[0]),
+			 String.format(Locale.US, "%.1f - %.1f", acc[1], acc[2]), String.format(Locale.US, "%.2f", acc[3] / acc[0]),
+			 String.format(Locale.US, "%.2f", acc[4])));
+	 if (!table.finish()) document.add(new Paragraph("No vehicle states match the selected filters."));
+ }
+
+ // One row per edge/lane: the cells are too many for a table, the PDF shows where and when it was busiest
+ private void writeSpaceTimePdf(Document document, StatsSnapshot snapshot, ExportFilter filter, ExportJob job) throws DocumentException {
+	 document.add(new Paragraph("Space-Time Occupancy"));
+	 if (snapshot.spaceTime == null) {
+		 document.add(new Paragraph("The occupancy cube is disabled (-Dsimulator.occupancy=on)."));
+		 return;
+	 }
+	 PdfTableStream table = new PdfTableStream(document, 70, new float[] {1f, 0.8f, 0.8f, 0.8f, 0.8f},
+			 "Row", "Mean Vehicles", "Peak Density (veh/m)", "Peak At (s / m)", "Mean Speed (m/s)");
+	 forEachSpaceTimeRow(snapshot, filter, job, slice -> {
+		 double vehicles = 0, speedSum = 0, peak = 0;
+		 int peakT = 0, peakP = 0;
+		 for (int t = 0; t < slice.getTimeBins(); t++) {
+			 for (int p = 0; p < slice.getPositionBins(); p++) {
+				 double occupancy = slice.getOccupancy(t, p);
+				 if (occupancy <= 0) continue;
+				 vehicles += occupancy;
+				 speedSum += occupancy * slice.getMeanSpeed(t, p);
+				 if (slice.getDensity(t, p) > peak) { peak = slice.getDensity(t, p); peakT = t; peakP = p; }
+			 }
+		 }
+		 if (vehicles <= 0) return;
+		 table.addRow(slice.getRowId(), String.format(Locale.US, "%.2f", vehicles / Math.max(1, slice.getTimeBins())),
+				 String.format(Locale.US, "%.4f", peak),
+				 String.format(Locale.US, "%.0f / %.0f", slice.getStartTime() + peakT * slice.getTimeBinSeconds(), slice.getPositionStart(peakP)),
+				 String.format(Locale.US, "%.2f", speedSum / vehicles));
+	 });
+	 if (!table.finish()) document.add(new Paragraph("No edges match the selected filters."));
+ }
+
+ 
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable point-in-time copy of the aggregated statistics.
+ * Only per-edge / per-route aggregates and the trip list are copied, so taking a snapshot
+ * costs O(edges + routes + trips) and does not block simulation steps; the occupancy
+ * slices are copied at most once per recorded step and shared by later snapshots.
+ * Exports read from a snapshot on a background thread while the simulation keeps running.
+ */
+public final class StatsSnapshot {
+
+	final int step;
+	final double simTime;
+	final List<String> edgeIds;
+	// edgeId -> normalized color -> {speed sum, samples} of moving vehicles
+	final Map<String, Map<String, double[]>> speedPerEdgeAndColor;
+	final Map<String, Double> averageDensity;
+	final Map<String, Integer> congestion;
+	final Map<String, Double> averageTravelTime;
+	final Map<String, List<String>> routeEdges;
+	final List<Trip> trips;
+	final TimeSeries.Points speedSeries;
+	// edgeId -> window index -> mean density (windows of StatsCollector.DENSITY_WINDOW_SECONDS)
+	final Map<String, SortedMap<Integer, Double>> densityWindows;
+	// History spill (null if disabled) and the number of its records at snapshot time:
+	// exports read only that prefix, the store keeps growing meanwhile
+	final HistorySpillStore history;
+	final long historyRecords;
+	// Space-time slices of all occupancy rows (null if the occupancy cube is disabled)
+	final List<OccupancyCube.Slice> spaceTime;
+
+	StatsSnapshot(int step, double simTime, List<String> edgeIds, Map<String, Map<String, MeanAccumulator>> speedPerEdgeAndColor,
+			Map<String, Double> averageDensity, Map<String, Integer> congestion, Map<String, Double> averageTravelTime,
+			Map<String, List<String>> routeEdges, List<Trip> trips, TimeSeries.Points speedSeries,
+			Map<String, Map<Integer, MeanAccumulator>> densityWindows, HistorySpillStore history, OccupancyCube occupancy) {
+		this.step = step;
+		this.simTime = simTime;
+		this.edgeIds = List.copyOf(edgeIds);
+		// Deep copy, the accumulators keep changing in the collector
+		Map<String, Map<String, double[]>> speeds = new HashMap<>();
+		speedPerEdgeAndColor.forEach((edgeId, perColor) -> {
+			Map<String, double[]> copy = new HashMap<>();
+			perColor.forEach((color, acc) -> copy.put(color, new double[] {acc.sum(), acc.count()}));
+			speeds.put(edgeId, copy);
+		});
+		this.speedPerEdgeAndColor = speeds;
+		this.averageDensity = Collections.unmodifiableMap(new LinkedHashMap<>(averageDensity));
+		this.congestion = Collections.unmodifiableMap(new HashMap<>(congestion));
+		this.averageTravelTime = Collections.unmodifiableMap(new HashMap<>(averageTravelTime));
+		this.routeEdges = routeEdges;
+		this.trips = List.copyOf(trips);
+		this.speedSeries = speedSeries;
+		Map<String, SortedMap<Integer, Double>> windows = new HashMap<>();
+		densityWindows.forEach((edgeId, perWindow) -> {
+			SortedMap<Integer, Double> copy = new TreeMap<>();
+			perWindow.forEach((window, acc) -> copy.put(window, acc.mean()));
+			windows.put(edgeId, Collections.unmodifiableSortedMap(copy));
+		});
+		this.densityWindows = Collections.unmodifiableMap(windows);
+		this.history = history;
+		this.historyRecords = history != null ? history.size() : 0;
+		// Immutable slices, shared between snapshots while the cube has not changed
+		this.spaceTime = occupancy != null ? occupancy.getSlices() : null;
+	}
+
+	public int getStep() { return step; }
+
+	public double getSimTime() { return simTime; }
+
+	public Map<String, Double> getAverageDensity() { return averageDensity; }
+
+	public Map<String, Integer> getCongestion() { return congestion; }
+
+	public Map<String, Double> getAverageTravelTime() { return averageTravelTime; }
+
+	public List<Trip> getTrips() { return trips; }
+
+	// One completed vehicle trip
+	public static final class Trip {
+		final String vehicleId;
+		final String color;
+		final String routeId;
+		final double travelTime;
+
+		Trip(String vehicleId, String color, String routeId, double travelTime) {
+			this.vehicleId = vehicleId;
+			this.color = color;
+			this.routeId = routeId;
+			this.travelTime = travelTime;
+		}
+
+		public String getVehicleId() { return vehicleId; }
+
+		public String getColor() { return color; }
+
+		public String getRouteId() { return routeId; }
+
+		public double getTravelTime() { return travelTime; }
+	}
+}
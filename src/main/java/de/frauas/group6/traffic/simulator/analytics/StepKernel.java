@@ -0,0 +1,166 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import de.frauas.group6.traffic.simulator.vehicles.IVehicle;
+
+/**
+ * Fused single-pass aggregation of one simulation step over all vehicles.
+ * Large fleets are split into chunks on the common ForkJoinPool; every chunk fills its own
+ * Partial (no shared state, no locking) and the partials are merged pairwise on the way up.
+ * Below PARALLEL_THRESHOLD vehicles the whole step runs sequentially on the caller thread.
+ * Within a chunk the speeds are gathered into a primitive column and reduced with ReductionKernels
+ * (SIMD when enabled); stopped vehicles are counted in an array indexed by EdgeIndex.
+ */
+final class StepKernel {
+
+	// Fewer vehicles than this are not worth the fork/join overhead
+	static final int PARALLEL_THRESHOLD = 8192;
+	// Smallest chunk a task is split into
+	private static final int MIN_CHUNK = 2048;
+	// At or below this speed a vehicle counts as stopped (congestion detection)
+	static final double STOPPED_SPEED = 0.5;
+
+	private StepKernel() {}
+
+	/**
+	 * Aggregates all vehicles of a step.
+	 * @param perVehicle	called once per vehicle inside the pass (may run on several threads at once)
+	 * @param speeds		sum speeds (step average, per edge/color); skipped when not sampled this step
+	 * @param stopped		count stopped vehicles per edge; skipped when not sampled this step
+	 */
+	static Partial aggregate(IVehicle[] vehicles, EdgeIndex edges, Consumer<IVehicle> perVehicle, boolean speeds, boolean stopped) {
+		if (vehicles.length < PARALLEL_THRESHOLD || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+			return scan(vehicles, 0, vehicles.length, edges, perVehicle, speeds, stopped);
+		}
+		// About 4 chunks per worker so uneven chunks still balance out
+		int chunk = Math.max(MIN_CHUNK, vehicles.length / (ForkJoinPool.getCommonPoolParallelism() * 4));
+		return ForkJoinPool.commonPool().invoke(new ChunkTask(vehicles, 0, vehicles.length, chunk, edges, perVehicle, speeds, stopped));
+	}
+
+	private static Partial scan(IVehicle[] vehicles, int from, int to, EdgeIndex edges, Consumer<IVehicle> perVehicle, boolean speeds, boolean stopped) {
+		Partial p = new Partial(edges);
+		// Speed column of the chunk, reduced by a kernel after the pass
+		double[] speedColumn = speeds ? new double[to - from] : null;
+		for (int i = from; i < to; i++) {
+			IVehicle v = vehicles[i];
+			perVehicle.accept(v);
+			if (!speeds && !stopped) continue;
+			double speed = v.getSpeed();
+			String edgeId = v.getEdgeId();
+			if (speeds) speedColumn[i - from] = speed;
+			// Speed per edge/color: moving vehicles only
+			if (speeds && speed > 0.0) {
+				if (edgeId != null) {
+					double[] acc = p.speedPerEdgeAndColor.computeIfAbsent(edgeId, id -> new HashMap<>())
+							.computeIfAbsent(StatsCollector.colorKey(v.getColor()), c -> new double[2]);
+					acc[0] += speed;
+					acc[1]++;
+				}
+			}
+			// Congestion: stationary vehicles on a valid road
+			if (stopped && speed <= STOPPED_SPEED && edgeId != null) {
+				p.addStopped(edges.indexOf(edgeId));
+			}
+		}
+		// Network average speed: moving vehicles only
+		if (speeds) {
+			double[] moving = ReductionKernels.sumAndCountAbove(speedColumn, speedColumn.length, 0.0);
+			p.speedSum = moving[0];
+			p.movingCount = (int) moving[1];
+		}
+		return p;
+	}
+
+	//===========================
+	// FORK / JOIN
+	//===========================
+
+	private static final class ChunkTask extends RecursiveTask<Partial> {
+		private static final long serialVersionUID = 1L;
+
+		private final IVehicle[] vehicles;
+		private final int from;
+		private final int to;
+		private final int chunk;
+		private final EdgeIndex edges;
+		private final Consumer<IVehicle> perVehicle;
+		private final boolean speeds;
+		private final boolean stopped;
+
+		ChunkTask(IVehicle[] vehicles, int from, int to, int chunk, EdgeIndex edges, Consumer<IVehicle> perVehicle, boolean speeds, boolean stopped) {
+			this.vehicles = vehicles;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+			this.edges = edges;
+			this.perVehicle = perVehicle;
+			this.speeds = speeds;
+			this.stopped = stopped;
+		}
+
+		@Override
+		protected Partial compute() {
+			if (to - from <= chunk) return scan(vehicles, from, to, edges, perVehicle, speeds, stopped);
+			int mid = (from + to) >>> 1;
+			ChunkTask right = new ChunkTask(vehicles, mid, to, chunk, edges, perVehicle, speeds, stopped);
+			right.fork();
+			Partial left = new ChunkTask(vehicles, from, mid, chunk, edges, perVehicle, speeds, stopped).compute();
+			return left.merge(right.join());
+		}
+	}
+
+	//===========================
+	// PARTIAL RESULT
+	//===========================
+
+	// Thread-confined accumulators of one chunk
+	static final class Partial {
+		final EdgeIndex edges;
+		double speedSum = 0.0;
+		int movingCount = 0;
+		// edgeId -> normalized color -> {speed sum, samples}
+		final Map<String, Map<String, double[]>> speedPerEdgeAndColor = new HashMap<>();
+		// EdgeIndex -> stopped vehicles (may be shorter than the index: missing edges have none)
+		int[] stoppedPerEdge = new int[0];
+
+		Partial(EdgeIndex edges) {
+			this.edges = edges;
+		}
+
+		void addStopped(int edge) {
+			if (edge >= stoppedPerEdge.length) stoppedPerEdge = Arrays.copyOf(stoppedPerEdge, Math.max(edge + 1, edges.size()));
+			stoppedPerEdge[edge]++;
+		}
+
+		double averageSpeed() {
+			return movingCount > 0 ? speedSum / movingCount : 0.0;
+		}
+
+		// Folds other into this (other is discarded afterwards)
+		Partial merge(Partial other) {
+			speedSum += other.speedSum;
+			movingCount += other.movingCount;
+			other.speedPerEdgeAndColor.forEach((edgeId, perColor) -> {
+				Map<String, double[]> mine = speedPerEdgeAndColor.get(edgeId);
+				if (mine == null) {
+					speedPerEdgeAndColor.put(edgeId, perColor);
+					return;
+				}
+				perColor.forEach((color, acc) -> mine.merge(color, acc, (a, b) -> {
+					a[0] += b[0];
+					a[1] += b[1];
+					return a;
+				}));
+			});
+			if (other.stoppedPerEdge.length > stoppedPerEdge.length) stoppedPerEdge = Arrays.copyOf(stoppedPerEdge, other.stoppedPerEdge.length);
+			ReductionKernels.add(stoppedPerEdge, other.stoppedPerEdge, other.stoppedPerEdge.length);
+			return this;
+		}
+	}
+}
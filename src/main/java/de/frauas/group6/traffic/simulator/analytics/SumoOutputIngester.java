@@ -0,0 +1,515 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import de.frauas.group6.traffic.simulator.vehicles.IVehicle;
+import de.frauas.group6.traffic.simulator.vehicles.Vehicle;
+
+/**
+ * Offline ingestion of SUMO's own output files into a StatsCollector, so SUMO can run headless
+ * at full speed without any per-step TraCI polling and the reports are computed afterwards.
+ *
+ * - net file:		edge ids and lengths (edge density)
+ * - route file:	route and color of each vehicle / flow
+ * - fcd-output:	one timestep per step (speeds, stopped vehicles, vehicles per edge)
+ * - tripinfo:		travel time per vehicle; without it trips are derived from the FCD presence
+ *
+ * FCD and tripinfo files are streamed with StAX. Both formats consist of independent top-level
+ * elements (<timestep> / <tripinfo>), so large files are split at element boundaries into byte
+ * ranges that are parsed in parallel; the results are fed to the collector in file order, which
+ * makes the statistics identical to a sequential pass.
+ */
+final class SumoOutputIngester {
+
+	private static final Logger LOGGER = Logger.getLogger(SumoOutputIngester.class.getName());
+
+	// Smallest byte range parsed by one task
+	private static final long MIN_CHUNK_BYTES = 8L << 20;
+	private static final int SCAN_BLOCK = 64 * 1024;
+	private static final byte[] TIMESTEP = "<timestep".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] TRIPINFO = "<tripinfo".getBytes(StandardCharsets.US_ASCII);
+
+	private final StatsCollector collector;
+	private final Path netFile;
+	private final Path routeFile;
+	private final Path fcdFile;
+	private final Path tripinfoFile;
+	private final int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+	private final XMLInputFactory xmlFactory = XMLInputFactory.newFactory();
+
+	// Read-only after the network and route files were loaded (shared by the parser tasks)
+	private Map<String, Double> edgeLengths = Collections.emptyMap();
+	private final Map<String, String[]> vehicleInfo = new HashMap<>();	// vehicle/flow id -> {routeId, color}
+	private final Map<String, String> typeColors = new HashMap<>();
+	// Lane positions are only collected when the occupancy cube is recorded
+	private final OccupancyCube occupancyCube;
+
+	SumoOutputIngester(StatsCollector collector, Path netFile, Path routeFile, Path fcdFile, Path tripinfoFile) {
+		this.collector = collector;
+		this.netFile = netFile;
+		this.routeFile = routeFile;
+		this.fcdFile = fcdFile;
+		this.tripinfoFile = tripinfoFile;
+		this.occupancyCube = collector.getOccupancyCube();
+		xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+	}
+
+	void run() {
+		long start = System.nanoTime();
+		if (netFile != null) {
+			edgeLengths = readNetwork(netFile);
+			collector.setIngestedEdgeIds(new ArrayList<>(edgeLengths.keySet()));
+			if (occupancyCube != null) edgeLengths.forEach(occupancyCube::setEdgeLength);
+		}
+		if (routeFile != null) readRoutes(routeFile);
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "Sumo-Ingest");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			Presence presence = fcdFile != null ? ingestFcd(pool) : null;
+			if (tripinfoFile != null) ingestTripinfo(pool);
+			else if (presence != null) presence.recordTrips();
+		} finally {
+			pool.shutdownNow();
+		}
+		LOGGER.info(String.format("Ingested SUMO output in %.1f s", (System.nanoTime() - start) / 1e9));
+	}
+
+	//===========================
+	// NETWORK / ROUTES
+	//===========================
+
+	// Edge id -> length of lane 0 (same as SimulationEngine.getEdgeLength), in file order
+	private Map<String, Double> readNetwork(Path file) {
+		Map<String, Double> lengths = new LinkedHashMap<>();
+		parseWhole(file, reader -> {
+			String edgeId = null;
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+				String name = reader.getLocalName();
+				if ("edge".equals(name)) {
+					edgeId = reader.getAttributeValue(null, "id");
+					if (edgeId != null) lengths.put(edgeId, 0.0);
+				} else if ("lane".equals(name) && edgeId != null && "0".equals(reader.getAttributeValue(null, "index"))) {
+					lengths.put(edgeId, parseDouble(reader.getAttributeValue(null, "length"), 0.0));
+				}
+			}
+		});
+		LOGGER.info("Ingestion: " + lengths.size() + " edges from " + file);
+		return Collections.unmodifiableMap(lengths);
+	}
+
+	private void readRoutes(Path file) {
+		parseWhole(file, reader -> {
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+				String name = reader.getLocalName();
+				String id = reader.getAttributeValue(null, "id");
+				if (id == null) continue;
+				if ("vType".equals(name)) {
+					String color = reader.getAttributeValue(null, "color");
+					if (color != null) typeColors.put(id, color);
+				} else if ("vehicle".equals(name) || "trip".equals(name) || "flow".equals(name)) {
+					String color = reader.getAttributeValue(null, "color");
+					if (color == null) color = typeColors.get(reader.getAttributeValue(null, "type"));
+					String[] info = {reader.getAttributeValue(null, "route"), color != null ? color : ""};
+					// Flow vehicles are named "<flowId>.<n>"
+					vehicleInfo.put("flow".equals(name) ? id + "." : id, info);
+				}
+			}
+		});
+	}
+
+	// {routeId, color} of a vehicle; route may be null
+	private String[] infoOf(String vehicleId) {
+		String[] info = vehicleInfo.get(vehicleId);
+		if (info == null) {
+			int dot = vehicleId.lastIndexOf('.');
+			if (dot > 0) info = vehicleInfo.get(vehicleId.substring(0, dot + 1));
+		}
+		return info != null ? info : new String[] {null, ""};
+	}
+
+	//===========================
+	// FCD OUTPUT
+	//===========================
+
+	private Presence ingestFcd(ExecutorService pool) {
+		Presence presence = new Presence();
+		List<String> edgeIds = new ArrayList<>(edgeLengths.keySet());
+		double[] lengths = new double[edgeIds.size()];
+		for (int i = 0; i < lengths.length; i++) lengths[i] = edgeLengths.get(edgeIds.get(i));
+		int[] steps = {0};
+		forEachChunk(pool, fcdFile, TIMESTEP, this::parseFcdChunk, (List<FcdStep> chunkSteps) -> {
+			for (FcdStep step : chunkSteps) {
+				Map<String, Double> densities = null;
+				if (!edgeIds.isEmpty()) {
+					// Every network edge every step, like the live measurement (empty edges count as 0)
+					int[] counts = new int[lengths.length];
+					for (int i = 0; i < counts.length; i++) {
+						int[] count = step.vehiclesPerEdge.get(edgeIds.get(i));
+						if (count != null) counts[i] = count[0];
+					}
+					densities = StatsCollector.densityMap(edgeIds, counts, lengths);
+				}
+				collector.ingestStep(step.time, step.totals, densities);
+				if (step.lanes != null) {
+					collector.ingestOccupancy(step.time, step.vehicleIds.length, step.edgeIds, step.lanes, step.positions, step.speeds);
+				}
+				presence.addStep(step.time, step.vehicleIds);
+				steps[0]++;
+			}
+		});
+		LOGGER.info("Ingestion: " + steps[0] + " FCD timesteps from " + fcdFile);
+		return presence;
+	}
+
+	private List<FcdStep> parseFcdChunk(XMLStreamReader reader) throws XMLStreamException {
+		List<FcdStep> result = new ArrayList<>();
+		double time = 0.0;
+		List<IVehicle> vehicles = new ArrayList<>();
+		List<Double> positions = new ArrayList<>();
+		Map<String, int[]> perEdge = new HashMap<>();
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String name = reader.getLocalName();
+				if ("timestep".equals(name)) {
+					time = parseDouble(reader.getAttributeValue(null, "time"), 0.0);
+					vehicles = new ArrayList<>();
+					positions = new ArrayList<>();
+					perEdge = new HashMap<>();
+				} else if ("vehicle".equals(name)) {
+					String id = reader.getAttributeValue(null, "id");
+					String lane = reader.getAttributeValue(null, "lane");
+					int split = lane != null ? lane.lastIndexOf('_') : -1;
+					String edgeId = split > 0 ? lane.substring(0, split) : lane;
+					int laneIndex = split > 0 ? (int) parseDouble(lane.substring(split + 1), 0.0) : 0;
+					String[] info = infoOf(id);
+					vehicles.add(new Vehicle(id, reader.getAttributeValue(null, "type"), parseDouble(reader.getAttributeValue(null, "speed"), 0.0),
+							info[1], parseDouble(reader.getAttributeValue(null, "x"), 0.0), parseDouble(reader.getAttributeValue(null, "y"), 0.0),
+							edgeId, (byte) laneIndex, true, info[0]));
+					if (occupancyCube != null) positions.add(parseDouble(reader.getAttributeValue(null, "pos"), 0.0));
+					if (edgeId != null) perEdge.computeIfAbsent(edgeId, e -> new int[1])[0]++;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+				if (depth < 0) break;	// end of the wrapper element
+				if ("timestep".equals(reader.getLocalName())) {
+					IVehicle[] stepVehicles = vehicles.toArray(new IVehicle[0]);
+					String[] ids = new String[stepVehicles.length];
+					for (int i = 0; i < ids.length; i++) ids[i] = stepVehicles[i].getId();
+					// Same aggregation as the live collection
+					FcdStep step = new FcdStep(time, StepKernel.aggregate(stepVehicles, collector.edgeIndex(), v -> {}, true, true), perEdge, ids);
+					if (occupancyCube != null) step.setOccupancy(stepVehicles, positions);
+					result.add(step);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static final class FcdStep {
+		final double time;
+		final StepKernel.Partial totals;
+		final Map<String, int[]> vehiclesPerEdge;
+		final String[] vehicleIds;
+		// Per-vehicle edge, lane, position and speed for the occupancy cube (null when it is off)
+		String[] edgeIds;
+		int[] lanes;
+		double[] positions;
+		double[] speeds;
+
+		FcdStep(double time, StepKernel.Partial totals, Map<String, int[]> vehiclesPerEdge, String[] vehicleIds) {
+			this.time = time;
+			this.totals = totals;
+			this.vehiclesPerEdge = vehiclesPerEdge;
+			this.vehicleIds = vehicleIds;
+		}
+
+		void setOccupancy(IVehicle[] vehicles, List<Double> lanePositions) {
+			int n = vehicles.length;
+			edgeIds = new String[n];
+			lanes = new int[n];
+			positions = new double[n];
+			speeds = new double[n];
+			for (int i = 0; i < n; i++) {
+				edgeIds[i] = vehicles[i].getEdgeId();
+				lanes[i] = vehicles[i].getEdgeLane();
+				positions[i] = lanePositions.get(i);
+				speeds[i] = vehicles[i].getSpeed();
+			}
+		}
+	}
+
+	// First/last timestep of every vehicle; trips use the same rule as the live collection
+	// (exit = first timestep in which the vehicle is no longer present)
+	private final class Presence {
+		private final Map<String, double[]> seen = new LinkedHashMap<>();
+		private double[] times = new double[1024];
+		private int timeCount = 0;
+
+		void addStep(double time, String[] vehicleIds) {
+			if (timeCount == times.length) times = Arrays.copyOf(times, timeCount * 2);
+			times[timeCount++] = time;
+			for (String id : vehicleIds) {
+				double[] range = seen.get(id);
+				if (range == null) seen.put(id, new double[] {time, time});
+				else range[1] = time;
+			}
+		}
+
+		void recordTrips() {
+			if (timeCount == 0) return;
+			double lastTime = times[timeCount - 1];
+			List<Object[]> finished = new ArrayList<>();
+			seen.forEach((id, range) -> {
+				if (range[1] >= lastTime) return;	// still driving at the end
+				int next = Arrays.binarySearch(times, 0, timeCount, range[1]) + 1;
+				finished.add(new Object[] {id, range[0], times[next]});
+			});
+			finished.sort((a, b) -> Double.compare((double) a[2], (double) b[2]));
+			for (Object[] trip : finished) {
+				String id = (String) trip[0];
+				String[] info = infoOf(id);
+				collector.ingestTrip(id, info[1], info[0], (double) trip[2] - (double) trip[1]);
+			}
+			LOGGER.info("Ingestion: " + finished.size() + " trips derived from FCD");
+		}
+	}
+
+	//===========================
+	// TRIPINFO OUTPUT
+	//===========================
+
+	private void ingestTripinfo(ExecutorService pool) {
+		int[] count = {0};
+		forEachChunk(pool, tripinfoFile, TRIPINFO, this::parseTripinfoChunk, (List<String[]> rows) -> {
+			for (String[] row : rows) {
+				String[] info = infoOf(row[0]);
+				collector.ingestTrip(row[0], info[1], info[0], Double.parseDouble(row[1]));
+				count[0]++;
+			}
+		});
+		LOGGER.info("Ingestion: " + count[0] + " trips from " + tripinfoFile);
+	}
+
+	// {vehicleId, duration} of every arrived vehicle
+	private List<String[]> parseTripinfoChunk(XMLStreamReader reader) throws XMLStreamException {
+		List<String[]> rows = new ArrayList<>();
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				if (!"tripinfo".equals(reader.getLocalName())) continue;
+				String id = reader.getAttributeValue(null, "id");
+				double arrival = parseDouble(reader.getAttributeValue(null, "arrival"), -1.0);
+				double duration = parseDouble(reader.getAttributeValue(null, "duration"), -1.0);
+				// Unfinished trips are written with arrival -1
+				if (id != null && arrival >= 0 && duration > 0) rows.add(new String[] {id, Double.toString(duration)});
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (--depth < 0) break;
+			}
+		}
+		return rows;
+	}
+
+	//===========================
+	// PARALLEL CHUNKS
+	//===========================
+
+	@FunctionalInterface
+	private interface ChunkParser<T> {
+		T parse(XMLStreamReader reader) throws XMLStreamException;
+	}
+
+	@FunctionalInterface
+	private interface ChunkConsumer<T> {
+		void accept(T result);
+	}
+
+	/**
+	 * Splits the file at occurrences of the element start tag, parses the ranges on the pool and
+	 * hands the results to the consumer in file order. At most 2 chunks per thread are in flight.
+	 */
+	private <T> void forEachChunk(ExecutorService pool, Path file, byte[] elementStart, ChunkParser<T> parser, ChunkConsumer<T> consumer) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// The closing tag of the real root is left out, every range is wrapped in its own root
+			long size = findRootEnd(channel);
+			long first = findElement(channel, 0, elementStart);
+			if (first < 0 || first >= size) return;
+			long chunkBytes = Math.max(MIN_CHUNK_BYTES, (size - first) / (threads * 4L) + 1);
+			Deque<Future<T>> inFlight = new ArrayDeque<>();
+			long from = first;
+			while (from < size) {
+				long to = from + chunkBytes >= size ? size : findElement(channel, from + chunkBytes, elementStart);
+				if (to < 0 || to > size) to = size;
+				long rangeStart = from, rangeEnd = to;
+				inFlight.add(pool.submit(() -> parseRange(file, channel, rangeStart, rangeEnd, parser)));
+				if (inFlight.size() >= threads * 2) consumer.accept(inFlight.poll().get());
+				from = to;
+			}
+			while (!inFlight.isEmpty()) consumer.accept(inFlight.poll().get());
+		} catch (IOException e) {
+			throw new AnalyticsException("Cannot read SUMO output file: " + file, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AnalyticsException("Interrupted while ingesting " + file, e);
+		} catch (ExecutionException e) {
+			throw new AnalyticsException("Cannot parse SUMO output file: " + file, e.getCause());
+		}
+	}
+
+	// Parses [from, to) wrapped in a synthetic root element
+	private <T> T parseRange(Path file, FileChannel channel, long from, long to, ChunkParser<T> parser) throws XMLStreamException {
+		InputStream in = new SequenceInputStream(Collections.enumeration(List.of(
+				new ByteArrayInputStream("<chunk>".getBytes(StandardCharsets.US_ASCII)),
+				new RangeInputStream(channel, from, to),
+				new ByteArrayInputStream("</chunk>".getBytes(StandardCharsets.US_ASCII)))));
+		XMLStreamReader reader = xmlFactory.createXMLStreamReader(in, StandardCharsets.UTF_8.name());
+		try {
+			reader.next();	// <chunk>
+			return parser.parse(reader);
+		} catch (XMLStreamException e) {
+			throw new XMLStreamException("Malformed XML in " + file + " between byte " + from + " and " + to + ": " + e.getMessage(), e);
+		} finally {
+			reader.close();
+		}
+	}
+
+	// Offset of the next "<name" followed by whitespace at or after from, -1 if none
+	private static long findElement(FileChannel channel, long from, byte[] elementStart) throws IOException {
+		ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK + elementStart.length + 1);
+		long position = from;
+		while (true) {
+			block.clear();
+			int read = channel.read(block, position);
+			if (read <= elementStart.length) return -1;
+			byte[] bytes = block.array();
+			for (int i = 0; i + elementStart.length < read; i++) {
+				if (matches(bytes, i, elementStart) && endsTagName(bytes[i + elementStart.length])) return position + i;
+			}
+			// Overlap the blocks so a tag on the border is found
+			position += read - elementStart.length;
+		}
+	}
+
+	// Offset of the last "</" of the file (closing tag of the root element)
+	private static long findRootEnd(FileChannel channel) throws IOException {
+		long size = channel.size();
+		ByteBuffer tail = ByteBuffer.allocate((int) Math.min(size, SCAN_BLOCK));
+		long tailStart = size - tail.capacity();
+		while (tail.hasRemaining() && channel.read(tail, tailStart + tail.position()) >= 0) {
+			// read until the tail buffer is full
+		}
+		byte[] bytes = tail.array();
+		for (int i = tail.position() - 2; i >= 0; i--) {
+			if (bytes[i] == '<' && bytes[i + 1] == '/') return tailStart + i;
+		}
+		return size;
+	}
+
+	private static boolean matches(byte[] bytes, int offset, byte[] pattern) {
+		for (int j = 0; j < pattern.length; j++) {
+			if (bytes[offset + j] != pattern[j]) return false;
+		}
+		return true;
+	}
+
+	// "<tripinfo" must not match "<tripinfos"
+	private static boolean endsTagName(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '>' || b == '/';
+	}
+
+	// Byte range of a file channel (positional reads, so ranges can be read concurrently)
+	private static final class RangeInputStream extends InputStream {
+		private final FileChannel channel;
+		private long position;
+		private final long end;
+
+		RangeInputStream(FileChannel channel, long from, long to) {
+			this.channel = channel;
+			this.position = from;
+			this.end = to;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (position >= end) return -1;
+			int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+			if (n > 0) position += n;
+			return n;
+		}
+	}
+
+	//===========================
+	// HELPERS
+	//===========================
+
+	@FunctionalInterface
+	private interface WholeFileParser {
+		void parse(XMLStreamReader reader) throws XMLStreamException;
+	}
+
+	private void parseWhole(Path file, WholeFileParser parser) {
+		try (InputStream in = Files.newInputStream(file)) {
+			XMLStreamReader reader = xmlFactory.createXMLStreamReader(in);
+			try {
+				parser.parse(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException | XMLStreamException e) {
+			throw new AnalyticsException("Cannot read SUMO file: " + file, e);
+		}
+	}
+
+	private static double parseDouble(String value, double fallback) {
+		if (value == null) return fallback;
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			return fallback;
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar time series for a single numeric metric.
+ * Raw samples are stored in primitive double columns (time, value) and are rolled up
+ * into fixed resolutions (1 s, 10 s, 1 min) while they are appended, so chart queries
+ * never have to walk or box the full history of a long run.
+ * Written by the simulation thread, read by the FX thread and by exports.
+ * The raw columns can be read without locking (size is published after the samples), so
+ * snapshots never wait for append(); rollup queries synchronize with the writer.
+ */
+public class TimeSeries {
+
+	// Rollup resolutions in seconds of simulation time
+	public static final double[] ROLLUP_RESOLUTIONS = {1.0, 10.0, 60.0};
+
+	private static final int INITIAL_CAPACITY = 1024;
+	// A source for LTTB may have at most this many points per requested output point
+	private static final int OVERSAMPLING = 4;
+
+	// -----------------
+	// RAW COLUMNS
+	// -----------------
+	private double[] times = new double[INITIAL_CAPACITY];
+	private double[] values = new double[INITIAL_CAPACITY];
+	// Written last by append(): a reader that sees size n also sees the first n samples,
+	// in the current columns or in the larger copies that replaced them
+	private volatile int size = 0;
+
+	// -----------------
+	// ROLLUPS
+	// -----------------
+	private final Rollup[] rollups = new Rollup[ROLLUP_RESOLUTIONS.length];
+
+	public TimeSeries() {
+		for (int i = 0; i < ROLLUP_RESOLUTIONS.length; i++) {
+			rollups[i] = new Rollup(ROLLUP_RESOLUTIONS[i]);
+		}
+	}
+
+	//===========================
+	// WRITE
+	//===========================
+
+	// Appends one sample. Time must be monotonically non-decreasing.
+	public synchronized void append(double time, double value) {
+		if (size == times.length) {
+			times = Arrays.copyOf(times, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		times[size] = time;
+		values[size] = value;
+		// Volatile write publishes the sample to lock-free readers
+		size = size + 1;
+		for (Rollup r : rollups) r.add(time, value);
+	}
+
+	//===========================
+	// READ
+	//===========================
+
+	public int size() { return size; }
+
+	public double lastValue() {
+		int n = size;
+		return n > 0 ? values[n - 1] : 0.0;
+	}
+
+	public double lastTime() {
+		int n = size;
+		return n > 0 ? times[n - 1] : 0.0;
+	}
+
+	// Returns only the values appended since the given index (incremental reads for live charts)
+	public double[] valuesSince(int fromIndex) {
+		int n = size;
+		int from = Math.max(0, Math.min(fromIndex, n));
+		return Arrays.copyOfRange(values, from, n);
+	}
+
+	// Full copy of the raw value column
+	public List<Double> toList() {
+		int n = size;
+		double[] column = values;
+		List<Double> list = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) list.add(column[i]);
+		return list;
+	}
+
+	// Copy of the raw (time, value) columns, e.g. for binary exports
+	public Points raw() {
+		int n = size;
+		return new Points(Arrays.copyOf(times, n), Arrays.copyOf(values, n));
+	}
+
+	// Downsamples the whole series to at most maxPoints points
+	public synchronized Points downsample(int maxPoints) {
+		if (size == 0) return Points.EMPTY;
+		return downsample(times[0], times[size - 1], maxPoints);
+	}
+
+	/**
+	 * Downsamples the time window [from, to] to at most maxPoints points.
+	 * Picks the finest rollup that is small enough and reduces it with LTTB, so the cost
+	 * depends on the requested width and not on the length of the run.
+	 */
+	public synchronized Points downsample(double from, double to, int maxPoints) {
+		if (maxPoints <= 0) throw new AnalyticsException("maxPoints must be positive: " + maxPoints);
+		int lo = lowerBound(times, size, from);
+		int hi = lowerBound(times, size, Math.nextUp(to));
+		int count = hi - lo;
+		if (count <= 0) return Points.EMPTY;
+		if (count <= maxPoints) {
+			return new Points(Arrays.copyOfRange(times, lo, hi), Arrays.copyOfRange(values, lo, hi));
+		}
+		if (count <= maxPoints * OVERSAMPLING) {
+			return lttb(times, values, lo, count, maxPoints);
+		}
+
+		// Raw data is too dense: use the finest rollup that fits, or the coarsest one
+		Rollup source = rollups[rollups.length - 1];
+		for (Rollup r : rollups) {
+			if (r.countBetween(from, to) <= maxPoints * OVERSAMPLING) {
+				source = r;
+				break;
+			}
+		}
+		int rLo = lowerBound(source.bucketStart, source.size, Math.floor(from / source.resolution) * source.resolution);
+		int rHi = lowerBound(source.bucketStart, source.size, Math.nextUp(to));
+		double[] bucketTimes = Arrays.copyOfRange(source.bucketStart, rLo, rHi);
+		double[] bucketMeans = new double[rHi - rLo];
+		for (int i = rLo; i < rHi; i++) bucketMeans[i - rLo] = source.sum[i] / source.count[i];
+		if (bucketMeans.length <= maxPoints) return new Points(bucketTimes, bucketMeans);
+		return lttb(bucketTimes, bucketMeans, 0, bucketMeans.length, maxPoints);
+	}
+
+	// Rollup buckets of the given resolution (seconds), e.g. for reports
+	public synchronized Points rollup(double resolution) {
+		for (Rollup r : rollups) {
+			if (r.resolution == resolution) {
+				double[] means = new double[r.size];
+				for (int i = 0; i < r.size; i++) means[i] = r.sum[i] / r.count[i];
+				return new Points(Arrays.copyOf(r.bucketStart, r.size), means);
+			}
+		}
+		throw new AnalyticsException("No rollup with resolution " + resolution + " s");
+	}
+
+	//===========================
+	// LTTB
+	//===========================
+
+	/**
+	 * Largest-Triangle-Three-Buckets downsampling of data[offset, offset+length) to threshold points.
+	 * Keeps first and last point and picks, per bucket, the point spanning the largest triangle
+	 * with the previously selected point and the average of the next bucket.
+	 */
+	static Points lttb(double[] t, double[] v, int offset, int length, int threshold) {
+		if (threshold >= length || threshold < 3) {
+			int n = Math.min(length, Math.max(threshold, 0));
+			if (n == length) return new Points(Arrays.copyOfRange(t, offset, offset + n), Arrays.copyOfRange(v, offset, offset + n));
+			// Not enough room for LTTB: keep first and last
+			double[] outT = new double[n];
+			double[] outV = new double[n];
+			if (n > 0) { outT[0] = t[offset]; outV[0] = v[offset]; }
+			if (n > 1) { outT[n - 1] = t[offset + length - 1]; outV[n - 1] = v[offset + length - 1]; }
+			return new Points(outT, outV);
+		}
+
+		double[] outT = new double[threshold];
+		double[] outV = new double[threshold];
+		double every = (double) (length - 2) / (threshold - 2);
+		int a = offset;
+		outT[0] = t[a];
+		outV[0] = v[a];
+
+		for (int i = 0; i < threshold - 2; i++) {
+			// Average of the next bucket
+			int avgStart = offset + (int) Math.floor((i + 1) * every) + 1;
+			int avgEnd = Math.min(offset + (int) Math.floor((i + 2) * every) + 1, offset + length);
+			double avgT = 0.0, avgV = 0.0;
+			int avgLen = avgEnd - avgStart;
+			for (int j = avgStart; j < avgEnd; j++) { avgT += t[j]; avgV += v[j]; }
+			if (avgLen > 0) { avgT /= avgLen; avgV /= avgLen; }
+			else { avgT = t[offset + length - 1]; avgV = v[offset + length - 1]; }
+
+			// Point of the current bucket with the largest triangle
+			int rangeStart = offset + (int) Math.floor(i * every) + 1;
+			int rangeEnd = offset + (int) Math.floor((i + 1) * every) + 1;
+			double maxArea = -1.0;
+			int next = rangeStart;
+			for (int j = rangeStart; j < rangeEnd; j++) {
+				double area = Math.abs((t[a] - avgT) * (v[j] - v[a]) - (t[a] - t[j]) * (avgV - v[a]));
+				if (area > maxArea) {
+					maxArea = area;
+					next = j;
+				}
+			}
+			outT[i + 1] = t[next];
+			outV[i + 1] = v[next];
+			a = next;
+		}
+		outT[threshold - 1] = t[offset + length - 1];
+		outV[threshold - 1] = v[offset + length - 1];
+		return new Points(outT, outV);
+	}
+
+	// Reduces an already extracted series (e.g. from a snapshot) to at most maxPoints points
+	static Points downsample(Points points, int maxPoints) {
+		if (points.size() <= maxPoints) return points;
+		return lttb(points.times, points.values, 0, points.size(), maxPoints);
+	}
+
+	// First index whose value is >= key (sorted column)
+	private static int lowerBound(double[] column, int length, double key) {
+		int lo = 0, hi = length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (column[mid] < key) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	//===========================
+	// RESULT / ROLLUP TYPES
+	//===========================
+
+	// Immutable (time, value) result of a query
+	public static final class Points {
+		static final Points EMPTY = new Points(new double[0], new double[0]);
+
+		private final double[] times;
+		private final double[] values;
+
+		Points(double[] times, double[] values) {
+			this.times = times;
+			this.values = values;
+		}
+
+		public int size() { return times.length; }
+
+		public double getTime(int i) { return times[i]; }
+
+		public double getValue(int i) { return values[i]; }
+	}
+
+	// Fixed resolution buckets aligned to simulation time
+	private static final class Rollup {
+		final double resolution;
+		double[] bucketStart = new double[64];
+		double[] sum = new double[64];
+		int[] count = new int[64];
+		int size = 0;
+
+		Rollup(double resolution) { this.resolution = resolution; }
+
+		void add(double time, double value) {
+			double start = Math.floor(time / resolution) * resolution;
+			if (size > 0 && bucketStart[size - 1] == start) {
+				int i = size - 1;
+				sum[i] += value;
+				count[i]++;
+				return;
+			}
+			if (size == bucketStart.length) {
+				int cap = size * 2;
+				bucketStart = Arrays.copyOf(bucketStart, cap);
+				sum = Arrays.copyOf(sum, cap);
+				count = Arrays.copyOf(count, cap);
+			}
+			bucketStart[size] = start;
+			sum[size] = value;
+			count[size] = 1;
+			size++;
+		}
+
+		int countBetween(double from, double to) {
+			int lo = lowerBound(bucketStart, size, Math.floor(from / resolution) * resolution);
+			int hi = lowerBound(bucketStart, size, Math.nextUp(to));
+			return hi - lo;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+// One decoded sample of a vehicle trajectory (positions are rounded to centimeters)
+public final class TrajectoryPoint {
+
+	private final double time;
+	private final double x;
+	private final double y;
+	private final double speed;
+	private final String edgeId;
+
+	TrajectoryPoint(double time, double x, double y, double speed, String edgeId) {
+		this.time = time;
+		this.x = x;
+		this.y = y;
+		this.speed = speed;
+		this.edgeId = edgeId;
+	}
+
+	public double getTime() { return time; }
+
+	public double getX() { return x; }
+
+	public double getY() { return y; }
+
+	public double getSpeed() { return speed; }
+
+	// Null if the vehicle was not on an edge
+	public String getEdgeId() { return edgeId; }
+
+	@Override
+	public String toString() {
+		return "TrajectoryPoint[t=" + time + ", x=" + x + ", y=" + y + ", speed=" + speed + ", edge=" + edgeId + "]";
+	}
+}
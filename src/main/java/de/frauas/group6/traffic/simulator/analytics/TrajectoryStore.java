@@ -0,0 +1,243 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compressed in-memory store of full per-vehicle trajectories (time, x, y, speed, edge),
+ * used for incident review.
+ * Every vehicle has one open chunk that is appended to with GorillaCodec; the chunk is sealed
+ * (trimmed and made immutable) when the vehicle arrives or when it reaches CHUNK_POINTS points.
+ * Edges are not stored per point: only the transitions (point index, edge code, time) are kept,
+ * with the edge names dictionary encoded.
+ * All methods are thread-safe; appends come from the simulation thread, queries from anywhere.
+ */
+public class TrajectoryStore {
+
+	public static final int DEFAULT_CHUNK_POINTS = 4096;
+
+	private final int chunkPoints;
+	// Edge dictionary
+	private final Map<String, Integer> edgeCodes = new HashMap<>();
+	private final List<String> edgeNames = new ArrayList<>();
+	// vehicleId -> sealed chunks in time order
+	private final Map<String, List<Chunk>> sealed = new LinkedHashMap<>();
+	private final Map<String, OpenChunk> open = new LinkedHashMap<>();
+	private long pointCount = 0;
+	private long sealedBytes = 0;
+
+	public TrajectoryStore() {
+		this(DEFAULT_CHUNK_POINTS);
+	}
+
+	public TrajectoryStore(int chunkPoints) {
+		if (chunkPoints <= 0) throw new AnalyticsException("chunkPoints must be positive");
+		this.chunkPoints = chunkPoints;
+	}
+
+	//===========================
+	// WRITE
+	//===========================
+
+	public synchronized void append(String vehicleId, double time, double x, double y, double speed, String edgeId) {
+		OpenChunk chunk = open.computeIfAbsent(vehicleId, id -> new OpenChunk());
+		chunk.append(time, x, y, speed, edgeCode(edgeId));
+		pointCount++;
+		if (chunk.encoder.count() >= chunkPoints) seal(vehicleId);
+	}
+
+	// Seals the open chunk of a vehicle (called when it leaves the simulation)
+	public synchronized void seal(String vehicleId) {
+		OpenChunk chunk = open.remove(vehicleId);
+		if (chunk == null || chunk.encoder.count() == 0) return;
+		Chunk s = chunk.seal();
+		sealed.computeIfAbsent(vehicleId, id -> new ArrayList<>(1)).add(s);
+		sealedBytes += s.sizeInBytes();
+	}
+
+	public synchronized void sealAll() {
+		for (String vehicleId : new ArrayList<>(open.keySet())) seal(vehicleId);
+	}
+
+	private int edgeCode(String edgeId) {
+		if (edgeId == null || edgeId.isEmpty()) return -1;
+		Integer code = edgeCodes.get(edgeId);
+		if (code == null) {
+			code = edgeNames.size();
+			edgeCodes.put(edgeId, code);
+			edgeNames.add(edgeId);
+		}
+		return code;
+	}
+
+	//===========================
+	// QUERIES
+	//===========================
+
+	// Full path of a vehicle in time order (empty if unknown)
+	public synchronized List<TrajectoryPoint> getPath(String vehicleId) {
+		return getPath(vehicleId, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	// Points of a vehicle with from <= time <= to
+	public synchronized List<TrajectoryPoint> getPath(String vehicleId, double from, double to) {
+		List<TrajectoryPoint> path = new ArrayList<>();
+		for (Chunk chunk : chunksOf(vehicleId)) {
+			if (chunk.endTime < from || chunk.startTime > to) continue;
+			GorillaCodec.Decoder decoder = new GorillaCodec.Decoder(chunk.words, chunk.count);
+			int transition = -1;
+			while (decoder.hasNext()) {
+				decoder.next();
+				int index = decoder.index();
+				while (transition + 1 < chunk.transitionPoints.length && chunk.transitionPoints[transition + 1] <= index) transition++;
+				if (decoder.time < from) continue;
+				if (decoder.time > to) break;
+				int code = transition >= 0 ? chunk.transitionEdges[transition] : -1;
+				path.add(new TrajectoryPoint(decoder.time, decoder.x, decoder.y, decoder.speed, code >= 0 ? edgeNames.get(code) : null));
+			}
+		}
+		return path;
+	}
+
+	// Vehicles that were on the edge at some time in [from, to], in order of first appearance
+	public synchronized Set<String> getVehiclesOnEdge(String edgeId, double from, double to) {
+		Integer code = edgeCodes.get(edgeId);
+		if (code == null) return Collections.emptySet();
+		Set<String> result = new LinkedHashSet<>();
+		Set<String> vehicleIds = new LinkedHashSet<>(sealed.keySet());
+		vehicleIds.addAll(open.keySet());
+		for (String vehicleId : vehicleIds) {
+			List<Chunk> chunks = chunksOf(vehicleId);
+			for (int i = 0; i < chunks.size(); i++) {
+				Chunk chunk = chunks.get(i);
+				// The last stay of a chunk lasts until the first point of the next chunk
+				double end = i + 1 < chunks.size() ? chunks.get(i + 1).startTime : chunk.endTime;
+				if (end >= from && chunk.startTime <= to && chunk.visits(code, from, to, end)) {
+					result.add(vehicleId);
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	// Only vehicles that have points
+	public synchronized Set<String> getVehicleIds() {
+		Set<String> ids = new LinkedHashSet<>(sealed.keySet());
+		ids.addAll(open.keySet());
+		return ids;
+	}
+
+	public synchronized int getVehicleCount() { return getVehicleIds().size(); }
+
+	// True while the vehicle has points that are not sealed yet
+	synchronized boolean hasOpenChunk(String vehicleId) { return open.containsKey(vehicleId); }
+
+	public synchronized long getPointCount() { return pointCount; }
+
+	// Approximate heap used by the encoded data (sealed chunks plus open encoder buffers)
+	public synchronized long getCompressedBytes() {
+		long bytes = sealedBytes;
+		for (OpenChunk chunk : open.values()) bytes += chunk.sizeInBytes();
+		return bytes;
+	}
+
+	// Sealed chunks plus a view of the open chunk; valid while the store lock is held
+	private List<Chunk> chunksOf(String vehicleId) {
+		List<Chunk> chunks = new ArrayList<>(sealed.getOrDefault(vehicleId, List.of()));
+		OpenChunk current = open.get(vehicleId);
+		if (current != null && current.encoder.count() > 0) chunks.add(current.view());
+		return chunks;
+	}
+
+	//===========================
+	// CHUNKS
+	//===========================
+
+	private static final class OpenChunk {
+		final GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+		int[] transitionPoints = new int[4];
+		int[] transitionEdges = new int[4];
+		double[] transitionTimes = new double[4];
+		int transitions = 0;
+		int lastEdge = Integer.MIN_VALUE;
+		double startTime, endTime;
+
+		void append(double time, double x, double y, double speed, int edge) {
+			if (encoder.count() == 0) startTime = time;
+			endTime = time;
+			if (edge != lastEdge) {
+				if (transitions == transitionPoints.length) {
+					int size = transitions * 2;
+					transitionPoints = Arrays.copyOf(transitionPoints, size);
+					transitionEdges = Arrays.copyOf(transitionEdges, size);
+					transitionTimes = Arrays.copyOf(transitionTimes, size);
+				}
+				transitionPoints[transitions] = encoder.count();
+				transitionEdges[transitions] = edge;
+				transitionTimes[transitions] = time;
+				transitions++;
+				lastEdge = edge;
+			}
+			encoder.append(time, x, y, speed);
+		}
+
+		Chunk view() {
+			return new Chunk(encoder.words(), encoder.count(), startTime, endTime, Arrays.copyOf(transitionPoints, transitions),
+					Arrays.copyOf(transitionEdges, transitions), Arrays.copyOf(transitionTimes, transitions));
+		}
+
+		Chunk seal() {
+			return new Chunk(encoder.trimmedWords(), encoder.count(), startTime, endTime, Arrays.copyOf(transitionPoints, transitions),
+					Arrays.copyOf(transitionEdges, transitions), Arrays.copyOf(transitionTimes, transitions));
+		}
+
+		long sizeInBytes() {
+			return encoder.sizeInBytes() + (long) transitionPoints.length * (4 + 4 + 8);
+		}
+	}
+
+	// Immutable encoded run of points of one vehicle
+	private static final class Chunk {
+		final long[] words;
+		final int count;
+		final double startTime;
+		final double endTime;
+		// Edge transitions: from point transitionPoints[i] on the vehicle is on transitionEdges[i] (-1 = none)
+		final int[] transitionPoints;
+		final int[] transitionEdges;
+		final double[] transitionTimes;
+
+		Chunk(long[] words, int count, double startTime, double endTime, int[] transitionPoints, int[] transitionEdges, double[] transitionTimes) {
+			this.words = words;
+			this.count = count;
+			this.startTime = startTime;
+			this.endTime = endTime;
+			this.transitionPoints = transitionPoints;
+			this.transitionEdges = transitionEdges;
+			this.transitionTimes = transitionTimes;
+		}
+
+		// True if one of the stays on the edge overlaps [from, to]; the last stay ends at end
+		boolean visits(int edge, double from, double to, double end) {
+			for (int i = 0; i < transitionEdges.length; i++) {
+				if (transitionEdges[i] != edge) continue;
+				double enter = transitionTimes[i];
+				double leave = i + 1 < transitionTimes.length ? transitionTimes[i + 1] : end;
+				if (leave >= from && enter <= to) return true;
+			}
+			return false;
+		}
+
+		long sizeInBytes() {
+			return (long) words.length * 8 + (long) transitionPoints.length * (4 + 4 + 8);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable quantile sketch for travel times (log-scale buckets, DDSketch style).
+ * Every quantile is accurate to RELATIVE_ACCURACY of the true value, independent of the
+ * number of trips, while only one counter per occupied bucket is stored.
+ */
+final class TravelTimeSketch {
+
+	static final double RELATIVE_ACCURACY = 0.01;
+	private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+	private static final double LOG_GAMMA = Math.log(GAMMA);
+
+	// bucket index -> count (values <= 0 are not expected for travel times and go to bucket MIN_VALUE)
+	private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+	private long count = 0;
+	private double sum = 0.0;
+	private double max = 0.0;
+
+	void add(double value) {
+		addBucket(bucketOf(value), 1);
+		sum += value;
+		max = Math.max(max, value);
+	}
+
+	// Restores a stored bucket (see RunArchive)
+	void addBucket(int bucket, long n) {
+		buckets.merge(bucket, n, Long::sum);
+		count += n;
+	}
+
+	void merge(TravelTimeSketch other) {
+		other.buckets.forEach(this::addBucket);
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+
+	long count() { return count; }
+
+	double mean() { return count > 0 ? sum / count : 0.0; }
+
+	double max() { return max; }
+
+	Map<Integer, Long> buckets() { return buckets; }
+
+	// Value at quantile q (0..1), 0.0 if empty
+	double quantile(double q) {
+		if (count == 0) return 0.0;
+		long rank = (long) Math.floor(q * (count - 1));
+		long seen = 0;
+		for (Map.Entry<Integer, Long> e : buckets.entrySet()) {
+			seen += e.getValue();
+			if (seen > rank) return valueOf(e.getKey());
+		}
+		return valueOf(buckets.lastKey());
+	}
+
+	private static int bucketOf(double value) {
+		if (value <= 0) return Integer.MIN_VALUE;
+		return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+	}
+
+	// Representative value of a bucket (midpoint in relative terms)
+	private static double valueOf(int bucket) {
+		if (bucket == Integer.MIN_VALUE) return 0.0;
+		return 2 * Math.pow(GAMMA, bucket) / (GAMMA + 1);
+	}
+}
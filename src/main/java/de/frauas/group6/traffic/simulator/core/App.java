@@ -1,6 +1,9 @@
 package de.frauas.group6.traffic.simulator.core;
 
-import de.frauas.group6.traffic.simulator.analytics.IStatsCollector;
+import de.frauas.group6.traffic.simulator.analytics.ExportType;
+import de.frauas.group6.traffic.simulator.analytics.OccupancyCube;
+import de.frauas.group6.traffic.simulator.analytics.RunArchive;
+import de.frauas.group6.traffic.simulator.analytics.RunComparison;
 import de.frauas.group6.traffic.simulator.analytics.StatsCollector;
 import de.frauas.group6.traffic.simulator.infrastructure.IInfrastructureManager;
 import de.frauas.group6.traffic.simulator.infrastructure.ITrafficLightManager;
@@ -10,6 +13,12 @@ import de.frauas.group6.traffic.simulator.vehicles.IVehicleManager;
 import de.frauas.group6.traffic.simulator.vehicles.VehicleManager;
 import de.frauas.group6.traffic.simulator.view.GuiManager;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,6 +33,8 @@ import java.util.logging.Logger;
 public class App {
 
     private static final Logger LOGGER = Logger.getLogger(App.class.getName());
+    private static final String DEFAULT_NET = "src/main/resources/minimal.net.xml";
+    private static final String DEFAULT_ROUTES = "src/main/resources/minimal.rou.xml";
 
     public static void main(String[] args) {
         LOGGER.info(">>> Initializing Traffic Simulation System...");
@@ -47,7 +58,58 @@ public class App {
 
             
             // Member 5:
-            IStatsCollector statsCollector = new StatsCollector(vehicleMgr,infraMgr,engine);
+            StatsCollector statsCollector = new StatsCollector(vehicleMgr,infraMgr,engine);
+            // Optional: spill full per-step vehicle history to disk, one run-<timestamp> directory per run (-Dsimulator.historyDir=<dir>)
+            String historyDir = System.getProperty("simulator.historyDir");
+            if (historyDir != null && !historyDir.isBlank()) {
+                statsCollector.enableHistorySpill(Paths.get(historyDir));
+            }
+            // Optional: stream all reports to CSV while running (-Dsimulator.liveCsv=<path prefix>)
+            String liveCsv = System.getProperty("simulator.liveCsv");
+            if (liveCsv != null && !liveCsv.isBlank()) {
+                statsCollector.startLiveCsvExport(liveCsv, List.of(ExportType.SUMMARY), Boolean.getBoolean("simulator.liveCsv.gzip"));
+            }
+            // Optional: record compressed per-vehicle trajectories for incident review (-Dsimulator.trajectories=true)
+            if (Boolean.getBoolean("simulator.trajectories")) {
+                statsCollector.enableTrajectoryStore();
+            }
+            // Optional: space-time occupancy per lane for the dashboard and the SPACE_TIME export
+            // (-Dsimulator.occupancy=on or GRANULARITY:positionBins:timeBinSeconds:timeBins:budgetMB)
+            statsCollector.enableOccupancyCube(OccupancyCube.fromSpec(System.getProperty("simulator.occupancy", "off")));
+            // Optional: per-metric sampling intervals in sim seconds (-Dsimulator.sampling=AVG_SPEED:10,EDGE_DENSITY:60)
+            statsCollector.getSamplingSchedule().apply(System.getProperty("simulator.sampling"));
+
+            // Optional offline mode: reports from SUMO output files, no TraCI and no GUI
+            // (-Dsimulator.ingest.fcd=<fcd.xml> and/or -Dsimulator.ingest.tripinfo=<tripinfo.xml>, -Dsimulator.ingest.out=<report.csv|.pdf|.tscol>)
+            String ingestFcd = System.getProperty("simulator.ingest.fcd");
+            String ingestTripinfo = System.getProperty("simulator.ingest.tripinfo");
+            boolean offline = ingestFcd != null || ingestTripinfo != null;
+
+            // Optional: archive every finished run for cross-run comparisons (-Dsimulator.archiveDir=<dir>, -Dsimulator.scenario=<name>)
+            String archiveDir = System.getProperty("simulator.archiveDir");
+            String scenario = System.getProperty("simulator.scenario", "minimal");
+            RunArchive archive = archiveDir != null && !archiveDir.isBlank() ? new RunArchive(Paths.get(archiveDir)) : null;
+
+            // Optional compare mode: report of the archived runs of a scenario, no simulation and no GUI
+            // (-Dsimulator.compare=<scenario>, -Dsimulator.compare.last=<N>, -Dsimulator.compare.from/to=<ISO date>, -Dsimulator.compare.out=<report.csv>)
+            String compare = System.getProperty("simulator.compare");
+            if (compare != null && !compare.isBlank()) {
+                if (archive == null) throw new IllegalStateException("-Dsimulator.compare needs -Dsimulator.archiveDir");
+                runCompare(archive, compare);
+                return;
+            }
+            if (archive != null) {
+                // The config hash covers the files the run was made from
+                List<Path> configFiles = offline
+                        ? List.of(Paths.get(System.getProperty("simulator.ingest.net", DEFAULT_NET)), Paths.get(System.getProperty("simulator.ingest.routes", DEFAULT_ROUTES)))
+                        : RunArchive.sumoConfigFiles(Paths.get(engine.getConfigFile()));
+                statsCollector.enableRunArchive(archive, scenario, configFiles);
+            }
+
+            if (offline) {
+                runOffline(statsCollector, ingestFcd, ingestTripinfo);
+                return;
+            }
           
          
             
@@ -89,4 +151,54 @@ public class App {
             System.exit(1); // Non-zero exit code indicates failure
         }
     }
+
+    private static void runOffline(StatsCollector statsCollector, String fcd, String tripinfo) {
+        LOGGER.info(">>> Offline mode: ingesting SUMO output files...");
+        statsCollector.ingestSumoOutput(optionalPath(System.getProperty("simulator.ingest.net", DEFAULT_NET)),
+                optionalPath(System.getProperty("simulator.ingest.routes", DEFAULT_ROUTES)),
+                optionalPath(fcd), optionalPath(tripinfo));
+        String out = System.getProperty("simulator.ingest.out", "report.csv");
+        List<ExportType> types = List.of(ExportType.SUMMARY);
+        if (out.endsWith(".pdf")) statsCollector.exportToPdf(out, null, types);
+        else if (out.endsWith(".tscol")) statsCollector.exportToColumnar(out, null, types);
+        else statsCollector.exportToCsv(out, null, types);
+        statsCollector.finishRun();
+        LOGGER.info(">>> Offline report written to " + out);
+    }
+
+    private static void runCompare(RunArchive archive, String scenario) {
+        LOGGER.info(">>> Compare mode: archived runs of scenario '" + scenario + "'...");
+        List<RunArchive.RunInfo> runs = archive.find(scenario, optionalDate("simulator.compare.from"), optionalDate("simulator.compare.to"));
+        int last = Math.max(1, Integer.getInteger("simulator.compare.last", runs.size()));
+        if (runs.size() > last) runs = runs.subList(runs.size() - last, runs.size());
+        if (runs.isEmpty()) {
+            LOGGER.warning("No archived runs of scenario '" + scenario + "' in " + archive.getDirectory());
+            return;
+        }
+        if (runs.stream().map(RunArchive.RunInfo::getConfigHash).distinct().count() > 1) {
+            LOGGER.warning("The compared runs were made with different configurations (config hashes differ)");
+        }
+        RunComparison comparison = archive.compare(runs);
+        String out = System.getProperty("simulator.compare.out", "comparison-" + scenario + ".csv");
+        comparison.writeCsv(out);
+        // Travel time distribution per route over all compared runs together (merged sketches)
+        for (String routeId : comparison.getRouteIds()) {
+            double[] q = archive.routeTravelTimeQuantiles(runs, routeId, 0.5, 0.9, 0.95);
+            LOGGER.info(String.format(Locale.ROOT, "Route %s over %d runs: P50 %.1f s, P90 %.1f s, P95 %.1f s", routeId, runs.size(), q[0], q[1], q[2]));
+        }
+        LOGGER.info(">>> Comparison of " + runs.size() + " runs written to " + out);
+    }
+
+    // Null for a missing property, otherwise an ISO date-time (e.g. 2025-12-14T16:00)
+    private static LocalDateTime optionalDate(String property) {
+        String value = System.getProperty(property);
+        return value == null || value.isBlank() ? null : LocalDateTime.parse(value);
+    }
+
+    // Null for a missing property or a file that does not exist
+    private static Path optionalPath(String value) {
+        if (value == null || value.isBlank()) return null;
+        Path path = Paths.get(value);
+        return Files.exists(path) ? path : null;
+    }
 }
\ No newline at end of file
@@ -6,10 +6,17 @@ import de.tudresden.sumo.cmd.Lane;
 import de.tudresden.sumo.cmd.Vehicle;
 import de.tudresden.sumo.cmd.Trafficlight;
 import de.tudresden.sumo.cmd.Simulation;
+import de.tudresden.sumo.config.Constants;
 import de.tudresden.sumo.objects.SumoColor;
 import de.tudresden.sumo.objects.SumoGeometry;
 import de.tudresden.sumo.objects.SumoPosition2D;
+import de.tudresden.sumo.objects.SumoPrimitive;
 import de.tudresden.sumo.objects.SumoStringList;
+import de.tudresden.sumo.subscription.ResponseType;
+import de.tudresden.sumo.subscription.SubscribtionVariable;
+import de.tudresden.sumo.subscription.SubscriptionObject;
+import de.tudresden.sumo.subscription.VariableSubscription;
+import de.tudresden.sumo.util.Observable;
 import it.polito.appeal.traci.SumoTraciConnection;
 
 import de.frauas.group6.traffic.simulator.vehicles.IVehicleManager;
@@ -22,6 +29,8 @@ import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,6 +58,14 @@ public class SimulationEngine implements ISimulationEngine {
     private Thread simulationThread;
 
     private final int SIMULATION_STEP_SIZE = 1000;
+    // Subscriptions run until the vehicle arrives / the simulation ends
+    private static final double SUBSCRIPTION_END = 1e9;
+
+    // Per-vehicle values delivered with every timestep (see VEHICLE SUBSCRIPTIONS)
+    private final Map<String, VehicleState> vehicleStates = new ConcurrentHashMap<>();
+    // Departed in the last timestep, subscribed right after it (sim thread only)
+    private final List<String> departedVehicles = new ArrayList<>();
+    private volatile boolean subscriptionsActive = false;
     private final String configFile = "src/main/resources/meine_sim.sumocfg";
     private String sumoBin;
 
@@ -66,6 +83,11 @@ public class SimulationEngine implements ISimulationEngine {
         this.connection = new SumoTraciConnection(sumoBin, configFile);
     }
 
+    // SUMO configuration of the simulation (its files are hashed into archived runs)
+    public String getConfigFile() {
+        return configFile;
+    }
+
     // =================================================================================
     // LIFECYCLE
     // =================================================================================
@@ -83,6 +105,7 @@ public class SimulationEngine implements ISimulationEngine {
                 connection.runServer();
                 connected = true;
                 LOGGER.info("SUMO Connected successfully.");
+                subscribeDepartures();
             } catch (Exception e) {
                 attempt++;
                 LOGGER.log(Level.WARNING, "Connection attempt " + attempt + " failed: " + e.getMessage());
@@ -182,6 +205,7 @@ public class SimulationEngine implements ISimulationEngine {
         executeTraasVoid(() -> {
             if (connection.isClosed()) return;
             connection.do_timestep();
+            subscribeDepartedVehicles();
         }, "Error in simulation step (TraCI)");
 
         // Update Managers securely
@@ -234,6 +258,73 @@ public class SimulationEngine implements ISimulationEngine {
         }
     }
 
+    // =================================================================================
+    // VEHICLE SUBSCRIPTIONS
+    // =================================================================================
+
+    /*
+     * Position, speed, angle and lane of every vehicle come with the timestep response instead of
+     * four blocking queries per vehicle per step: departures and arrivals are subscribed once, every
+     * departed vehicle is subscribed once. The readers below fall back to a query for vehicles
+     * without values yet (departed in this step) or if SUMO rejected the subscription.
+     */
+    private static final class VehicleState {
+        volatile Point2D position;
+        volatile double speed = Double.NaN;
+        volatile double angle = Double.NaN;
+        volatile String laneId;
+    }
+
+    private void subscribeDepartures() {
+        try {
+            synchronized (traciLock) {
+                connection.addObserver(this::onSubscription);
+                VariableSubscription simulation = new VariableSubscription(SubscribtionVariable.simulation, 0, SUBSCRIPTION_END, "");
+                simulation.addCommand(Constants.VAR_DEPARTED_VEHICLES_IDS);
+                simulation.addCommand(Constants.VAR_ARRIVED_VEHICLES_IDS);
+                connection.do_subscription(simulation);
+            }
+            subscriptionsActive = true;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "TraCI subscriptions not available, querying vehicles per step", e);
+        }
+    }
+
+    // Called under traciLock right after the timestep
+    private void subscribeDepartedVehicles() throws Exception {
+        if (!subscriptionsActive || departedVehicles.isEmpty()) return;
+        for (String id : departedVehicles) {
+            VariableSubscription vehicle = new VariableSubscription(SubscribtionVariable.vehicle, 0, SUBSCRIPTION_END, id);
+            vehicle.addCommand(Constants.VAR_POSITION);
+            vehicle.addCommand(Constants.VAR_SPEED);
+            vehicle.addCommand(Constants.VAR_ANGLE);
+            vehicle.addCommand(Constants.VAR_LANE_ID);
+            connection.do_subscription(vehicle);
+        }
+        departedVehicles.clear();
+    }
+
+    // Subscription results, delivered while the timestep response is read
+    private void onSubscription(Observable source, SubscriptionObject result) {
+        if (result.response == ResponseType.SIM_VARIABLE) {
+            SumoStringList ids = (SumoStringList) result.object;
+            if (result.variable == Constants.VAR_DEPARTED_VEHICLES_IDS) departedVehicles.addAll(ids);
+            else if (result.variable == Constants.VAR_ARRIVED_VEHICLES_IDS) ids.forEach(vehicleStates::remove);
+        } else if (result.response == ResponseType.VEHICLE_VARIABLE) {
+            VehicleState state = vehicleStates.computeIfAbsent(result.id, id -> new VehicleState());
+            if (result.variable == Constants.VAR_POSITION) {
+                SumoPosition2D pos = (SumoPosition2D) result.object;
+                state.position = new Point2D.Double(pos.x, pos.y);
+            } else if (result.variable == Constants.VAR_SPEED) {
+                state.speed = (Double) ((SumoPrimitive) result.object).val;
+            } else if (result.variable == Constants.VAR_ANGLE) {
+                state.angle = (Double) ((SumoPrimitive) result.object).val;
+            } else if (result.variable == Constants.VAR_LANE_ID) {
+                state.laneId = (String) ((SumoPrimitive) result.object).val;
+            }
+        }
+    }
+
     // =================================================================================
     // READERS (using generic wrappers)
     // =================================================================================
@@ -259,6 +350,9 @@ public class SimulationEngine implements ISimulationEngine {
 
     @Override
     public Point2D getVehiclePosition(String vehicleId) {
+        VehicleState state = vehicleStates.get(vehicleId);
+        Point2D subscribed = state != null ? state.position : null;
+        if (subscribed != null) return subscribed;
         return executeTraas(
             () -> {
                 SumoPosition2D pos = (SumoPosition2D) connection.do_job_get(Vehicle.getPosition(vehicleId));
@@ -271,6 +365,8 @@ public class SimulationEngine implements ISimulationEngine {
 
     @Override
     public double getVehicleSpeed(String vehicleId) {
+        VehicleState state = vehicleStates.get(vehicleId);
+        if (state != null && !Double.isNaN(state.speed)) return state.speed;
         return executeTraas(
             () -> (double) connection.do_job_get(Vehicle.getSpeed(vehicleId)),
             0.0,
@@ -289,6 +385,9 @@ public class SimulationEngine implements ISimulationEngine {
 
     @Override
     public String getVehicleLaneId(String vehicleId) {
+        VehicleState state = vehicleStates.get(vehicleId);
+        String subscribed = state != null ? state.laneId : null;
+        if (subscribed != null) return subscribed;
         return executeTraas(
             () -> (String) connection.do_job_get(Vehicle.getLaneID(vehicleId)),
             "",
@@ -332,6 +431,8 @@ public class SimulationEngine implements ISimulationEngine {
     }
 
     public double getVehicleAngle(String vehID) {
+        VehicleState state = vehicleStates.get(vehID);
+        if (state != null && !Double.isNaN(state.angle)) return state.angle;
         return executeTraas(
             () -> (double) connection.do_job_get(Vehicle.getAngle(vehID)),
             0.0,
@@ -536,6 +637,7 @@ public class SimulationEngine implements ISimulationEngine {
             () -> connection.do_job_set(Vehicle.remove(id, (byte) 2)),
             "Failed to remove vehicle: " + id
         );
+        vehicleStates.remove(id);
     }
 
     @Override
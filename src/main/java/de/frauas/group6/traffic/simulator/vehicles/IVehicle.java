@@ -10,6 +10,7 @@ public interface IVehicle {
 	String getColor();
     String getTypeId();
 	double getSpeed();
+	double getAngle();
 	int getEdgeLane();
 	String getEdgeId();
 	boolean isIsVisible();
@@ -19,6 +20,7 @@ public interface IVehicle {
 	
 	void setColor(String newColor);
 	void setSpeed(double newSpeed);
+	void setAngle(double newAngle);
 	void setPosition(Point2D newpos);
 	void setEdgeId(String newEdgeId);
 	void setEdgeLane(byte newLane);
@@ -7,6 +7,8 @@ public class Vehicle implements IVehicle {
 			private String id;
 			private String TypeId;
 			private double speed;
+			// Heading in degrees as reported by SUMO (0 = north, clockwise)
+			private double angle;
 		    private String Farbe;
 			private Point2D Position;
 
@@ -27,6 +29,7 @@ public class Vehicle implements IVehicle {
 			public Vehicle(String id,String TypeId,double speed,String color,double x,double y,String edgeid,byte Lane,boolean isvisible,String routeid) { this.id=id; this.TypeId=TypeId; this.speed=speed; this.Farbe=color; this.Position= new Point2D.Double(x,y);this.edgeid=edgeid;this.Lane=Lane; this.isvisible=isvisible; this.routeId=routeid; }
 			//Getter
 			public double getSpeed() { return speed;}
+			public double getAngle() { return angle; }
 			public String getId() { return id; }
 			public String getColor() { return Farbe; }
 			public Point2D getPosition() { return Position; }
@@ -40,6 +43,7 @@ public class Vehicle implements IVehicle {
 			//Setter
 			public void setColor(String newColor) { Farbe=newColor; }
 			public void setSpeed(double newSpeed) { speed=newSpeed; }
+			public void setAngle(double newAngle) { angle=newAngle; }
 			public void setPosition(Point2D newpos) { Position=newpos; }
 			public void setEdgeId(String newEdgeId) { edgeid=newEdgeId; }
 			public void setEdgeLane(byte newEdgeLane) { Lane=newEdgeLane; }
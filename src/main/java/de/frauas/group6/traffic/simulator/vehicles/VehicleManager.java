@@ -215,13 +215,26 @@ public class VehicleManager implements IVehicleManager {
             // --Case 1: Vehicle is active in the SUMO engine--
             if (activeSet.contains(id)) {
                 try {
-                    // Update 3D position
+                    // Position, speed, heading and lane come from the engine's per-step subscription
+                    // (no TraCI round trip per value)
                     Point2D newPos = SumolationEngine.getVehiclePosition(id);
                     vehicle.setPosition(newPos);
                     
                     //Update Speed
                    double newSpeed= SumolationEngine.getVehicleSpeed(id);
                     vehicle.setSpeed(newSpeed);
+
+                    // Update heading (used by the 3D view instead of a per-frame query)
+                    vehicle.setAngle(SumolationEngine.getVehicleAngle(id));
+                    
+                    // Update edge and lane (lane id = "<edgeId>_<index>"). On junction internals
+                    // (":<junction>_<n>_<lane>") the vehicle keeps its last normal edge and lane
+                    String laneId = SumolationEngine.getVehicleLaneId(id);
+                    int split = laneId != null && !laneId.startsWith(":") ? laneId.lastIndexOf('_') : -1;
+                    if (split > 0) {
+                        vehicle.setEdgeId(laneId.substring(0, split));
+                        vehicle.setEdgeLane(parseLaneIndex(laneId.substring(split + 1)));
+                    }
                   
                     // --Vehicle successfully appeared in engine, remove creation timestamp--
                     creationTimes.remove(id); 
@@ -246,6 +259,14 @@ public class VehicleManager implements IVehicleManager {
         creationTimes.keySet().retainAll(Vehicles.keySet());
     }
 
+    private static byte parseLaneIndex(String index) {
+        try {
+            return Byte.parseByte(index);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     /*--------------------------------------------------------------
       @return A collection of all currently managed vehicles.
       --------------------------------------------------------------
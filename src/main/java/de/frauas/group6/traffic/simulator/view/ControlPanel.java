@@ -2,6 +2,7 @@ package de.frauas.group6.traffic.simulator.view;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -11,7 +12,6 @@ import de.frauas.group6.traffic.simulator.vehicles.IVehicle;
 import de.frauas.group6.traffic.simulator.infrastructure.IInfrastructureManager;
 import de.frauas.group6.traffic.simulator.infrastructure.ITrafficLightManager;
 
-import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -39,6 +39,7 @@ public class ControlPanel extends ScrollPane {
     
     // Callbacks
     private Runnable onRefreshRequest;
+    private Consumer<HeatmapModel.Metric> onOverlayChanged;
 
     // UI Components
     private TextField txtSelectedId;
@@ -53,6 +54,8 @@ public class ControlPanel extends ScrollPane {
     private Circle indicatorLight;
     private Label lblPhaseTime;
     private Label lblTime;
+    // Selected traffic light, read by the view-model worker
+    private volatile String selectedTlId;
 
     public ControlPanel(ISimulationEngine engine, IVehicleManager vm, ITrafficLightManager tm, IInfrastructureManager im) {
         this.engine = engine;
@@ -66,6 +69,10 @@ public class ControlPanel extends ScrollPane {
         this.onRefreshRequest = callback;
     }
 
+    public void setOnOverlayChanged(Consumer<HeatmapModel.Metric> callback) {
+        this.onOverlayChanged = callback;
+    }
+
     private void initializeUI() {
         VBox content = new VBox();
         content.setStyle("-fx-background-color: linear-gradient(to bottom, #2b2b2b, #1a1a1a);");
@@ -78,7 +85,8 @@ public class ControlPanel extends ScrollPane {
             createHeaderSection(),
             createSimulationTimeLabel(),
             createVehicleControlCard(),
-            createTrafficLightCard()
+            createTrafficLightCard(),
+            createMapOverlayCard()
         );
 
         // Configure ScrollPane
@@ -189,7 +197,10 @@ public class ControlPanel extends ScrollPane {
         VBox card = createCard("TRAFFIC LIGHTS");
 
         cbTrafficLight = createStyledCombo("Select Junction");
-        cbTrafficLight.setOnAction(e -> updateTlInfo());
+        cbTrafficLight.setOnAction(e -> {
+            selectedTlId = cbTrafficLight.getValue();
+            if (onRefreshRequest != null) onRefreshRequest.run();
+        });
 
         HBox statusRow = new HBox(10);
         statusRow.setAlignment(Pos.CENTER_LEFT);
@@ -220,6 +231,23 @@ public class ControlPanel extends ScrollPane {
         return card;
     }
 
+    private VBox createMapOverlayCard() {
+        VBox card = createCard("MAP OVERLAY");
+
+        // Edge heatmap of the map view (colors computed off the FX thread)
+        ComboBox<HeatmapModel.Metric> cbOverlay = new ComboBox<>();
+        cbOverlay.getItems().addAll(HeatmapModel.Metric.values());
+        cbOverlay.getSelectionModel().select(HeatmapModel.Metric.OFF);
+        cbOverlay.setMaxWidth(Double.MAX_VALUE);
+        cbOverlay.setStyle("-fx-background-color: #555; -fx-text-fill: white; -fx-mark-color: white;");
+        cbOverlay.setOnAction(e -> {
+            if (onOverlayChanged != null) onOverlayChanged.accept(cbOverlay.getValue());
+        });
+
+        card.getChildren().addAll(createLabel("Edge heatmap:"), cbOverlay);
+        return card;
+    }
+
     private void loadRoutesSafely() {
         try {
             if (infraMgr != null) {
@@ -256,24 +284,26 @@ public class ControlPanel extends ScrollPane {
         }
     }
 
-    public void updateRealTimeData() {
-        if(engine == null) return;
-        
-        // Ensure UI updates run on FX thread
-        Platform.runLater(() -> {
-            try {
-                lblTime.setText(String.format("TIME: %.2f s", engine.getCurrentSimulationTime()));
-                updateTlInfo();
-                
-                if (cbTrafficLight.getItems().isEmpty() && engine.getTrafficLightIdList() != null) {
-                    cbTrafficLight.getItems().setAll(engine.getTrafficLightIdList());
-                }
-            } catch (Exception e) {
-                // Log sparingly to avoid flooding logs
-            }
-        });
+    /**
+     * Applies a frame of the view-model stage (FX thread); the engine was queried by its worker.
+     */
+    void updateRealTimeData(ViewModelStage.Frame frame) {
+        if (frame == null) return;
+        lblTime.setText(String.format("TIME: %.2f s", frame.simulationTime));
+        if (frame.tlId != null && frame.tlId.equals(cbTrafficLight.getValue())) updateTlInfo(frame);
+
+        if (cbTrafficLight.getItems().isEmpty() && !frame.trafficLightIds.isEmpty()) {
+            cbTrafficLight.getItems().setAll(frame.trafficLightIds);
+        }
+    }
+
+    /**
+     * @return id of the selected traffic light or null; safe to call from any thread
+     */
+    String getSelectedTrafficLightId() {
+        return selectedTlId;
     }
-  
+
     private void setupVehicleHandlers(Button create, Button mod, Button del, Button select) {
         create.setOnAction(e -> {
             if (vehicleManager != null) {
@@ -353,7 +383,7 @@ public class ControlPanel extends ScrollPane {
                 if (forceGreen) trafficLightManager.forceGreen(id);
                 else trafficLightManager.forceRed(id);
                 
-                updateTlInfo();
+                // The new state arrives with the next view-model frame
                 if (onRefreshRequest != null) onRefreshRequest.run();
             } catch (Exception e) {
                 LOGGER.log(Level.WARNING, "Traffic Light action failed", e);
@@ -361,26 +391,17 @@ public class ControlPanel extends ScrollPane {
         }
     }
 
-    private void updateTlInfo() {
-        String id = cbTrafficLight.getValue();
-        if (id == null || engine == null) return;
-        try {
-            String state = engine.getTrafficLightState(id);
-            double timeLeft = engine.getTrafficLightRemainingTime(id);
-            int phase = engine.getTrafficLightPhase(id);
-            
-            lblTlState.setText("P:" + phase + " (" + state + ")");
-            lblPhaseTime.setText(String.format("%.1fs", timeLeft));
-            
-            if(phase == 0 || phase == 4  ) 
-                indicatorLight.setFill(Color.LIME);
-            else if(phase == 2 || phase == 1) 
-                indicatorLight.setFill(Color.RED);
-            else 
-                indicatorLight.setFill(Color.ORANGE);
-        } catch(Exception e) {
-            LOGGER.log(Level.FINE, "Error updating TL info (possibly transient)", e);
-        }
+    private void updateTlInfo(ViewModelStage.Frame frame) {
+        int phase = frame.tlPhase;
+        lblTlState.setText("P:" + phase + " (" + frame.tlState + ")");
+        lblPhaseTime.setText(String.format("%.1fs", frame.tlTimeLeft));
+        
+        if(phase == 0 || phase == 4  ) 
+            indicatorLight.setFill(Color.LIME);
+        else if(phase == 2 || phase == 1) 
+            indicatorLight.setFill(Color.RED);
+        else 
+            indicatorLight.setFill(Color.ORANGE);
     }
 
     private void showAlert(String msg) {
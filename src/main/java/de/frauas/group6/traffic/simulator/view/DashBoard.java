@@ -1,18 +1,23 @@
 package de.frauas.group6.traffic.simulator.view;
 
 import de.frauas.group6.traffic.simulator.analytics.ExportFilter;
+import de.frauas.group6.traffic.simulator.analytics.ExportFormat;
+import de.frauas.group6.traffic.simulator.analytics.ExportJob;
 import de.frauas.group6.traffic.simulator.analytics.ExportType;
 import de.frauas.group6.traffic.simulator.analytics.IStatsCollector;
-import de.frauas.group6.traffic.simulator.analytics.StatsCollector;
+import de.frauas.group6.traffic.simulator.analytics.OccupancyCube;
 import de.frauas.group6.traffic.simulator.infrastructure.IEdge;
 import de.frauas.group6.traffic.simulator.infrastructure.IInfrastructureManager;
 
 
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
-import javafx.scene.chart.*;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.FileChooser;
@@ -24,6 +29,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 
 /**
  * Real-time Dashboard view for traffic analytics.
@@ -43,17 +50,23 @@ public class DashBoard extends StackPane {
     private VBox exportView;            
 
     // --- CHARTS ---
-    private LineChart<String, Number> speedChart;
-    private XYChart.Series<String, Number> speedSeries;
-    
-    private BarChart<String, Number> densityChart;
-    private XYChart.Series<String, Number> densitySeries;
-    
-    private BarChart<String, Number> travelTimeChart;
-    private XYChart.Series<String, Number> travelTimeSeries;
-    
-    private BarChart<Number, String> congestionChart;
-    private XYChart.Series<Number, String> congestionSeries;
+    // Canvas charts: no scene node per point or bar
+    private static final Color CHART_COLOR = Color.web("#f3622d");
+    private static final Color CONGESTION_COLOR = Color.web("#e74c3c");
+    private LiveChart speedChart;
+    private LiveChart densityChart;
+    private LiveChart travelTimeChart;
+    private LiveChart congestionChart;
+    private double[] congestionValues = new double[ViewModelStage.TOP_CONGESTED];
+
+    // --- SPACE-TIME DIAGRAM / LANE HEATMAP (drawn from the OccupancyCube) ---
+    private static final long SPACE_TIME_REDRAW_MS = 1000;  // the cube changes per step, its time bins much slower
+    private ComboBox<String> cbSpaceTimeRow;
+    private Canvas spaceTimeCanvas;
+    private Canvas laneHeatmapCanvas;
+    private Label lblSpaceTimeInfo;
+    private long spaceTimeVersion = -1;
+    private long lastSpaceTimeDraw = 0;
 
     // --- EXPORT UI ELEMENTS ---
     private Map<ExportType, CheckBox> typeCheckBoxes = new HashMap<>();
@@ -67,6 +80,16 @@ public class DashBoard extends StackPane {
     private Spinner<Double> spinMinDensity;
     private Spinner<Double> spinMinTravelTime;
     private CheckBox cbOnlyCongested;
+    // Simulation time range of the vehicle traces (empty = open)
+    private TextField txtFromTime;
+    private TextField txtToTime;
+    
+    // Running export job (null when idle) and its progress display
+    private ExportJob currentExportJob;
+    private HBox progressBox;
+    private ProgressBar exportProgress;
+    private Label lblExportStatus;
+    private Button btnExportConfirm;
 
     /**
      * Constructor initializing the Dashboard view components.
@@ -101,54 +124,161 @@ public class DashBoard extends StackPane {
     // ==========================================
     // UPDATE LOOP
     // ==========================================
-    public void update() {
-        if (statsCollector == null || !mainScrollPane.isVisible()) return;
-
-        // 1. Avg Network Speed History
-        List<Double> history = statsCollector.getSpeedHistory();
-        if (history != null && !history.isEmpty()) {
-            int start = Math.max(0, history.size() - 30);
-            speedSeries.getData().clear();
-            for (int i = start; i < history.size(); i++) {
-                speedSeries.getData().add(new XYChart.Data<>(String.valueOf(i), history.get(i)));
-            }
+    /**
+     * Applies a frame of the view-model stage: the data is already sorted and limited,
+     * the canvas charts redraw only when their data changed.
+     */
+    void update(ViewModelStage.Frame frame) {
+        if (statsCollector == null || frame == null || !mainScrollPane.isVisible()) return;
+
+        // 1. Avg Network Speed History (whole run, downsampled to the chart width)
+        speedChart.setPoints(frame.speedTimes, frame.speeds);
+
+        // 2. Real-Time LIVE Congestion (top edges, highest first)
+        int congested = frame.congestedIds.length;
+        for (int i = 0; i < congested; i++) congestionValues[i] = frame.congestedCounts[i];
+        congestionChart.setBars(frame.congestedIds, congestionValues, congested);
+
+        // 3. Edge Densities
+        densityChart.setBars(frame.densityIds, frame.densities, frame.densityIds.length);
+
+        // 4. Average Travel Time per Route
+        travelTimeChart.setBars(frame.routeIds, frame.travelTimes, frame.routeIds.length);
+
+        // 5. Space-time diagram and lane heatmap (throttled, only when the cube changed)
+        long now = System.currentTimeMillis();
+        if (now - lastSpaceTimeDraw >= SPACE_TIME_REDRAW_MS) {
+            lastSpaceTimeDraw = now;
+            updateSpaceTime(false);
         }
+    }
 
-        // 2. Real-Time LIVE Congestion
-        Map<String, Integer> currentCongestion;
-        // Check implementation type safely
-        if (statsCollector instanceof StatsCollector) {
-            currentCongestion = ((StatsCollector) statsCollector).getCurrentCongestedEdgeIds();
-        } else {
-            currentCongestion = statsCollector.getCongestedEdgeIds(); 
+    /**
+     * @return number of points the speed chart can show (its plot width in pixels); any thread
+     */
+    int getSpeedChartPoints() {
+        return speedChart.getPlotWidth();
+    }
+
+    // ==========================================
+    // SPACE-TIME VIEW
+    // ==========================================
+    private VBox createSpaceTimeCard() {
+        Label title = new Label("Space-Time Diagram");
+        title.setFont(Font.font("Segoe UI", FontWeight.BOLD, 14));
+        title.setStyle("-fx-text-fill: #2c3e50;");
+
+        cbSpaceTimeRow = new ComboBox<>();
+        cbSpaceTimeRow.setPromptText("Edge / Lane");
+        cbSpaceTimeRow.setStyle("-fx-font-size: 12px;");
+        cbSpaceTimeRow.setOnAction(e -> updateSpaceTime(true));
+
+        lblSpaceTimeInfo = new Label();
+        lblSpaceTimeInfo.setStyle("-fx-font-size: 11px; -fx-text-fill: #7f8c8d;");
+
+        // x = time (oldest left), y = position along the edge (start at the bottom), color = mean speed
+        spaceTimeCanvas = new Canvas(560, 220);
+        // rows = lanes of the selected edge, x = position along the edge, color = occupancy
+        laneHeatmapCanvas = new Canvas(560, 90);
+
+        HBox header = new HBox(10, title, cbSpaceTimeRow);
+        header.setAlignment(Pos.CENTER_LEFT);
+        VBox card = new VBox(8, header, spaceTimeCanvas, new Label("Lane Occupancy"), laneHeatmapCanvas, lblSpaceTimeInfo);
+        card.setStyle("-fx-background-color: white; -fx-background-radius: 5; -fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.05), 5, 0, 0, 1); -fx-padding: 8;");
+        return card;
+    }
+
+    private void updateSpaceTime(boolean force) {
+        OccupancyCube cube = statsCollector.getOccupancyCube();
+        if (cube == null) {
+            lblSpaceTimeInfo.setText("Occupancy cube disabled (-Dsimulator.occupancy=on)");
+            return;
+        }
+        long version = cube.getVersion();
+        if (!force && version == spaceTimeVersion) return;
+        spaceTimeVersion = version;
+
+        // New rows appear while vehicles reach new edges/lanes
+        List<String> rows = cube.getRowIds();
+        if (rows.size() != cbSpaceTimeRow.getItems().size()) {
+            String selected = cbSpaceTimeRow.getValue();
+            List<String> sorted = new ArrayList<>(rows);
+            Collections.sort(sorted);
+            cbSpaceTimeRow.getItems().setAll(sorted);
+            if (selected != null) cbSpaceTimeRow.setValue(selected);
         }
+        String rowId = cbSpaceTimeRow.getValue();
+        if (rowId == null && !rows.isEmpty()) {
+            rowId = rows.get(0);
+            cbSpaceTimeRow.setValue(rowId);
+        }
+        OccupancyCube.Slice slice = rowId != null ? cube.getSlice(rowId) : null;
+        drawSpaceTime(slice);
+        drawLaneHeatmap(cube, slice);
+        lblSpaceTimeInfo.setText(String.format("%d rows, %.1f of %d MB%s", rows.size(), cube.getAllocatedBytes() / (1024.0 * 1024.0),
+            cube.getBudgetBytes() / (1024 * 1024), cube.getDroppedRows() > 0 ? ", " + cube.getDroppedRows() + " rows over budget" : ""));
+    }
 
-        congestionSeries.getData().clear();
-        if (currentCongestion != null && !currentCongestion.isEmpty()) {
-            currentCongestion.entrySet().stream()
-                .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                .limit(5)
-                .forEach(e -> {
-                    XYChart.Data<Number, String> data = new XYChart.Data<>(e.getValue(), e.getKey());
-                    congestionSeries.getData().add(data);
-                    if (data.getNode() != null) data.getNode().setStyle("-fx-bar-fill: #e74c3c;");
-                });
+    private void drawSpaceTime(OccupancyCube.Slice slice) {
+        GraphicsContext g = spaceTimeCanvas.getGraphicsContext2D();
+        double w = spaceTimeCanvas.getWidth(), h = spaceTimeCanvas.getHeight();
+        g.setFill(Color.web("#ecf0f1"));
+        g.fillRect(0, 0, w, h);
+        if (slice == null || slice.getTimeBins() == 0) return;
+
+        int times = slice.getTimeBins(), positions = slice.getPositionBins();
+        double maxSpeed = 1.0, maxOccupancy = 0.0;
+        for (int t = 0; t < times; t++) {
+            for (int p = 0; p < positions; p++) {
+                if (!Double.isNaN(slice.getMeanSpeed(t, p))) maxSpeed = Math.max(maxSpeed, slice.getMeanSpeed(t, p));
+                maxOccupancy = Math.max(maxOccupancy, slice.getOccupancy(t, p));
+            }
         }
-        
-        // 3. Edge Densities
-        Map<String, Double> densities = statsCollector.getEdgeDensity();
-        if (densities != null) {
-             densitySeries.getData().clear();
-             densities.entrySet().stream().limit(15).forEach(e -> densitySeries.getData().add(new XYChart.Data<>(e.getKey(), e.getValue())));
+        double cw = w / times, ch = h / positions;
+        for (int t = 0; t < times; t++) {
+            for (int p = 0; p < positions; p++) {
+                double occupancy = slice.getOccupancy(t, p);
+                if (occupancy <= 0) continue;
+                // red = slow, green = free flow; faint cells had few vehicles
+                double hue = 120.0 * Math.min(1.0, slice.getMeanSpeed(t, p) / maxSpeed);
+                double opacity = 0.3 + 0.7 * occupancy / maxOccupancy;
+                g.setFill(Color.hsb(hue, 0.85, 0.9, opacity));
+                g.fillRect(t * cw, h - (p + 1) * ch, Math.ceil(cw), Math.ceil(ch));
+            }
         }
-        
-        // 4. Average Travel Time per Route
-        Map<String, Double> travelTimes = statsCollector.getAverageTravelTime();
-        if (travelTimes != null) {
-            travelTimeSeries.getData().clear();
-            travelTimes.entrySet().stream()
-                .limit(15) // Limit to avoid clutter
-                .forEach(e -> travelTimeSeries.getData().add(new XYChart.Data<>(e.getKey(), e.getValue())));
+        g.setFill(Color.web("#2c3e50"));
+        g.fillText(String.format("%s  %.0f-%.0f s  max %.1f m/s", slice.getRowId(), slice.getStartTime(),
+            slice.getStartTime() + times * slice.getTimeBinSeconds(), maxSpeed), 5, 12);
+    }
+
+    private void drawLaneHeatmap(OccupancyCube cube, OccupancyCube.Slice selected) {
+        GraphicsContext g = laneHeatmapCanvas.getGraphicsContext2D();
+        double w = laneHeatmapCanvas.getWidth(), h = laneHeatmapCanvas.getHeight();
+        g.setFill(Color.web("#ecf0f1"));
+        g.fillRect(0, 0, w, h);
+        if (selected == null) return;
+
+        List<String> laneRows = cube.getRowIdsOfEdge(selected.getEdgeId());
+        List<double[]> profiles = new ArrayList<>();
+        double max = 0.0;
+        for (String laneRow : laneRows) {
+            OccupancyCube.Slice slice = cube.getSlice(laneRow);
+            double[] profile = slice != null ? slice.getOccupancyProfile() : new double[cube.getPositionBins()];
+            for (double v : profile) max = Math.max(max, v);
+            profiles.add(profile);
+        }
+        if (profiles.isEmpty() || max <= 0) return;
+        double labelWidth = 70, ch = h / profiles.size();
+        for (int r = 0; r < profiles.size(); r++) {
+            double[] profile = profiles.get(r);
+            double cw = (w - labelWidth) / profile.length;
+            for (int p = 0; p < profile.length; p++) {
+                // white = empty, dark red = highest mean occupancy of the edge
+                g.setFill(Color.web("#c0392b", profile[p] / max));
+                g.fillRect(labelWidth + p * cw, r * ch, Math.ceil(cw), Math.ceil(ch) - 1);
+            }
+            g.setFill(Color.web("#2c3e50"));
+            g.fillText(laneRows.get(r), 3, r * ch + ch / 2 + 4);
         }
     }
     
@@ -179,32 +309,10 @@ public class DashBoard extends StackPane {
         header.getChildren().add(title);
 
         // --- CHARTS INIT ---
-        speedChart = createLineChart("Avg Network Speed", "Speed (m/s)");
-        speedSeries = new XYChart.Series<>();
-        speedSeries.setName("Real-time");
-        speedChart.getData().add(speedSeries);
-        styleChart(speedChart);
-
-        NumberAxis xAxis = new NumberAxis(); xAxis.setLabel("Vehicles on Edge");
-        CategoryAxis yAxis = new CategoryAxis(); yAxis.setLabel("Edge ID");
-        congestionChart = new BarChart<>(xAxis, yAxis);
-        congestionChart.setTitle("Live Congested Edges");
-        congestionChart.setAnimated(false); 
-        congestionChart.setLegendVisible(false); 
-        congestionChart.setPrefHeight(280); // Adjusted height
-        styleChart(congestionChart);
-        congestionSeries = new XYChart.Series<>();
-        congestionChart.getData().add(congestionSeries);
-
-        densityChart = createVerticalBarChart("Global Density", "Density");
-        densitySeries = new XYChart.Series<>();
-        densityChart.getData().add(densitySeries);
-        styleChart(densityChart);
-
-        travelTimeChart = createVerticalBarChart("Route Travel Time", "Time (s)");
-        travelTimeSeries = new XYChart.Series<>();
-        travelTimeChart.getData().add(travelTimeSeries);
-        styleChart(travelTimeChart);
+        speedChart = new LiveChart("Avg Network Speed", "Speed (m/s)", LiveChart.Kind.LINE, CHART_COLOR, 250);
+        congestionChart = new LiveChart("Live Congested Edges", "Vehicles on Edge", LiveChart.Kind.HORIZONTAL_BAR, CONGESTION_COLOR, 280);
+        densityChart = new LiveChart("Global Density", "Density", LiveChart.Kind.BAR, CHART_COLOR, 250);
+        travelTimeChart = new LiveChart("Route Travel Time", "Time (s)", LiveChart.Kind.BAR, CHART_COLOR, 250);
 
         Button btnGoToExport = new Button("Export Reports ⤓");
         btnGoToExport.setStyle("-fx-background-color: #34495e; -fx-text-fill: white; -fx-font-weight: bold; -fx-cursor: hand; -fx-font-size: 13px;");
@@ -218,6 +326,7 @@ public class DashBoard extends StackPane {
             createCard(congestionChart), 
             createCard(densityChart),        
             createCard(travelTimeChart),    
+            createSpaceTimeCard(),
             new Separator(),                
             btnGoToExport                    
         );
@@ -320,6 +429,14 @@ public class DashBoard extends StackPane {
         cbOnlyCongested = new CheckBox("Show only congested edges");
         cbOnlyCongested.setStyle("-fx-font-size: 12px;");
 
+        txtFromTime = new TextField();
+        txtFromTime.setPromptText("from");
+        txtFromTime.setStyle("-fx-font-size: 12px;");
+        txtToTime = new TextField();
+        txtToTime.setPromptText("to");
+        txtToTime.setStyle("-fx-font-size: 12px;");
+        HBox timeRange = new HBox(10, txtFromTime, txtToTime);
+
         // Adding rows with labels ABOVE inputs for clarity
         filterBox.getChildren().addAll(
             createFilterRow("Vehicle Color", cbColorFilter),
@@ -327,7 +444,8 @@ public class DashBoard extends StackPane {
             createFilterRow("Edge ID (from Infra)", cbEdgeIdFilter),
             createFilterRow("Min. Edge Density (0.0 - 1.0)", spinMinDensity),
             createFilterRow("Min. Travel Time (seconds)", spinMinTravelTime),
-            new VBox(5, new Label("Congestion Status"), cbOnlyCongested)
+            new VBox(5, new Label("Congestion Status"), cbOnlyCongested),
+            new VBox(3, new Label("Vehicle Traces Time Range (sim seconds, optional)"), timeRange)
         );
 
         // --- SECTION 3: FORMAT ---
@@ -346,7 +464,11 @@ public class DashBoard extends StackPane {
         rbPdf.setToggleGroup(formatGroup);
         rbPdf.setStyle("-fx-font-size: 12px;");
         
-        formatBox.getChildren().addAll(rbCsv, rbPdf);
+        RadioButton rbColumnar = new RadioButton("Binary (columnar)");
+        rbColumnar.setToggleGroup(formatGroup);
+        rbColumnar.setStyle("-fx-font-size: 12px;");
+        
+        formatBox.getChildren().addAll(rbCsv, rbPdf, rbColumnar);
 
         // --- SECTION 4: FILE DETAILS (Optional Default Name) ---
         Label l4 = new Label("4. Default Filename (Optional)");
@@ -367,21 +489,36 @@ public class DashBoard extends StackPane {
         Button btnCancel = new Button("Cancel");
         btnCancel.setPrefWidth(100);
         btnCancel.setStyle("-fx-font-size: 12px;");
-        btnCancel.setOnAction(e -> showMainView());
+        // Cancels a running export, otherwise just closes the export view
+        btnCancel.setOnAction(e -> {
+            if (currentExportJob != null) currentExportJob.cancel();
+            else showMainView();
+        });
 
         Button btnConfirm = new Button("Export...");
         btnConfirm.setStyle("-fx-background-color: #27ae60; -fx-text-fill: white; -fx-font-weight: bold; -fx-cursor: hand; -fx-font-size: 12px;");
         btnConfirm.setPrefWidth(120);
         btnConfirm.setOnAction(e -> handleExport());
+        btnExportConfirm = btnConfirm;
 
         actions.getChildren().addAll(btnCancel, btnConfirm);
 
+        // --- PROGRESS (visible while an export job runs) ---
+        exportProgress = new ProgressBar(0);
+        exportProgress.setPrefWidth(250);
+        lblExportStatus = new Label();
+        lblExportStatus.setStyle("-fx-font-size: 11px; -fx-text-fill: #7f8c8d;");
+        progressBox = new HBox(10, exportProgress, lblExportStatus);
+        progressBox.setAlignment(Pos.CENTER_LEFT);
+        progressBox.setVisible(false);
+        progressBox.setManaged(false);
+
         card.getChildren().addAll(
             l1, typeGrid, new Separator(),
             l2, filterBox, new Separator(),
             l3, formatBox, new Separator(),
             l4, fileBox, new Separator(),
-            actions
+            progressBox, actions
         );
 
         exportView.getChildren().addAll(lblTitle, card);
@@ -433,6 +570,7 @@ public class DashBoard extends StackPane {
         // 2. FORMAT
         RadioButton selectedFormatBtn = (RadioButton) formatGroup.getSelectedToggle();
         boolean isCsv = selectedFormatBtn.getText().contains("CSV");
+        boolean isColumnar = selectedFormatBtn.getText().contains("columnar");
 
         // 3. BUILD COMPLETE FILTER
         ExportFilter filter = new ExportFilter();
@@ -469,6 +607,14 @@ public class DashBoard extends StackPane {
         // Congested Only
         filter.setOnlyCongestedEdges(cbOnlyCongested.isSelected());
 
+        // Time Range (vehicle traces)
+        try {
+            filter.setTimeRange(parseOptionalTime(txtFromTime), parseOptionalTime(txtToTime));
+        } catch (NumberFormatException ex) {
+            showAlert("Warning", "The time range must be given in seconds, e.g. 120 or 300.5.");
+            return;
+        }
+
         // 4. CHOOSE EXPORT LOCATION (FileChooser)
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Export File");
@@ -487,6 +633,9 @@ public class DashBoard extends StackPane {
         if (isCsv) {
             fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files (*.csv)", "*.csv"));
             fileChooser.setInitialFileName(defaultName + ".csv");
+        } else if (isColumnar) {
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Columnar Files (*.tscol)", "*.tscol"));
+            fileChooser.setInitialFileName(defaultName + ".tscol");
         } else {
             fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PDF Files (*.pdf)", "*.pdf"));
             fileChooser.setInitialFileName(defaultName + ".pdf");
@@ -497,38 +646,57 @@ public class DashBoard extends StackPane {
         File file = fileChooser.showSaveDialog(stage);
 
         if (file != null) {
-            try {
-                String path = file.getAbsolutePath();
-                
-                if (isCsv) statsCollector.exportToCsv(path, filter, selectedTypes);
-                else statsCollector.exportToPdf(path, filter, selectedTypes);
-                
-                showAlert("Success", "Report exported successfully to:\n" + path);
-                showMainView();
-                
-            } catch (Exception ex) {
-                showAlert("Error", "Export failed: " + ex.getMessage());
-                ex.printStackTrace();
-            }
+            String path = file.getAbsolutePath();
+            ExportFormat format = isCsv ? ExportFormat.CSV : isColumnar ? ExportFormat.COLUMNAR : ExportFormat.PDF;
+            
+            // The export runs on a background worker from a snapshot; the UI stays responsive
+            ExportJob job = statsCollector.exportAsync(format, path, filter, selectedTypes,
+                (fraction, message) -> Platform.runLater(() -> {
+                    exportProgress.setProgress(fraction);
+                    lblExportStatus.setText(message);
+                }));
+            setExportRunning(job);
+            job.getResult().whenComplete((result, error) -> Platform.runLater(() -> onExportFinished(path, error)));
+        }
+    }
+    
+    private void setExportRunning(ExportJob job) {
+        currentExportJob = job;
+        boolean running = job != null;
+        progressBox.setVisible(running);
+        progressBox.setManaged(running);
+        btnExportConfirm.setDisable(running);
+        exportProgress.setProgress(0);
+        lblExportStatus.setText(running ? "Preparing export..." : "");
+    }
+    
+    private void onExportFinished(String path, Throwable error) {
+        setExportRunning(null);
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null) {
+            showAlert("Success", "Report exported successfully to:\n" + path);
+            showMainView();
+        } else if (cause instanceof CancellationException) {
+            showAlert("Cancelled", "Export was cancelled.");
+        } else {
+            showAlert("Error", "Export failed: " + cause.getMessage());
+            cause.printStackTrace();
         }
     }
 
     // --- Helpers ---
-    private VBox createCard(Chart chart) {
+    private VBox createCard(LiveChart chart) {
         VBox card = new VBox(chart);
         card.setStyle("-fx-background-color: white; -fx-background-radius: 5; -fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.05), 5, 0, 0, 1); -fx-padding: 8;");
         return card;
     }
     
-    private void styleChart(XYChart<?, ?> chart) {
-        // Transparent background for chart plot area
-        if (chart.lookup(".chart-plot-background") != null) {
-            chart.lookup(".chart-plot-background").setStyle("-fx-background-color: transparent;");
-        }
-        chart.getXAxis().setTickLabelFont(Font.font("Arial", 10));
-        chart.getYAxis().setTickLabelFont(Font.font("Arial", 10));
+    // Null for an empty field
+    private static Double parseOptionalTime(TextField field) {
+        String text = field.getText() != null ? field.getText().trim() : "";
+        return text.isEmpty() ? null : Double.valueOf(text);
     }
-    
+
     private void showAlert(String title, String content) {
         Alert a = new Alert(Alert.AlertType.INFORMATION);
         a.setTitle(title); a.setHeaderText(null); a.setContentText(content);
@@ -539,18 +707,4 @@ public class DashBoard extends StackPane {
         if (name == null || name.isEmpty()) return "";
         return name.charAt(0) + name.substring(1).toLowerCase().replace('_', ' ');
     }
-    
-    private LineChart<String, Number> createLineChart(String t, String y) {
-        CategoryAxis x = new CategoryAxis(); NumberAxis ya = new NumberAxis(); ya.setLabel(y);
-        LineChart<String,Number> lc = new LineChart<>(x, ya);
-        lc.setTitle(t); lc.setAnimated(false); lc.setLegendVisible(false); lc.setPrefHeight(250);
-        return lc;
-    }
-    
-    private BarChart<String, Number> createVerticalBarChart(String t, String y) {
-        CategoryAxis x = new CategoryAxis(); NumberAxis ya = new NumberAxis(); ya.setLabel(y);
-        BarChart<String,Number> bc = new BarChart<>(x, ya);
-        bc.setTitle(t); bc.setAnimated(false); bc.setLegendVisible(false); bc.setPrefHeight(250);
-        return bc;
-    }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package de.frauas.group6.traffic.simulator.view;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -10,6 +12,7 @@ import de.frauas.group6.traffic.simulator.infrastructure.IInfrastructureManager;
 import de.frauas.group6.traffic.simulator.infrastructure.ITrafficLightManager;
 import de.frauas.group6.traffic.simulator.vehicles.IVehicleManager;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Orientation;
@@ -22,6 +25,7 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonBar.ButtonData;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.SplitPane;
+import javafx.scene.input.MouseButton;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
@@ -62,6 +66,24 @@ public class GuiManager extends Application implements IMapObserver {
     private MapView3D1 mapView3D; 
     private MapView mapView2D;
     private boolean is3DMode = true; // Default
+    // Signal head geometry shared by both views; states fetched once per refresh
+    private SignalHeadModel signalHeads;
+    // Vehicle motion between sim steps, drawn by the render loop at its own frame rate
+    private MotionInterpolator motion;
+    private MapNetwork network;
+    private AnimationTimer renderLoop;
+    private static final double TARGET_FPS = Double.parseDouble(System.getProperty("simulator.fps", "60"));
+
+    // Sidebar data prepared off the FX thread, one frame per refresh
+    private ViewModelStage viewModel;
+    // Edge heatmap levels of the map overlay, computed off the FX thread per step
+    private HeatmapModel heatmap;
+
+    // Coalesced refresh: queued flag, steps seen and the step last passed to the map (FX thread), merged count
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+    private final AtomicLong latestStep = new AtomicLong();
+    private long renderedStep = 0;
+    private final AtomicLong mergedRefreshes = new AtomicLong();
     
     // Mouse Interaction State (For 3D)
     private double mousePosX;
@@ -120,6 +142,7 @@ public class GuiManager extends Application implements IMapObserver {
             }
             
             primaryStage.show();
+            startRenderLoop();
             LOGGER.info("GUI started successfully in " + (is3DMode ? "3D" : "2D") + " mode.");
 
         } catch (Exception e) {
@@ -161,6 +184,18 @@ public class GuiManager extends Application implements IMapObserver {
     private void initializeCommonComponents() {
         this.controlPanel = new ControlPanel(engine, vehicleManager, trafficLightManager, infraMgr);
         this.dashboard = new DashBoard(statsCollector, infraMgr);
+        this.signalHeads = new SignalHeadModel(engine);
+        // Road shapes fetched once (the engine has loaded the network before the UI starts),
+        // shared by the 2D map and the motion interpolator of both views
+        this.network = MapNetwork.load(engine);
+        if (network == null) LOGGER.warning("No road network loaded, the map stays empty");
+        this.motion = new MotionInterpolator(network);
+        // Every frame of the view model schedules a refresh; panel actions ask for a new frame
+        this.viewModel = new ViewModelStage(engine, statsCollector, controlPanel::getSelectedTrafficLightId,
+            dashboard::getSpeedChartPoints, this::scheduleRefresh);
+        controlPanel.setOnRefreshRequest(viewModel::request);
+        this.heatmap = new HeatmapModel(engine, statsCollector);
+        controlPanel.setOnOverlayChanged(heatmap::setMetric);
     }
 
     private SplitPane createSidebar() {
@@ -179,7 +214,7 @@ public class GuiManager extends Application implements IMapObserver {
     private Node createMapNode(BorderPane root, SplitPane sidebar) {
         if (is3DMode) {
             // --- 3D MODE ---
-            this.mapView3D = new MapView3D1(engine, vehicleManager, controlPanel);
+            this.mapView3D = new MapView3D1(engine, vehicleManager, controlPanel, signalHeads, heatmap);
             SubScene subScene = new SubScene(mapView3D.getRoot(), 800, 800, true, SceneAntialiasing.BALANCED);
             subScene.setPickOnBounds(true);
             subScene.setCamera(mapView3D.getCamera());
@@ -191,11 +226,14 @@ public class GuiManager extends Application implements IMapObserver {
             StackPane container = new StackPane(subScene);
             subScene.widthProperty().bind(container.widthProperty());
             subScene.heightProperty().bind(container.heightProperty());
+            // Frustum culling of the vehicle batches needs the aspect ratio
+            subScene.widthProperty().addListener((obs, o, n) -> mapView3D.setViewportSize(subScene.getWidth(), subScene.getHeight()));
+            subScene.heightProperty().addListener((obs, o, n) -> mapView3D.setViewportSize(subScene.getWidth(), subScene.getHeight()));
             return container;
             
         } else {
             // --- 2D MODE ---
-            this.mapView2D = new MapView(engine, vehicleManager);
+            this.mapView2D = new MapView(engine, network, motion, signalHeads, heatmap);
             
             // Link 2D selection to ControlPanel
             this.mapView2D.setOnVehicleSelected(id -> {
@@ -227,6 +265,13 @@ public class GuiManager extends Application implements IMapObserver {
             mousePosY = event.getSceneY();
         });
         
+        // Vehicle selection: click without drag, resolved by a spatial query in the 3D view
+        subScene.setOnMouseClicked(event -> {
+            if (event.getButton() == MouseButton.PRIMARY && event.isStillSincePress()) {
+                mapView3D.selectVehicleAt(event.getPickResult());
+            }
+        });
+        
         subScene.setOnScroll(event -> {
             zoomZ = event.getDeltaY();
             mapView3D.Zoom(zoomZ * 2.0);
@@ -236,31 +281,100 @@ public class GuiManager extends Application implements IMapObserver {
     private void setupCloseHandler(Stage stage) {
         stage.setOnCloseRequest(e -> {
             LOGGER.info("Application closing...");
+            if (renderLoop != null) renderLoop.stop();
+            LOGGER.info("UI refreshes merged under load: " + getMergedRefreshCount() + " of " + latestStep.get() + " steps");
+            if (viewModel != null) viewModel.shutdown();
+            if (heatmap != null) heatmap.shutdown();
+            if (mapView2D != null) mapView2D.shutdown();
             if (engine != null) engine.stop();
+            // Finish the live CSV files and archive the run (each a no-op if disabled)
+            if (statsCollector != null) statsCollector.finishRun();
             Platform.exit();
             System.exit(0);
         });
     }
 
+    /**
+     * Render loop: draws the map with interpolated vehicle positions at up to TARGET_FPS
+     * (-Dsimulator.fps), independent of the simulation step rate. Frames that come sooner
+     * than the budget allows are skipped.
+     */
+    private void startRenderLoop() {
+        long frameNanos = (long) (1e9 / Math.max(1.0, TARGET_FPS));
+        renderLoop = new AnimationTimer() {
+            private long lastFrame = 0;
+
+            @Override
+            public void handle(long now) {
+                if (now - lastFrame < frameNanos) return;
+                lastFrame = now;
+                try {
+                    motion.frame(System.nanoTime());
+                    if (is3DMode && mapView3D != null) {
+                        mapView3D.updateVehicles(motion);
+                        mapView3D.updateHeatmap();
+                    } else if (!is3DMode && mapView2D != null) {
+                        mapView2D.render();
+                    }
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Error during map rendering", e);
+                }
+            }
+        };
+        renderLoop.start();
+    }
+
+    /**
+     * Called by the simulation thread after every step.
+     * The view-model stage first prepares the sidebar data on its worker, then schedules the
+     * FX refresh. Both stages coalesce: at most one frame build and one FX refresh are queued
+     * at any time, and since they read their sources when they run, they show the newest step.
+     * The heatmap worker recomputes the overlay levels the same way.
+     * Steps arriving meanwhile are merged (counted in getMergedRefreshCount()).
+     */
     @Override
     public void refresh() {
-        Platform.runLater(() -> {
-            try {
-                // Update Sidebar
-                if (controlPanel != null) controlPanel.updateRealTimeData();
-                if (dashboard != null) dashboard.update();
-                
-                // Update Map based on active mode
-                if (is3DMode && mapView3D != null) {
-                    mapView3D.renderRoads(); 
-                    mapView3D.updateVehicles(vehicleManager); 
-                    mapView3D.updateTrafficLights();
-                } else if (!is3DMode && mapView2D != null) {
-                    mapView2D.render(); // Ensure MapView has a render() method
-                }
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "Error during UI refresh", e);
+        latestStep.incrementAndGet();
+        if (viewModel != null) viewModel.request();
+        if (heatmap != null) heatmap.request();
+    }
+
+    // Called by the view-model worker after each frame
+    private void scheduleRefresh() {
+        if (refreshPending.compareAndSet(false, true)) {
+            Platform.runLater(this::runRefresh);
+        } else {
+            mergedRefreshes.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of step refreshes merged into an already queued one
+     */
+    public long getMergedRefreshCount() {
+        return mergedRefreshes.get() + (viewModel != null ? viewModel.getMergedRequestCount() : 0);
+    }
+
+    private void runRefresh() {
+        // Cleared first: a step finishing during this refresh queues the next one
+        refreshPending.set(false);
+        try {
+            // Update Sidebar from the prepared frame
+            ViewModelStage.Frame frame = viewModel.getLatest();
+            if (controlPanel != null) controlPanel.updateRealTimeData(frame);
+            if (dashboard != null) dashboard.update(frame);
+            
+            // New step for the map: vehicle states for the render loop (not for panel requests), signal states from the frame
+            long step = latestStep.get();
+            if (vehicleManager != null && step != renderedStep) motion.onStep(vehicleManager.getAllVehicles(), System.nanoTime());
+            renderedStep = step;
+            if (signalHeads != null && frame != null) signalHeads.apply(frame.trafficLightStates);
+            if (is3DMode && mapView3D != null) {
+                mapView3D.renderRoads(); 
+                mapView3D.updateTrafficLights();
             }
-        });
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error during UI refresh", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,213 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.frauas.group6.traffic.simulator.analytics.IStatsCollector;
+import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
+import javafx.scene.paint.Color;
+
+/**
+ * Live edge heatmap overlay shared by the 2D and 3D map views.
+ * After a step (request()) a worker thread turns the per-step edge aggregates of the stats
+ * collector (density, mean speed or stopped vehicles) into a color level per edge and publishes
+ * them as an immutable Levels buffer. The views only compare its version and apply the levels
+ * to their cached road geometry; nothing is computed per frame and no engine call is made on
+ * the render path. Edges are indexed in the order of the engine's edge list (ensureLoaded()).
+ */
+public final class HeatmapModel {
+
+    private static final Logger LOGGER = Logger.getLogger(HeatmapModel.class.getName());
+
+    enum Metric {
+        OFF("Off"), DENSITY("Density"), SPEED("Mean speed"), CONGESTION("Congestion");
+
+        private final String label;
+
+        Metric(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // Palette size (green = free, red = jammed); edges without vehicles have no level
+    static final int LEVELS = 16;
+    static final byte NO_DATA = -1;
+    // Values mapped to the red end: jam density (one vehicle per 7 m), stopped vehicles per edge;
+    // speeds are relative to FREE_SPEED (50 km/h), slower is redder
+    private static final double JAM_DENSITY = 1.0 / 7.0;
+    private static final double JAM_STOPPED = 10;
+    private static final double FREE_SPEED = 13.9;
+
+    private static final Color[] PALETTE = new Color[LEVELS];
+    static {
+        for (int i = 0; i < LEVELS; i++) PALETTE[i] = Color.hsb(120.0 * (1 - i / (LEVELS - 1.0)), 0.9, 0.95);
+    }
+
+    /**
+     * Color level per edge (NO_DATA or 0..LEVELS-1) for one metric; never modified once published.
+     */
+    static final class Levels {
+        final Metric metric;
+        final long version;
+        final byte[] levels;
+
+        private Levels(Metric metric, long version, byte[] levels) {
+            this.metric = metric;
+            this.version = version;
+            this.levels = levels;
+        }
+    }
+
+    private final ISimulationEngine engine;
+    private final IStatsCollector statsCollector;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Heatmap");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private final AtomicReference<Levels> latest = new AtomicReference<>();
+    private volatile Metric metric = Metric.OFF;
+    // Edge order, published once by ensureLoaded()
+    private volatile List<String> edgeIds;
+    private volatile Map<String, Integer> edgeIndex;
+    private long version = 0;
+
+    public HeatmapModel(ISimulationEngine engine, IStatsCollector statsCollector) {
+        this.engine = engine;
+        this.statsCollector = statsCollector;
+    }
+
+    static Color color(int level) {
+        return PALETTE[level];
+    }
+
+    /**
+     * Fetches the edge list once it is available (FX thread).
+     * @return true if the edges are indexed
+     */
+    boolean ensureLoaded() {
+        if (edgeIndex != null) return true;
+        if (engine == null) return false;
+        List<String> ids = engine.getEdgeIdList();
+        if (ids == null || ids.isEmpty()) return false;
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) index.put(ids.get(i), i);
+        edgeIds = List.copyOf(ids);
+        edgeIndex = index;
+        return true;
+    }
+
+    // Index of the edge in the level buffers, -1 if unknown
+    int indexOf(String edgeId) {
+        Map<String, Integer> index = edgeIndex;
+        Integer i = index != null ? index.get(edgeId) : null;
+        return i != null ? i : -1;
+    }
+
+    Metric getMetric() {
+        return metric;
+    }
+
+    void setMetric(Metric metric) {
+        this.metric = metric;
+        request();
+    }
+
+    /**
+     * @return the newest levels, null before the first computation; check metric against getMetric()
+     */
+    Levels getLevels() {
+        return latest.get();
+    }
+
+    /**
+     * Asks for new levels after a step; merged into an already queued computation. Any thread.
+     */
+    void request() {
+        if (metric == Metric.OFF || statsCollector == null) return;
+        if (pending.compareAndSet(false, true)) worker.execute(this::compute);
+    }
+
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // ==========================================
+    // LEVELS (worker thread)
+    // ==========================================
+
+    private void compute() {
+        pending.set(false);
+        try {
+            Metric current = metric;
+            List<String> ids = edgeIds;
+            if (current == Metric.OFF || ids == null) return;
+            byte[] levels = new byte[ids.size()];
+            Arrays.fill(levels, NO_DATA);
+            Map<String, Integer> index = edgeIndex;
+            switch (current) {
+                case DENSITY:
+                    fill(levels, index, densities(), JAM_DENSITY, false);
+                    break;
+                case SPEED:
+                    // Edges with stopped vehicles only count as standing still
+                    Map<String, Double> speeds = new HashMap<>();
+                    congestion().forEach((edgeId, count) -> speeds.put(edgeId, 0.0));
+                    speeds.putAll(currentSpeeds());
+                    fill(levels, index, speeds, FREE_SPEED, true);
+                    break;
+                case CONGESTION:
+                    Map<String, Double> stopped = new HashMap<>();
+                    congestion().forEach((edgeId, count) -> stopped.put(edgeId, count.doubleValue()));
+                    fill(levels, index, stopped, JAM_STOPPED, false);
+                    break;
+                default:
+                    return;
+            }
+            latest.set(new Levels(current, ++version, levels));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error computing the heatmap", e);
+        }
+    }
+
+    // All of the latest (sampled) step
+    private Map<String, Double> densities() {
+        return statsCollector.getCurrentEdgeDensities();
+    }
+
+    private Map<String, Double> currentSpeeds() {
+        return statsCollector.getCurrentEdgeSpeeds();
+    }
+
+    private Map<String, Integer> congestion() {
+        Map<String, Integer> congestion = statsCollector.getCurrentCongestedEdgeIds();
+        return congestion != null ? congestion : Map.of();
+    }
+
+    // Level = value / full scale (inverted: low values are red); zero values (empty edges) stay NO_DATA unless inverted
+    private static void fill(byte[] levels, Map<String, Integer> index, Map<String, Double> values, double fullScale, boolean inverted) {
+        if (values == null) return;
+        for (Map.Entry<String, Double> e : values.entrySet()) {
+            Integer i = index.get(e.getKey());
+            double v = e.getValue();
+            if (i == null || Double.isNaN(v) || (!inverted && v <= 0)) continue;
+            double share = Math.min(1.0, v / fullScale);
+            if (inverted) share = 1.0 - share;
+            levels[i] = (byte) Math.round(share * (LEVELS - 1));
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import java.util.Arrays;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Lightweight live chart of the dashboard, drawn directly on a Canvas.
+ * A LINE chart shows a series of (time, value) points, already downsampled to about one point
+ * per pixel of its plot (setPoints(), getPlotWidth()); BAR and HORIZONTAL_BAR charts hold one
+ * value per category (setBars()). There are no scene nodes per point or bar: each update is
+ * drawn in one pass and only if the data changed, with the value axis scaled from 0 to a
+ * rounded maximum.
+ * Resizable, so it fills its card like the old charts.
+ * FX thread only.
+ */
+final class LiveChart extends Canvas {
+
+    enum Kind { LINE, BAR, HORIZONTAL_BAR }
+
+    private static final Font TITLE_FONT = Font.font("Segoe UI", FontWeight.BOLD, 13);
+    private static final Font TICK_FONT = Font.font("Arial", 10);
+    private static final Color TEXT = Color.web("#2c3e50");
+    private static final Color GRID = Color.web("#e5e8eb");
+    private static final int VALUE_TICKS = 5;
+    // Plot insets: title on top, value ticks left, x labels below (room for rotated categories)
+    private static final double TOP = 26, RIGHT = 12, LEFT = 46, BOTTOM_LINE = 34, BOTTOM_BAR = 62, LABEL_WIDTH = 74;
+
+    private final String title;
+    private final String valueLabel;
+    private final Kind kind;
+    private final Color color;
+    private final double prefHeight;
+
+    // LINE: points in time order (arrays of the caller, never modified)
+    private double[] times = new double[0];
+    private double[] points = new double[0];
+    // Plot width in pixels, read by the worker that downsamples the series
+    private volatile int plotWidth = 300;
+
+    // BAR / HORIZONTAL_BAR: categories and values, arrays reused while big enough
+    private String[] labels = new String[16];
+    private double[] values = new double[16];
+    private int barCount = 0;
+
+    LiveChart(String title, String valueLabel, Kind kind, Color color, double prefHeight) {
+        super(300, prefHeight);
+        this.title = title;
+        this.valueLabel = valueLabel;
+        this.kind = kind;
+        this.color = color;
+        this.prefHeight = prefHeight;
+    }
+
+    // ==========================================
+    // DATA
+    // ==========================================
+
+    /**
+     * LINE: replaces the points (not copied, must not be modified afterwards);
+     * returns without redrawing if nothing changed.
+     */
+    void setPoints(double[] newTimes, double[] newValues) {
+        if (Arrays.equals(times, newTimes) && Arrays.equals(points, newValues)) return;
+        times = newTimes;
+        points = newValues;
+        redraw();
+    }
+
+    /**
+     * @return width of the plot area in pixels (any thread), the useful number of LINE points
+     */
+    int getPlotWidth() {
+        return plotWidth;
+    }
+
+    /**
+     * BAR / HORIZONTAL_BAR: replaces the bars; returns without redrawing if nothing changed.
+     */
+    void setBars(String[] ids, double[] data, int count) {
+        if (count == barCount && sameBars(ids, data, count)) return;
+        if (count > labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(count, labels.length * 2));
+            values = Arrays.copyOf(values, labels.length);
+        }
+        System.arraycopy(ids, 0, labels, 0, count);
+        System.arraycopy(data, 0, values, 0, count);
+        if (barCount > count) Arrays.fill(labels, count, barCount, null);
+        barCount = count;
+        redraw();
+    }
+
+    private boolean sameBars(String[] ids, double[] data, int count) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] != data[i] || !labels[i].equals(ids[i])) return false;
+        }
+        return true;
+    }
+
+    // ==========================================
+    // LAYOUT
+    // ==========================================
+
+    @Override
+    public boolean isResizable() {
+        return true;
+    }
+
+    @Override
+    public double prefWidth(double height) {
+        return 300;
+    }
+
+    @Override
+    public double prefHeight(double width) {
+        return prefHeight;
+    }
+
+    @Override
+    public double minWidth(double height) {
+        return 100;
+    }
+
+    @Override
+    public double minHeight(double width) {
+        return 100;
+    }
+
+    @Override
+    public double maxWidth(double height) {
+        return Double.MAX_VALUE;
+    }
+
+    @Override
+    public void resize(double width, double height) {
+        if (width == getWidth() && height == getHeight()) return;
+        setWidth(width);
+        setHeight(height);
+        plotWidth = (int) Math.max(1, width - LEFT - RIGHT);
+        redraw();
+    }
+
+    // ==========================================
+    // DRAWING
+    // ==========================================
+
+    void redraw() {
+        GraphicsContext g = getGraphicsContext2D();
+        double w = getWidth(), h = getHeight();
+        g.clearRect(0, 0, w, h);
+        g.setFill(TEXT);
+        g.setFont(TITLE_FONT);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.TOP);
+        g.fillText(title, w / 2, 4);
+
+        double max = 0;
+        if (kind == Kind.LINE) {
+            for (double v : points) max = Math.max(max, v);
+        } else {
+            for (int i = 0; i < barCount; i++) max = Math.max(max, values[i]);
+        }
+        double step = niceStep(max / VALUE_TICKS);
+        double top = Math.max(step, Math.ceil(max / step) * step);
+
+        g.setFont(TICK_FONT);
+        if (kind == Kind.HORIZONTAL_BAR) drawHorizontalBars(g, w, h, step, top);
+        else drawVertical(g, w, h, step, top);
+    }
+
+    // LINE and BAR: values on the y axis
+    private void drawVertical(GraphicsContext g, double w, double h, double step, double top) {
+        double x0 = LEFT, x1 = w - RIGHT, y0 = TOP, y1 = h - (kind == Kind.LINE ? BOTTOM_LINE : BOTTOM_BAR);
+        if (x1 <= x0 || y1 <= y0) return;
+        double plotH = y1 - y0;
+
+        // Value grid and ticks
+        g.setTextAlign(TextAlignment.RIGHT);
+        g.setTextBaseline(VPos.CENTER);
+        g.setLineWidth(1);
+        for (double v = 0; v <= top + step / 2; v += step) {
+            double y = Math.round(y1 - v / top * plotH) + 0.5;
+            g.setStroke(GRID);
+            g.strokeLine(x0, y, x1, y);
+            g.setFill(TEXT);
+            g.fillText(formatTick(v, step), x0 - 4, y);
+        }
+        drawValueLabel(g, 10, (y0 + y1) / 2, -90);
+
+        if (kind == Kind.LINE) {
+            int n = Math.min(times.length, points.length);
+            if (n == 0) return;
+            // x = simulation time from the first to the last point
+            double t0 = times[0], span = times[n - 1] - t0;
+            double dx = span > 0 ? (x1 - x0) / span : 0;
+            g.setStroke(color);
+            g.setLineWidth(2);
+            g.beginPath();
+            for (int i = 0; i < n; i++) {
+                double x = x0 + (times[i] - t0) * dx;
+                double y = y1 - points[i] / top * plotH;
+                if (i == 0) g.moveTo(x, y);
+                else g.lineTo(x, y);
+            }
+            g.stroke();
+            // About six time labels along the x axis
+            g.setFill(TEXT);
+            g.setTextAlign(TextAlignment.CENTER);
+            g.setTextBaseline(VPos.TOP);
+            double timeStep = niceStep(span / 6);
+            for (double t = Math.ceil(t0 / timeStep) * timeStep; span > 0 && t <= t0 + span; t += timeStep) {
+                g.fillText(formatTick(t, timeStep), x0 + (t - t0) * dx, y1 + 4);
+            }
+        } else {
+            if (barCount == 0) return;
+            double slot = (x1 - x0) / barCount;
+            double barW = Math.max(1, slot * 0.7);
+            g.setFill(color);
+            for (int i = 0; i < barCount; i++) {
+                double y = y1 - values[i] / top * plotH;
+                g.fillRect(x0 + i * slot + (slot - barW) / 2, y, barW, y1 - y);
+            }
+            // Category labels rotated like a crowded category axis
+            g.setFill(TEXT);
+            g.setTextAlign(TextAlignment.RIGHT);
+            g.setTextBaseline(VPos.CENTER);
+            for (int i = 0; i < barCount; i++) {
+                g.save();
+                g.translate(x0 + (i + 0.5) * slot, y1 + 6);
+                g.rotate(-45);
+                g.fillText(labels[i], 0, 0);
+                g.restore();
+            }
+        }
+    }
+
+    // HORIZONTAL_BAR: categories on the y axis (first on top), values on the x axis
+    private void drawHorizontalBars(GraphicsContext g, double w, double h, double step, double top) {
+        double x0 = LABEL_WIDTH, x1 = w - RIGHT, y0 = TOP, y1 = h - BOTTOM_LINE;
+        if (x1 <= x0 || y1 <= y0) return;
+        double plotW = x1 - x0;
+
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.TOP);
+        g.setLineWidth(1);
+        for (double v = 0; v <= top + step / 2; v += step) {
+            double x = Math.round(x0 + v / top * plotW) + 0.5;
+            g.setStroke(GRID);
+            g.strokeLine(x, y0, x, y1);
+            g.setFill(TEXT);
+            g.fillText(formatTick(v, step), x, y1 + 4);
+        }
+        drawValueLabel(g, (x0 + x1) / 2, h - 8, 0);
+
+        if (barCount == 0) return;
+        double slot = (y1 - y0) / barCount;
+        double barH = Math.max(1, slot * 0.7);
+        g.setFill(color);
+        for (int i = 0; i < barCount; i++) {
+            g.fillRect(x0, y0 + i * slot + (slot - barH) / 2, values[i] / top * plotW, barH);
+        }
+        g.setFill(TEXT);
+        g.setTextAlign(TextAlignment.RIGHT);
+        g.setTextBaseline(VPos.CENTER);
+        for (int i = 0; i < barCount; i++) {
+            g.fillText(labels[i], x0 - 4, y0 + (i + 0.5) * slot, LABEL_WIDTH - 8);
+        }
+    }
+
+    private void drawValueLabel(GraphicsContext g, double x, double y, double angle) {
+        g.save();
+        g.setFill(TEXT);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.CENTER);
+        g.translate(x, y);
+        g.rotate(angle);
+        g.fillText(valueLabel, 0, 0);
+        g.restore();
+    }
+
+    // 1, 2 or 5 times a power of ten, at least the raw step
+    static double niceStep(double raw) {
+        if (!(raw > 0)) return 1;
+        double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+        double r = raw / magnitude;
+        return (r <= 1 ? 1 : r <= 2 ? 2 : r <= 5 ? 5 : 10) * magnitude;
+    }
+
+    private static String formatTick(double v, double step) {
+        return step >= 1 ? Long.toString(Math.round(v)) : String.format("%.2f", v);
+    }
+}
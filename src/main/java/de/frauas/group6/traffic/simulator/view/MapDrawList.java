@@ -0,0 +1,168 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.StrokeLineCap;
+
+/**
+ * Pre-transformed draw list of one 2D map frame, built by MapDrawListBuilder on its worker and
+ * replayed by MapView on the FX thread.
+ * Geometry is grouped into layers by paint style; each layer holds screen coordinates in
+ * primitive arrays (polylines / polygons and circles) and is replayed as a single path with one
+ * fill or stroke. Layers before the overlay mark lie under the road tiles (vector roads while
+ * tiles are missing), the rest above them. Buffers are reused when the list is rebuilt.
+ */
+final class MapDrawList {
+
+    /**
+     * Geometry of one paint style.
+     */
+    static final class Layer {
+        Color color;
+        boolean fill;
+        double lineWidth;
+        // Dash length (0 = solid)
+        double dash;
+        // Polylines are closed (polygons)
+        boolean closed;
+
+        // Points {x0, y0, x1, y1, ...}; polyline p spans points polyStart[p] .. polyStart[p + 1]
+        private double[] xy = new double[256];
+        private int pointCount = 0;
+        private int[] polyStart = new int[32];
+        private int polyCount = 0;
+        // Circles {cx, cy, r, ...}
+        private double[] circles = new double[48];
+        private int circleCount = 0;
+
+        void moveTo(double x, double y) {
+            if (polyCount == polyStart.length) polyStart = Arrays.copyOf(polyStart, polyCount * 2);
+            polyStart[polyCount++] = pointCount;
+            lineTo(x, y);
+        }
+
+        void lineTo(double x, double y) {
+            if (2 * pointCount + 2 > xy.length) xy = Arrays.copyOf(xy, xy.length * 2);
+            xy[2 * pointCount] = x;
+            xy[2 * pointCount + 1] = y;
+            pointCount++;
+        }
+
+        void circle(double cx, double cy, double r) {
+            if (3 * circleCount + 3 > circles.length) circles = Arrays.copyOf(circles, circles.length * 2);
+            circles[3 * circleCount] = cx;
+            circles[3 * circleCount + 1] = cy;
+            circles[3 * circleCount + 2] = r;
+            circleCount++;
+        }
+
+        boolean isEmpty() {
+            return polyCount == 0 && circleCount == 0;
+        }
+
+        private void reset(Color color, boolean fill, double lineWidth, double dash, boolean closed) {
+            this.color = color;
+            this.fill = fill;
+            this.lineWidth = lineWidth;
+            this.dash = dash;
+            this.closed = closed;
+            pointCount = 0;
+            polyCount = 0;
+            circleCount = 0;
+        }
+
+        private void replay(GraphicsContext gc) {
+            if (isEmpty()) return;
+            gc.beginPath();
+            for (int p = 0; p < polyCount; p++) {
+                int start = polyStart[p];
+                int end = p + 1 < polyCount ? polyStart[p + 1] : pointCount;
+                gc.moveTo(xy[2 * start], xy[2 * start + 1]);
+                for (int i = start + 1; i < end; i++) gc.lineTo(xy[2 * i], xy[2 * i + 1]);
+                if (closed) gc.closePath();
+            }
+            for (int c = 0; c < circleCount; c++) {
+                double cx = circles[3 * c], cy = circles[3 * c + 1], r = circles[3 * c + 2];
+                gc.moveTo(cx + r, cy);
+                gc.arc(cx, cy, r, r, 0, 360);
+                gc.closePath();
+            }
+            if (fill) {
+                gc.setFill(color);
+                gc.fill();
+            } else {
+                gc.setStroke(color);
+                gc.setLineWidth(lineWidth);
+                if (dash > 0) gc.setLineDashes(dash);
+                else gc.setLineDashes(null);
+                gc.stroke();
+            }
+        }
+    }
+
+    // View transform the coordinates were computed for
+    double scale, offsetX, offsetY;
+
+    private final List<Layer> layers = new ArrayList<>();
+    private int layerCount = 0;
+    private int overlayStart = 0;
+
+    void clear(double scale, double offsetX, double offsetY) {
+        this.scale = scale;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        layerCount = 0;
+        overlayStart = 0;
+    }
+
+    Layer fill(Color color, boolean closed) {
+        return next(color, true, 0, 0, closed);
+    }
+
+    Layer stroke(Color color, double lineWidth, double dash) {
+        return next(color, false, lineWidth, dash, false);
+    }
+
+    // Layers added from now on are drawn above the road tiles
+    void beginOverlay() {
+        overlayStart = layerCount;
+    }
+
+    private Layer next(Color color, boolean fill, double lineWidth, double dash, boolean closed) {
+        if (layerCount == layers.size()) layers.add(new Layer());
+        Layer layer = layers.get(layerCount++);
+        layer.reset(color, fill, lineWidth, dash, closed);
+        return layer;
+    }
+
+    /**
+     * Replays the layers under the road tiles (FX thread).
+     */
+    void replayBase(GraphicsContext gc, double scale, double offsetX, double offsetY) {
+        replay(gc, 0, overlayStart, scale, offsetX, offsetY);
+    }
+
+    /**
+     * Replays the layers above the road tiles (FX thread).
+     */
+    void replayOverlay(GraphicsContext gc, double scale, double offsetX, double offsetY) {
+        replay(gc, overlayStart, layerCount, scale, offsetX, offsetY);
+    }
+
+    // The list may be a frame behind the view: a pan or zoom since then is applied as a transform
+    private void replay(GraphicsContext gc, int from, int to, double viewScale, double viewOffsetX, double viewOffsetY) {
+        if (from >= to) return;
+        double k = viewScale / scale;
+        gc.save();
+        gc.translate(viewOffsetX, viewOffsetY);
+        gc.scale(k, k);
+        gc.translate(-offsetX, -offsetY);
+        gc.setLineCap(StrokeLineCap.ROUND);
+        for (int i = from; i < to; i++) layers.get(i).replay(gc);
+        gc.restore();
+    }
+}
@@ -0,0 +1,351 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Builds the 2D map draw lists on a worker thread.
+ * Per rendered frame the FX thread copies what it needs into a FrameInput (view transform,
+ * interpolated vehicles, signal states, heatmap levels) and submits it; the worker does the
+ * coordinate transforms, color mapping, culling and polyline building into a MapDrawList, and
+ * the FX thread replays the newest finished list. The map therefore shows the list of the
+ * previous frame (pans and zooms since then are corrected by the replay transform).
+ * Inputs submitted while the worker is busy replace each other; inputs and lists are recycled.
+ */
+final class MapDrawListBuilder {
+
+    private static final Logger LOGGER = Logger.getLogger(MapDrawListBuilder.class.getName());
+
+    // Below this scale a vehicle is smaller than ~4 px: vehicles become density dots, signal heads plain dots
+    static final double DETAIL_SCALE = 0.45;
+    // Density dot cell size in pixels, dot opacity steps
+    private static final double DOT_CELL = 8;
+    private static final int DOT_ALPHAS = 8;
+
+    // Paint styles
+    private static final Color ROAD_BORDER = Color.web("#444444");
+    private static final Color ASPHALT = Color.web("#333333");
+    private static final Color MARKING = Color.web("#888888");
+    private static final Color[] VEHICLE_COLORS = {Color.WHITE, Color.web("#ff4444"), Color.web("#44ff44"), Color.web("#ffff44")};
+    // Bulbs {red, yellow, green} lit and off, the shine of a lit bulb
+    private static final Color[] BULB_ON = {Color.RED, Color.YELLOW, Color.LIME};
+    private static final Color[] BULB_OFF = {Color.web("#330000"), Color.web("#333300"), Color.web("#003300")};
+    private static final Color SHINE = Color.WHITE.deriveColor(0, 1, 1, 0.5);
+    private static final Color[] HEAT_COLORS = new Color[HeatmapModel.LEVELS];
+    private static final Color[] DOT_COLORS = new Color[DOT_ALPHAS];
+    static {
+        for (int l = 0; l < HeatmapModel.LEVELS; l++) HEAT_COLORS[l] = HeatmapModel.color(l).deriveColor(0, 1, 1, 0.8);
+        for (int a = 0; a < DOT_ALPHAS; a++) DOT_COLORS[a] = Color.web("#ffcc44", 0.4 + 0.6 * a / (DOT_ALPHAS - 1));
+    }
+
+    /**
+     * Everything the worker needs for one frame, copied on the FX thread.
+     */
+    static final class FrameInput {
+        double scale, offsetX, offsetY, width, height;
+        // Road tiles of the view still missing: draw the roads as vectors under them
+        boolean drawRoads;
+        MapNetwork network;
+        // Heatmap levels of the active metric (null: overlay off) and network edge -> level index
+        HeatmapModel.Levels heat;
+        int[] heatIndex;
+        // Signal heads (immutable geometry) with their states of this frame
+        List<SignalHeadModel.SignalHead> heads = List.of();
+        char[] headStates = new char[0];
+        int headCount;
+        // Visible vehicles of the interpolated frame
+        int vehicleCount;
+        double[] xs = new double[64];
+        double[] ys = new double[64];
+        double[] angles = new double[64];
+        String[] colors = new String[64];
+
+        void setHeads(List<SignalHeadModel.SignalHead> heads) {
+            this.heads = heads;
+            headCount = heads.size();
+            if (headStates.length < headCount) headStates = new char[headCount];
+            for (int i = 0; i < headCount; i++) headStates[i] = heads.get(i).state;
+        }
+
+        void setVehicles(MotionInterpolator motion) {
+            vehicleCount = 0;
+            if (motion == null) return;
+            if (xs.length < motion.size()) {
+                int n = Math.max(motion.size(), xs.length * 2);
+                xs = new double[n];
+                ys = new double[n];
+                angles = new double[n];
+                colors = new String[n];
+            }
+            for (int i = 0; i < motion.size(); i++) {
+                if (!motion.vehicle(i).isIsVisible()) continue;
+                int k = vehicleCount++;
+                xs[k] = motion.x(i);
+                ys[k] = motion.y(i);
+                angles[k] = motion.angle(i);
+                colors[k] = motion.vehicle(i).getColor();
+            }
+            Arrays.fill(colors, vehicleCount, colors.length, null);
+        }
+
+        private double tx(double x) { return x * scale + offsetX; }
+        private double ty(double y) { return offsetY - y * scale; }
+
+        private boolean onScreen(double x, double y, double margin) {
+            return x >= -margin && x <= width + margin && y >= -margin && y <= height + margin;
+        }
+    }
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Map-DrawList");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final AtomicReference<FrameInput> pending = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<FrameInput> spareInputs = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<MapDrawList> ready = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<MapDrawList> spareLists = new ConcurrentLinkedQueue<>();
+    // FX thread: list currently replayed
+    private MapDrawList shown;
+
+    /**
+     * @return a recycled input to fill (FX thread)
+     */
+    FrameInput obtainInput() {
+        FrameInput input = spareInputs.poll();
+        return input != null ? input : new FrameInput();
+    }
+
+    /**
+     * Hands a filled input to the worker; an input it has not started yet is replaced.
+     */
+    void submit(FrameInput input) {
+        FrameInput replaced = pending.getAndSet(input);
+        if (replaced != null) spareInputs.offer(replaced);
+        if (scheduled.compareAndSet(false, true)) worker.execute(this::drain);
+    }
+
+    /**
+     * @return the newest finished list, null before the first one (FX thread)
+     */
+    MapDrawList latest() {
+        MapDrawList next = ready.getAndSet(null);
+        if (next != null) {
+            if (shown != null) spareLists.offer(shown);
+            shown = next;
+        }
+        return shown;
+    }
+
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // ==========================================
+    // LIST BUILDING (worker thread)
+    // ==========================================
+
+    private void drain() {
+        scheduled.set(false);
+        FrameInput input = pending.getAndSet(null);
+        if (input == null) return;
+        try {
+            MapDrawList list = spareLists.poll();
+            if (list == null) list = new MapDrawList();
+            build(input, list);
+            MapDrawList unused = ready.getAndSet(list);
+            if (unused != null) spareLists.offer(unused);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error building the map draw list", e);
+        } finally {
+            spareInputs.offer(input);
+        }
+    }
+
+    private void build(FrameInput in, MapDrawList list) {
+        list.clear(in.scale, in.offsetX, in.offsetY);
+        // Visible world rectangle, widened by half a road border
+        double minX = -in.offsetX / in.scale - 4, maxX = (in.width - in.offsetX) / in.scale + 4;
+        double minY = (in.offsetY - in.height) / in.scale - 4, maxY = in.offsetY / in.scale + 4;
+        int[] edges = in.network != null ? in.network.edgesIn(minX, minY, maxX, maxY) : new int[0];
+        int level = MapTileCache.levelFor(in.scale);
+
+        if (in.drawRoads && in.network != null) buildRoads(in, list, edges, level, minX, minY, maxX, maxY);
+        list.beginOverlay();
+        if (in.heat != null && in.network != null) buildHeatmap(in, list, edges, level);
+        buildSignals(in, list);
+        if (in.scale < DETAIL_SCALE) buildVehicleDensity(in, list);
+        else buildVehicles(in, list);
+    }
+
+    // Road borders, asphalt, junctions and dashed center markings, polylines simplified for the zoom level
+    private void buildRoads(FrameInput in, MapDrawList list, int[] edges, int level, double minX, double minY, double maxX, double maxY) {
+        MapDrawList.Layer border = list.stroke(ROAD_BORDER, 7 * in.scale, 0);
+        MapDrawList.Layer asphalt = list.stroke(ASPHALT, 5 * in.scale, 0);
+        for (int i : edges) {
+            double[] points = in.network.simplifiedEdge(i, level);
+            addPolyline(in, border, points);
+            addPolyline(in, asphalt, points);
+        }
+        MapDrawList.Layer junctions = list.fill(ASPHALT, true);
+        for (int i : in.network.junctionsIn(minX, minY, maxX, maxY)) {
+            addPolyline(in, junctions, in.network.junctionShape(i));
+        }
+        MapDrawList.Layer markings = list.stroke(MARKING, 0.5 * in.scale, 3 * in.scale);
+        for (int i : edges) addPolyline(in, markings, in.network.simplifiedEdge(i, level));
+    }
+
+    // Visible edges colored by their heatmap level, one layer per level
+    private void buildHeatmap(FrameInput in, MapDrawList list, int[] edges, int level) {
+        MapDrawList.Layer[] byLevel = new MapDrawList.Layer[HeatmapModel.LEVELS];
+        for (int l = 0; l < byLevel.length; l++) byLevel[l] = list.stroke(HEAT_COLORS[l], 5 * in.scale, 0);
+        byte[] levels = in.heat.levels;
+        for (int i : edges) {
+            int index = i < in.heatIndex.length ? in.heatIndex[i] : -1;
+            if (index < 0 || index >= levels.length || levels[index] == HeatmapModel.NO_DATA) continue;
+            addPolyline(in, byLevel[levels[index]], in.network.simplifiedEdge(i, level));
+        }
+    }
+
+    /**
+     * Signal heads at their stop lines: a box with three bulbs turned to the road,
+     * zoomed out a single dot in the signal color.
+     */
+    private void buildSignals(FrameInput in, MapDrawList list) {
+        double scale = in.scale;
+        if (scale < DETAIL_SCALE) {
+            MapDrawList.Layer[] dots = {list.fill(BULB_ON[0], true), list.fill(BULB_ON[1], true), list.fill(BULB_ON[2], true)};
+            for (int h = 0; h < in.headCount; h++) {
+                SignalHeadModel.SignalHead head = in.heads.get(h);
+                int bulb = bulbOf(in.headStates[h]);
+                double x = in.tx(head.stopX), y = in.ty(head.stopY);
+                if (bulb < 0 || !in.onScreen(x, y, 16 * scale)) continue;
+                dots[bulb].circle(x, y, 1.5);
+            }
+            return;
+        }
+
+        MapDrawList.Layer boxes = list.fill(Color.BLACK, true);
+        MapDrawList.Layer frames = list.stroke(Color.DARKGRAY, 0.5, 0);
+        frames.closed = true;
+        MapDrawList.Layer[] on = new MapDrawList.Layer[3];
+        MapDrawList.Layer[] off = new MapDrawList.Layer[3];
+        for (int b = 0; b < 3; b++) {
+            on[b] = list.fill(BULB_ON[b], true);
+            off[b] = list.fill(BULB_OFF[b], true);
+        }
+        MapDrawList.Layer shine = list.fill(SHINE, true);
+
+        // Local box layout: right of the stop line (local y+), in pixels
+        double boxW = 4 * scale, boxH = 10 * scale, roadOffset = 6 * scale;
+        double r = 1.2 * scale, gap = 3 * scale, lightYStart = roadOffset + 2 * scale;
+        for (int h = 0; h < in.headCount; h++) {
+            SignalHeadModel.SignalHead head = in.heads.get(h);
+            double x = in.tx(head.stopX), y = in.ty(head.stopY);
+            // Skip lights off screen (the box reaches ~16 m from the stop line)
+            if (!in.onScreen(x, y, 16 * scale)) continue;
+            // Turned to face the road (screen y points down)
+            double a = Math.toRadians(-head.angleDeg), cos = Math.cos(a), sin = Math.sin(a);
+            double[] corners = {0, roadOffset, boxW, roadOffset, boxW, roadOffset + boxH, 0, roadOffset + boxH};
+            for (int c = 0; c < 4; c++) {
+                double px = x + corners[2 * c] * cos - corners[2 * c + 1] * sin;
+                double py = y + corners[2 * c] * sin + corners[2 * c + 1] * cos;
+                if (c == 0) {
+                    boxes.moveTo(px, py);
+                    frames.moveTo(px, py);
+                } else {
+                    boxes.lineTo(px, py);
+                    frames.lineTo(px, py);
+                }
+            }
+            int lit = bulbOf(in.headStates[h]);
+            for (int b = 0; b < 3; b++) {
+                double lx = boxW / 2, ly = lightYStart + b * gap;
+                double cx = x + lx * cos - ly * sin, cy = y + lx * sin + ly * cos;
+                (b == lit ? on[b] : off[b]).circle(cx, cy, r);
+                if (b == lit) shine.circle(cx, cy, r / 2);
+            }
+        }
+    }
+
+    // Bulb of a signal char: 0 red, 1 yellow, 2 green, -1 none
+    private static int bulbOf(char state) {
+        switch (Character.toLowerCase(state)) {
+            case 'r': return 0;
+            case 'y': return 1;
+            case 'g': return 2;
+            default: return -1;
+        }
+    }
+
+    // Vehicles as rectangles turned to their heading (SUMO: 0 = north, clockwise), one layer per color
+    private void buildVehicles(FrameInput in, MapDrawList list) {
+        MapDrawList.Layer[] byColor = new MapDrawList.Layer[VEHICLE_COLORS.length];
+        for (int c = 0; c < byColor.length; c++) byColor[c] = list.fill(VEHICLE_COLORS[c], true);
+        double halfW = 2.5 * in.scale, halfL = 4.5 * in.scale, margin = 9 * in.scale;
+        for (int i = 0; i < in.vehicleCount; i++) {
+            double x = in.tx(in.xs[i]), y = in.ty(in.ys[i]);
+            if (!in.onScreen(x, y, margin)) continue;
+            MapDrawList.Layer layer = byColor[colorIndex(in.colors[i])];
+            double a = Math.toRadians(in.angles[i]), cos = Math.cos(a), sin = Math.sin(a);
+            layer.moveTo(x - halfW * cos + halfL * sin, y - halfW * sin - halfL * cos);
+            layer.lineTo(x + halfW * cos + halfL * sin, y + halfW * sin - halfL * cos);
+            layer.lineTo(x + halfW * cos - halfL * sin, y + halfW * sin + halfL * cos);
+            layer.lineTo(x - halfW * cos - halfL * sin, y - halfW * sin + halfL * cos);
+        }
+    }
+
+    private static int colorIndex(String color) {
+        if (color == null) return 0;
+        switch (color) {
+            case "Rot": case "Red": return 1;
+            case "Green": return 2;
+            case "Yellow": return 3;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Zoomed-out vehicles: counts per screen cell, drawn as one dot per cell
+     * whose size and opacity grow with the count.
+     */
+    private void buildVehicleDensity(FrameInput in, MapDrawList list) {
+        Map<Long, int[]> cells = new HashMap<>();
+        int max = 0;
+        for (int i = 0; i < in.vehicleCount; i++) {
+            double x = in.tx(in.xs[i]), y = in.ty(in.ys[i]);
+            if (!in.onScreen(x, y, 0)) continue;
+            long key = ((long) (int) (x / DOT_CELL) << 32) | ((int) (y / DOT_CELL) & 0xFFFFFFFFL);
+            int[] count = cells.computeIfAbsent(key, k -> new int[1]);
+            max = Math.max(max, ++count[0]);
+        }
+        MapDrawList.Layer[] byAlpha = new MapDrawList.Layer[DOT_ALPHAS];
+        for (int a = 0; a < DOT_ALPHAS; a++) byAlpha[a] = list.fill(DOT_COLORS[a], true);
+        for (Map.Entry<Long, int[]> cell : cells.entrySet()) {
+            double cx = ((int) (cell.getKey() >> 32) + 0.5) * DOT_CELL;
+            double cy = ((int) (long) cell.getKey() + 0.5) * DOT_CELL;
+            double share = cell.getValue()[0] / (double) max;
+            double r = 1.5 + 2.5 * Math.sqrt(share);
+            byAlpha[(int) Math.round(share * (DOT_ALPHAS - 1))].circle(cx, cy, r);
+        }
+    }
+
+    // Flat {x0, y0, x1, y1, ...} polyline in simulation coordinates
+    private static void addPolyline(FrameInput in, MapDrawList.Layer layer, double[] points) {
+        if (points == null || points.length < 4) return;
+        layer.moveTo(in.tx(points[0]), in.ty(points[1]));
+        for (int i = 2; i < points.length; i += 2) layer.lineTo(in.tx(points[i]), in.ty(points[i + 1]));
+    }
+}
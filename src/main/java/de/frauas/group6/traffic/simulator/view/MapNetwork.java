@@ -0,0 +1,259 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Static road network of the map views: edge and junction shapes fetched once from the engine,
+ * a uniform grid over their bounding boxes for viewport queries, and Douglas-Peucker
+ * simplified edge polylines per zoom level (see MapTileCache.levelFor).
+ * Immutable apart from the lazily filled simplification cache, safe to share with the tile thread.
+ */
+final class MapNetwork {
+
+    // Simplification tolerance in screen pixels
+    private static final double TOLERANCE_PX = 0.5;
+
+    private final Map<String, Integer> edgeIndex = new HashMap<>();
+    private final List<String> edgeIds = new ArrayList<>();
+    private final List<double[]> edges = new ArrayList<>();
+    private final List<double[]> junctions = new ArrayList<>();
+    private final Grid edgeGrid;
+    private final Grid junctionGrid;
+    private final Map<Integer, AtomicReferenceArray<double[]>> simplified = new ConcurrentHashMap<>();
+
+    MapNetwork(List<String> edgeIds, List<List<Point2D>> edgeShapes, List<List<Point2D>> junctionShapes) {
+        List<double[]> edgeBounds = new ArrayList<>();
+        for (int i = 0; i < edgeShapes.size(); i++) {
+            List<Point2D> shape = edgeShapes.get(i);
+            if (shape == null || shape.size() < 2) continue;
+            edgeIndex.put(edgeIds.get(i), edges.size());
+            this.edgeIds.add(edgeIds.get(i));
+            edges.add(flatten(shape));
+            edgeBounds.add(bounds(shape));
+        }
+        List<double[]> junctionBounds = new ArrayList<>();
+        for (List<Point2D> shape : junctionShapes) {
+            if (shape == null || shape.size() < 3) continue;
+            junctions.add(flatten(shape));
+            junctionBounds.add(bounds(shape));
+        }
+        edgeGrid = new Grid(edgeBounds);
+        junctionGrid = new Grid(junctionBounds);
+    }
+
+    /**
+     * Fetches all edge and junction shapes from the engine (once, at network load).
+     * @return the network, or null if the engine has no network loaded yet
+     */
+    static MapNetwork load(ISimulationEngine engine) {
+        List<String> edgeIds = engine != null ? engine.getEdgeIdList() : null;
+        if (edgeIds == null || edgeIds.isEmpty()) return null;
+        List<List<Point2D>> edgeShapes = new ArrayList<>();
+        for (String edgeId : edgeIds) edgeShapes.add(engine.getEdgeShape(edgeId));
+        List<List<Point2D>> junctionShapes = new ArrayList<>();
+        List<String> junctionIds = engine.getJunctionIdList();
+        if (junctionIds != null) {
+            for (String jId : junctionIds) junctionShapes.add(engine.getJunctionShape(jId));
+        }
+        return new MapNetwork(edgeIds, edgeShapes, junctionShapes);
+    }
+
+    int edgeCount() {
+        return edges.size();
+    }
+
+    String edgeId(int i) {
+        return edgeIds.get(i);
+    }
+
+    // Flat {x0, y0, x1, y1, ...} shape of the edge, null if unknown
+    double[] edgeShape(String edgeId) {
+        Integer i = edgeIndex.get(edgeId);
+        return i != null ? edges.get(i) : null;
+    }
+
+    double[] junctionShape(int i) {
+        return junctions.get(i);
+    }
+
+    // Indices (ascending, i.e. in network order) of the edges / junctions whose bounds intersect the rectangle
+    int[] edgesIn(double minX, double minY, double maxX, double maxY) {
+        return edgeGrid.query(minX, minY, maxX, maxY);
+    }
+
+    int[] junctionsIn(double minX, double minY, double maxX, double maxY) {
+        return junctionGrid.query(minX, minY, maxX, maxY);
+    }
+
+    // Edge polyline simplified to half a pixel at the zoom level
+    double[] simplifiedEdge(int i, int level) {
+        AtomicReferenceArray<double[]> cache = simplified.computeIfAbsent(level, l -> new AtomicReferenceArray<>(edges.size()));
+        double[] shape = cache.get(i);
+        if (shape == null) {
+            shape = simplify(edges.get(i), TOLERANCE_PX / MapTileCache.levelScale(level));
+            cache.set(i, shape);
+        }
+        return shape;
+    }
+
+    // ==========================================
+    // GEOMETRY
+    // ==========================================
+
+    // Douglas-Peucker on a flat polyline
+    static double[] simplify(double[] points, double tolerance) {
+        int n = points.length / 2;
+        if (n <= 2) return points;
+        boolean[] keep = new boolean[n];
+        keep[0] = keep[n - 1] = true;
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        double tol2 = tolerance * tolerance;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double maxDist = -1;
+            int index = -1;
+            for (int i = first + 1; i < last; i++) {
+                double d = segmentDistanceSq(points, i, first, last);
+                if (d > maxDist) {
+                    maxDist = d;
+                    index = i;
+                }
+            }
+            if (index >= 0 && maxDist > tol2) {
+                keep[index] = true;
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+        if (kept == n) return points;
+        double[] out = new double[kept * 2];
+        for (int i = 0, j = 0; i < n; i++) {
+            if (!keep[i]) continue;
+            out[j++] = points[2 * i];
+            out[j++] = points[2 * i + 1];
+        }
+        return out;
+    }
+
+    private static double segmentDistanceSq(double[] p, int i, int a, int b) {
+        double ax = p[2 * a], ay = p[2 * a + 1];
+        double dx = p[2 * b] - ax, dy = p[2 * b + 1] - ay;
+        double px = p[2 * i] - ax, py = p[2 * i + 1] - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 > 0 ? Math.max(0, Math.min(1, (px * dx + py * dy) / len2)) : 0;
+        double ex = px - t * dx, ey = py - t * dy;
+        return ex * ex + ey * ey;
+    }
+
+    private static double[] flatten(List<Point2D> shape) {
+        double[] flat = new double[shape.size() * 2];
+        for (int i = 0; i < shape.size(); i++) {
+            flat[2 * i] = shape.get(i).getX();
+            flat[2 * i + 1] = shape.get(i).getY();
+        }
+        return flat;
+    }
+
+    private static double[] bounds(List<Point2D> shape) {
+        double[] b = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (Point2D p : shape) {
+            b[0] = Math.min(b[0], p.getX());
+            b[1] = Math.min(b[1], p.getY());
+            b[2] = Math.max(b[2], p.getX());
+            b[3] = Math.max(b[3], p.getY());
+        }
+        return b;
+    }
+
+    /**
+     * Uniform grid over bounding boxes, about one item per cell.
+     * Each item is registered in every cell its box overlaps.
+     */
+    private static final class Grid {
+        private final double[][] bounds;
+        private final double minX, minY, cellSize;
+        private final int cols, rows;
+        private final int[][] cells;
+
+        Grid(List<double[]> items) {
+            bounds = items.toArray(new double[0][]);
+            double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+            for (double[] b : bounds) {
+                x0 = Math.min(x0, b[0]);
+                y0 = Math.min(y0, b[1]);
+                x1 = Math.max(x1, b[2]);
+                y1 = Math.max(y1, b[3]);
+            }
+            if (bounds.length == 0) {
+                x0 = y0 = 0;
+                x1 = y1 = 1;
+            }
+            minX = x0;
+            minY = y0;
+            double extent = Math.max(Math.max(x1 - x0, y1 - y0), 1.0);
+            int perAxis = Math.max(1, (int) Math.ceil(Math.sqrt(bounds.length)));
+            cellSize = extent / perAxis;
+            cols = (int) ((x1 - x0) / cellSize) + 1;
+            rows = (int) ((y1 - y0) / cellSize) + 1;
+
+            int[] sizes = new int[cols * rows];
+            for (double[] b : bounds) forCells(b[0], b[1], b[2], b[3], c -> sizes[c]++);
+            cells = new int[cols * rows][];
+            for (int c = 0; c < cells.length; c++) cells[c] = new int[sizes[c]];
+            int[] fill = new int[cols * rows];
+            for (int i = 0; i < bounds.length; i++) {
+                int item = i;
+                double[] b = bounds[i];
+                forCells(b[0], b[1], b[2], b[3], c -> cells[c][fill[c]++] = item);
+            }
+        }
+
+        int[] query(double qMinX, double qMinY, double qMaxX, double qMaxY) {
+            int[][] found = {new int[16]};
+            int[] n = {0};
+            forCells(qMinX, qMinY, qMaxX, qMaxY, c -> {
+                for (int item : cells[c]) {
+                    double[] b = bounds[item];
+                    if (b[0] > qMaxX || b[2] < qMinX || b[1] > qMaxY || b[3] < qMinY) continue;
+                    if (n[0] == found[0].length) found[0] = Arrays.copyOf(found[0], n[0] * 2);
+                    found[0][n[0]++] = item;
+                }
+            });
+            // Items spanning several cells are found once per cell
+            int[] items = Arrays.copyOf(found[0], n[0]);
+            Arrays.sort(items);
+            int unique = 0;
+            for (int i = 0; i < items.length; i++) {
+                if (i == 0 || items[i] != items[i - 1]) items[unique++] = items[i];
+            }
+            return Arrays.copyOf(items, unique);
+        }
+
+        private void forCells(double x0, double y0, double x1, double y1, IntConsumer action) {
+            int c0 = Math.max(0, (int) Math.floor((x0 - minX) / cellSize));
+            int r0 = Math.max(0, (int) Math.floor((y0 - minY) / cellSize));
+            int c1 = Math.min(cols - 1, (int) Math.floor((x1 - minX) / cellSize));
+            int r1 = Math.min(rows - 1, (int) Math.floor((y1 - minY) / cellSize));
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) action.accept(r * cols + c);
+            }
+        }
+    }
+}
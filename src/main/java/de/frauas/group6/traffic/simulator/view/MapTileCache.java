@@ -0,0 +1,259 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache of the static map layers (road borders, asphalt, junctions, lane markings) as raster tiles
+ * per zoom level, for MapView.
+ * Zoom levels are a ladder of factors of sqrt(2); a view uses the level closest to its scale and
+ * stretches the tiles slightly. Panning only blits cached tiles. Missing tiles are rasterized on a
+ * background thread (AWT, off the FX thread); until they arrive the last complete level is drawn
+ * underneath, so zooming never shows an empty map.
+ * All methods except the tile rendering run on the FX thread.
+ */
+final class MapTileCache {
+
+    private static final Logger LOGGER = Logger.getLogger(MapTileCache.class.getName());
+
+    static final int TILE_SIZE = 256;
+    // 256 x 256 x 4 bytes = 256 KB per tile
+    private static final int MAX_TILES = 192;
+    // Half the widest stroke (road border, 7 m) plus a little: edges closer than this to a tile are drawn into it
+    private static final double MARGIN = 4.0;
+
+    private static final Color BACKGROUND = new Color(0x22, 0x22, 0x22);
+    private static final Color BORDER = new Color(0x44, 0x44, 0x44);
+    private static final Color ASPHALT = new Color(0x33, 0x33, 0x33);
+    private static final Color MARKING = new Color(0x88, 0x88, 0x88);
+
+    private final Runnable repaint;
+    private final ExecutorService renderer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Map-Tiles");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Static geometry, immutable once set (shared with the render thread)
+    private volatile MapNetwork network;
+
+    // FX thread only
+    private final Map<Long, WritableImage> tiles = new LinkedHashMap<>(256, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, WritableImage> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
+    private final Set<Long> pending = new HashSet<>();
+    private int lastCompleteLevel = Integer.MIN_VALUE;
+    private boolean repaintScheduled = false;
+    // Level the view currently needs; queued tiles of other levels are skipped
+    private volatile int wantedLevel = Integer.MIN_VALUE;
+
+    /**
+     * @param repaint called on the FX thread when new tiles are ready
+     */
+    MapTileCache(Runnable repaint) {
+        this.repaint = repaint;
+    }
+
+    // Drops all cached tiles
+    void setNetwork(MapNetwork network) {
+        this.network = network;
+        tiles.clear();
+        pending.clear();
+        lastCompleteLevel = Integer.MIN_VALUE;
+    }
+
+    void shutdown() {
+        renderer.shutdownNow();
+    }
+
+    // ==========================================
+    // DRAWING (FX thread)
+    // ==========================================
+
+    // True if the static layers of the view can be drawn from cached tiles (target or fallback level)
+    boolean covers(double scale, double offsetX, double offsetY, double width, double height) {
+        if (network == null) return false;
+        int level = levelFor(scale);
+        return isComplete(level, scale, offsetX, offsetY, width, height)
+            || (lastCompleteLevel != Integer.MIN_VALUE && isComplete(lastCompleteLevel, scale, offsetX, offsetY, width, height));
+    }
+
+    /**
+     * Draws the cached tiles of the view: the last complete level underneath, then the tiles of
+     * the level closest to the scale. Missing tiles of that level are queued for rendering.
+     */
+    void draw(GraphicsContext gc, double scale, double offsetX, double offsetY, double width, double height) {
+        if (network == null) return;
+        int level = levelFor(scale);
+        wantedLevel = level;
+        if (lastCompleteLevel != Integer.MIN_VALUE && lastCompleteLevel != level) {
+            drawLevel(gc, lastCompleteLevel, scale, offsetX, offsetY, width, height, false);
+        }
+        if (drawLevel(gc, level, scale, offsetX, offsetY, width, height, true)) lastCompleteLevel = level;
+    }
+
+    // Returns true if every visible tile of the level was cached
+    private boolean drawLevel(GraphicsContext gc, int level, double scale, double offsetX, double offsetY, double width, double height, boolean request) {
+        double k = scale / levelScale(level);
+        double size = TILE_SIZE * k;
+        int[] range = tileRange(k, offsetX, offsetY, width, height);
+        boolean complete = true;
+        for (int ty = range[1]; ty <= range[3]; ty++) {
+            for (int tx = range[0]; tx <= range[2]; tx++) {
+                long key = key(level, tx, ty);
+                WritableImage tile = tiles.get(key);
+                if (tile != null) {
+                    // Half a pixel of overlap hides seams when the tiles are stretched
+                    gc.drawImage(tile, offsetX + tx * size, offsetY + ty * size, size + 0.5, size + 0.5);
+                } else {
+                    complete = false;
+                    if (request) requestTile(level, tx, ty, key);
+                }
+            }
+        }
+        return complete;
+    }
+
+    private boolean isComplete(int level, double scale, double offsetX, double offsetY, double width, double height) {
+        int[] range = tileRange(scale / levelScale(level), offsetX, offsetY, width, height);
+        for (int ty = range[1]; ty <= range[3]; ty++) {
+            for (int tx = range[0]; tx <= range[2]; tx++) {
+                if (!tiles.containsKey(key(level, tx, ty))) return false;
+            }
+        }
+        return true;
+    }
+
+    // {minTx, minTy, maxTx, maxTy} of the tiles visible in the view
+    private static int[] tileRange(double k, double offsetX, double offsetY, double width, double height) {
+        double size = TILE_SIZE * k;
+        return new int[] {
+            (int) Math.floor(-offsetX / size), (int) Math.floor(-offsetY / size),
+            (int) Math.floor((width - offsetX) / size), (int) Math.floor((height - offsetY) / size)
+        };
+    }
+
+    // Level L has the scale sqrt(2)^L
+    static int levelFor(double scale) {
+        return (int) Math.round(2 * Math.log(scale) / Math.log(2));
+    }
+
+    static double levelScale(int level) {
+        return Math.pow(2, level / 2.0);
+    }
+
+    private static long key(int level, int tx, int ty) {
+        return ((long) (level & 0xFF) << 56) | ((long) (tx & 0xFFFFFFF) << 28) | (ty & 0xFFFFFFF);
+    }
+
+    // ==========================================
+    // TILE RENDERING (background thread)
+    // ==========================================
+
+    private void requestTile(int level, int tx, int ty, long key) {
+        if (!pending.add(key)) return;
+        MapNetwork net = network;
+        renderer.execute(() -> {
+            WritableImage image = null;
+            try {
+                // The view moved on to another zoom level meanwhile: skip
+                if (wantedLevel == level && net == network) image = renderTile(net, level, tx, ty);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Map tile rendering failed", e);
+            }
+            WritableImage result = image;
+            Platform.runLater(() -> tileDone(key, net, result));
+        });
+    }
+
+    private void tileDone(long key, MapNetwork net, WritableImage image) {
+        pending.remove(key);
+        if (image == null || net != network) return;
+        tiles.put(key, image);
+        // Many tiles arrive at once: one repaint for all of them
+        if (!repaintScheduled) {
+            repaintScheduled = true;
+            Platform.runLater(() -> {
+                repaintScheduled = false;
+                repaint.run();
+            });
+        }
+    }
+
+    // Same layers and styles as MapView.drawInfrastructure, in simulation units
+    private static WritableImage renderTile(MapNetwork net, int level, int tx, int ty) {
+        double s = levelScale(level);
+        // World rectangle of the tile (y is flipped: level pixel y = -world y * s)
+        double minX = tx * TILE_SIZE / s - MARGIN;
+        double maxX = (tx + 1) * TILE_SIZE / s + MARGIN;
+        double minY = -(ty + 1) * TILE_SIZE / s - MARGIN;
+        double maxY = -ty * TILE_SIZE / s + MARGIN;
+
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            g.translate(-tx * TILE_SIZE, -ty * TILE_SIZE);
+            g.scale(s, -s);
+
+            // Only the edges and junctions near the tile, simplified for the level
+            int[] edgeIds = net.edgesIn(minX, minY, maxX, maxY);
+            List<Path2D> edges = new ArrayList<>(edgeIds.length);
+            for (int i : edgeIds) edges.add(path(net.simplifiedEdge(i, level), false));
+            // Road borders (sidewalks), asphalt, junctions, dashed center markings
+            g.setStroke(new BasicStroke(7f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            g.setColor(BORDER);
+            for (Path2D edge : edges) g.draw(edge);
+            g.setStroke(new BasicStroke(5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            g.setColor(ASPHALT);
+            for (Path2D edge : edges) g.draw(edge);
+            for (int i : net.junctionsIn(minX, minY, maxX, maxY)) g.fill(path(net.junctionShape(i), true));
+            g.setStroke(new BasicStroke(0.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 10f, new float[] {3f, 3f}, 0f));
+            g.setColor(MARKING);
+            for (Path2D edge : edges) g.draw(edge);
+        } finally {
+            g.dispose();
+        }
+
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        WritableImage tile = new WritableImage(TILE_SIZE, TILE_SIZE);
+        tile.getPixelWriter().setPixels(0, 0, TILE_SIZE, TILE_SIZE, PixelFormat.getIntArgbPreInstance(), pixels, 0, TILE_SIZE);
+        return tile;
+    }
+
+    private static Path2D path(double[] points, boolean closed) {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(points[0], points[1]);
+        for (int i = 2; i < points.length; i += 2) path.lineTo(points[i], points[i + 1]);
+        if (closed) path.closePath();
+        return path;
+    }
+}
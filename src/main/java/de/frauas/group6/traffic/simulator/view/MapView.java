@@ -1,17 +1,12 @@
 package de.frauas.group6.traffic.simulator.view;
 
 import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
-import de.frauas.group6.traffic.simulator.vehicles.IVehicleManager;
-import de.frauas.group6.traffic.simulator.vehicles.IVehicle; 
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import java.awt.geom.Point2D;
-import java.util.Collection;
-import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -23,7 +18,8 @@ public class MapView extends Pane {
 
     private Canvas canvas;
     private ISimulationEngine engine;
-    private IVehicleManager vehicleManager;
+    // Vehicle positions interpolated between simulation steps
+    private MotionInterpolator motion;
 
     // View parameters
     private double scale = 3.0; // Default zoom level set higher to see details
@@ -34,15 +30,37 @@ public class MapView extends Pane {
     // Callback for vehicle selection
     private Consumer<String> onVehicleSelected;
 
+    // Signal heads shared with the 3D view, states updated by GuiManager
+    private final SignalHeadModel signalHeads;
+
+    // Static layers (roads, junctions, markings) as cached raster tiles per zoom level
+    private final MapTileCache tileCache = new MapTileCache(this::render);
+    // Cached shapes with a spatial index (shared with the motion interpolator), null if no network is loaded
+    private final MapNetwork network;
+
+    // Edge heatmap overlay: network edge -> index in the heatmap levels (-1 unknown), built with the network
+    private final HeatmapModel heatmap;
+    private int[] heatIndex = new int[0];
+
+    // Vector layers (heatmap, traffic lights, vehicles, roads while tiles are missing) built off the FX thread
+    private final MapDrawListBuilder drawLists = new MapDrawListBuilder();
+
     /**
      * Constructor for MapView.
      * Initializes the canvas and sets up mouse event handlers.
      * * @param engine The simulation engine interface.
-     * @param vm The vehicle manager interface.
+     * @param network The road network shapes, loaded once by GuiManager (null if no network is loaded).
+     * @param motion The interpolated vehicle positions, advanced by GuiManager every frame.
+     * @param signalHeads The signal head model (geometry and current states).
+     * @param heatmap The edge heatmap levels, computed off the FX thread.
      */
-    public MapView(ISimulationEngine engine, IVehicleManager vm) {
+    public MapView(ISimulationEngine engine, MapNetwork network, MotionInterpolator motion, SignalHeadModel signalHeads, HeatmapModel heatmap) {
         this.engine = engine;
-        this.vehicleManager = vm;
+        this.network = network;
+        this.motion = motion;
+        this.signalHeads = signalHeads;
+        this.heatmap = heatmap;
+        if (network != null) initNetwork();
         
         this.canvas = new Canvas();
         getChildren().add(canvas);
@@ -114,6 +132,8 @@ public class MapView extends Pane {
     
     /**
      * Renders the entire scene: background, infrastructure, traffic lights, and vehicles.
+     * The vector layers come from the newest draw list of the worker (built from the previous
+     * frame's input); this frame's input is handed over for the next one.
      */
     public void render() {
         if (getWidth() <= 0 || getHeight() <= 0) return;
@@ -126,260 +146,50 @@ public class MapView extends Pane {
         gc.setFill(Color.web("#222222")); 
         gc.fillRect(0, 0, w, h);
 
-        if (engine == null) return;
-
-        // 2. Infrastructure (Roads & Junctions)
-        drawInfrastructure(gc);
-
-        // 3. Traffic Lights (Drawn above roads but below vehicles for visibility )
-        // Currently drawing them before vehicles.
-        drawDetailedTrafficLights(gc);
-
-        // 4. Vehicles
-        if (vehicleManager != null) {
-            Collection<IVehicle> vehicles = vehicleManager.getAllVehicles();
-            for (IVehicle v : vehicles) {
-            	if (v.isIsVisible()) drawVehicle(gc, v);
-            }
-        }
+        if (network == null) return;
+
+        // 2. Input of the next draw list: view, signal states, heatmap levels, interpolated vehicles
+        MapDrawListBuilder.FrameInput input = drawLists.obtainInput();
+        input.scale = scale;
+        input.offsetX = offsetX;
+        input.offsetY = offsetY;
+        input.width = w;
+        input.height = h;
+        input.network = network;
+        // Roads are drawn as vectors only while the tiles of the view are still being rendered
+        input.drawRoads = !tileCache.covers(scale, offsetX, offsetY, w, h);
+        HeatmapModel.Levels levels = heatmap.getLevels();
+        boolean heatOn = levels != null && levels.metric == heatmap.getMetric() && heatIndex.length > 0;
+        input.heat = heatOn ? levels : null;
+        input.heatIndex = heatIndex;
+        if (signalHeads.ensureLoaded()) input.setHeads(signalHeads.getHeads());
+        input.setVehicles(motion);
+        drawLists.submit(input);
+
+        // 3. Infrastructure (Roads & Junctions) blitted from the tile cache, then the overlays
+        // (heatmap, traffic lights, vehicles) above it
+        MapDrawList list = drawLists.latest();
+        if (list != null) list.replayBase(gc, scale, offsetX, offsetY);
+        tileCache.draw(gc, scale, offsetX, offsetY, w, h);
+        if (list != null) list.replayOverlay(gc, scale, offsetX, offsetY);
     }
     
     /**
-     * Draws the road network including edges and junctions.
+     * Hands the network shapes to the tile cache and maps its edges to the heatmap levels.
      */
-    private void drawInfrastructure(GraphicsContext gc) {
-        // Road style: Dark asphalt with borders
-        gc.setLineCap(javafx.scene.shape.StrokeLineCap.ROUND);
-        
-        List<String> edges = engine.getEdgeIdList();
-        
-        // Draw road borders (Sidewalks)
-        gc.setLineWidth(7 * scale);
-        gc.setStroke(Color.web("#444444"));
-        for (String edgeId : edges) {
-            drawPolyline(gc, engine.getEdgeShape(edgeId));
-        }
-
-        // Draw Asphalt
-        gc.setLineWidth(5 * scale);
-        gc.setStroke(Color.web("#333333"));
-        for (String edgeId : edges) {
-            drawPolyline(gc, engine.getEdgeShape(edgeId));
-        }
-        
-        // Draw Junctions
-        gc.setFill(Color.web("#333333"));
-        for (String jId : engine.getJunctionIdList()) {
-            List<Point2D> shape = engine.getJunctionShape(jId);
-            if (shape != null && shape.size() > 2) {
-                fillPolygon(gc, shape);
-            }
-        }
-
-        // Draw central lane markings (dashed lines)
-        gc.setStroke(Color.web("#888888"));
-        gc.setLineWidth(0.5 * scale); 
-        gc.setLineDashes(3 * scale); // Dash pattern
-        for (String edgeId : edges) {
-            drawPolyline(gc, engine.getEdgeShape(edgeId));
+    private void initNetwork() {
+        tileCache.setNetwork(network);
+        if (heatmap.ensureLoaded()) {
+            heatIndex = new int[network.edgeCount()];
+            for (int i = 0; i < heatIndex.length; i++) heatIndex[i] = heatmap.indexOf(network.edgeId(i));
         }
-        gc.setLineDashes(null); // Reset dashes
     }
-    
-    /**
-     * DRAWS "SEMAPHORE" STYLE TRAFFIC LIGHTS (Box with 3 lights)
-     * Iterates through controlled lanes to place lights correctly.
-     */
-    private void drawDetailedTrafficLights(GraphicsContext gc) {
-        List<String> tlIds = engine.getTrafficLightIdList();
-        if (tlIds == null) return;
-
-        for (String tlId : tlIds) {
-            // Get global state string (e.g., "GGrrGGrr")
-            String state = engine.getTrafficLightState(tlId);
-            // Get controlled lanes (e.g., ["E1_0", "E1_1", "E2_0"...])
-            List<String> lanes = engine.getControlledLanes(tlId);
-            
-            if (lanes == null || lanes.isEmpty()) {
-                // Fallback: Draw simple light at center if no lane details available
-                drawSimpleTrafficLight(gc, tlId);
-                continue;
-            }
-
-            // Draw a light at the end of each incoming controlled lane
-            for (int i = 0; i < lanes.size(); i++) {
-                String laneId = lanes.get(i);
-                
-                // Determine color for THIS specific lane
-                char signalChar = 'r';
-                if (state != null && i < state.length()) {
-                    signalChar = state.charAt(i);
-                } else if (state != null && state.length() > 0) {
-                    signalChar = state.charAt(0); // Fallback
-                }
-
-                // Retrieve lane/edge shape to determine position and angle
-                String edgeId = laneId; 
-                // If ID contains underscore (e.g., "E45_0"), it's a lane, get parent edge "E45"
-                if (laneId.contains("_")) {
-                    edgeId = laneId.substring(0, laneId.lastIndexOf('_'));
-                }
-                
-                List<Point2D> shape = engine.getEdgeShape(edgeId);
-                if (shape == null || shape.size() < 2) continue;
-
-                // Position: The last point of the road (the stop line)
-                Point2D pEnd = shape.get(shape.size() - 1);
-                Point2D pPrev = shape.get(shape.size() - 2);
-
-                // Calculate road angle to orient the traffic light
-                double dx = pEnd.getX() - pPrev.getX();
-                double dy = pEnd.getY() - pPrev.getY();
-                double angleRad = Math.atan2(dy, dx);
-                double angleDeg = Math.toDegrees(angleRad);
 
-                // Draw the semaphore box
-                drawSemaphore(gc, pEnd.getX(), pEnd.getY(), angleDeg, signalChar);
-            }
-        }
-    }
-    
     /**
-     * Draws a realistic-style traffic light box.
+     * Stops the tile and draw list workers.
      */
-    private void drawSemaphore(GraphicsContext gc, double simX, double simY, double angleDeg, char stateChar) {
-        gc.save();
-        
-        double x = tx(simX);
-        double y = ty(simY);
-        
-        // 1. Position at the end of the road
-        gc.translate(x, y);
-        
-        // 2. Rotate to face the road (perpendicular to road axis)
-        // Adjust rotation as JavaFX coordinates might invert Y
-        gc.rotate(-angleDeg); 
-        
-        double boxW = 4 * scale;
-        double boxH = 10 * scale;
-        
-        // Offset to place the light on the right sidewalk
-        double roadOffset = 6 * scale; 
-        
-        // Draw Black Box
-        gc.setFill(Color.BLACK);
-        gc.setStroke(Color.DARKGRAY);
-        gc.setLineWidth(0.5);
-        
-        // Local position after rotation: shifted right (local Y+) and slightly back (local X-)
-        gc.fillRect(0, roadOffset, boxW, boxH);
-        gc.strokeRect(0, roadOffset, boxW, boxH);
-        
-        // --- THE 3 LIGHTS ---
-        double r = 1.2 * scale; // Light radius
-        double centerX = boxW / 2;
-        double lightYStart = roadOffset + 2 * scale;
-        double gap = 3 * scale;
-
-        // Default colors (Off state)
-        Color cRed = Color.web("#330000");
-        Color cYellow = Color.web("#333300");
-        Color cGreen = Color.web("#003300");
-
-        // Neon Glow effect
-        Color glow = Color.TRANSPARENT;
-
-        String s = String.valueOf(stateChar).toLowerCase();
-        
-        if (s.equals("r")) {
-            cRed = Color.RED;
-            glow = Color.RED;
-        } else if (s.equals("y")) {
-            cYellow = Color.YELLOW;
-            glow = Color.YELLOW;
-        } else if (s.equals("g")) {
-            cGreen = Color.LIME;
-            glow = Color.LIME;
-        }
-
-        // Draw Red (Top)
-        drawLightBulb(gc, centerX, lightYStart, r, cRed, glow.equals(Color.RED));
-        // Draw Yellow (Middle)
-        drawLightBulb(gc, centerX, lightYStart + gap, r, cYellow, glow.equals(Color.YELLOW));
-        // Draw Green (Bottom)
-        drawLightBulb(gc, centerX, lightYStart + gap*2, r, cGreen, glow.equals(Color.LIME));
-
-        gc.restore();
-    }
-    
-    /**
-     * Helper to draw a single light bulb with optional glow.
-     */
-    private void drawLightBulb(GraphicsContext gc, double cx, double cy, double radius, Color c, boolean isOn) {
-        gc.setFill(c);
-        gc.fillOval(cx - radius, cy - radius, radius * 2, radius * 2);
-        
-        if (isOn) {
-            // Center shine effect
-            gc.setFill(Color.WHITE.deriveColor(0, 1, 1, 0.5));
-            gc.fillOval(cx - radius/2, cy - radius/2, radius, radius);
-        }
+    public void shutdown() {
+        tileCache.shutdown();
+        drawLists.shutdown();
     }
-    
-    // Fallback for junctions without lane details
-    private void drawSimpleTrafficLight(GraphicsContext gc, String tlId) {
-        Point2D pos = engine.getTrafficLightPosition(tlId);
-        if (pos == null) return;
-        drawSemaphore(gc, pos.getX(), pos.getY(), 0, engine.getTrafficLightState(tlId).charAt(0));
-    }
-
-    private void drawVehicle(GraphicsContext gc, IVehicle v) {
-        Point2D pos = v.getPosition();
-        if(pos == null) return;
-        
-        double x = tx(pos.getX());
-        double y = ty(pos.getY());
-        
-        String colorStr = v.getColor();
-        Color c = Color.WHITE; 
-        if(colorStr != null) {
-            switch(colorStr) {
-                case "Rot": case "Red": c = Color.web("#ff4444"); break;
-                case "Green": c = Color.web("#44ff44"); break;
-                case "Yellow": c = Color.web("#ffff44"); break;
-            }
-        }
-        
-        // Simple but clean vehicle drawing
-        gc.setFill(c);
-        double w = 5 * scale;
-        double l = 9 * scale;
-        gc.fillRoundRect(x - w/2, y - l/2, w, l, 2, 2);
-    }
-    
-    // --- UTILITIES ---
-    
-    private void drawPolyline(GraphicsContext gc, List<Point2D> points) {
-        if (points == null || points.size() < 2) return;
-        gc.beginPath();
-        gc.moveTo(tx(points.get(0).getX()), ty(points.get(0).getY()));
-        for (int i = 1; i < points.size(); i++) {
-            gc.lineTo(tx(points.get(i).getX()), ty(points.get(i).getY()));
-        }
-        gc.stroke();
-    }
-    
-    private void fillPolygon(GraphicsContext gc, List<Point2D> points) {
-        double[] x = new double[points.size()];
-        double[] y = new double[points.size()];
-        for(int i=0; i<points.size(); i++) {
-            x[i] = tx(points.get(i).getX());
-            y[i] = ty(points.get(i).getY());
-        }
-        gc.fillPolygon(x, y, points.size());
-    }
-
-    // Coordinate transformers
-    private double tx(double val) { return val * scale + offsetX; }
-    private double ty(double val) { return offsetY - (val * scale); }
-}
\ No newline at end of file
+}
@@ -3,25 +3,31 @@ package de.frauas.group6.traffic.simulator.view;
 import java.util.Map;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 
 import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
-import de.frauas.group6.traffic.simulator.vehicles.IVehicle;
 import de.frauas.group6.traffic.simulator.vehicles.IVehicleManager;
 
+import javafx.geometry.Point3D;
 import javafx.scene.AmbientLight;
 import javafx.scene.Group;
+import javafx.scene.Node;
 import javafx.scene.PerspectiveCamera;
 import javafx.scene.PointLight;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.PickResult;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Box;
 import javafx.scene.shape.CullFace;
+import javafx.scene.shape.MeshView;
 import javafx.scene.shape.Sphere;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Transform;
 
 /*--------------------------------------------------------------------------------------------
   MapView3D handles the 3D visualization of the traffic simulation.
@@ -37,16 +43,33 @@ public class MapView3D1 {
     // --Core Dependencies--
     private ISimulationEngine engine;
     private PerspectiveCamera camera;
-    private HashMap<String, Box> Vehicleboxes;
+    // --Batched vehicle meshes (one per type and color) with LOD, culling and picking--
+    private final VehicleBatchRenderer vehicles = new VehicleBatchRenderer();
+    private double viewportAspect = 16.0 / 9.0;
     private ControlPanel controlpanel;
     
     //-- Camera Rotation Transforms--
     private Rotate RotateX;
     private Rotate RotateY;
     
-    // --Environment and Infrastructure Registry--
-    private Map<String, List<Sphere>> trafficLightRegistry;
+    // --Environment and Signal Heads (shared with the 2D view)--
+    private SignalHeadModel signalHeads;
     private Sphere sky;
+    private boolean roadsBuilt = false;
+
+    // SUMO default lane width (meters); the engine does not report lane widths
+    private static final double LANE_WIDTH = 3.2;
+
+    // --Edge Heatmap Overlay: one mesh over the asphalt, textured by a palette--
+    // The geometry is built once with the roads; a new level only rewrites the faces
+    // (only edges with a level, texture coordinate = level)
+    private final HeatmapModel heatmap;
+    private MeshView heatView;
+    private int[] heatTemplate = new int[0];
+    private int[] heatFaces = new int[0];
+    private int[] heatRoadIndex = new int[0];   // per road strip: index in the heatmap levels (-1 unknown)
+    private int[] heatRoadFaces = new int[1];   // per road strip: first face, plus the total at the end
+    private long heatVersion = -1;
 
     // --Traffic Light Material States (ON/OFF colors)--
     private final PhongMaterial RED_ON = new PhongMaterial(Color.RED);
@@ -57,21 +80,22 @@ public class MapView3D1 {
 
     private final PhongMaterial GREEN_ON = new PhongMaterial(Color.LIME);
     private final PhongMaterial GREEN_OFF = new PhongMaterial(Color.web("#004400"));
-    
+
     /*-----------------------------------------------------------------------------------
       Constructor initializes the 3D world, camera, lighting, and static infrastructure.
       -----------------------------------------------------------------------------------
      */
-    public MapView3D1(ISimulationEngine engine, IVehicleManager manager, ControlPanel controlpanel) {
+    public MapView3D1(ISimulationEngine engine, IVehicleManager manager, ControlPanel controlpanel, SignalHeadModel signalHeads, HeatmapModel heatmap) {
         this.controlpanel = controlpanel;
         this.engine = engine;
-        this.Vehicleboxes = new HashMap<String, Box>();
-        this.trafficLightRegistry = new HashMap<>();
+        this.signalHeads = signalHeads;
+        this.heatmap = heatmap;
 
         //-- Initialize Scene Groups--
         world = new Group();
         roadGroup = new Group();
         world.getChildren().add(roadGroup);
+        roadGroup.getChildren().add(vehicles.getGroup());
         
         //-- Lighting Setup--
         AmbientLight light = new AmbientLight(Color.WHITE);
@@ -98,80 +122,146 @@ public class MapView3D1 {
         
         // -- Initial Scene Rendering --
         drawRoads();
-        drawJunctions();
         setupLights();
         drawSky();
         drawGround();
     }
 
     /*-------------------------------------------------------------------------
-     Renders the road network using textured Boxes and white line markings.
+     Renders the road network as merged meshes built from the lane-0 shape
+     polylines: one asphalt mesh (lanes side by side, LANE_WIDTH each), one
+     marking mesh (edge lines and lane dividers) and the junction and traffic
+     light meshes, a node per material regardless of the network size.
+     Internal junction edges are covered by the junction mesh.
      --------------------------------------------------------------------------
      */
     private void drawRoads() {
         List<String> EdgeIds = engine.getEdgeIdList();
-        
-        // Asphalt Texture Mapping
-       /* PhongMaterial asphaltMaterial = new PhongMaterial();
-        try {
-            Image asphaltImg = new Image(getClass().getResourceAsStream("/asphalt.jpg"));
-            asphaltMaterial.setDiffuseMap(asphaltImg);
-            asphaltMaterial.setSpecularColor(Color.BLACK); 
-            asphaltMaterial.setDiffuseColor(Color.web("#333333"));
-        } catch (Exception e) {
-            asphaltMaterial.setDiffuseColor(Color.DARKGRAY);
-        }*/
+        if (EdgeIds == null || EdgeIds.isEmpty()) return;
         
         PhongMaterial asphaltMaterial = new PhongMaterial();
         asphaltMaterial.setDiffuseColor(Color.web("#1A1A1A")); 
         asphaltMaterial.setSpecularColor(Color.BLACK);
-        
 
         PhongMaterial lineMat = new PhongMaterial(Color.WHITE);
-
+        signalHeads.ensureLoaded();
+
+        RoadMeshBuilder asphalt = new RoadMeshBuilder();
+        RoadMeshBuilder markings = new RoadMeshBuilder();
+        // Static traffic light parts: poles and housings (the bulbs stay nodes to switch their materials)
+        RoadMeshBuilder poles = new RoadMeshBuilder();
+        RoadMeshBuilder housings = new RoadMeshBuilder();
+        // Heatmap strips: same outline as the asphalt, between asphalt and markings
+        RoadMeshBuilder heat = new RoadMeshBuilder();
+        heatmap.ensureLoaded();
+        List<Integer> roadIndex = new ArrayList<>();
+        List<Integer> roadFaces = new ArrayList<>();
         for (String edge : EdgeIds) {
+            if (edge.startsWith(":")) continue;
             List<Point2D> EdgePoints = engine.getEdgeShape(edge);
-            Point2D pStart = EdgePoints.get(0);
-            Point2D pEnd = EdgePoints.get(EdgePoints.size() - 1);
-            double Edgelenght = engine.getEdgeLength(edge);
-            Point2D Midellepoint = new Point2D.Double((pStart.getX() + pEnd.getX()) / 2, (pStart.getY() + pEnd.getY()) / 2);
-            
-            int lanenummer = engine.getLaneList(edge).size();
-            double roadWidth = (edge.equals("E45")) ? lanenummer * 5.1 : lanenummer * 4.9;
-
-            // --Road Geometry--
-            Box roadBox = new Box(Edgelenght, 0.2, roadWidth);
-            roadBox.setMaterial(asphaltMaterial);
-            
-            double rotation = (Math.abs(pStart.getX() - pEnd.getX()) < 0.001) ? -90 : 0;
-            roadBox.setRotationAxis(Rotate.Y_AXIS);
-            roadBox.setRotate(rotation);
-            
-            roadBox.setTranslateX(Midellepoint.getX());
-            roadBox.setTranslateZ(Midellepoint.getY());
-            roadBox.setTranslateY(0);
-            roadGroup.getChildren().add(roadBox);
-
-            //-- Lane Divider Markings Offset Calculation--
-            double offset = roadWidth / 2.0;
-            Box whiteLine = new Box(Edgelenght, 0.02, 0.15); 
-            whiteLine.setMaterial(lineMat);
-            whiteLine.setRotationAxis(Rotate.Y_AXIS);
-            whiteLine.setRotate(rotation);
-
-            if (rotation == 0) { 
-                whiteLine.setTranslateX(Midellepoint.getX());
-                whiteLine.setTranslateZ(Midellepoint.getY() + offset); 
-            } else { 
-                whiteLine.setTranslateX(Midellepoint.getX() + offset);
-                whiteLine.setTranslateZ(Midellepoint.getY());
+            if (EdgePoints == null || EdgePoints.size() < 2) continue;
+            int lanenummer = Math.max(1, engine.getLaneList(edge).size());
+
+            // --Road Geometry: lane 0 is the rightmost lane, further lanes lie to its left--
+            double right = -LANE_WIDTH / 2;
+            double left = (lanenummer - 0.5) * LANE_WIDTH;
+            asphalt.addStrip(EdgePoints, right, left, -0.1f);
+            roadIndex.add(heatmap.indexOf(edge));
+            roadFaces.add(heat.faceCount());
+            heat.addStrip(EdgePoints, right, left, -0.12f);
+
+            //-- Edge lines and lane dividers, lifted slightly above the road to prevent flickering--
+            for (int i = 0; i <= lanenummer; i++) {
+                double offset = (i - 0.5) * LANE_WIDTH;
+                markings.addStrip(EdgePoints, offset - 0.075, offset + 0.075, -0.13f);
             }
 
-            whiteLine.setTranslateY(-0.12); // Lifted slightly above road to prevent flickering
-            roadGroup.getChildren().add(whiteLine);
+            drawTrafficLight(edge, lanenummer, EdgePoints.get(0), EdgePoints.get(EdgePoints.size() - 1), poles, housings);
+        }
+        addMesh(asphalt, asphaltMaterial);
+        addMesh(markings, lineMat);
+        addMesh(poles, new PhongMaterial(Color.DARKSLATEGRAY));
+        addMesh(housings, new PhongMaterial(Color.BLACK));
+        drawJunctions();
+        buildHeatmapMesh(heat, roadIndex, roadFaces);
+        roadsBuilt = true;
+    }
+
+    /*-------------------------------------------------------------------------
+     Prepares the heatmap overlay: keeps the faces of the built strips as a
+     template and maps each palette level to one texel of a palette texture.
+     Hidden until the first levels arrive.
+     --------------------------------------------------------------------------
+     */
+    private void buildHeatmapMesh(RoadMeshBuilder heat, List<Integer> roadIndex, List<Integer> roadFaces) {
+        if (heat.isEmpty()) return;
+        TriangleMesh mesh = heat.build();
+        heatTemplate = mesh.getFaces().toArray(null);
+        heatFaces = new int[heatTemplate.length];
+        heatRoadIndex = roadIndex.stream().mapToInt(Integer::intValue).toArray();
+        heatRoadFaces = new int[roadFaces.size() + 1];
+        for (int i = 0; i < roadFaces.size(); i++) heatRoadFaces[i] = roadFaces.get(i);
+        heatRoadFaces[roadFaces.size()] = heat.faceCount();
+
+        WritableImage palette = new WritableImage(HeatmapModel.LEVELS, 1);
+        float[] texCoords = new float[2 * HeatmapModel.LEVELS];
+        for (int l = 0; l < HeatmapModel.LEVELS; l++) {
+            palette.getPixelWriter().setColor(l, 0, HeatmapModel.color(l));
+            texCoords[2 * l] = (l + 0.5f) / HeatmapModel.LEVELS;
+            texCoords[2 * l + 1] = 0.5f;
+        }
+        mesh.getTexCoords().setAll(texCoords);
+        mesh.getFaces().clear();
+
+        PhongMaterial heatMaterial = new PhongMaterial();
+        heatMaterial.setDiffuseMap(palette);
+        heatMaterial.setSpecularColor(Color.BLACK);
+        heatView = new MeshView(mesh);
+        heatView.setMaterial(heatMaterial);
+        heatView.setCullFace(CullFace.NONE);
+        heatView.setVisible(false);
+        roadGroup.getChildren().add(heatView);
+    }
 
-            drawTrafficLight(roadBox, edge, lanenummer, pStart, pEnd);
+    /*-------------------------------------------------------------------------
+     Applies new heatmap levels (computed by the heatmap worker) to the
+     overlay mesh. Called every frame; does nothing until the levels change.
+     --------------------------------------------------------------------------
+     */
+    public void updateHeatmap() {
+        if (heatView == null) return;
+        HeatmapModel.Levels levels = heatmap.getLevels();
+        if (levels == null || levels.metric != heatmap.getMetric()) {
+            heatView.setVisible(false);
+            heatVersion = -1;
+            return;
         }
+        if (levels.version == heatVersion) return;
+        heatVersion = levels.version;
+
+        int n = 0;
+        for (int r = 0; r < heatRoadIndex.length; r++) {
+            int index = heatRoadIndex[r];
+            byte level = index >= 0 && index < levels.levels.length ? levels.levels[index] : HeatmapModel.NO_DATA;
+            if (level == HeatmapModel.NO_DATA) continue;
+            int from = 6 * heatRoadFaces[r], to = 6 * heatRoadFaces[r + 1];
+            System.arraycopy(heatTemplate, from, heatFaces, n, to - from);
+            // Texture coordinate slots of the copied faces select the palette texel
+            for (int k = n + 1; k < n + to - from; k += 2) heatFaces[k] = level;
+            n += to - from;
+        }
+        TriangleMesh mesh = (TriangleMesh) heatView.getMesh();
+        mesh.getFaces().setAll(heatFaces, 0, n);
+        heatView.setVisible(n > 0);
+    }
+
+    private void addMesh(RoadMeshBuilder builder, PhongMaterial material) {
+        if (builder.isEmpty()) return;
+        MeshView mesh = new MeshView(builder.build());
+        mesh.setMaterial(material);
+        // Flat surfaces: visible from both sides
+        mesh.setCullFace(CullFace.NONE);
+        roadGroup.getChildren().add(mesh);
     }
     
     /*------------------------------------------------------------------
@@ -215,281 +305,212 @@ public class MapView3D1 {
     }
   
     /*-----------------------------------------------------------------------------
-     Renders junctions using textured boxes to cover overlapping road segments.
+     Renders all junction surfaces from their shapes as one mesh, slightly above
+     the roads to cover overlapping road ends.
      ------------------------------------------------------------------------------
      */
     private void drawJunctions() {
         List<String> junctionIds = engine.getJunctionIdList();
+        if (junctionIds == null) return;
         
         PhongMaterial junctionMaterial = new PhongMaterial();
         junctionMaterial.setDiffuseColor(Color.web("#1A1A1A")); 
         junctionMaterial.setSpecularColor(Color.BLACK);
-        
 
+        RoadMeshBuilder surfaces = new RoadMeshBuilder();
         for (String jId : junctionIds) {
-            if (!(jId.equals("J55") || jId.equals("J57"))) continue;
-            
-            Point2D pos = engine.getJunctionPosition(jId);
-            double junctionSize = 17.5; 
-            Box junctionSquare = new Box(junctionSize, 0.1, junctionSize);
-            junctionSquare.setMaterial(junctionMaterial);
-            junctionSquare.setTranslateX(pos.getX());
-            junctionSquare.setTranslateZ(pos.getY());
-            junctionSquare.setTranslateY(-0.1); 
-
-            roadGroup.getChildren().add(junctionSquare);
+            if (jId.startsWith(":")) continue;
+            surfaces.addPolygon(engine.getJunctionShape(jId), -0.11f);
         }
+        addMesh(surfaces, junctionMaterial);
     }
 
     /*--------------------------------------------------------------------------------
-     Creates traffic light models (Poles, Housing, and Spheres) for controlled lanes.
+     Creates traffic light models (Poles, Housing, and Spheres) for the signal heads of
+     an edge. Approaches with three or more controlled lanes get a gantry with one
+     housing per lane, others a single pole shared by all their heads.
      ---------------------------------------------------------------------------------
      */
-    public void drawTrafficLight(Box edgeBox, String edgeId, int lanenummer, Point2D pStart, Point2D pEnd) {
-        List<String> trafficLightIdList = this.engine.getTrafficLightIdList();
-        
-        for(String Tid : trafficLightIdList) {
-            List<String> controlledLanes = this.engine.getControlledLanes(Tid);
-            boolean isControlled = false;
-            for(String laneId : controlledLanes) {
-                if(laneId.startsWith(edgeId)) {
-                    isControlled = true;
-                    break;
-                }
-            }
+    private void drawTrafficLight(String edgeId, int lanenummer, Point2D pStart, Point2D pEnd, RoadMeshBuilder poles, RoadMeshBuilder housings) {
+        List<SignalHeadModel.SignalHead> heads = signalHeads.getHeadsOfEdge(edgeId);
+        if (heads.isEmpty()) return;
+
+        // Controlled lanes of the edge in order, each with its heads
+        Map<String, List<SignalHeadModel.SignalHead>> lanes = new LinkedHashMap<>();
+        for (SignalHeadModel.SignalHead head : heads) {
+            lanes.computeIfAbsent(head.laneId, l -> new ArrayList<>()).add(head);
+        }
 
-            if(isControlled) {
-                //-- Special handling for Gantry Lights on main edge E45--
-                if (edgeId.equals("E45")) {
-                    Box gantryPillar = new Box(0.8, 18, 0.8);
-                    gantryPillar.setMaterial(new PhongMaterial(Color.DARKSLATEGRAY));
-                    gantryPillar.setTranslateX(pEnd.getX() - 10.0);
-                    gantryPillar.setTranslateZ(pEnd.getY() + 1);
-                    gantryPillar.setTranslateY(-9); 
-                    roadGroup.getChildren().add(gantryPillar);
-
-                    for (int i = 0; i < 3; i++) {
-                        double horizontalOffset = (i - 1) * 2.8;
-                        Box housing = new Box(2.2, 6.5, 1.2);
-                        housing.setMaterial(new PhongMaterial(Color.BLACK));
-                        housing.setTranslateX(gantryPillar.getTranslateX() + horizontalOffset);
-                        housing.setTranslateZ(gantryPillar.getTranslateZ() - 1);
-                        housing.setTranslateY(-15);
-
-                        Sphere r = new Sphere(0.8);
-                        r.setTranslateX(housing.getTranslateX()); r.setTranslateY(-17);
-                        r.setTranslateZ(housing.getTranslateZ() - 0.7);
-                        r.setMaterial(RED_OFF);
-
-                        Sphere y = new Sphere(0.8);
-                        y.setTranslateX(housing.getTranslateX()); y.setTranslateY(-15);
-                        y.setTranslateZ(housing.getTranslateZ() - 0.7);
-                        y.setMaterial(YELLOW_OFF);
-
-                        Sphere gArrow = new Sphere(0.7); 
-                        gArrow.setTranslateX(housing.getTranslateX());
-                        gArrow.setTranslateY(-13);
-                        gArrow.setTranslateZ(housing.getTranslateZ() - 1.2); 
-                        gArrow.setMaterial(GREEN_OFF);
-
-                        // Arrow Direction logic for lanes
-                        if (i == 0) { 
-                            gArrow.setScaleX(1.8); gArrow.setScaleY(0.4); gArrow.setScaleZ(0.4);
-                            gArrow.setRotate(-45);
-                            gArrow.setTranslateX(gArrow.getTranslateX() - 0.2);
-                        } else if (i == 1) { 
-                            gArrow.setScaleX(0.4); gArrow.setScaleY(1.8); gArrow.setScaleZ(0.4);
-                        } else if (i == 2) { 
-                            gArrow.setScaleX(1.8); gArrow.setScaleY(0.4); gArrow.setScaleZ(0.4);
-                            gArrow.setRotate(45);
-                            gArrow.setTranslateX(gArrow.getTranslateX() + 0.2);
-                        }
-
-                        roadGroup.getChildren().addAll(housing, r, y, gArrow);
-                        List<Sphere> spheres = new ArrayList<>();
-                        spheres.add(r); spheres.add(y); spheres.add(gArrow);
-                        trafficLightRegistry.put(edgeId + "_" + i, spheres);
-                    }
-                } else {
-                    // Standard pole-based Traffic Lights
-                    Box poteau = new Box(0.6, 12, 0.6);
-                    poteau.setMaterial(new PhongMaterial(Color.DARKSLATEGRAY));
-                    poteau.setTranslateY(-6);
-                    double sideOffset = (lanenummer * 3.2) / 2.0 + 1.2;
-                    double xDiff = pEnd.getX() - pStart.getX();
-                    double zDiff = pEnd.getY() - pStart.getY();
-
-                    if (Math.abs(xDiff) > Math.abs(zDiff)) {
-                        poteau.setTranslateX(pEnd.getX());
-                        double sign = (xDiff > 0) ? -1 : 1;
-                        poteau.setTranslateZ(pEnd.getY() + (sign * sideOffset));
-                    } else {
-                        poteau.setTranslateZ(pEnd.getY());
-                        double sign = (zDiff > 0) ? -1 : 1;
-                        poteau.setTranslateX(pEnd.getX() - (sign * sideOffset));
-                    }
-
-                    roadGroup.getChildren().add(poteau);
-                    Box housing = new Box(2, 6, 2);
-                    housing.setMaterial(new PhongMaterial(Color.BLACK));
-                    housing.setTranslateX(poteau.getTranslateX());
-                    housing.setTranslateZ(poteau.getTranslateZ());
-                    housing.setTranslateY(-12);
-                    
-                    Sphere redLight = new Sphere(0.8);
-                    redLight.setTranslateX(poteau.getTranslateX());
-                    redLight.setTranslateZ(poteau.getTranslateZ() - 1.1);
-                    redLight.setTranslateY(-14);
-                    redLight.setMaterial(new PhongMaterial(Color.web("#330000")));
-                    
-                    Sphere yellowLight = new Sphere(0.8);
-                    yellowLight.setTranslateX(poteau.getTranslateX());
-                    yellowLight.setTranslateZ(poteau.getTranslateZ() - 1.1);
-                    yellowLight.setTranslateY(-12);
-                    yellowLight.setMaterial(new PhongMaterial(Color.web("#333300")));
-
-                    Sphere greenLight = new Sphere(0.8);
-                    greenLight.setTranslateX(poteau.getTranslateX());
-                    greenLight.setTranslateZ(poteau.getTranslateZ() - 1.1);
-                    greenLight.setTranslateY(-10);
-                    greenLight.setMaterial(new PhongMaterial(Color.web("#003300")));
-
-                    roadGroup.getChildren().addAll(housing, redLight, yellowLight, greenLight);
-                    List<Sphere> spheres = new ArrayList<>();
-                    spheres.add(redLight); spheres.add(yellowLight); spheres.add(greenLight);
-                    trafficLightRegistry.put(edgeId, spheres);
-                    break; 
+        if (lanes.size() >= 3) {
+            //-- Gantry Lights: one housing with turn arrow per lane--
+            double pillarX = pEnd.getX() - 10.0;
+            double pillarZ = pEnd.getY() + 1;
+            poles.addBox(pillarX, -9, pillarZ, 0.8, 18, 0.8);
+
+            int i = 0;
+            int last = lanes.size() - 1;
+            for (List<SignalHeadModel.SignalHead> laneHeads : lanes.values()) {
+                double horizontalOffset = (i - last / 2.0) * 2.8;
+                double housingX = pillarX + horizontalOffset;
+                double housingZ = pillarZ - 1;
+                housings.addBox(housingX, -15, housingZ, 2.2, 6.5, 1.2);
+
+                Sphere r = new Sphere(0.8);
+                r.setTranslateX(housingX); r.setTranslateY(-17);
+                r.setTranslateZ(housingZ - 0.7);
+                r.setMaterial(RED_OFF);
+
+                Sphere y = new Sphere(0.8);
+                y.setTranslateX(housingX); y.setTranslateY(-15);
+                y.setTranslateZ(housingZ - 0.7);
+                y.setMaterial(YELLOW_OFF);
+
+                Sphere gArrow = new Sphere(0.7); 
+                gArrow.setTranslateX(housingX);
+                gArrow.setTranslateY(-13);
+                gArrow.setTranslateZ(housingZ - 1.2); 
+                gArrow.setMaterial(GREEN_OFF);
+
+                // Arrow Direction logic for lanes (left, straight..., right)
+                if (i == 0) { 
+                    gArrow.setScaleX(1.8); gArrow.setScaleY(0.4); gArrow.setScaleZ(0.4);
+                    gArrow.setRotate(-45);
+                    gArrow.setTranslateX(gArrow.getTranslateX() - 0.2);
+                } else if (i == last) { 
+                    gArrow.setScaleX(1.8); gArrow.setScaleY(0.4); gArrow.setScaleZ(0.4);
+                    gArrow.setRotate(45);
+                    gArrow.setTranslateX(gArrow.getTranslateX() + 0.2);
+                } else { 
+                    gArrow.setScaleX(0.4); gArrow.setScaleY(1.8); gArrow.setScaleZ(0.4);
                 }
+
+                roadGroup.getChildren().addAll(r, y, gArrow);
+                Sphere[] lights = {r, y, gArrow};
+                for (SignalHeadModel.SignalHead head : laneHeads) head.lights = lights;
+                i++;
             }
+        } else {
+            // Standard pole-based Traffic Lights
+            double poleX, poleZ;
+            double sideOffset = (lanenummer * 3.2) / 2.0 + 1.2;
+            double xDiff = pEnd.getX() - pStart.getX();
+            double zDiff = pEnd.getY() - pStart.getY();
+
+            if (Math.abs(xDiff) > Math.abs(zDiff)) {
+                poleX = pEnd.getX();
+                double sign = (xDiff > 0) ? -1 : 1;
+                poleZ = pEnd.getY() + (sign * sideOffset);
+            } else {
+                poleZ = pEnd.getY();
+                double sign = (zDiff > 0) ? -1 : 1;
+                poleX = pEnd.getX() - (sign * sideOffset);
+            }
+
+            poles.addBox(poleX, -6, poleZ, 0.6, 12, 0.6);
+            housings.addBox(poleX, -12, poleZ, 2, 6, 2);
+            
+            Sphere redLight = new Sphere(0.8);
+            redLight.setTranslateX(poleX);
+            redLight.setTranslateZ(poleZ - 1.1);
+            redLight.setTranslateY(-14);
+            redLight.setMaterial(RED_OFF);
+            
+            Sphere yellowLight = new Sphere(0.8);
+            yellowLight.setTranslateX(poleX);
+            yellowLight.setTranslateZ(poleZ - 1.1);
+            yellowLight.setTranslateY(-12);
+            yellowLight.setMaterial(YELLOW_OFF);
+
+            Sphere greenLight = new Sphere(0.8);
+            greenLight.setTranslateX(poleX);
+            greenLight.setTranslateZ(poleZ - 1.1);
+            greenLight.setTranslateY(-10);
+            greenLight.setMaterial(GREEN_OFF);
+
+            roadGroup.getChildren().addAll(redLight, yellowLight, greenLight);
+            // All heads of the edge share the pole; the last link index wins
+            Sphere[] lights = {redLight, yellowLight, greenLight};
+            for (SignalHeadModel.SignalHead head : heads) head.lights = lights;
         }
     }
         
     /*----------------------------------------------------------------
-     Updates traffic light materials based on current engine state.
+     Applies the current signal head states (updated once per refresh
+     by GuiManager) to the traffic light materials.
      -----------------------------------------------------------------
      */
     public void updateTrafficLights() {
-        List<String> trafficLightIdList = this.engine.getTrafficLightIdList();
-        for(String Tid: trafficLightIdList) {
-            List<String> controlledLanes = this.engine.getControlledLanes(Tid);
-            String state = this.engine.getTrafficLightState(Tid);
-            String eId;
-            for(int i=0; i<controlledLanes.size(); i++) {
-                if(!(controlledLanes.get(i).startsWith("E45"))) { 
-                    eId = controlledLanes.get(i).split("_")[0]; 
-                    i += 1;
-                } else { 
-                    eId = controlledLanes.get(i);
-                }
-                List<Sphere> Spheres = trafficLightRegistry.get(eId);
-                if (Spheres != null && !state.isEmpty()) {
-                    char s = state.charAt(i);
-                    if(s=='r'||s=='R') { 
-                        Spheres.get(0).setMaterial(RED_ON);
-                        Spheres.get(1).setMaterial(YELLOW_OFF);
-                        Spheres.get(2).setMaterial(GREEN_OFF); 
-                    } else if(s=='y'||s=='Y') {  
-                        Spheres.get(0).setMaterial(RED_OFF);
-                        Spheres.get(1).setMaterial(YELLOW_ON);
-                        Spheres.get(2).setMaterial(GREEN_OFF); 
-                    } else if(s=='g'||s=='G') {
-                        Spheres.get(0).setMaterial(RED_OFF);
-                        Spheres.get(1).setMaterial(YELLOW_OFF);
-                        Spheres.get(2).setMaterial(GREEN_ON); 
-                    }
-                }
+        for (SignalHeadModel.SignalHead head : signalHeads.getHeads()) {
+            Sphere[] Spheres = head.lights;
+            if (Spheres == null) continue;
+            char s = head.state;
+            if(s=='r'||s=='R') { 
+                Spheres[0].setMaterial(RED_ON);
+                Spheres[1].setMaterial(YELLOW_OFF);
+                Spheres[2].setMaterial(GREEN_OFF); 
+            } else if(s=='y'||s=='Y') {  
+                Spheres[0].setMaterial(RED_OFF);
+                Spheres[1].setMaterial(YELLOW_ON);
+                Spheres[2].setMaterial(GREEN_OFF); 
+            } else if(s=='g'||s=='G') {
+                Spheres[0].setMaterial(RED_OFF);
+                Spheres[1].setMaterial(YELLOW_OFF);
+                Spheres[2].setMaterial(GREEN_ON); 
             }
         }
     }
 
     /*--------------------------------------------------------------
-     Synchronizes vehicle models with the simulation engine state.
+     Synchronizes the vehicle batches with the interpolated vehicle
+     frame (position, heading, type, color) and redraws them.
+     Called by GuiManager's render loop every frame.
      ---------------------------------------------------------------
      */
-    public void updateVehicles(IVehicleManager manager) {
-        if(manager != null) {
-            Collection<IVehicle> Vehicles = manager.getAllVehicles();
-            for(IVehicle v: Vehicles) {
-                String VehicleId = v.getId();
-                Point2D position = v.getPosition();
-                if(position == null) {continue;}
-                
-                // Add new vehicles if not present
-                if(!(Vehicleboxes.containsKey(VehicleId))) {
-                    Box car = this.drawVehicle(v, controlpanel);
-                    roadGroup.getChildren().add(car);
-                }
-                
-                //-- Update position, visibility and color--
-                Box b = Vehicleboxes.get(VehicleId);
-                b.setVisible(v.isIsVisible()); 
-                b.setTranslateX(position.getX());
-                b.setTranslateZ(position.getY()); 
-                
-                PhongMaterial material = new PhongMaterial();
-                switch(v.getColor()) {
-                    case "Yellow": material.setDiffuseColor(Color.YELLOW); break;
-                    case "Green":  material.setDiffuseColor(Color.GREEN);  break;
-                    case "Red":    material.setDiffuseColor(Color.RED);    break;
-                }
-                b.setMaterial(material);
-                
-                double angle = engine.getVehicleAngle(VehicleId);
-                b.setRotationAxis(Rotate.Y_AXIS);
-                b.setRotate(angle);
-            }
-
-            //-- Cleanup vehicles that left simulation--
-            List<String> ids = new ArrayList<>();
-            for(String id: Vehicleboxes.keySet()) {
-                ids.add(id);
-            }
-            for(String id: ids) {
-                boolean check = false;
-                for(IVehicle v : Vehicles) {
-                    if(id.equals(v.getId())) { check = true; }
-                }
-                if(!check) {
-                    Box b = Vehicleboxes.get(id);
-                    roadGroup.getChildren().remove(b);
-                    Vehicleboxes.remove(id);
-                }
-            }
+    public void updateVehicles(MotionInterpolator motion) {
+        if(motion != null) {
+            vehicles.setVehicles(motion);
+            renderVehicles();
         }
     }
-    
+
     /*--------------------------------------------------------------------
-     Factory method for creating vehicle Boxes based on type dimensions.
+     Rebuilds the vehicle meshes for the current camera (frustum culling,
+     boxes near the camera, roof quads far away). Called on every refresh
+     and camera move.
      ---------------------------------------------------------------------
      */
-    public Box drawVehicle(IVehicle v, ControlPanel controlpanel) {
-        String VehicleId = v.getId();
-        Point2D position = v.getPosition();
-        double l = 0.0, h = 0.0, w = 0.0;
-
-        switch (v.getTypeId()) {
-            case "DEFAULT_VEHTYPE":  l = 4; h = 2; w = 1.8; break;
-            case "DEFAULT_CONTAINERTYPE": l = 10; h = 4.5; w = 2.5; break;
-            case "RESCUE_TYPE": l = 4.5; h = 2; w = 1.8; break;
-            case "BUS_TYPE": l = 12; h = 3.5; w = 2.5; break;
+    private void renderVehicles() {
+        Transform toCamera;
+        try {
+            toCamera = camera.getLocalToSceneTransform().createInverse()
+                    .createConcatenation(vehicles.getGroup().getLocalToSceneTransform());
+        } catch (NonInvertibleTransformException e) {
+            return;
         }
+        double tanHalf = Math.tan(Math.toRadians(camera.getFieldOfView() / 2));
+        double tanHalfX = camera.isVerticalFieldOfView() ? tanHalf * viewportAspect : tanHalf;
+        double tanHalfY = camera.isVerticalFieldOfView() ? tanHalf : tanHalf / viewportAspect;
+        vehicles.render(toCamera, tanHalfX, tanHalfY);
+    }
 
-        Box Car = new Box(w, h, l); 
-        double initialAngle = engine.getVehicleAngle(VehicleId);
-        Car.setRotationAxis(Rotate.Y_AXIS); 
-        Car.setRotate(initialAngle);
-
-        Car.setTranslateX(position.getX());
-        Car.setTranslateZ(position.getY()); 
-        Car.setTranslateY(-h/2); 
-
-        Car.setOnMouseClicked(event -> {
-            controlpanel.selectVehicle(VehicleId); 
-        });
+    /*--------------------------------------------------------------------
+     Selects the vehicle closest to a clicked point (road or vehicle) in
+     the control panel; spatial query instead of per-vehicle handlers.
+     ---------------------------------------------------------------------
+     */
+    public void selectVehicleAt(PickResult pick) {
+        Node node = pick.getIntersectedNode();
+        if (node == null) return;
+        Point3D local = vehicles.getGroup().sceneToLocal(node.localToScene(pick.getIntersectedPoint()));
+        String id = vehicles.pick(local.getX(), local.getZ(), 5.0);
+        if (id != null) controlpanel.selectVehicle(id);
+    }
 
-        Car.setPickOnBounds(true);
-        Vehicleboxes.put(VehicleId, Car);
-        return Car;
+    public void setViewportSize(double width, double height) {
+        if (width > 0 && height > 0) {
+            viewportAspect = width / height;
+            renderVehicles();
+        }
     }
     
     /*----------------------------------------------------
@@ -501,6 +522,7 @@ public class MapView3D1 {
         double newAngelY = RotateY.getAngle() + deltaX;
         RotateX.setAngle(newAngelX);
         RotateY.setAngle(newAngelY);
+        renderVehicles();
     }
     
     /*--------------------------------------------------
@@ -520,6 +542,7 @@ public class MapView3D1 {
         else {
             camera.setTranslateZ(newposZ);
         }
+        renderVehicles();
     }
    
     /*---------------------------------------------------------------------
@@ -530,12 +553,13 @@ public class MapView3D1 {
     public Group getRoot() { return this.world; }
     
     public void renderRoads() {
-        if (world.getChildren().size() <= 6) { drawRoads(); }
+        if (!roadsBuilt) { drawRoads(); }
     }
    
     public void moveRoadsVertical(double dy) {
         double newposY = roadGroup.getTranslateY() + dy;
         roadGroup.setTranslateY(newposY);
+        renderVehicles();
     }
   
     public void moveHorizontale(double dx, double dz) {
@@ -543,5 +567,6 @@ public class MapView3D1 {
         double newPosZ = roadGroup.getTranslateZ() + dz;
         roadGroup.setTranslateX(newPosX);
         roadGroup.setTranslateZ(newPosZ);
+        renderVehicles();
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import de.frauas.group6.traffic.simulator.vehicles.IVehicle;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Smooth vehicle motion between simulation steps for the map views.
+ * Every step (onStep) the last two vehicle states are kept; every rendered frame (frame) positions
+ * and headings are interpolated between them by the time elapsed since the step, relative to the
+ * measured step interval. The views therefore show vehicles one step behind the simulation.
+ * A vehicle that stayed on its edge moves along the edge shape (arc length and lateral lane
+ * offset interpolated), otherwise in a straight line. Edge shapes come from the MapNetwork
+ * fetched at network load, the render loop never calls the engine.
+ * FX thread only.
+ */
+public final class MotionInterpolator {
+
+    // Smoothing of the measured step interval
+    private static final double INTERVAL_SMOOTHING = 0.3;
+
+    // Lane-0 edge shapes, null if no network was loaded (vehicles then move in straight lines)
+    private final MapNetwork network;
+    private final Map<String, Track> tracks = new HashMap<>();
+    private List<Track> active = new ArrayList<>();
+    private List<Track> spare = new ArrayList<>();
+    private int stamp = 0;
+
+    private long lastStepNanos = 0;
+    private double stepIntervalNanos = 1e9;
+
+    // Current frame
+    private int size = 0;
+    private IVehicle[] vehicles = new IVehicle[64];
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private double[] angles = new double[64];
+
+    // Two consecutive states of one vehicle
+    private static final class Track {
+        IVehicle vehicle;
+        int seen;
+        double x0, y0, angle0;
+        String edge0;
+        double x1, y1, angle1;
+        String edge1;
+    }
+
+    MotionInterpolator(MapNetwork network) {
+        this.network = network;
+    }
+
+    /**
+     * Records the vehicle states of a new simulation step.
+     */
+    void onStep(Collection<IVehicle> fleet, long nowNanos) {
+        if (lastStepNanos > 0) {
+            double interval = nowNanos - lastStepNanos;
+            stepIntervalNanos += INTERVAL_SMOOTHING * (interval - stepIntervalNanos);
+        }
+        lastStepNanos = nowNanos;
+
+        int current = ++stamp;
+        spare.clear();
+        for (IVehicle v : fleet) {
+            Point2D pos = v.getPosition();
+            if (pos == null) continue;
+            Track t = tracks.get(v.getId());
+            if (t == null) {
+                // New vehicle: no motion until its second step
+                t = new Track();
+                tracks.put(v.getId(), t);
+                t.x1 = pos.getX();
+                t.y1 = pos.getY();
+                t.angle1 = v.getAngle();
+                t.edge1 = v.getEdgeId();
+            }
+            t.vehicle = v;
+            t.seen = current;
+            t.x0 = t.x1;
+            t.y0 = t.y1;
+            t.angle0 = t.angle1;
+            t.edge0 = t.edge1;
+            t.x1 = pos.getX();
+            t.y1 = pos.getY();
+            t.angle1 = v.getAngle();
+            t.edge1 = v.getEdgeId();
+            spare.add(t);
+        }
+        // Departed vehicles
+        tracks.values().removeIf(t -> t.seen != current);
+        List<Track> swap = active;
+        active = spare;
+        spare = swap;
+    }
+
+    /**
+     * Interpolates all vehicles for a frame rendered at the given time.
+     */
+    void frame(long nowNanos) {
+        double alpha = lastStepNanos > 0 ? Math.min(1.0, (nowNanos - lastStepNanos) / stepIntervalNanos) : 1.0;
+        if (active.size() > vehicles.length) grow(active.size());
+        size = 0;
+        for (Track t : active) {
+            int i = size++;
+            vehicles[i] = t.vehicle;
+            angles[i] = interpolateAngle(t.angle0, t.angle1, alpha);
+            if (t.edge1 != null && t.edge1.equals(t.edge0) && alongEdge(t, alpha, i)) continue;
+            xs[i] = t.x0 + (t.x1 - t.x0) * alpha;
+            ys[i] = t.y0 + (t.y1 - t.y0) * alpha;
+        }
+        for (int i = size; i < vehicles.length && vehicles[i] != null; i++) vehicles[i] = null;
+    }
+
+    int size() { return size; }
+    IVehicle vehicle(int i) { return vehicles[i]; }
+    double x(int i) { return xs[i]; }
+    double y(int i) { return ys[i]; }
+    // SUMO heading in degrees (0 = north, clockwise)
+    double angle(int i) { return angles[i]; }
+
+    // ==========================================
+    // INTERPOLATION
+    // ==========================================
+
+    // Shortest way around the circle
+    private static double interpolateAngle(double a0, double a1, double alpha) {
+        double delta = ((a1 - a0) % 360 + 540) % 360 - 180;
+        return a0 + delta * alpha;
+    }
+
+    // Projects both states onto the edge shape and interpolates arc length and lateral offset
+    private boolean alongEdge(Track t, double alpha, int i) {
+        double[] shape = network != null ? network.edgeShape(t.edge1) : null;
+        if (shape == null || shape.length < 4) return false;
+        double[] p0 = project(shape, t.x0, t.y0);
+        double[] p1 = project(shape, t.x1, t.y1);
+        // Moving backwards along the edge is not driving: let the straight line handle it
+        if (p1[0] < p0[0]) return false;
+        double s = p0[0] + (p1[0] - p0[0]) * alpha;
+        double d = p0[1] + (p1[1] - p0[1]) * alpha;
+        evaluate(shape, s, d, i);
+        return true;
+    }
+
+    // {arc length, signed lateral offset (left positive)} of the closest point on the polyline
+    private static double[] project(double[] shape, double x, double y) {
+        double bestDist = Double.MAX_VALUE, bestS = 0, bestD = 0;
+        double s = 0;
+        for (int k = 0; k + 3 < shape.length; k += 2) {
+            double ax = shape[k], ay = shape[k + 1];
+            double dx = shape[k + 2] - ax, dy = shape[k + 3] - ay;
+            double len = Math.hypot(dx, dy);
+            if (len > 0) {
+                double u = Math.max(0, Math.min(len, ((x - ax) * dx + (y - ay) * dy) / len));
+                double px = ax + dx / len * u, py = ay + dy / len * u;
+                double dist = Math.hypot(x - px, y - py);
+                if (dist < bestDist) {
+                    bestDist = dist;
+                    bestS = s + u;
+                    // Cross product sign: left of the driving direction is positive
+                    bestD = ((x - ax) * dy - (y - ay) * dx) > 0 ? -dist : dist;
+                }
+            }
+            s += len;
+        }
+        return new double[] {bestS, bestD};
+    }
+
+    // Point at arc length s, shifted by d to the left, into frame slot i
+    private void evaluate(double[] shape, double s, double d, int i) {
+        double walked = 0;
+        for (int k = 0; k + 3 < shape.length; k += 2) {
+            double ax = shape[k], ay = shape[k + 1];
+            double dx = shape[k + 2] - ax, dy = shape[k + 3] - ay;
+            double len = Math.hypot(dx, dy);
+            if (len > 0 && (walked + len >= s || k + 4 >= shape.length)) {
+                double u = Math.min(len, s - walked);
+                xs[i] = ax + dx / len * u - dy / len * d;
+                ys[i] = ay + dy / len * u + dx / len * d;
+                return;
+            }
+            walked += len;
+        }
+        xs[i] = shape[shape.length - 2];
+        ys[i] = shape[shape.length - 1];
+    }
+
+    private void grow(int needed) {
+        int n = Math.max(needed, vehicles.length * 2);
+        vehicles = Arrays.copyOf(vehicles, n);
+        xs = Arrays.copyOf(xs, n);
+        ys = Arrays.copyOf(ys, n);
+        angles = Arrays.copyOf(angles, n);
+    }
+}
@@ -0,0 +1,156 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.scene.shape.TriangleMesh;
+
+/**
+ * Collects static geometry (strips along polylines, polygons, boxes) into one TriangleMesh,
+ * so the 3D view needs a single node per material instead of one Box per edge.
+ * Simulation (x, y) maps to scene (x, z); strips and polygons lie in a horizontal plane at a given scene y.
+ */
+final class RoadMeshBuilder {
+
+    // Miter joins longer than this many half-widths are clipped (sharp turns)
+    private static final double MITER_LIMIT = 4.0;
+
+    private float[] points = new float[3 * 256];
+    private int pointCount = 0;
+    private int[] faces = new int[6 * 256];
+    private int faceCount = 0;
+
+    boolean isEmpty() {
+        return faceCount == 0;
+    }
+
+    // Triangles added so far; face i occupies entries 6 * i .. 6 * i + 5 of the built mesh's faces
+    int faceCount() {
+        return faceCount;
+    }
+
+    /**
+     * Adds a band along the polyline between the lateral offsets right and left
+     * (meters, positive = left of the driving direction).
+     */
+    void addStrip(List<Point2D> line, double right, double left, float y) {
+        if (line == null || line.size() < 2) return;
+        double[] r = offset(line, right);
+        double[] l = offset(line, left);
+        int base = pointCount;
+        for (int i = 0; i < line.size(); i++) {
+            addPoint(r[2 * i], y, r[2 * i + 1]);
+            addPoint(l[2 * i], y, l[2 * i + 1]);
+        }
+        for (int i = 0; i + 1 < line.size(); i++) {
+            int r0 = base + 2 * i, l0 = r0 + 1, r1 = r0 + 2, l1 = r0 + 3;
+            addFace(r0, r1, l1);
+            addFace(r0, l1, l0);
+        }
+    }
+
+    /**
+     * Adds a polygon (junction surface) as a fan around its centroid;
+     * exact for convex and star-shaped outlines, which junction shapes are.
+     */
+    void addPolygon(List<Point2D> outline, float y) {
+        if (outline == null || outline.size() < 3) return;
+        double cx = 0, cy = 0;
+        for (Point2D p : outline) {
+            cx += p.getX();
+            cy += p.getY();
+        }
+        int n = outline.size();
+        int center = pointCount;
+        addPoint(cx / n, y, cy / n);
+        for (Point2D p : outline) addPoint(p.getX(), y, p.getY());
+        for (int i = 0; i < n; i++) {
+            addFace(center, center + 1 + i, center + 1 + (i + 1) % n);
+        }
+    }
+
+    /**
+     * Adds an axis-aligned box given in scene coordinates (center and size), e.g. a pole.
+     */
+    void addBox(double x, double y, double z, double width, double height, double depth) {
+        int base = pointCount;
+        for (int i = 0; i < 8; i++) {
+            addPoint(x + ((i & 1) == 0 ? -width : width) / 2,
+                     (float) (y + ((i & 2) == 0 ? -height : height) / 2),
+                     z + ((i & 4) == 0 ? -depth : depth) / 2);
+        }
+        // Two triangles per side, corners indexed by their x/y/z bits
+        int[][] sides = {{0, 2, 6, 4}, {1, 5, 7, 3}, {0, 4, 5, 1}, {2, 3, 7, 6}, {0, 1, 3, 2}, {4, 6, 7, 5}};
+        for (int[] q : sides) {
+            addFace(base + q[0], base + q[1], base + q[2]);
+            addFace(base + q[0], base + q[2], base + q[3]);
+        }
+    }
+
+    TriangleMesh build() {
+        TriangleMesh mesh = new TriangleMesh();
+        mesh.getPoints().setAll(points, 0, 3 * pointCount);
+        // Untextured: a single texture coordinate for all vertices
+        mesh.getTexCoords().setAll(0f, 0f);
+        mesh.getFaces().setAll(faces, 0, 6 * faceCount);
+        return mesh;
+    }
+
+    // Polyline shifted sideways by the offset, with miter joins: {x0, y0, x1, y1, ...}
+    static double[] offset(List<Point2D> line, double offset) {
+        int n = line.size();
+        double[] out = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            // Left normals of the adjacent segments (absent at the ends)
+            double[] in = i > 0 ? leftNormal(line.get(i - 1), line.get(i)) : null;
+            double[] outN = i + 1 < n ? leftNormal(line.get(i), line.get(i + 1)) : null;
+            double nx, ny;
+            if (in == null) { nx = outN[0]; ny = outN[1]; }
+            else if (outN == null) { nx = in[0]; ny = in[1]; }
+            else {
+                nx = in[0] + outN[0];
+                ny = in[1] + outN[1];
+                double len = Math.hypot(nx, ny);
+                if (len < 1e-9) { nx = in[0]; ny = in[1]; }
+                else {
+                    nx /= len;
+                    ny /= len;
+                    // Scale so both segments keep the full width: 1 / cos(half angle)
+                    double cos = nx * in[0] + ny * in[1];
+                    double scale = Math.min(1.0 / Math.max(cos, 1e-9), MITER_LIMIT);
+                    nx *= scale;
+                    ny *= scale;
+                }
+            }
+            out[2 * i] = line.get(i).getX() + nx * offset;
+            out[2 * i + 1] = line.get(i).getY() + ny * offset;
+        }
+        return out;
+    }
+
+    private static double[] leftNormal(Point2D a, Point2D b) {
+        double dx = b.getX() - a.getX(), dy = b.getY() - a.getY();
+        double len = Math.hypot(dx, dy);
+        if (len < 1e-9) return new double[] {0, 0};
+        return new double[] {-dy / len, dx / len};
+    }
+
+    private void addPoint(double x, float y, double z) {
+        if (3 * pointCount + 3 > points.length) points = Arrays.copyOf(points, points.length * 2);
+        points[3 * pointCount] = (float) x;
+        points[3 * pointCount + 1] = y;
+        points[3 * pointCount + 2] = (float) z;
+        pointCount++;
+    }
+
+    // Triangle of three point indices, all using texture coordinate 0
+    private void addFace(int p0, int p1, int p2) {
+        if (6 * faceCount + 6 > faces.length) faces = Arrays.copyOf(faces, faces.length * 2);
+        int f = 6 * faceCount;
+        faces[f] = p0;
+        faces[f + 2] = p1;
+        faces[f + 4] = p2;
+        faceCount++;
+    }
+}
@@ -0,0 +1,138 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
+import javafx.scene.shape.Sphere;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Signal heads of all traffic lights, shared by the 2D and 3D map views.
+ * The geometry (controlled lane, stop line position, orientation) is computed once when the
+ * network is loaded; per refresh only the state strings fetched by the view-model worker are
+ * applied (apply()), so no engine call is made per refresh on the FX thread.
+ * Heads are kept per TL link index, i.e. in the order of the TL state string.
+ * Used on the FX thread only.
+ */
+public final class SignalHeadModel {
+
+    /**
+     * One link of a traffic light: where its light stands and its current signal char.
+     */
+    static final class SignalHead {
+        final String tlId;
+        final int linkIndex;
+        // Controlled lane and its edge, both null for a TL without lane details
+        final String laneId;
+        final String edgeId;
+        // Stop line: end of the edge shape (simulation coordinates)
+        final double stopX, stopY;
+        // Direction of the last edge segment in degrees (atan2, counter-clockwise from +x)
+        final double angleDeg;
+        // Current signal char ('r', 'y', 'g', ... as in the SUMO state string), 'o' until the first update
+        char state = 'o';
+        // Bulbs (red, yellow, green) of the 3D view; heads of one edge may share them
+        Sphere[] lights;
+
+        SignalHead(String tlId, int linkIndex, String laneId, String edgeId, double stopX, double stopY, double angleDeg) {
+            this.tlId = tlId;
+            this.linkIndex = linkIndex;
+            this.laneId = laneId;
+            this.edgeId = edgeId;
+            this.stopX = stopX;
+            this.stopY = stopY;
+            this.angleDeg = angleDeg;
+        }
+    }
+
+    private final ISimulationEngine engine;
+    private boolean loaded = false;
+    // Heads per TL, in link index order
+    private final Map<String, List<SignalHead>> headsByTl = new LinkedHashMap<>();
+    private final Map<String, List<SignalHead>> headsByEdge = new LinkedHashMap<>();
+    private final List<SignalHead> heads = new ArrayList<>();
+
+    public SignalHeadModel(ISimulationEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Builds the heads once the network is available.
+     * @return true if the model is loaded
+     */
+    boolean ensureLoaded() {
+        if (loaded || engine == null) return loaded;
+        List<String> edgeIds = engine.getEdgeIdList();
+        if (edgeIds == null || edgeIds.isEmpty()) return false;
+
+        List<String> tlIds = engine.getTrafficLightIdList();
+        if (tlIds != null) {
+            for (String tlId : tlIds) {
+                List<SignalHead> tlHeads = new ArrayList<>();
+                List<String> lanes = engine.getControlledLanes(tlId);
+                if (lanes == null || lanes.isEmpty()) {
+                    // No lane details: a single head at the TL position
+                    Point2D pos = engine.getTrafficLightPosition(tlId);
+                    if (pos != null) tlHeads.add(new SignalHead(tlId, 0, null, null, pos.getX(), pos.getY(), 0));
+                } else {
+                    for (int i = 0; i < lanes.size(); i++) {
+                        SignalHead head = createHead(tlId, i, lanes.get(i));
+                        if (head != null) tlHeads.add(head);
+                    }
+                }
+                headsByTl.put(tlId, tlHeads);
+                for (SignalHead head : tlHeads) {
+                    heads.add(head);
+                    if (head.edgeId != null) headsByEdge.computeIfAbsent(head.edgeId, e -> new ArrayList<>()).add(head);
+                }
+            }
+        }
+        loaded = true;
+        return true;
+    }
+
+    private SignalHead createHead(String tlId, int linkIndex, String laneId) {
+        // Lane "E45_0" belongs to edge "E45"
+        String edgeId = laneId.contains("_") ? laneId.substring(0, laneId.lastIndexOf('_')) : laneId;
+        List<Point2D> shape = engine.getEdgeShape(edgeId);
+        if (shape == null || shape.size() < 2) return null;
+        Point2D end = shape.get(shape.size() - 1);
+        Point2D prev = shape.get(shape.size() - 2);
+        double angleDeg = Math.toDegrees(Math.atan2(end.getY() - prev.getY(), end.getX() - prev.getX()));
+        return new SignalHead(tlId, linkIndex, laneId, edgeId, end.getX(), end.getY(), angleDeg);
+    }
+
+    /**
+     * Applies the state strings of a view-model frame to the heads.
+     * @param states TL id -> SUMO state string (TLs without a state keep their signals)
+     * @return true if any head changed its signal
+     */
+    boolean apply(Map<String, String> states) {
+        if (states == null || !ensureLoaded()) return false;
+        boolean changed = false;
+        for (Map.Entry<String, List<SignalHead>> tl : headsByTl.entrySet()) {
+            String state = states.get(tl.getKey());
+            if (state == null || state.isEmpty()) continue;
+            for (SignalHead head : tl.getValue()) {
+                // Short state strings: fall back to the first signal
+                char c = head.linkIndex < state.length() ? state.charAt(head.linkIndex) : state.charAt(0);
+                if (c != head.state) {
+                    head.state = c;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    List<SignalHead> getHeads() {
+        return heads;
+    }
+
+    List<SignalHead> getHeadsOfEdge(String edgeId) {
+        return headsByEdge.getOrDefault(edgeId, Collections.emptyList());
+    }
+}
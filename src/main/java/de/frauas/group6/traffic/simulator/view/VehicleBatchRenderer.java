@@ -0,0 +1,259 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import java.util.Arrays;
+
+import de.frauas.group6.traffic.simulator.vehicles.IVehicle;
+
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.transform.Transform;
+
+/**
+ * Batched vehicle renderer of the 3D view: one dynamic TriangleMesh per vehicle type and color,
+ * rebuilt from primitive position/heading buffers (filled from the MotionInterpolator frame),
+ * instead of one node per vehicle.
+ * Per frame each vehicle is culled against the camera frustum and drawn as a full box near the
+ * camera or as a flat roof quad farther away. Picking uses a spatial hash over the buffered
+ * positions. FX thread only; steady state is allocation-free apart from the mesh uploads.
+ */
+final class VehicleBatchRenderer {
+
+    // Type dimensions {length, height, width}; unknown types use the default vehicle
+    private static final String[] TYPES = {"DEFAULT_VEHTYPE", "DEFAULT_CONTAINERTYPE", "RESCUE_TYPE", "BUS_TYPE"};
+    private static final float[][] DIMENSIONS = {{4, 2, 1.8f}, {10, 4.5f, 2.5f}, {4.5f, 2, 1.8f}, {12, 3.5f, 2.5f}};
+    // Vehicle colors with a material each; the last material is for any other color
+    private static final String[] COLORS = {"Yellow", "Green", "Red"};
+
+    // Depth (camera space) beyond which vehicles are drawn as roof quads
+    private static final double BOX_DISTANCE = 800;
+    // Spatial hash for picking: cell size in meters, bucket count (power of two)
+    private static final double CELL = 10;
+    private static final int BUCKETS = 1 << 12;
+
+    private final Group group = new Group();
+    private final Batch[] batches = new Batch[TYPES.length * (COLORS.length + 1)];
+
+    // Vehicle buffer of the last refresh
+    private int count = 0;
+    private String[] ids = new String[256];
+    private float[] xs = new float[256];
+    private float[] zs = new float[256];
+    private float[] angles = new float[256];
+    private byte[] batchOf = new byte[256];
+    private final int[] bucketHead = new int[BUCKETS];
+    private int[] bucketNext = new int[256];
+
+    VehicleBatchRenderer() {
+        PhongMaterial[] materials = {
+            new PhongMaterial(Color.YELLOW), new PhongMaterial(Color.GREEN), new PhongMaterial(Color.RED), new PhongMaterial()
+        };
+        for (int t = 0; t < TYPES.length; t++) {
+            for (int c = 0; c <= COLORS.length; c++) {
+                Batch batch = new Batch(DIMENSIONS[t], materials[c]);
+                batches[t * (COLORS.length + 1) + c] = batch;
+                group.getChildren().add(batch.view);
+            }
+        }
+    }
+
+    Group getGroup() {
+        return group;
+    }
+
+    /**
+     * Copies position, heading and batch of the visible vehicles of the current
+     * interpolated frame into the buffers.
+     */
+    void setVehicles(MotionInterpolator motion) {
+        count = 0;
+        Arrays.fill(bucketHead, -1);
+        for (int k = 0; k < motion.size(); k++) {
+            IVehicle v = motion.vehicle(k);
+            if (!v.isIsVisible()) continue;
+            if (count == ids.length) grow();
+            int i = count++;
+            ids[i] = v.getId();
+            xs[i] = (float) motion.x(k);
+            zs[i] = (float) motion.y(k);
+            angles[i] = (float) motion.angle(k);
+            batchOf[i] = (byte) (typeIndex(v.getTypeId()) * (COLORS.length + 1) + colorIndex(v.getColor()));
+            int bucket = bucket(cellOf(xs[i]), cellOf(zs[i]));
+            bucketNext[i] = bucketHead[bucket];
+            bucketHead[bucket] = i;
+        }
+        // Drop references to vehicles that left
+        Arrays.fill(ids, count, ids.length, null);
+    }
+
+    /**
+     * Rebuilds the batch meshes for the current camera.
+     * @param toCamera transform from the vehicle group's coordinates to the camera's (looking along +z)
+     * @param tanHalfX tangent of half the horizontal field of view
+     * @param tanHalfY tangent of half the vertical field of view
+     */
+    void render(Transform toCamera, double tanHalfX, double tanHalfY) {
+        for (Batch batch : batches) batch.clear();
+        double mxx = toCamera.getMxx(), mxy = toCamera.getMxy(), mxz = toCamera.getMxz(), tx = toCamera.getTx();
+        double myx = toCamera.getMyx(), myy = toCamera.getMyy(), myz = toCamera.getMyz(), ty = toCamera.getTy();
+        double mzx = toCamera.getMzx(), mzy = toCamera.getMzy(), mzz = toCamera.getMzz(), tz = toCamera.getTz();
+        for (int i = 0; i < count; i++) {
+            Batch batch = batches[batchOf[i]];
+            // Vehicle center (half its height above the ground) in camera space
+            double y = -batch.dims[1] / 2;
+            double cx = mxx * xs[i] + mxy * y + mxz * zs[i] + tx;
+            double cy = myx * xs[i] + myy * y + myz * zs[i] + ty;
+            double cz = mzx * xs[i] + mzy * y + mzz * zs[i] + tz;
+            // Frustum culling with the bounding radius of the vehicle
+            double r = batch.dims[0] / 2;
+            if (cz < -r || Math.abs(cx) > cz * tanHalfX + r || Math.abs(cy) > cz * tanHalfY + r) continue;
+            if (cz < BOX_DISTANCE) batch.addBox(xs[i], zs[i], angles[i]);
+            else batch.addQuad(xs[i], zs[i], angles[i]);
+        }
+        for (Batch batch : batches) batch.upload();
+    }
+
+    /**
+     * Id of the vehicle closest to (x, z) within the radius, or null.
+     */
+    String pick(double x, double z, double radius) {
+        String best = null;
+        double bestDist = radius * radius;
+        int reach = (int) Math.ceil(radius / CELL);
+        int cx = cellOf(x), cz = cellOf(z);
+        for (int gx = cx - reach; gx <= cx + reach; gx++) {
+            for (int gz = cz - reach; gz <= cz + reach; gz++) {
+                for (int i = bucketHead[bucket(gx, gz)]; i >= 0; i = bucketNext[i]) {
+                    double dx = xs[i] - x, dz = zs[i] - z;
+                    double d = dx * dx + dz * dz;
+                    if (d <= bestDist) {
+                        bestDist = d;
+                        best = ids[i];
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int cellOf(double v) {
+        return (int) Math.floor(v / CELL);
+    }
+
+    private static int bucket(int cx, int cz) {
+        return (cx * 73856093 ^ cz * 19349663) & (BUCKETS - 1);
+    }
+
+    private static int typeIndex(String typeId) {
+        for (int t = 0; t < TYPES.length; t++) if (TYPES[t].equals(typeId)) return t;
+        return 0;
+    }
+
+    private static int colorIndex(String color) {
+        for (int c = 0; c < COLORS.length; c++) if (COLORS[c].equals(color)) return c;
+        return COLORS.length;
+    }
+
+    private void grow() {
+        int size = ids.length * 2;
+        ids = Arrays.copyOf(ids, size);
+        xs = Arrays.copyOf(xs, size);
+        zs = Arrays.copyOf(zs, size);
+        angles = Arrays.copyOf(angles, size);
+        batchOf = Arrays.copyOf(batchOf, size);
+        bucketNext = Arrays.copyOf(bucketNext, size);
+    }
+
+    /**
+     * Vehicles of one type and color: a mesh rebuilt every frame into reused buffers.
+     */
+    private static final class Batch {
+        // Box sides as corner quads (corners indexed by their x/y/z bits), and the roof alone
+        private static final int[][] BOX_SIDES = {{0, 2, 6, 4}, {1, 5, 7, 3}, {0, 4, 5, 1}, {2, 3, 7, 6}, {0, 1, 3, 2}, {4, 6, 7, 5}};
+
+        final float[] dims;
+        final TriangleMesh mesh = new TriangleMesh();
+        final MeshView view = new MeshView(mesh);
+        private float[] points = new float[3 * 8 * 64];
+        private int pointCount = 0;
+        private int[] faces = new int[6 * 12 * 64];
+        private int faceCount = 0;
+
+        Batch(float[] dims, PhongMaterial material) {
+            this.dims = dims;
+            mesh.getTexCoords().setAll(0f, 0f);
+            view.setMaterial(material);
+            view.setCullFace(CullFace.NONE);
+            view.setVisible(false);
+        }
+
+        void clear() {
+            pointCount = 0;
+            faceCount = 0;
+        }
+
+        // Same orientation as a Box of (width, height, length) rotated by the angle around the y axis
+        void addBox(float x, float z, float angleDeg) {
+            ensure(8, 12);
+            int base = pointCount;
+            double a = Math.toRadians(angleDeg), cos = Math.cos(a), sin = Math.sin(a);
+            for (int c = 0; c < 8; c++) {
+                double lx = ((c & 1) == 0 ? -dims[2] : dims[2]) / 2;
+                float ly = (c & 2) == 0 ? -dims[1] : 0;
+                double lz = ((c & 4) == 0 ? -dims[0] : dims[0]) / 2;
+                point(x + lx * cos + lz * sin, ly, z - lx * sin + lz * cos);
+            }
+            for (int[] q : BOX_SIDES) {
+                face(base + q[0], base + q[1], base + q[2]);
+                face(base + q[0], base + q[2], base + q[3]);
+            }
+        }
+
+        // Far away: only the roof as a flat quad
+        void addQuad(float x, float z, float angleDeg) {
+            ensure(4, 2);
+            int base = pointCount;
+            double a = Math.toRadians(angleDeg), cos = Math.cos(a), sin = Math.sin(a);
+            for (int c = 0; c < 4; c++) {
+                double lx = ((c & 1) == 0 ? -dims[2] : dims[2]) / 2;
+                double lz = ((c & 2) == 0 ? -dims[0] : dims[0]) / 2;
+                point(x + lx * cos + lz * sin, -dims[1], z - lx * sin + lz * cos);
+            }
+            face(base, base + 1, base + 3);
+            face(base, base + 3, base + 2);
+        }
+
+        void upload() {
+            if (faceCount == 0) {
+                view.setVisible(false);
+                return;
+            }
+            mesh.getPoints().setAll(points, 0, 3 * pointCount);
+            mesh.getFaces().setAll(faces, 0, 6 * faceCount);
+            view.setVisible(true);
+        }
+
+        private void ensure(int morePoints, int moreFaces) {
+            if (3 * (pointCount + morePoints) > points.length) points = Arrays.copyOf(points, points.length * 2);
+            if (6 * (faceCount + moreFaces) > faces.length) faces = Arrays.copyOf(faces, faces.length * 2);
+        }
+
+        private void point(double x, float y, double z) {
+            points[3 * pointCount] = (float) x;
+            points[3 * pointCount + 1] = y;
+            points[3 * pointCount + 2] = (float) z;
+            pointCount++;
+        }
+
+        // Texture coordinate slots stay 0
+        private void face(int p0, int p1, int p2) {
+            int f = 6 * faceCount++;
+            faces[f] = p0;
+            faces[f + 2] = p1;
+            faces[f + 4] = p2;
+        }
+    }
+}
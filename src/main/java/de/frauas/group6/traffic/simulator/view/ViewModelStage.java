@@ -0,0 +1,254 @@
+package de.frauas.group6.traffic.simulator.view;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.frauas.group6.traffic.simulator.analytics.IStatsCollector;
+import de.frauas.group6.traffic.simulator.analytics.TimeSeries;
+import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
+
+/**
+ * Background view-model stage of the sidebar (ControlPanel and DashBoard).
+ * After a simulation step (request()) a worker thread reads the statistics and the selected
+ * traffic light and builds an immutable Frame of display-ready data: the speed history of the
+ * whole run downsampled to the chart width,
+ * top congested edges, density and travel time bars, simulation time, TL status and the
+ * state strings of all traffic lights for the signal heads of the map.
+ * The FX thread only applies the latest frame to the existing controls, so all sorting,
+ * limiting and engine calls stay off it. Requests arriving while one is queued are merged.
+ */
+final class ViewModelStage {
+
+    private static final Logger LOGGER = Logger.getLogger(ViewModelStage.class.getName());
+
+    // Bars of the congestion chart (highest counts) and of the density / travel time charts
+    static final int TOP_CONGESTED = 5;
+    static final int MAX_BARS = 15;
+
+    /**
+     * Display-ready data of one refresh. Built by the worker and never modified afterwards
+     * (arrays included), so the FX thread can read it without copying.
+     */
+    static final class Frame {
+        final double simulationTime;
+        // All traffic light ids (empty until the network is loaded)
+        final List<String> trafficLightIds;
+        // TL id -> SUMO state string of every traffic light (see SignalHeadModel.apply)
+        final Map<String, String> trafficLightStates;
+        // Status of the selected traffic light; tlId is null if none is selected
+        final String tlId;
+        final String tlState;
+        final int tlPhase;
+        final double tlTimeLeft;
+        // Speed history of the run (simulation time, value), LTTB-downsampled to the chart width
+        final double[] speedTimes;
+        final double[] speeds;
+        // Congested edges by vehicle count, highest first
+        final String[] congestedIds;
+        final int[] congestedCounts;
+        final String[] densityIds;
+        final double[] densities;
+        final String[] routeIds;
+        final double[] travelTimes;
+
+        private Frame(double simulationTime, List<String> trafficLightIds, Map<String, String> trafficLightStates, String tlId, String tlState, int tlPhase,
+                      double tlTimeLeft, double[] speedTimes, double[] speeds, String[] congestedIds, int[] congestedCounts,
+                      String[] densityIds, double[] densities, String[] routeIds, double[] travelTimes) {
+            this.simulationTime = simulationTime;
+            this.trafficLightIds = trafficLightIds;
+            this.trafficLightStates = trafficLightStates;
+            this.tlId = tlId;
+            this.tlState = tlState;
+            this.tlPhase = tlPhase;
+            this.tlTimeLeft = tlTimeLeft;
+            this.speedTimes = speedTimes;
+            this.speeds = speeds;
+            this.congestedIds = congestedIds;
+            this.congestedCounts = congestedCounts;
+            this.densityIds = densityIds;
+            this.densities = densities;
+            this.routeIds = routeIds;
+            this.travelTimes = travelTimes;
+        }
+    }
+
+    private final ISimulationEngine engine;
+    private final IStatsCollector statsCollector;
+    private final Supplier<String> selectedTrafficLight;
+    private final IntSupplier speedChartPoints;
+    private final Runnable onFrame;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "View-Model");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private final AtomicLong mergedRequests = new AtomicLong();
+    private final AtomicReference<Frame> latest = new AtomicReference<>();
+
+    // Worker thread only: the fetched TL id list
+    private List<String> trafficLightIds = Collections.emptyList();
+
+    /**
+     * @param selectedTrafficLight id of the TL shown in the control panel (read on the worker, must be thread-safe)
+     * @param speedChartPoints number of points the speed chart can show (read on the worker, must be thread-safe)
+     * @param onFrame called on the worker after each new frame
+     */
+    ViewModelStage(ISimulationEngine engine, IStatsCollector statsCollector, Supplier<String> selectedTrafficLight,
+                   IntSupplier speedChartPoints, Runnable onFrame) {
+        this.engine = engine;
+        this.statsCollector = statsCollector;
+        this.selectedTrafficLight = selectedTrafficLight;
+        this.speedChartPoints = speedChartPoints;
+        this.onFrame = onFrame;
+    }
+
+    /**
+     * Asks for a new frame; merged into an already queued one. Any thread.
+     */
+    void request() {
+        if (pending.compareAndSet(false, true)) {
+            worker.execute(this::build);
+        } else {
+            mergedRequests.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the newest frame, null before the first one
+     */
+    Frame getLatest() {
+        return latest.get();
+    }
+
+    long getMergedRequestCount() {
+        return mergedRequests.get();
+    }
+
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // ==========================================
+    // FRAME BUILDING (worker thread)
+    // ==========================================
+
+    private void build() {
+        // Cleared first: a step finishing during the build queues the next one
+        pending.set(false);
+        try {
+            latest.set(buildFrame());
+            onFrame.run();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error building the view model", e);
+        }
+    }
+
+    private Frame buildFrame() {
+        double simulationTime = 0;
+        String tlId = selectedTrafficLight.get();
+        String tlState = null;
+        int tlPhase = -1;
+        double tlTimeLeft = 0;
+        Map<String, String> tlStates = Collections.emptyMap();
+        if (engine != null) {
+            simulationTime = engine.getCurrentSimulationTime();
+            if (trafficLightIds.isEmpty()) {
+                List<String> ids = engine.getTrafficLightIdList();
+                if (ids != null) trafficLightIds = List.copyOf(ids);
+            }
+            // One state call per TL, here instead of on the FX thread
+            Map<String, String> states = new HashMap<>();
+            for (String id : trafficLightIds) {
+                String state = engine.getTrafficLightState(id);
+                if (state != null) states.put(id, state);
+            }
+            tlStates = Collections.unmodifiableMap(states);
+            if (tlId != null) {
+                tlState = tlStates.containsKey(tlId) ? tlStates.get(tlId) : engine.getTrafficLightState(tlId);
+                tlTimeLeft = engine.getTrafficLightRemainingTime(tlId);
+                tlPhase = engine.getTrafficLightPhase(tlId);
+            }
+        } else {
+            tlId = null;
+        }
+
+        String[] congestedIds = new String[0], densityIds = new String[0], routeIds = new String[0];
+        int[] congestedCounts = new int[0];
+        double[] densities = new double[0], travelTimes = new double[0];
+        double[] speedTimes = new double[0], speeds = new double[0];
+        if (statsCollector != null) {
+            // Cost depends on the chart width, not on the length of the run
+            TimeSeries.Points speedPoints = statsCollector.getSpeedHistoryDownsampled(Math.max(2, speedChartPoints.getAsInt()));
+            speedTimes = new double[speedPoints.size()];
+            speeds = new double[speedPoints.size()];
+            for (int i = 0; i < speedTimes.length; i++) {
+                speedTimes[i] = speedPoints.getTime(i);
+                speeds[i] = speedPoints.getValue(i);
+            }
+            // Live congestion of the latest sampled step
+            Map<String, Integer> congestion = statsCollector.getCurrentCongestedEdgeIds();
+            if (congestion != null) {
+                int k = Math.min(TOP_CONGESTED, congestion.size());
+                congestedIds = new String[k];
+                congestedCounts = new int[k];
+                topCounts(congestion, congestedIds, congestedCounts);
+            }
+            Map<String, Double> densityMap = statsCollector.getEdgeDensity();
+            if (densityMap != null) {
+                int n = Math.min(MAX_BARS, densityMap.size());
+                densityIds = new String[n];
+                densities = new double[n];
+                firstValues(densityMap, densityIds, densities);
+            }
+            Map<String, Double> travelTimeMap = statsCollector.getAverageTravelTime();
+            if (travelTimeMap != null) {
+                int n = Math.min(MAX_BARS, travelTimeMap.size());
+                routeIds = new String[n];
+                travelTimes = new double[n];
+                firstValues(travelTimeMap, routeIds, travelTimes);
+            }
+        }
+        return new Frame(simulationTime, trafficLightIds, tlStates, tlId, tlState, tlPhase, tlTimeLeft,
+            speedTimes, speeds, congestedIds, congestedCounts,
+            densityIds, densities, routeIds, travelTimes);
+    }
+
+    // The ids.length highest counts in descending order (insertion into the small result arrays)
+    private static void topCounts(Map<String, Integer> counts, String[] ids, int[] values) {
+        int size = 0;
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            int value = e.getValue();
+            if (size == ids.length && (size == 0 || value <= values[size - 1])) continue;
+            int i = size < ids.length ? size++ : size - 1;
+            while (i > 0 && values[i - 1] < value) {
+                ids[i] = ids[i - 1];
+                values[i] = values[i - 1];
+                i--;
+            }
+            ids[i] = e.getKey();
+            values[i] = value;
+        }
+    }
+
+    // First ids.length entries in map order
+    private static void firstValues(Map<String, Double> map, String[] ids, double[] values) {
+        int i = 0;
+        for (Map.Entry<String, Double> e : map.entrySet()) {
+            if (i == ids.length) break;
+            ids[i] = e.getKey();
+            values[i++] = e.getValue();
+        }
+    }
+}
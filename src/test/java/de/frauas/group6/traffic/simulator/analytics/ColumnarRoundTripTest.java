@@ -0,0 +1,147 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * ColumnarWriter -> ColumnarReader round trip: values, dictionaries and row group statistics.
+ */
+public class ColumnarRoundTripTest extends TestCase {
+
+	private static final int ROW_GROUP_SIZE = 4;
+	private static final String[] EDGES = {"E2", "E0", "E1"};
+
+	private Path file;
+
+	@Override
+	protected void setUp() throws IOException {
+		file = Files.createTempFile("columnar-test", ".tscol");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	// 10 rows, i.e. row groups of 4, 4 and 2 rows; a second table is written interleaved
+	private void writeFile() {
+		try (ColumnarWriter writer = new ColumnarWriter(file, ROW_GROUP_SIZE)) {
+			ColumnarWriter.Table speeds = writer.table("speeds",
+					ColumnarWriter.Column.string("edge_id"), ColumnarWriter.Column.int32("step"), ColumnarWriter.Column.float64("speed"));
+			ColumnarWriter.Table routes = writer.table("routes",
+					ColumnarWriter.Column.string("route_id"), ColumnarWriter.Column.float64("travel_time"));
+			writer.table("empty", ColumnarWriter.Column.float64("value"));
+			for (int i = 0; i < 10; i++) {
+				speeds.putString(0, EDGES[i % 3]).putInt(1, i - 3).putDouble(2, 0.5 * i).endRow();
+				if (i % 5 == 0) routes.putString(0, i == 0 ? null : "r" + i).putDouble(1, 60.0 + i).endRow();
+			}
+			assertEquals(10L, speeds.getRowCount());
+		}
+	}
+
+	public void testValuesSurviveTheRoundTrip() {
+		writeFile();
+		try (ColumnarReader reader = new ColumnarReader(file)) {
+			assertEquals(List.of("speeds", "routes", "empty"), reader.getTableNames());
+
+			ColumnarReader.Table speeds = reader.getTable("speeds");
+			assertEquals(10L, speeds.getRowCount());
+			assertEquals(List.of("edge_id", "step", "speed"), speeds.getColumnNames());
+			assertEquals(ColumnType.STRING, speeds.getColumnType("edge_id"));
+			String[] edges = speeds.readStrings("edge_id");
+			int[] steps = speeds.readInts("step");
+			double[] values = speeds.readDoubles("speed");
+			for (int i = 0; i < 10; i++) {
+				assertEquals(EDGES[i % 3], edges[i]);
+				assertEquals(i - 3, steps[i]);
+				assertEquals(0.5 * i, values[i], 0.0);
+			}
+
+			// null is stored as an empty string
+			ColumnarReader.Table routes = reader.getTable("routes");
+			assertEquals(Arrays.asList("", "r5"), Arrays.asList(routes.readStrings("route_id")));
+			assertEquals(65.0, routes.readDoubles("travel_time")[1], 0.0);
+
+			ColumnarReader.Table empty = reader.getTable("empty");
+			assertEquals(0L, empty.getRowCount());
+			assertEquals(0, empty.readDoubles("value").length);
+		}
+	}
+
+	public void testDictionaryKeepsFirstAppearanceOrder() {
+		writeFile();
+		try (ColumnarReader reader = new ColumnarReader(file)) {
+			assertEquals(List.of("E2", "E0", "E1"), reader.getTable("speeds").getDictionary("edge_id"));
+			try {
+				reader.getTable("speeds").getDictionary("speed");
+				fail("expected AnalyticsException");
+			} catch (AnalyticsException expected) {
+				// only STRING columns have a dictionary
+			}
+		}
+	}
+
+	public void testRowGroupStatistics() {
+		writeFile();
+		try (ColumnarReader reader = new ColumnarReader(file)) {
+			ColumnarReader.Table speeds = reader.getTable("speeds");
+			List<ColumnarReader.RowGroup> groups = speeds.getRowGroups();
+			assertEquals(3, groups.size());
+			assertEquals(4, groups.get(0).getRowCount());
+			assertEquals(2, groups.get(2).getRowCount());
+
+			// Rows 4..7
+			ColumnarReader.RowGroup second = groups.get(1);
+			assertEquals(2.0, second.getMin("speed"), 0.0);
+			assertEquals(3.5, second.getMax("speed"), 0.0);
+			assertEquals(1.0, second.getMin("step"), 0.0);
+			assertEquals(4.0, second.getMax("step"), 0.0);
+			assertEquals(List.of("E0", "E1", "E2", "E0"), Arrays.asList(second.getStrings("edge_id")));
+			// STRING statistics are dictionary codes: E2 = 0, E0 = 1, E1 = 2
+			assertEquals(0.0, second.getMin("edge_id"), 0.0);
+			assertEquals(2.0, second.getMax("edge_id"), 0.0);
+
+			// Rows 8..9 hold E1 (code 2) and E2 (code 0)
+			ColumnarReader.RowGroup last = groups.get(2);
+			assertEquals(0.0, last.getMin("edge_id"), 0.0);
+			assertEquals(2.0, last.getMax("edge_id"), 0.0);
+			assertEquals(-3.0, groups.get(0).getMin("step"), 0.0);
+		}
+	}
+
+	public void testPredicatesSkipRowGroups() {
+		writeFile();
+		try (ColumnarReader reader = new ColumnarReader(file)) {
+			ColumnarReader.Table speeds = reader.getTable("speeds");
+			List<ColumnarReader.RowGroup> groups = speeds.getRowGroups();
+			assertEquals(List.of(groups.get(1)), speeds.rowGroupsInRange("speed", 2.2, 3.4));
+			assertEquals(List.of(groups.get(1), groups.get(2)), speeds.rowGroupsInRange("step", 4, 100));
+			assertEquals(0, speeds.rowGroupsInRange("speed", 10.0, 20.0).size());
+
+			ColumnarReader.Table routes = reader.getTable("routes");
+			assertEquals(1, routes.rowGroupsContaining("route_id", "r5").size());
+			assertEquals(0, routes.rowGroupsContaining("route_id", "r9").size());
+			try {
+				speeds.rowGroupsInRange("edge_id", 0, 1);
+				fail("expected AnalyticsException");
+			} catch (AnalyticsException expected) {
+				// codes carry no order, ranges over strings are refused
+			}
+		}
+	}
+
+	public void testRejectsFilesWithoutTrailer() throws IOException {
+		Files.write(file, "edge_id,speed\nE1,3.0\n".getBytes());
+		try {
+			new ColumnarReader(file).close();
+			fail("expected AnalyticsException");
+		} catch (AnalyticsException expected) {
+			// CSV, not columnar
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Round trip of GorillaCodec: times in milliseconds, positions in centimeters, speeds bit exact.
+ */
+public class GorillaCodecTest extends TestCase {
+
+	// Encodes the points and checks that each one decodes to its quantized value
+	private static GorillaCodec.Encoder roundTrip(double[] t, double[] x, double[] y, double[] speed) {
+		GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+		for (int i = 0; i < t.length; i++) encoder.append(t[i], x[i], y[i], speed[i]);
+		assertEquals(t.length, encoder.count());
+
+		// Decode from the trimmed words, as sealed chunks do
+		long[] words = encoder.trimmedWords();
+		assertEquals((encoder.bitLength() + 63) / 64, words.length);
+		GorillaCodec.Decoder decoder = new GorillaCodec.Decoder(words, encoder.count());
+		for (int i = 0; i < t.length; i++) {
+			assertTrue(decoder.hasNext());
+			decoder.next();
+			assertEquals(i, decoder.index());
+			assertEquals("time of point " + i, GorillaCodec.timeKey(t[i]) / 1000.0, decoder.time, 0.0);
+			assertEquals("x of point " + i, GorillaCodec.positionKey(x[i]) / 100.0, decoder.x, 0.0);
+			assertEquals("y of point " + i, GorillaCodec.positionKey(y[i]) / 100.0, decoder.y, 0.0);
+			assertEquals("speed bits of point " + i, Double.doubleToRawLongBits(speed[i]), Double.doubleToRawLongBits(decoder.speed));
+		}
+		assertFalse(decoder.hasNext());
+		return encoder;
+	}
+
+	public void testQuantization() {
+		roundTrip(new double[] {12.3456, 12.4444}, new double[] {1.004, -1.006}, new double[] {-0.005, 0.0149},
+				new double[] {13.37, 0.1});
+		GorillaCodec.Decoder decoder = new GorillaCodec.Decoder(encoded(12.3456, 1.004, -1.006, 13.37), 1);
+		decoder.next();
+		assertEquals(12.346, decoder.time, 0.0);
+		assertEquals(1.0, decoder.x, 0.0);
+		assertEquals(-1.01, decoder.y, 0.0);
+		assertEquals(13.37, decoder.speed, 0.0);
+	}
+
+	public void testLinearMotionWithRepeatedValues() {
+		int n = 200;
+		double[] t = new double[n], x = new double[n], y = new double[n], speed = new double[n];
+		for (int i = 0; i < n; i++) {
+			t[i] = i * 0.1;
+			x[i] = 100.0 + i * 1.25;
+			// Standing still in y, constant speed
+			y[i] = 50.0;
+			speed[i] = 12.5;
+		}
+		GorillaCodec.Encoder encoder = roundTrip(t, x, y, speed);
+		// 256 bits for the raw first point, a few bits for the second, then 4 bits per point
+		assertTrue("bits: " + encoder.bitLength(), encoder.bitLength() <= 256 + 64 + (n - 2) * 4);
+	}
+
+	public void testNegativeDeltas() {
+		int n = 50;
+		double[] t = new double[n], x = new double[n], y = new double[n], speed = new double[n];
+		for (int i = 0; i < n; i++) {
+			t[i] = i;
+			// Driving towards negative coordinates while braking
+			x[i] = -10.0 - i * i * 0.37;
+			y[i] = 200.0 - i * 3.3;
+			speed[i] = Math.max(0.0, 20.0 - i * 0.7);
+		}
+		roundTrip(t, x, y, speed);
+	}
+
+	public void testLargeGapsAndJumps() {
+		double[] t = {0.0, 1.0, 2.0, 10_000.0, 10_001.0, 10_001.5, 5e6};
+		double[] x = {0.0, 1.0, 2.0, 1e6, -1e6, -1e6, 3.3e7};
+		double[] y = {0.0, 0.0, 0.0, -2e5, 4e5, 4e5, -9e6};
+		double[] speed = {0.0, -0.0, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN, 1.0, 1.0};
+		roundTrip(t, x, y, speed);
+	}
+
+	public void testRandomWalkInEveryDeltaRange() {
+		Random random = new Random(7);
+		int n = 5_000;
+		double[] t = new double[n], x = new double[n], y = new double[n], speed = new double[n];
+		double time = 0.0, px = 0.0, py = 0.0;
+		for (int i = 0; i < n; i++) {
+			// Mix of second differences for the 1/7/9/12/64 bit buckets
+			double scale = new double[] {0.0, 0.3, 2.0, 15.0, 5_000.0}[random.nextInt(5)];
+			time += random.nextInt(3) == 0 ? 0.1 : random.nextDouble() * scale;
+			px += (random.nextDouble() - 0.5) * scale;
+			py -= (random.nextDouble() - 0.5) * scale;
+			t[i] = time;
+			x[i] = px;
+			y[i] = py;
+			speed[i] = random.nextInt(4) == 0 ? speed[Math.max(0, i - 1)] : random.nextDouble() * 40.0;
+		}
+		roundTrip(t, x, y, speed);
+	}
+
+	private static long[] encoded(double time, double x, double y, double speed) {
+		GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+		encoder.append(time, x, y, speed);
+		return encoder.trimmedWords();
+	}
+}
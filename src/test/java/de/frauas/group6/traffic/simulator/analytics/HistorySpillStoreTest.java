@@ -0,0 +1,179 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+/**
+ * Append, cursor reads, run files and reopening of HistorySpillStore.
+ */
+public class HistorySpillStoreTest extends TestCase {
+
+	private static final int RECORDS_PER_SEGMENT = 4;
+
+	private Path base;
+
+	@Override
+	protected void setUp() throws IOException {
+		base = Files.createTempDirectory("history-spill-test");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(base)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.deleteIfExists(file);
+		}
+	}
+
+	// Steps 1..10, two vehicles per step; 20 records over 5 segments
+	private static void appendRun(HistorySpillStore store) {
+		for (int step = 1; step <= 10; step++) {
+			store.append(step, step * 0.5, "veh_a", "E1", 0, step, 100.0 + step, -step);
+			store.append(step, step * 0.5, "veh_b", step > 5 ? "E2" : null, 1, 2.0 * step, 200.0 + step, step);
+		}
+	}
+
+	public void testCursorReadsTimeRangeAcrossSegments() {
+		try (HistorySpillStore store = HistorySpillStore.createRun(base, RECORDS_PER_SEGMENT)) {
+			appendRun(store);
+			assertEquals(20L, store.size());
+
+			// 1.5 s .. 3.0 s is steps 3..6
+			HistorySpillStore.Cursor cursor = store.query(1.5, 3.0);
+			List<String> seen = new ArrayList<>();
+			while (cursor.next()) seen.add(cursor.getStep() + ":" + cursor.getVehicleId() + ":" + cursor.getEdgeId());
+			assertEquals(List.of("3:veh_a:E1", "3:veh_b:null", "4:veh_a:E1", "4:veh_b:null",
+					"5:veh_a:E1", "5:veh_b:null", "6:veh_a:E1", "6:veh_b:E2"), seen);
+
+			// Every field decodes as written
+			cursor = store.query(4.0, 4.0);
+			assertTrue(cursor.next());
+			assertEquals(4.0, cursor.getTime(), 0.0);
+			assertEquals(8, cursor.getStep());
+			assertEquals("veh_a", cursor.getVehicleId());
+			assertEquals(0, cursor.getLane());
+			assertEquals(8.0, cursor.getSpeed(), 0.0);
+			assertEquals(108.0, cursor.getX(), 0.0);
+			assertEquals(-8.0, cursor.getY(), 0.0);
+			assertTrue(cursor.next());
+			assertEquals("E2", cursor.getEdgeId());
+			assertEquals(1, cursor.getLane());
+			assertEquals(16.0, cursor.getSpeed(), 0.0);
+			assertFalse(cursor.next());
+		}
+	}
+
+	public void testQueryStopsAtTheRecordPrefix() {
+		try (HistorySpillStore store = HistorySpillStore.createRun(base, RECORDS_PER_SEGMENT)) {
+			appendRun(store);
+			// The first 7 records: steps 1..3 and veh_a of step 4
+			HistorySpillStore.Cursor cursor = store.query(0.0, 100.0, 7);
+			int count = 0;
+			int lastStep = 0;
+			while (cursor.next()) {
+				count++;
+				lastStep = cursor.getStep();
+			}
+			assertEquals(7, count);
+			assertEquals(4, lastStep);
+			assertEquals(0, store.slices(100.0, 200.0).size());
+		}
+	}
+
+	public void testRunFilesAndReopen() throws IOException {
+		Path runDirectory;
+		try (HistorySpillStore store = HistorySpillStore.createRun(base, RECORDS_PER_SEGMENT)) {
+			appendRun(store);
+			runDirectory = store.getDirectory();
+		}
+		assertTrue(runDirectory.getFileName().toString().startsWith("run-"));
+
+		// One id per line, the line number is the code
+		assertEquals(List.of("veh_a", "veh_b"), Files.readAllLines(runDirectory.resolve(HistorySpillStore.VEHICLE_DICTIONARY), StandardCharsets.UTF_8));
+		assertEquals(List.of("E1", "E2"), Files.readAllLines(runDirectory.resolve(HistorySpillStore.EDGE_DICTIONARY), StandardCharsets.UTF_8));
+
+		List<String> index = Files.readAllLines(runDirectory.resolve(HistorySpillStore.INDEX_FILE), StandardCharsets.UTF_8);
+		assertEquals("history-spill 1", index.get(0));
+		assertEquals("recordsPerSegment " + RECORDS_PER_SEGMENT, index.get(1));
+		assertEquals(2 + 5, index.size());
+		assertEquals("segment history-00000.seg 4 0.5 1.0", index.get(2));
+		assertEquals("segment history-00004.seg 4 4.5 5.0", index.get(6));
+
+		HistorySpillStore reopened = HistorySpillStore.open(runDirectory);
+		assertTrue(reopened.isClosed());
+		assertEquals(20L, reopened.size());
+		HistorySpillStore.Cursor cursor = reopened.query(5.0, 5.0);
+		assertTrue(cursor.next());
+		assertEquals("veh_a", cursor.getVehicleId());
+		assertEquals(110.0, cursor.getX(), 0.0);
+		assertTrue(cursor.next());
+		assertEquals("veh_b", cursor.getVehicleId());
+		assertEquals("E2", cursor.getEdgeId());
+		assertFalse(cursor.next());
+	}
+
+	public void testCloseTruncatesSegmentsToTheirRecords() throws IOException {
+		HistorySpillStore store = HistorySpillStore.createRun(base, 1000);
+		store.append(1, 1.0, "veh_a", "E1", 0, 1.0, 0.0, 0.0);
+		store.append(2, 2.0, "veh_a", "E1", 0, 2.0, 1.0, 0.0);
+		store.append(3, 3.0, "veh_a", "E1", 0, 3.0, 2.0, 0.0);
+		Path segment = store.getDirectory().resolve("history-00000.seg");
+		assertEquals(1000L * HistorySpillStore.RECORD_SIZE, Files.size(segment));
+		store.close();
+		assertEquals(3L * HistorySpillStore.RECORD_SIZE, Files.size(segment));
+
+		// Still readable through the new mapping
+		HistorySpillStore.Cursor cursor = store.query(3.0, 3.0);
+		assertTrue(cursor.next());
+		assertEquals(2.0, cursor.getX(), 0.0);
+		assertFalse(cursor.next());
+	}
+
+	public void testOpenHonoursTheStoredCountOfAnUnclosedRun() {
+		HistorySpillStore store = HistorySpillStore.createRun(base, 1000);
+		try {
+			store.append(1, 1.0, "veh_a", "E1", 0, 1.0, 0.0, 0.0);
+			store.append(2, 2.0, "veh_a", "E1", 0, 2.0, 1.0, 0.0);
+			store.flush();
+			// Written after the flush, so not in the index yet
+			store.append(3, 3.0, "veh_a", "E1", 0, 3.0, 2.0, 0.0);
+
+			// The segment file still has its full mapped size
+			HistorySpillStore reopened = HistorySpillStore.open(store.getDirectory());
+			assertEquals(2L, reopened.size());
+			HistorySpillStore.Cursor cursor = reopened.query(0.0, 10.0);
+			int count = 0;
+			while (cursor.next()) count++;
+			assertEquals(2, count);
+		} finally {
+			store.close();
+		}
+	}
+
+	public void testAppendAfterCloseThrows() {
+		HistorySpillStore store = HistorySpillStore.createRun(base, RECORDS_PER_SEGMENT);
+		store.close();
+		try {
+			store.append(1, 1.0, "veh_a", "E1", 0, 1.0, 0.0, 0.0);
+			fail("expected AnalyticsException");
+		} catch (AnalyticsException expected) {
+			// closed stores are read-only
+		}
+	}
+
+	public void testDeleteRemovesTheRunDirectory() {
+		HistorySpillStore store = HistorySpillStore.createRun(base, RECORDS_PER_SEGMENT);
+		appendRun(store);
+		Path runDirectory = store.getDirectory();
+		store.delete();
+		assertFalse(Files.exists(runDirectory));
+		assertEquals(0L, store.size());
+	}
+}
@@ -0,0 +1,60 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+/**
+ * Concurrent updates of MeanAccumulator: no sample may be lost.
+ */
+public class MeanAccumulatorTest extends TestCase {
+
+	private static final int THREADS = 8;
+	private static final int ADDS = 200_000;
+
+	public void testConcurrentAddsKeepSumAndCount() throws Exception {
+		MeanAccumulator acc = new MeanAccumulator();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			// Even threads add single samples, odd threads merge partial results of 2 samples
+			boolean partial = t % 2 == 1;
+			Thread thread = new Thread(() -> {
+				await(start);
+				for (int i = 0; i < ADDS; i++) {
+					if (partial) acc.add(2.0 * (i % 10), 2);
+					else acc.add(i % 10);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : threads) thread.join();
+
+		// Values are small integers, so the sums are exact
+		long expectedCount = (long) (THREADS / 2) * ADDS + (long) (THREADS / 2) * ADDS * 2;
+		double perThreadSum = 4.5 * ADDS;
+		double expectedSum = (THREADS / 2) * perThreadSum + (THREADS / 2) * 2 * perThreadSum;
+		assertEquals(expectedCount, acc.count());
+		assertEquals(expectedSum, acc.sum(), 0.0);
+		assertEquals(acc.sum() / acc.count(), acc.mean(), 0.0);
+	}
+
+	public void testEmptyMeanIsZero() {
+		MeanAccumulator acc = new MeanAccumulator();
+		acc.add(5.0, 0);
+		assertEquals(0L, acc.count());
+		assertEquals(0.0, acc.mean(), 0.0);
+	}
+
+	static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
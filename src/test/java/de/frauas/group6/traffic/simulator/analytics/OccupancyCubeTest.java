@@ -0,0 +1,202 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import static de.frauas.group6.traffic.simulator.analytics.StatsCollectorConcurrencyTest.stub;
+import static de.frauas.group6.traffic.simulator.analytics.StatsCollectorExportTest.section;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
+import de.frauas.group6.traffic.simulator.infrastructure.IInfrastructureManager;
+import de.frauas.group6.traffic.simulator.vehicles.IVehicleManager;
+import junit.framework.TestCase;
+
+/**
+ * OccupancyCube binning (row x position bin x time bin) with known vehicle positions,
+ * and the SPACE_TIME export built from it.
+ */
+public class OccupancyCubeTest extends TestCase {
+
+	// 4 position bins, 10 s time bins, window of 3 bins
+	private static final int POSITION_BINS = 4;
+	private static final double TIME_BIN = 10.0;
+	private static final int TIME_BINS = 3;
+	private static final long BUDGET = 1 << 20;
+
+	private static OccupancyCube cube(OccupancyCube.Granularity granularity, long budget) {
+		OccupancyCube cube = new OccupancyCube(granularity, POSITION_BINS, TIME_BIN, TIME_BINS, budget);
+		// Bins of 25 m on E1, 10 m on E2
+		cube.setEdgeLength("E1", 100.0);
+		cube.setEdgeLength("E2", 40.0);
+		return cube;
+	}
+
+	/**
+	 * t = 0 and t = 5 (time bin 0), t = 10 (time bin 1):
+	 *   a	E1 lane 0 at 10 m, 20 m, 30 m with 5, 7, 8 m/s
+	 *   b	E1 lane 1 at 60 m, 99.9 m with 10 m/s
+	 *   c	E2 lane 0 at 39 m with 2 m/s (t = 0 only)
+	 *   f	E1 lane 0 at 120 m (beyond the length, clamped to the last bin) with 4 m/s (t = 10 only)
+	 * plus a vehicle on an internal edge without length and one without edge, both not binned.
+	 */
+	private static void addSteps(StepSink sink) {
+		sink.add(0.0, new String[] {"E1", "E1", "E2", ":J1_0", null}, new int[] {0, 1, 0, 0, 0},
+				new double[] {10.0, 60.0, 39.0, 1.0, 0.0}, new double[] {5.0, 10.0, 2.0, 3.0, 3.0});
+		sink.add(5.0, new String[] {"E1", "E1"}, new int[] {0, 1}, new double[] {20.0, 99.9}, new double[] {7.0, 10.0});
+		sink.add(10.0, new String[] {"E1", "E1"}, new int[] {0, 0}, new double[] {30.0, 120.0}, new double[] {8.0, 4.0});
+	}
+
+	@FunctionalInterface
+	private interface StepSink {
+		void add(double time, String[] edgeIds, int[] lanes, double[] positions, double[] speeds);
+	}
+
+	private static void addSteps(OccupancyCube cube) {
+		addSteps((time, edgeIds, lanes, positions, speeds) -> cube.addStep(time, edgeIds.length, edgeIds, lanes, positions, speeds));
+	}
+
+	public void testLaneBinning() {
+		OccupancyCube cube = cube(OccupancyCube.Granularity.LANE, BUDGET);
+		addSteps(cube);
+		assertEquals(List.of("E1_0", "E1_1", "E2_0"), cube.getRowIds());
+		assertEquals(List.of("E1", "E2"), cube.getEdgeIds());
+		assertEquals(List.of("E1_0", "E1_1"), cube.getRowIdsOfEdge("E1"));
+
+		// Occupancy = vehicles in the cell / steps in the time bin (2 steps in bin 0, 1 in bin 1)
+		OccupancyCube.Slice lane0 = cube.getSlice("E1_0");
+		assertEquals(2, lane0.getTimeBins());
+		assertEquals(0.0, lane0.getStartTime(), 0.0);
+		assertCell(lane0, 0, 0, 1.0, 6.0);
+		assertCell(lane0, 1, 1, 1.0, 8.0);
+		assertCell(lane0, 1, 3, 1.0, 4.0);
+		assertEmpty(lane0, 0, 1);
+		assertEmpty(lane0, 0, 3);
+		assertEquals(1.0 / 25.0, lane0.getDensity(0, 0), 1e-9);
+		assertEquals(75.0, lane0.getPositionStart(3), 0.0);
+		double[] profile = lane0.getOccupancyProfile();
+		assertEquals(0.5, profile[0], 0.0);
+		assertEquals(0.5, profile[1], 0.0);
+		assertEquals(0.0, profile[2], 0.0);
+		assertEquals(0.5, profile[3], 0.0);
+
+		OccupancyCube.Slice lane1 = cube.getSlice("E1_1");
+		assertCell(lane1, 0, 2, 0.5, 10.0);
+		assertCell(lane1, 0, 3, 0.5, 10.0);
+		assertEmpty(lane1, 1, 3);
+
+		// 39 m of 40 m is the last 10 m bin
+		OccupancyCube.Slice e2 = cube.getSlice("E2_0");
+		assertCell(e2, 0, 3, 0.5, 2.0);
+		assertEquals(0.05, e2.getDensity(0, 3), 1e-9);
+		assertEquals(40.0, e2.getEdgeLength(), 0.0);
+
+		assertNull(cube.getSlice(":J1_0_0"));
+		assertEquals(3 * POSITION_BINS * TIME_BINS * OccupancyCube.BYTES_PER_CELL, cube.getAllocatedBytes());
+	}
+
+	public void testEdgeBinningMergesLanes() {
+		OccupancyCube cube = cube(OccupancyCube.Granularity.EDGE, BUDGET);
+		addSteps(cube);
+		assertEquals(List.of("E1", "E2"), cube.getRowIds());
+		OccupancyCube.Slice e1 = cube.getSlice("E1");
+		assertCell(e1, 0, 0, 1.0, 6.0);
+		assertCell(e1, 0, 2, 0.5, 10.0);
+		assertCell(e1, 0, 3, 0.5, 10.0);
+		assertCell(e1, 1, 1, 1.0, 8.0);
+		assertCell(e1, 1, 3, 1.0, 4.0);
+	}
+
+	public void testTimeWindowIsARing() {
+		OccupancyCube cube = cube(OccupancyCube.Granularity.LANE, BUDGET);
+		addSteps(cube);
+		// Bin 4: the window moves to bins 2..4, bins 0 and 1 are dropped
+		cube.addStep(45.0, 1, new String[] {"E1"}, new int[] {0}, new double[] {80.0}, new double[] {9.0});
+		OccupancyCube.Slice lane0 = cube.getSlice("E1_0");
+		assertEquals(3, lane0.getTimeBins());
+		assertEquals(20.0, lane0.getStartTime(), 0.0);
+		for (int t = 0; t < 2; t++) {
+			for (int p = 0; p < POSITION_BINS; p++) assertEmpty(lane0, t, p);
+		}
+		assertCell(lane0, 2, 3, 1.0, 9.0);
+
+		// Steps older than the window are ignored
+		long version = cube.getVersion();
+		cube.addStep(5.0, 1, new String[] {"E1"}, new int[] {0}, new double[] {0.0}, new double[] {1.0});
+		assertEquals(version, cube.getVersion());
+		assertEmpty(cube.getSlice("E1_0"), 0, 0);
+	}
+
+	public void testRowsBeyondTheBudgetAreDropped() {
+		// Room for two rows only
+		OccupancyCube cube = cube(OccupancyCube.Granularity.LANE, 2L * POSITION_BINS * TIME_BINS * OccupancyCube.BYTES_PER_CELL);
+		addSteps(cube);
+		assertEquals(List.of("E1_0", "E1_1"), cube.getRowIds());
+		assertEquals(1, cube.getDroppedRows());
+		assertNull(cube.getSlice("E2_0"));
+	}
+
+	public void testSpec() {
+		assertNull(OccupancyCube.fromSpec("off"));
+		assertNull(OccupancyCube.fromSpec(" "));
+		OccupancyCube defaults = OccupancyCube.fromSpec("on");
+		assertEquals(OccupancyCube.Granularity.LANE, defaults.getGranularity());
+		assertEquals(20, defaults.getPositionBins());
+		assertEquals(360, defaults.getTimeBins());
+		OccupancyCube cube = OccupancyCube.fromSpec("edge:8:5:12:1");
+		assertEquals(OccupancyCube.Granularity.EDGE, cube.getGranularity());
+		assertEquals(5.0, cube.getTimeBinSeconds(), 0.0);
+		assertEquals(1L << 20, cube.getBudgetBytes());
+		for (String invalid : new String[] {"LANE:20:10", "ROAD:20:10:360:16", "LANE:0:10:360:16", "LANE:20:0:360:16", "LANE:20:10:360:0"}) {
+			try {
+				OccupancyCube.fromSpec(invalid);
+				fail("expected AnalyticsException for " + invalid);
+			} catch (AnalyticsException expected) {
+				// rejected
+			}
+		}
+	}
+
+	public void testSpaceTimeExport() throws IOException {
+		StatsCollector collector = new StatsCollector(stub(IVehicleManager.class, Map.of()),
+				stub(IInfrastructureManager.class, Map.of("loadRoutes", Map.of(), "getAllEdges", List.of())),
+				stub(ISimulationEngine.class, Map.of()));
+		collector.enableOccupancyCube(cube(OccupancyCube.Granularity.LANE, BUDGET));
+		addSteps((time, edgeIds, lanes, positions, speeds) -> collector.ingestOccupancy(time, edgeIds.length, edgeIds, lanes, positions, speeds));
+
+		Path file = Files.createTempFile("space-time-test", ".csv");
+		try {
+			collector.exportToCsv(file.toString(), null, List.of(ExportType.SPACE_TIME));
+			// Non-empty cells only, rows in order of first appearance
+			assertEquals(List.of(
+					"E1_0,E1,0.0,0.0,1.0000,0.04000,6.00",
+					"E1_0,E1,10.0,25.0,1.0000,0.04000,8.00",
+					"E1_0,E1,10.0,75.0,1.0000,0.04000,4.00",
+					"E1_1,E1,0.0,50.0,0.5000,0.02000,10.00",
+					"E1_1,E1,0.0,75.0,0.5000,0.02000,10.00",
+					"E2_0,E2,0.0,30.0,0.5000,0.05000,2.00"),
+					section(file, "RowId,EdgeId,TimeStart(s),PositionStart(m),MeanVehicles,Density(veh/m),MeanSpeed(m/s)"));
+
+			ExportFilter filter = new ExportFilter();
+			filter.setOnlyEdgeId("E2");
+			collector.exportToCsv(file.toString(), filter, List.of(ExportType.SPACE_TIME));
+			assertEquals(List.of("E2_0,E2,0.0,30.0,0.5000,0.05000,2.00"),
+					section(file, "RowId,EdgeId,TimeStart(s),PositionStart(m),MeanVehicles,Density(veh/m),MeanSpeed(m/s)"));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static void assertCell(OccupancyCube.Slice slice, int timeBin, int positionBin, double occupancy, double meanSpeed) {
+		String cell = slice.getRowId() + " [" + timeBin + "," + positionBin + "]";
+		assertEquals(cell, occupancy, slice.getOccupancy(timeBin, positionBin), 1e-6);
+		assertEquals(cell, meanSpeed, slice.getMeanSpeed(timeBin, positionBin), 1e-5);
+	}
+
+	private static void assertEmpty(OccupancyCube.Slice slice, int timeBin, int positionBin) {
+		assertEquals(0.0, slice.getOccupancy(timeBin, positionBin), 0.0);
+		assertTrue(Double.isNaN(slice.getMeanSpeed(timeBin, positionBin)));
+	}
+}
@@ -0,0 +1,144 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * ReductionKernels against plain loops, and the SIMD kernels against the scalar ones for every
+ * length up to several vectors plus a tail (any lane count up to 16 ints) and a long array.
+ * The SIMD kernels are only compiled and loaded with the vector profile: mvn -Pvector test
+ */
+public class ReductionKernelsTest extends TestCase {
+
+	private static final int[] LONG_LENGTHS = {1_003, 4_099};
+	// Values behind n must never be read or written
+	private static final int PADDING = 7;
+
+	private final Random random = new Random(11);
+
+	private static int[] lengths() {
+		int[] lengths = new int[70 + LONG_LENGTHS.length];
+		for (int n = 0; n < 70; n++) lengths[n] = n;
+		System.arraycopy(LONG_LENGTHS, 0, lengths, 70, LONG_LENGTHS.length);
+		return lengths;
+	}
+
+	private static ReductionKernels.Kernels[] kernels() {
+		return ReductionKernels.VECTOR_AVAILABLE
+				? new ReductionKernels.Kernels[] {ReductionKernels.SCALAR, ReductionKernels.VECTOR}
+				: new ReductionKernels.Kernels[] {ReductionKernels.SCALAR};
+	}
+
+	public void testSumAndCountAbove() {
+		for (int n : lengths()) {
+			// Stopped vehicles (0.0), values at the threshold and moving vehicles; large values behind n
+			double[] values = new double[n + PADDING];
+			for (int i = 0; i < n; i++) values[i] = random.nextInt(4) == 0 ? 0.0 : random.nextInt(6) == 0 ? 1.5 : random.nextDouble() * 30.0;
+			for (int i = n; i < values.length; i++) values[i] = 1e6;
+			double sum = 0.0;
+			int count = 0;
+			for (int i = 0; i < n; i++) {
+				if (values[i] > 1.5) {
+					sum += values[i];
+					count++;
+				}
+			}
+			for (ReductionKernels.Kernels k : kernels()) {
+				double[] result = k.sumAndCountAbove(values, n, 1.5);
+				String message = name(k) + " n=" + n;
+				// Different addition order: equal up to rounding
+				assertEquals(message, sum, result[0], 1e-9 * Math.max(1.0, sum));
+				assertEquals(message, count, (int) result[1]);
+			}
+		}
+	}
+
+	public void testDivide() {
+		for (int n : lengths()) {
+			int[] counts = new int[n + PADDING];
+			double[] lengths = new double[n + PADDING];
+			for (int i = 0; i < n + PADDING; i++) {
+				counts[i] = random.nextInt(20);
+				// Some edges without length (junction internals)
+				lengths[i] = random.nextInt(5) == 0 ? 0.0 : random.nextInt(9) == 0 ? -1.0 : 1.0 + random.nextDouble() * 300.0;
+			}
+			for (ReductionKernels.Kernels k : kernels()) {
+				double[] out = new double[n + PADDING];
+				Arrays.fill(out, -7.0);
+				k.divide(counts, lengths, out, n);
+				for (int i = 0; i < n; i++) {
+					// Division is exact per element, no tolerance
+					assertEquals(name(k) + " n=" + n + " i=" + i, lengths[i] > 0 ? counts[i] / lengths[i] : 0.0, out[i], 0.0);
+				}
+				for (int i = n; i < out.length; i++) assertEquals(name(k) + " wrote behind n=" + n, -7.0, out[i], 0.0);
+			}
+		}
+	}
+
+	public void testSelectAtLeast() {
+		for (int n : lengths()) {
+			int[] values = new int[n + PADDING];
+			for (int i = 0; i < n; i++) values[i] = random.nextInt(8) == 0 ? 3 + random.nextInt(10) : random.nextInt(3);
+			for (int i = n; i < values.length; i++) values[i] = 100;
+			int[] expected = new int[n];
+			int found = 0;
+			for (int i = 0; i < n; i++) {
+				if (values[i] >= 3) expected[found++] = i;
+			}
+			for (ReductionKernels.Kernels k : kernels()) {
+				int[] out = new int[n + PADDING];
+				int selected = k.selectAtLeast(values, n, 3, out);
+				assertEquals(name(k) + " n=" + n, found, selected);
+				assertTrue(name(k) + " n=" + n, Arrays.equals(expected, 0, found, out, 0, selected));
+			}
+		}
+	}
+
+	public void testSelectAtLeastAllAndNone() {
+		int[] all = new int[37];
+		Arrays.fill(all, 5);
+		for (ReductionKernels.Kernels k : kernels()) {
+			int[] out = new int[all.length];
+			assertEquals(all.length, k.selectAtLeast(all, all.length, 5, out));
+			for (int i = 0; i < out.length; i++) assertEquals(i, out[i]);
+			assertEquals(0, k.selectAtLeast(all, all.length, 6, out));
+		}
+	}
+
+	public void testAdd() {
+		for (int n : lengths()) {
+			int[] source = new int[n + PADDING];
+			int[] initial = new int[n + PADDING];
+			for (int i = 0; i < source.length; i++) {
+				source[i] = random.nextInt(1000) - 500;
+				initial[i] = random.nextInt(1000);
+			}
+			for (ReductionKernels.Kernels k : kernels()) {
+				int[] target = initial.clone();
+				k.add(target, source, n);
+				for (int i = 0; i < n; i++) assertEquals(name(k) + " n=" + n, initial[i] + source[i], target[i]);
+				for (int i = n; i < target.length; i++) assertEquals(name(k) + " wrote behind n=" + n, initial[i], target[i]);
+			}
+		}
+	}
+
+	public void testSwitchStaysScalarWithoutVectorKernels() {
+		boolean before = ReductionKernels.isVectorEnabled();
+		try {
+			assertFalse(ReductionKernels.setVectorEnabled(false));
+			assertEquals(ReductionKernels.VECTOR_AVAILABLE, ReductionKernels.setVectorEnabled(true));
+			// The dispatching entry points use whichever kernels are active
+			double[] result = ReductionKernels.sumAndCountAbove(new double[] {0.0, 2.0, 4.0}, 3, 0.0);
+			assertEquals(6.0, result[0], 0.0);
+			assertEquals(2.0, result[1], 0.0);
+		} finally {
+			ReductionKernels.setVectorEnabled(before);
+		}
+	}
+
+	private static String name(ReductionKernels.Kernels kernels) {
+		return kernels.getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,201 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import static de.frauas.group6.traffic.simulator.analytics.StatsCollectorExportTest.section;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+/**
+ * RunArchive round trip (run file and index) and RunComparison of two known runs.
+ */
+public class RunArchiveTest extends TestCase {
+
+	private Path directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("run-archive-test");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.deleteIfExists(file);
+		}
+	}
+
+	// Run 1: r1 takes 10, 20, 30, 40 s, r2 100 s; E1 has density windows 0.01/0.03 and 0.04, 3 stopped vehicles
+	private static StatsSnapshot firstRun() {
+		return snapshot(1200, 600.0, new Object[][] {{"r1", 10.0}, {"r1", 20.0}, {"r1", 30.0}, {"r1", 40.0}, {"r2", 100.0}},
+				Map.of("E1", Map.of(0, new double[] {0.01, 0.03}, 1, new double[] {0.04})), Map.of("E1", 3));
+	}
+
+	// Run 2: r1 takes 20, 30, 40, 50 s, r3 60 s; E1 window 0.06, E2 window 0.01, 5 stopped on E2
+	private static StatsSnapshot secondRun() {
+		return snapshot(1500, 750.0, new Object[][] {{"r1", 20.0}, {"r1", 30.0}, {"r1", 40.0}, {"r1", 50.0}, {"r3", 60.0}},
+				Map.of("E1", Map.of(0, new double[] {0.06}), "E2", Map.of(0, new double[] {0.01})), Map.of("E2", 5));
+	}
+
+	private static StatsSnapshot snapshot(int step, double simTime, Object[][] trips, Map<String, Map<Integer, double[]>> densities,
+			Map<String, Integer> congestion) {
+		List<StatsSnapshot.Trip> tripList = new ArrayList<>();
+		for (int i = 0; i < trips.length; i++) tripList.add(new StatsSnapshot.Trip("v" + i, "red", (String) trips[i][0], (double) trips[i][1]));
+		Map<String, Map<Integer, MeanAccumulator>> windows = new HashMap<>();
+		densities.forEach((edge, perWindow) -> perWindow.forEach((window, samples) -> {
+			MeanAccumulator acc = windows.computeIfAbsent(edge, e -> new HashMap<>()).computeIfAbsent(window, w -> new MeanAccumulator());
+			for (double sample : samples) acc.add(sample);
+		}));
+		return new StatsSnapshot(step, simTime, List.of("E1", "E2"), Map.of(), Map.of(), congestion, Map.of(), Map.of(),
+				tripList, null, windows, null, null);
+	}
+
+	public void testArchivedRunRoundTrip() {
+		RunArchive archive = new RunArchive(directory);
+		RunArchive.RunInfo info = archive.archive(firstRun(), "minimal, v2", "abc123");
+		// Commas would break the index
+		assertEquals("minimal; v2", info.getScenario());
+		assertEquals(1200, info.getSteps());
+		assertEquals(600.0, info.getSimTime(), 0.0);
+		assertEquals(5, info.getTrips());
+		assertTrue(info.getFile(), info.getFile().startsWith("minimal__v2/"));
+
+		try (ColumnarReader reader = new ColumnarReader(directory.resolve(info.getFile()))) {
+			ColumnarReader.Table meta = reader.getTable("meta");
+			Map<String, String> values = new HashMap<>();
+			String[] keys = meta.readStrings("key");
+			String[] metaValues = meta.readStrings("value");
+			for (int i = 0; i < keys.length; i++) values.put(keys[i], metaValues[i]);
+			assertEquals("abc123", values.get("configHash"));
+			assertEquals("1200", values.get("steps"));
+			assertEquals(info.getDate().toString(), values.get("date"));
+
+			ColumnarReader.Table routes = reader.getTable("route_summary");
+			assertEquals(List.of("r1", "r2"), List.of(routes.readStrings("route")));
+			assertEquals(4, routes.readInts("trips")[0]);
+			assertEquals(25.0, routes.readDoubles("mean")[0], 1e-12);
+			assertEquals(40.0, routes.readDoubles("max")[0], 0.0);
+			// Sketch quantiles are accurate to 1 %: rank floor(0.5 * 3) = 1 -> 20 s
+			assertEquals(20.0, routes.readDoubles("p50")[0], 20.0 * TravelTimeSketch.RELATIVE_ACCURACY);
+
+			ColumnarReader.Table density = reader.getTable("edge_density");
+			assertEquals(2L, density.getRowCount());
+			Map<Integer, Double> windows = new HashMap<>();
+			int[] windowIds = density.readInts("window");
+			double[] windowValues = density.readDoubles("density");
+			double[] starts = density.readDoubles("start");
+			for (int i = 0; i < windowIds.length; i++) {
+				windows.put(windowIds[i], windowValues[i]);
+				assertEquals(windowIds[i] * StatsCollector.DENSITY_WINDOW_SECONDS, starts[i], 0.0);
+			}
+			assertEquals(0.02, windows.get(0), 1e-12);
+			assertEquals(0.04, windows.get(1), 1e-12);
+
+			ColumnarReader.Table congestion = reader.getTable("congestion_max");
+			assertEquals(List.of("E1"), List.of(congestion.readStrings("edge")));
+			assertEquals(3, congestion.readInts("stopped")[0]);
+		}
+
+		// A new archive on the same directory reads the run back from the index
+		List<RunArchive.RunInfo> reloaded = new RunArchive(directory).getRuns();
+		assertEquals(1, reloaded.size());
+		RunArchive.RunInfo run = reloaded.get(0);
+		assertEquals(info.getScenario(), run.getScenario());
+		assertEquals(info.getDate(), run.getDate());
+		assertEquals(info.getFile(), run.getFile());
+		assertEquals("abc123", run.getConfigHash());
+		assertEquals(1200, run.getSteps());
+		assertEquals(600.0, run.getSimTime(), 0.0);
+		assertEquals(5, run.getTrips());
+	}
+
+	public void testFindByScenarioAndDate() {
+		RunArchive archive = new RunArchive(directory);
+		RunArchive.RunInfo first = archive.archive(firstRun(), "a", "h");
+		RunArchive.RunInfo second = archive.archive(secondRun(), "a", "h");
+		RunArchive.RunInfo other = archive.archive(secondRun(), "b", "h");
+		// Archived back to back (often within the same millisecond), the files still differ
+		assertEquals(3, Set.of(first.getFile(), second.getFile(), other.getFile()).size());
+
+		assertEquals(List.of(first, second), archive.find("a", null, null));
+		assertEquals(List.of(other), archive.find("b", first.getDate(), null));
+		assertTrue(archive.find("a", LocalDateTime.MAX, null).isEmpty());
+		assertTrue(archive.find("a", null, first.getDate().minusSeconds(1)).isEmpty());
+		assertEquals(3, archive.find(null, null, null).size());
+	}
+
+	public void testComparisonOfTwoRuns() throws IOException {
+		RunArchive archive = new RunArchive(directory);
+		archive.archive(firstRun(), "s", "h");
+		archive.archive(secondRun(), "s", "h");
+		RunComparison comparison = archive.compare(archive.find("s", null, null));
+
+		assertEquals(Set.of("r1", "r2", "r3"), Set.copyOf(comparison.getRouteIds()));
+		assertEquals(Set.of("E1", "E2"), Set.copyOf(comparison.getEdgeIds()));
+		assertEquals(25.0, comparison.getRouteTravelTime("r1", RunComparison.Stat.MEAN)[0], 1e-12);
+		assertEquals(35.0, comparison.getRouteTravelTime("r1", RunComparison.Stat.MEAN)[1], 1e-12);
+		assertEquals(4.0, comparison.getRouteTravelTime("r1", RunComparison.Stat.TRIPS)[1], 0.0);
+		assertEquals(50.0, comparison.getRouteTravelTime("r1", RunComparison.Stat.MAX)[1], 0.0);
+		// Routes and edges missing in a run
+		assertTrue(Double.isNaN(comparison.getRouteTravelTime("r2", RunComparison.Stat.MEAN)[1]));
+		assertTrue(Double.isNaN(comparison.getRouteTravelTime("r3", RunComparison.Stat.MEAN)[0]));
+		assertEquals(3, comparison.getMaxCongestion("E1")[0]);
+		assertEquals(-1, comparison.getMaxCongestion("E1")[1]);
+		assertEquals(5, comparison.getMaxCongestion("E2")[1]);
+		assertEquals(0.03, comparison.getMeanDensity("E1")[0], 1e-12);
+		assertEquals(0.04, comparison.getPeakDensity("E1")[0], 1e-12);
+		assertEquals(0.06, comparison.getPeakDensity("E1")[1], 1e-12);
+		assertTrue(Double.isNaN(comparison.getMeanDensity("E2")[0]));
+
+		Path report = directory.resolve("comparison.csv");
+		comparison.writeCsv(report.toString());
+		List<String> runs = section(report, "Run,Date,ConfigHash,Steps,SimTime(s),Trips");
+		assertEquals(2, runs.size());
+		assertTrue(runs.get(1), runs.get(1).endsWith(",h,1500,750.0000,5"));
+
+		// One column per run plus the change of the last run against the first
+		String columns = ",s@" + comparison.getRuns().get(0).getDate() + ",s@" + comparison.getRuns().get(1).getDate() + ",Change(last vs first)";
+		// The first route section holds the means
+		List<String> means = section(report, "RouteId" + columns);
+		assertEquals(Set.of("r1,25.0000,35.0000,+40.0%", "r2,100.0000,,", "r3,,60.0000,"), Set.copyOf(means));
+		List<String> lines = Files.readAllLines(report);
+		int peak = lines.indexOf("Peak window density (veh/m) per edge");
+		int stopped = lines.indexOf("Max stopped vehicles per edge");
+		assertEquals("EdgeId" + columns, lines.get(peak + 1));
+		assertTrue(lines.subList(peak, stopped).contains("E1,0.0400,0.0600,+50.0%"));
+		assertTrue(lines.subList(stopped, lines.size()).contains("E1,3.0000,,"));
+		assertTrue(lines.subList(stopped, lines.size()).contains("E2,,5.0000,"));
+	}
+
+	public void testMergedQuantilesAcrossRuns() {
+		RunArchive archive = new RunArchive(directory);
+		archive.archive(firstRun(), "s", "h");
+		archive.archive(secondRun(), "s", "h");
+		// r1 over both runs: 10, 20, 20, 30, 30, 40, 40, 50
+		double[] q = archive.routeTravelTimeQuantiles(archive.getRuns(), "r1", 0.0, 0.5, 1.0);
+		assertEquals(10.0, q[0], 10.0 * TravelTimeSketch.RELATIVE_ACCURACY);
+		assertEquals(30.0, q[1], 30.0 * TravelTimeSketch.RELATIVE_ACCURACY);
+		assertEquals(50.0, q[2], 50.0 * TravelTimeSketch.RELATIVE_ACCURACY);
+		assertEquals(0.0, archive.routeTravelTimeQuantiles(archive.getRuns(), "unknown", 0.5)[0], 0.0);
+	}
+
+	public void testConfigHash() throws IOException {
+		Path config = Files.writeString(directory.resolve("a.sumocfg"), "<configuration/>");
+		String hash = RunArchive.configHash(List.of(config), "1.0");
+		assertEquals(16, hash.length());
+		assertEquals(hash, RunArchive.configHash(List.of(config), "1.0"));
+		assertFalse(hash.equals(RunArchive.configHash(List.of(config), "2.0")));
+		Files.writeString(config, "<configuration></configuration>");
+		assertFalse(hash.equals(RunArchive.configHash(List.of(config), "1.0")));
+	}
+}
@@ -0,0 +1,205 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
+import de.frauas.group6.traffic.simulator.infrastructure.IInfrastructureManager;
+import de.frauas.group6.traffic.simulator.vehicles.IVehicleManager;
+import junit.framework.TestCase;
+
+/**
+ * Stress test of the optimistic snapshots of StatsCollector: steps and trips are recorded
+ * by several threads while others take snapshots and call the getters. Every snapshot must
+ * contain whole steps only (no torn sum/count pairs, one speed sample per step) and route
+ * means that match its trips, although no snapshot ever locks out the step writer.
+ */
+public class StatsCollectorConcurrencyTest extends TestCase {
+
+	private static final int EDGES = 8;
+	private static final int ROUTES = 4;
+	private static final int STEPS = 3_000;
+	private static final int TRIP_THREADS = 4;
+	private static final int TRIPS_PER_THREAD = 20_000;
+	private static final int READER_THREADS = 3;
+	private static final String COLOR = "red";
+
+	private StatsCollector collector;
+	private final List<String> edgeIds = new ArrayList<>();
+	private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+	@Override
+	protected void setUp() {
+		Map<String, List<String>> routes = new HashMap<>();
+		for (int r = 0; r < ROUTES; r++) routes.put("r" + r, List.of("e" + r));
+		for (int e = 0; e < EDGES; e++) edgeIds.add("e" + e);
+		collector = new StatsCollector(stub(IVehicleManager.class, Map.of()),
+				stub(IInfrastructureManager.class, Map.of("loadRoutes", routes, "getAllEdges", List.of())),
+				stub(ISimulationEngine.class, Map.of()));
+		collector.setIngestedEdgeIds(edgeIds);
+	}
+
+	public void testSnapshotsNeverSeePartialUpdates() throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		List<Thread> writers = new ArrayList<>();
+		writers.add(new Thread(() -> {
+			MeanAccumulatorTest.await(start);
+			for (int step = 1; step <= STEPS; step++) collector.ingestStep(step, stepTotals(step), densities());
+		}, "steps"));
+		for (int t = 0; t < TRIP_THREADS; t++) {
+			int thread = t;
+			writers.add(new Thread(() -> {
+				MeanAccumulatorTest.await(start);
+				for (int i = 0; i < TRIPS_PER_THREAD; i++) {
+					collector.ingestTrip("v" + thread + "_" + i, COLOR, "r" + (i % ROUTES), travelTime(i));
+				}
+			}, "trips-" + t));
+		}
+		List<Thread> readers = new ArrayList<>();
+		for (int t = 0; t < READER_THREADS; t++) {
+			readers.add(new Thread(() -> {
+				MeanAccumulatorTest.await(start);
+				int lastStep = 0;
+				int lastTrips = 0;
+				while (writing.get() && failures.isEmpty()) {
+					StatsSnapshot snapshot = collector.snapshot();
+					checkSnapshot(snapshot);
+					// Snapshots taken one after the other never go back in time
+					if (snapshot.step < lastStep || snapshot.trips.size() < lastTrips) {
+						failures.add("snapshot went back: step " + snapshot.step + " < " + lastStep + " or trips " + snapshot.trips.size() + " < " + lastTrips);
+					}
+					lastStep = snapshot.step;
+					lastTrips = snapshot.trips.size();
+				}
+			}, "snapshots-" + t));
+		}
+		readers.add(new Thread(() -> {
+			MeanAccumulatorTest.await(start);
+			while (writing.get() && failures.isEmpty()) checkGetters();
+		}, "getters"));
+
+		for (Thread thread : writers) thread.start();
+		for (Thread thread : readers) thread.start();
+		start.countDown();
+		for (Thread thread : writers) thread.join();
+		writing.set(false);
+		for (Thread thread : readers) thread.join();
+		assertTrue(String.join("\n", failures), failures.isEmpty());
+
+		// Nothing was lost once all writers are done
+		StatsSnapshot last = collector.snapshot();
+		checkSnapshot(last);
+		assertTrue(String.join("\n", failures), failures.isEmpty());
+		assertEquals(STEPS, last.step);
+		assertEquals(STEPS, last.speedSeries.size());
+		assertEquals(TRIP_THREADS * TRIPS_PER_THREAD, last.trips.size());
+		long samples = 0;
+		for (int step = 1; step <= STEPS; step++) samples += samples(step);
+		for (int e = 0; e < EDGES; e++) assertEquals((double) samples, last.speedPerEdgeAndColor.get("e" + e).get(COLOR)[1], 0.0);
+	}
+
+	// Invariants that hold only if the snapshot saw every update completely or not at all
+	private void checkSnapshot(StatsSnapshot snapshot) {
+		// Every step appends one average speed sample
+		if (snapshot.speedSeries.size() != snapshot.step) {
+			failures.add("speed samples " + snapshot.speedSeries.size() + " != step " + snapshot.step);
+		}
+		// Per-edge {sum, count}: each edge has a fixed speed, so sum == count * speed
+		snapshot.speedPerEdgeAndColor.forEach((edgeId, perColor) -> {
+			double[] acc = perColor.get(COLOR);
+			double speed = speed(edgeId);
+			if (acc[0] != acc[1] * speed) failures.add("torn speed pair on " + edgeId + ": sum " + acc[0] + ", count " + acc[1]);
+		});
+		// Each edge has a fixed density, so its mean is exact whatever the number of steps
+		snapshot.averageDensity.forEach((edgeId, density) -> {
+			if (density != density(edgeId)) failures.add("torn density on " + edgeId + ": " + density);
+		});
+		// Route means must match the trips copied in the same snapshot (sum == count * mean)
+		Map<String, double[]> perRoute = new HashMap<>();
+		for (StatsSnapshot.Trip trip : snapshot.trips) {
+			double[] acc = perRoute.computeIfAbsent(trip.routeId, r -> new double[2]);
+			acc[0] += trip.travelTime;
+			acc[1]++;
+		}
+		for (int r = 0; r < ROUTES; r++) {
+			String routeId = "r" + r;
+			double[] acc = perRoute.getOrDefault(routeId, new double[2]);
+			double mean = snapshot.averageTravelTime.get(routeId);
+			if (Math.abs(acc[0] - acc[1] * mean) > 1e-6 * Math.max(1.0, acc[0])) {
+				failures.add("route " + routeId + ": " + (long) acc[1] + " trips with sum " + acc[0] + " but mean " + mean);
+			}
+		}
+	}
+
+	// The lock-free getters publish whole maps, their values never mix two steps
+	private void checkGetters() {
+		collector.getCurrentEdgeSpeeds().forEach((edgeId, speed) -> {
+			if (speed != speed(edgeId)) failures.add("current speed of " + edgeId + ": " + speed);
+		});
+		collector.getCurrentEdgeDensities().forEach((edgeId, density) -> {
+			if (density != density(edgeId)) failures.add("current density of " + edgeId + ": " + density);
+		});
+	}
+
+	// Moving vehicles of one step: samples(step) per edge, all at the edge's speed
+	private StepKernel.Partial stepTotals(int step) {
+		StepKernel.Partial totals = new StepKernel.Partial(collector.edgeIndex());
+		int samples = samples(step);
+		for (String edgeId : edgeIds) {
+			Map<String, double[]> perColor = new HashMap<>();
+			perColor.put(COLOR, new double[] {speed(edgeId) * samples, samples});
+			totals.speedPerEdgeAndColor.put(edgeId, perColor);
+			totals.speedSum += speed(edgeId) * samples;
+			totals.movingCount += samples;
+		}
+		return totals;
+	}
+
+	private Map<String, Double> densities() {
+		Map<String, Double> result = new LinkedHashMap<>();
+		for (String edgeId : edgeIds) result.put(edgeId, density(edgeId));
+		return result;
+	}
+
+	private static int samples(int step) {
+		return 1 + step % 5;
+	}
+
+	// Small integers and halves: all sums stay exact in double precision
+	private static double speed(String edgeId) {
+		return 1 + Integer.parseInt(edgeId.substring(1));
+	}
+
+	private static double density(String edgeId) {
+		return 0.5 * (1 + Integer.parseInt(edgeId.substring(1)));
+	}
+
+	private static double travelTime(int i) {
+		return 30.0 + i % 7;
+	}
+
+	// Interface stub: the named methods return the given values, everything else a neutral default
+	@SuppressWarnings("unchecked")
+	static <T> T stub(Class<T> type, Map<String, Object> results) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+			if (results.containsKey(method.getName())) return results.get(method.getName());
+			Class<?> r = method.getReturnType();
+			if (r == boolean.class) return false;
+			if (r == int.class) return 0;
+			if (r == long.class) return 0L;
+			if (r == double.class) return 0.0;
+			if (r == List.class) return List.of();
+			if (r == Map.class) return Map.of();
+			return null;
+		});
+	}
+}
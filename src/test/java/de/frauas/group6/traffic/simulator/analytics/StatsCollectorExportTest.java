@@ -0,0 +1,143 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import static de.frauas.group6.traffic.simulator.analytics.StatsCollectorConcurrencyTest.stub;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
+import de.frauas.group6.traffic.simulator.infrastructure.IInfrastructureManager;
+import de.frauas.group6.traffic.simulator.vehicles.IVehicleManager;
+import junit.framework.TestCase;
+
+/**
+ * Background exports of StatsCollector: cancellation, the snapshot an export writes and the
+ * sections listed for a summary.
+ */
+public class StatsCollectorExportTest extends TestCase {
+
+	private static final int ROUTES = 4;
+	private static final int TRIPS = 100;
+
+	private StatsCollector collector;
+	private Path directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		Map<String, List<String>> routes = new HashMap<>();
+		for (int r = 0; r < ROUTES; r++) routes.put("r" + r, List.of("e" + r));
+		collector = new StatsCollector(stub(IVehicleManager.class, Map.of()),
+				stub(IInfrastructureManager.class, Map.of("loadRoutes", routes, "getAllEdges", List.of())),
+				stub(ISimulationEngine.class, Map.of()));
+		directory = Files.createTempDirectory("stats-export-test");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.deleteIfExists(file);
+		}
+	}
+
+	// Route r has travel times 10r + (0..4)
+	private void recordTrips(int count, double offset) {
+		for (int i = 0; i < count; i++) collector.ingestTrip("v" + offset + "_" + i, "red", "r" + (i % ROUTES), offset + 10 * (i % ROUTES) + i % 5);
+	}
+
+	public void testCancelledExportFailsAndRemovesTheFile() throws Exception {
+		recordTrips(TRIPS, 0.0);
+		Path file = directory.resolve("cancelled.csv");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch proceed = new CountDownLatch(1);
+		Queue<String> messages = new ConcurrentLinkedQueue<>();
+		ExportJob job = collector.exportAsync(ExportFormat.CSV, file.toString(), null,
+				List.of(ExportType.AVG_TRAVEL_TIME, ExportType.VEHICLE_TRAVEL_TIMES), (fraction, message) -> {
+					messages.add(message);
+					started.countDown();
+					MeanAccumulatorTest.await(proceed);
+				});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		// The first section is being written; the next checkpoint must stop the export
+		job.cancel();
+		proceed.countDown();
+		try {
+			job.getResult().get(10, TimeUnit.SECONDS);
+			fail("expected the export to be cancelled");
+		} catch (CancellationException expected) {
+			// completed exceptionally with the cancellation
+		}
+		assertTrue(job.isDone());
+		assertTrue(job.isCancelled());
+		assertFalse("partial file must be removed", Files.exists(file));
+		assertEquals(List.of("Writing AVG_TRAVEL_TIME"), new ArrayList<>(messages));
+	}
+
+	public void testExportWritesTheSnapshotOfTheCall() throws Exception {
+		recordTrips(TRIPS, 0.0);
+		Path file = directory.resolve("snapshot.csv");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch proceed = new CountDownLatch(1);
+		ExportJob job = collector.exportAsync(ExportFormat.CSV, file.toString(), null,
+				List.of(ExportType.AVG_TRAVEL_TIME, ExportType.VEHICLE_TRAVEL_TIMES), (fraction, message) -> {
+					started.countDown();
+					MeanAccumulatorTest.await(proceed);
+				});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		// Trips recorded while the export runs must not show up in the file
+		recordTrips(TRIPS / 2, 1000.0);
+		proceed.countDown();
+		assertEquals(file.toString(), job.getResult().get(10, TimeUnit.SECONDS));
+
+		List<String> routeRows = section(file, "RouteId,RouteEdges,AverageTravelTime(s)");
+		assertEquals(ROUTES, routeRows.size());
+		for (String row : routeRows) {
+			String[] f = row.split(",");
+			int route = Integer.parseInt(f[0].substring(1));
+			// 25 trips per route with i % 5 evenly spread: mean 10r + 2
+			assertEquals(String.format(Locale.US, "%.2f", 10.0 * route + 2), f[2]);
+		}
+		List<String> tripRows = section(file, "vehicleId,color,routeId,travelTime(s)");
+		assertEquals(TRIPS, tripRows.size());
+		for (String row : tripRows) assertTrue(row, Double.parseDouble(row.split(",")[3]) < 1000.0);
+
+		// The collector itself kept recording
+		assertEquals(TRIPS + TRIPS / 2, collector.snapshot().trips.size());
+	}
+
+	public void testSummaryDescriptionListsTheSummarySections() {
+		String description = collector.getDescriptionForType(ExportType.SUMMARY);
+		assertTrue(description, description.contains("Average Speed, Average Travel Time, Edge Density, Congested Edges, Vehicle Travel Times)"));
+		assertFalse(description, description.contains("Vehicle Traces"));
+		assertFalse(description, description.contains("Space-Time"));
+
+		collector.enableOccupancyCube(OccupancyCube.fromSpec("on"));
+		collector.enableHistorySpill(directory);
+		description = collector.getDescriptionForType(ExportType.SUMMARY);
+		assertTrue(description, description.contains("Vehicle Travel Times, Vehicle Traces, Space-Time Occupancy)"));
+		collector.getHistoryStore().close();
+	}
+
+	// Rows below the given header up to the next empty line
+	static List<String> section(Path file, String header) throws IOException {
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		int start = lines.indexOf(header);
+		assertTrue("missing section " + header, start >= 0);
+		List<String> rows = new ArrayList<>();
+		for (int i = start + 1; i < lines.size() && !lines.get(i).isEmpty(); i++) rows.add(lines.get(i));
+		return rows;
+	}
+}
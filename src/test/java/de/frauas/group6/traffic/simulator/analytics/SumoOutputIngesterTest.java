@@ -0,0 +1,97 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import static de.frauas.group6.traffic.simulator.analytics.StatsCollectorConcurrencyTest.stub;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
+import de.frauas.group6.traffic.simulator.infrastructure.IInfrastructureManager;
+import de.frauas.group6.traffic.simulator.vehicles.IVehicleManager;
+import junit.framework.TestCase;
+
+/**
+ * Ingestion of the committed SUMO output fixture (src/test/resources/sumo-output):
+ * v0 (red) drives E1 -> E2 from t = 0 to 2, flow vehicles f.0 (t = 1..3) and f.1 (t = 3..4)
+ * take the color of their vType (blue). E1 is 100 m long, E2 25 m.
+ */
+public class SumoOutputIngesterTest extends TestCase {
+
+	private StatsCollector collector;
+
+	@Override
+	protected void setUp() {
+		collector = new StatsCollector(stub(IVehicleManager.class, Map.of()),
+				stub(IInfrastructureManager.class, Map.of("loadRoutes", Map.of("r1", List.of("E1", "E2")), "getAllEdges", List.of())),
+				stub(ISimulationEngine.class, Map.of()));
+	}
+
+	private static Path fixture(String name) throws URISyntaxException {
+		return Path.of(SumoOutputIngesterTest.class.getResource("/sumo-output/fixture." + name + ".xml").toURI());
+	}
+
+	public void testStepStatistics() throws URISyntaxException {
+		collector.ingestSumoOutput(fixture("net"), fixture("rou"), fixture("fcd"), fixture("tripinfo"));
+		StatsSnapshot snapshot = collector.snapshot();
+		assertEquals(5, snapshot.step);
+		assertEquals(4.0, snapshot.simTime, 0.0);
+		// Edges of the network file in file order, internal edges included
+		assertEquals(List.of(":J1_0", "E1", "E2"), snapshot.edgeIds);
+
+		// Mean speed of the moving vehicles per timestep
+		assertEquals(List.of(0.0, 10.0, 9.0, 6.0, 6.0), collector.getSpeedHistory());
+
+		// Moving samples per edge and color: E1 red 10, blue 6 + 4 + 6; E2 red 12, blue 8
+		Map<String, double[]> e1 = snapshot.speedPerEdgeAndColor.get("E1");
+		assertEquals(10.0, e1.get("red")[0], 1e-9);
+		assertEquals(1.0, e1.get("red")[1], 0.0);
+		assertEquals(16.0, e1.get("blue")[0], 1e-9);
+		assertEquals(3.0, e1.get("blue")[1], 0.0);
+		Map<String, double[]> e2 = snapshot.speedPerEdgeAndColor.get("E2");
+		assertEquals(12.0, e2.get("red")[0], 1e-9);
+		assertEquals(8.0, e2.get("blue")[0], 1e-9);
+		assertNull(snapshot.speedPerEdgeAndColor.get(":J1_0"));
+
+		// Vehicles per step on E1: 1, 2, 1, 1, 1 over 100 m; on E2: 0, 0, 1, 1, 0 over 25 m
+		assertEquals(6.0 / 5 / 100.0, snapshot.averageDensity.get("E1"), 1e-12);
+		assertEquals(2.0 / 5 / 25.0, snapshot.averageDensity.get("E2"), 1e-12);
+		assertEquals(0.0, snapshot.averageDensity.get(":J1_0"), 0.0);
+	}
+
+	public void testTripsFromTripinfo() throws URISyntaxException {
+		collector.ingestSumoOutput(fixture("net"), fixture("rou"), fixture("fcd"), fixture("tripinfo"));
+		List<StatsSnapshot.Trip> trips = collector.snapshot().trips;
+		// f.1 has not arrived (arrival -1) and is left out
+		assertEquals(2, trips.size());
+		assertTrip(trips.get(0), "v0", "red", 3.0);
+		assertTrip(trips.get(1), "f.0", "blue", 4.5);
+		assertEquals(3.75, collector.snapshot().averageTravelTime.get("r1"), 1e-12);
+	}
+
+	public void testTripsDerivedFromFcdWithoutTripinfo() throws URISyntaxException {
+		collector.ingestSumoOutput(fixture("net"), fixture("rou"), fixture("fcd"), null);
+		List<StatsSnapshot.Trip> trips = collector.snapshot().trips;
+		// Exit is the first timestep without the vehicle; f.1 is still driving at the end
+		assertEquals(2, trips.size());
+		assertTrip(trips.get(0), "v0", "red", 3.0);
+		assertTrip(trips.get(1), "f.0", "blue", 3.0);
+		assertEquals(5, collector.snapshot().step);
+	}
+
+	public void testTripinfoOnly() throws URISyntaxException {
+		collector.ingestSumoOutput(null, fixture("rou"), null, fixture("tripinfo"));
+		StatsSnapshot snapshot = collector.snapshot();
+		assertEquals(0, snapshot.step);
+		assertEquals(2, snapshot.trips.size());
+		assertEquals(3.75, snapshot.averageTravelTime.get("r1"), 1e-12);
+	}
+
+	private static void assertTrip(StatsSnapshot.Trip trip, String vehicleId, String color, double travelTime) {
+		assertEquals(vehicleId, trip.getVehicleId());
+		assertEquals(color, trip.getColor());
+		assertEquals("r1", trip.getRouteId());
+		assertEquals(travelTime, trip.getTravelTime(), 1e-12);
+	}
+}
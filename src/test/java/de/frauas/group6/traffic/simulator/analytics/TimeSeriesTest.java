@@ -0,0 +1,161 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Rollups and LTTB downsampling of TimeSeries.
+ */
+public class TimeSeriesTest extends TestCase {
+
+	// Samples every 0.5 s with value == time, from 0 s up to (not including) 125 s
+	private static TimeSeries halfSecondRamp() {
+		TimeSeries series = new TimeSeries();
+		for (int i = 0; i < 250; i++) series.append(i * 0.5, i * 0.5);
+		return series;
+	}
+
+	public void testRollupMeansFollowBucketBoundaries() {
+		TimeSeries series = halfSecondRamp();
+
+		// [k, k+1) holds k and k + 0.5
+		TimeSeries.Points seconds = series.rollup(1.0);
+		assertEquals(125, seconds.size());
+		for (int k = 0; k < 125; k++) {
+			assertEquals((double) k, seconds.getTime(k), 0.0);
+			assertEquals(k + 0.25, seconds.getValue(k), 1e-9);
+		}
+
+		// [10k, 10k+10) holds 20 samples from 10k to 10k + 9.5
+		TimeSeries.Points tens = series.rollup(10.0);
+		assertEquals(13, tens.size());
+		for (int k = 0; k < 12; k++) {
+			assertEquals(10.0 * k, tens.getTime(k), 0.0);
+			assertEquals(10.0 * k + 4.75, tens.getValue(k), 1e-9);
+		}
+		// The last bucket is partial: 120 .. 124.5
+		assertEquals(120.0, tens.getTime(12), 0.0);
+		assertEquals(122.25, tens.getValue(12), 1e-9);
+
+		TimeSeries.Points minutes = series.rollup(60.0);
+		assertEquals(3, minutes.size());
+		assertEquals(29.75, minutes.getValue(0), 1e-9);
+		assertEquals(89.75, minutes.getValue(1), 1e-9);
+		assertEquals(122.25, minutes.getValue(2), 1e-9);
+	}
+
+	public void testRollupSkipsEmptyBuckets() {
+		TimeSeries series = new TimeSeries();
+		series.append(9.0, 2.0);
+		series.append(9.9, 4.0);
+		// 10 s .. 30 s without samples
+		series.append(31.0, 8.0);
+
+		TimeSeries.Points tens = series.rollup(10.0);
+		assertEquals(2, tens.size());
+		assertEquals(0.0, tens.getTime(0), 0.0);
+		assertEquals(3.0, tens.getValue(0), 0.0);
+		assertEquals(30.0, tens.getTime(1), 0.0);
+		assertEquals(8.0, tens.getValue(1), 0.0);
+	}
+
+	public void testUnknownRollupResolutionThrows() {
+		try {
+			halfSecondRamp().rollup(5.0);
+			fail("expected AnalyticsException");
+		} catch (AnalyticsException expected) {
+			// only 1/10/60 s are kept
+		}
+	}
+
+	public void testLttbKeepsFirstAndLastPoints() {
+		double[] t = new double[1000];
+		double[] v = new double[1000];
+		Random random = new Random(42);
+		for (int i = 0; i < t.length; i++) {
+			t[i] = i;
+			v[i] = random.nextDouble();
+		}
+		TimeSeries.Points points = TimeSeries.lttb(t, v, 0, t.length, 50);
+		assertEquals(50, points.size());
+		assertEquals(t[0], points.getTime(0), 0.0);
+		assertEquals(v[0], points.getValue(0), 0.0);
+		assertEquals(t[999], points.getTime(49), 0.0);
+		assertEquals(v[999], points.getValue(49), 0.0);
+		// Selected points come from the source in time order
+		for (int i = 1; i < points.size(); i++) {
+			assertTrue(points.getTime(i) > points.getTime(i - 1));
+			assertEquals(v[(int) points.getTime(i)], points.getValue(i), 0.0);
+		}
+	}
+
+	public void testLttbKeepsASpike() {
+		double[] t = new double[500];
+		double[] v = new double[500];
+		for (int i = 0; i < t.length; i++) t[i] = i;
+		v[237] = 100.0;
+		TimeSeries.Points points = TimeSeries.lttb(t, v, 0, t.length, 20);
+		boolean found = false;
+		for (int i = 0; i < points.size(); i++) found |= points.getValue(i) == 100.0;
+		assertTrue("the spike must survive downsampling", found);
+	}
+
+	public void testLttbOfAnOffsetRange() {
+		double[] t = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+		double[] v = {9, 8, 7, 6, 5, 4, 3, 2, 1, 0};
+		TimeSeries.Points points = TimeSeries.lttb(t, v, 2, 6, 3);
+		assertEquals(3, points.size());
+		assertEquals(2.0, points.getTime(0), 0.0);
+		assertEquals(7.0, points.getTime(2), 0.0);
+	}
+
+	public void testDownsampleAtOrAboveSizeReturnsRawSeries() {
+		TimeSeries series = halfSecondRamp();
+		TimeSeries.Points raw = series.raw();
+		assertSame(raw, TimeSeries.downsample(raw, raw.size()));
+		assertSame(raw, TimeSeries.downsample(raw, raw.size() + 1));
+
+		TimeSeries.Points all = series.downsample(1000);
+		assertEquals(raw.size(), all.size());
+		for (int i = 0; i < raw.size(); i++) {
+			assertEquals(raw.getTime(i), all.getTime(i), 0.0);
+			assertEquals(raw.getValue(i), all.getValue(i), 0.0);
+		}
+	}
+
+	public void testThresholdsBelowThree() {
+		double[] t = {0, 1, 2, 3, 4};
+		double[] v = {5, 1, 7, 2, 6};
+
+		TimeSeries.Points two = TimeSeries.lttb(t, v, 0, 5, 2);
+		assertEquals(2, two.size());
+		assertEquals(0.0, two.getTime(0), 0.0);
+		assertEquals(4.0, two.getTime(1), 0.0);
+		assertEquals(6.0, two.getValue(1), 0.0);
+
+		TimeSeries.Points one = TimeSeries.lttb(t, v, 0, 5, 1);
+		assertEquals(1, one.size());
+		assertEquals(5.0, one.getValue(0), 0.0);
+
+		assertEquals(0, TimeSeries.lttb(t, v, 0, 5, 0).size());
+		assertEquals(0, TimeSeries.lttb(t, v, 0, 5, -1).size());
+
+		try {
+			halfSecondRamp().downsample(0);
+			fail("expected AnalyticsException");
+		} catch (AnalyticsException expected) {
+			// the live query needs at least one point
+		}
+	}
+
+	public void testLongWindowIsServedFromRollups() {
+		TimeSeries series = new TimeSeries();
+		for (int i = 0; i < 100_000; i++) series.append(i * 0.125, i % 2 == 0 ? 1.0 : 3.0);
+		TimeSeries.Points points = series.downsample(100);
+		assertTrue(points.size() <= 100);
+		// Every rollup bucket holds as many low as high samples
+		for (int i = 0; i < points.size(); i++) assertEquals(2.0, points.getValue(i), 1e-9);
+		assertEquals(0.0, points.getTime(0), 0.0);
+	}
+}
@@ -0,0 +1,153 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import static de.frauas.group6.traffic.simulator.analytics.StatsCollectorConcurrencyTest.stub;
+
+import java.awt.geom.Point2D;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.frauas.group6.traffic.simulator.core.ISimulationEngine;
+import de.frauas.group6.traffic.simulator.infrastructure.IInfrastructureManager;
+import de.frauas.group6.traffic.simulator.vehicles.IVehicle;
+import de.frauas.group6.traffic.simulator.vehicles.IVehicleManager;
+import junit.framework.TestCase;
+
+/**
+ * Chunking, sealing and edge-transition queries of TrajectoryStore.
+ */
+public class TrajectoryStoreTest extends TestCase {
+
+	// Edge of point i of vehicle v1: E1 for 0..3, E2 for 4..6, none for 7, E3 for 8..9
+	private static final String[] V1_EDGES = {"E1", "E1", "E1", "E1", "E2", "E2", "E2", null, "E3", "E3"};
+
+	// v1 at t = 0..9 s (chunks of 3 points), v2 on E2 at t = 20..22 s
+	private static TrajectoryStore twoVehicles() {
+		TrajectoryStore store = new TrajectoryStore(3);
+		for (int i = 0; i < V1_EDGES.length; i++) store.append("v1", i, 10.0 * i, -2.5 * i, 10.0, V1_EDGES[i]);
+		for (int i = 0; i < 3; i++) store.append("v2", 20.0 + i, 0.0, 5.0 * i, 5.0, "E2");
+		return store;
+	}
+
+	public void testPathAcrossChunks() {
+		TrajectoryStore store = twoVehicles();
+		assertEquals(13L, store.getPointCount());
+		assertEquals(Set.of("v1", "v2"), store.getVehicleIds());
+
+		List<TrajectoryPoint> path = store.getPath("v1");
+		assertEquals(V1_EDGES.length, path.size());
+		for (int i = 0; i < path.size(); i++) {
+			TrajectoryPoint point = path.get(i);
+			assertEquals((double) i, point.getTime(), 0.0);
+			assertEquals(10.0 * i, point.getX(), 0.0);
+			assertEquals(-2.5 * i, point.getY(), 0.0);
+			assertEquals(10.0, point.getSpeed(), 0.0);
+			// Edges are kept as transitions; each chunk starts with its own transition
+			assertEquals("edge of point " + i, V1_EDGES[i], point.getEdgeId());
+		}
+
+		List<TrajectoryPoint> window = store.getPath("v1", 2.5, 5.0);
+		assertEquals(3, window.size());
+		assertEquals(3.0, window.get(0).getTime(), 0.0);
+		assertEquals("E2", window.get(2).getEdgeId());
+		assertTrue(store.getPath("unknown").isEmpty());
+	}
+
+	public void testChunksSealWhenFull() {
+		TrajectoryStore store = new TrajectoryStore(3);
+		for (int i = 0; i < 3; i++) store.append("v1", i, 0.0, 0.0, 1.0, "E1");
+		assertFalse(store.hasOpenChunk("v1"));
+		store.append("v1", 3, 0.0, 0.0, 1.0, "E1");
+		assertTrue(store.hasOpenChunk("v1"));
+	}
+
+	public void testSealKeepsThePathAndStartsANewChunk() {
+		TrajectoryStore store = new TrajectoryStore();
+		store.append("v1", 1.0, 1.0, 1.0, 3.0, "E1");
+		store.append("v1", 2.0, 2.0, 1.0, 3.0, "E1");
+		long openBytes = store.getCompressedBytes();
+		store.seal("v1");
+		assertFalse(store.hasOpenChunk("v1"));
+		// The sealed chunk is trimmed to the words it uses
+		assertTrue(store.getCompressedBytes() < openBytes);
+		assertEquals(2, store.getPath("v1").size());
+		// Sealing twice or sealing unknown vehicles does nothing
+		store.seal("v1");
+		store.seal("nobody");
+
+		store.append("v1", 3.0, 3.0, 1.0, 3.0, "E2");
+		assertTrue(store.hasOpenChunk("v1"));
+		List<TrajectoryPoint> path = store.getPath("v1");
+		assertEquals(3, path.size());
+		assertEquals("E2", path.get(2).getEdgeId());
+		store.sealAll();
+		assertFalse(store.hasOpenChunk("v1"));
+	}
+
+	public void testVehiclesOnEdge() {
+		TrajectoryStore store = twoVehicles();
+		assertEquals(List.of("v1"), new ArrayList<>(store.getVehiclesOnEdge("E1", 0.0, 0.0)));
+		assertEquals(List.of("v1", "v2"), new ArrayList<>(store.getVehiclesOnEdge("E2", 0.0, 100.0)));
+		assertEquals(List.of("v2"), new ArrayList<>(store.getVehiclesOnEdge("E2", 21.5, 30.0)));
+		// v1 stays on E2 until it is seen off the edge at t = 7
+		assertEquals(List.of("v1"), new ArrayList<>(store.getVehiclesOnEdge("E2", 6.5, 6.9)));
+		assertTrue(store.getVehiclesOnEdge("E2", 7.5, 19.0).isEmpty());
+		assertTrue(store.getVehiclesOnEdge("E3", 0.0, 7.9).isEmpty());
+		assertTrue(store.getVehiclesOnEdge("E9", 0.0, 100.0).isEmpty());
+	}
+
+	public void testStayAcrossAChunkBoundary() {
+		TrajectoryStore store = twoVehicles();
+		// Chunk 1 of v1 ends at t = 2 on E1, chunk 2 starts at t = 3 still on E1
+		assertEquals(List.of("v1"), new ArrayList<>(store.getVehiclesOnEdge("E1", 2.2, 2.8)));
+		// Chunk 2 ends at t = 5 on E2, chunk 3 starts at t = 6 on E2
+		assertEquals(List.of("v1"), new ArrayList<>(store.getVehiclesOnEdge("E2", 5.5, 5.5)));
+	}
+
+	public void testCollectorSealsTheTrajectoryWhenTheVehicleLeaves() {
+		double[] time = {0.0};
+		List<IVehicle> active = new ArrayList<>();
+		IVehicle vehicle = vehicle("v1");
+		IVehicleManager vehicles = (IVehicleManager) Proxy.newProxyInstance(IVehicleManager.class.getClassLoader(),
+				new Class<?>[] {IVehicleManager.class}, (proxy, method, args) -> {
+					if (method.getName().equals("getAllVehicles")) return new ArrayList<>(active);
+					return null;
+				});
+		ISimulationEngine engine = (ISimulationEngine) Proxy.newProxyInstance(ISimulationEngine.class.getClassLoader(),
+				new Class<?>[] {ISimulationEngine.class}, (proxy, method, args) -> {
+					if (method.getName().equals("getCurrentSimulationTime")) return time[0];
+					Class<?> r = method.getReturnType();
+					return r == int.class ? 0 : r == double.class ? 0.0 : r == boolean.class ? false : null;
+				});
+		StatsCollector collector = new StatsCollector(vehicles,
+				stub(IInfrastructureManager.class, Map.of("loadRoutes", Map.of("r0", List.of("E1")), "getAllEdges", List.of())), engine);
+		collector.enableTrajectoryStore();
+		TrajectoryStore store = collector.getTrajectoryStore();
+
+		active.add(vehicle);
+		for (int step = 1; step <= 2; step++) {
+			time[0] = step;
+			collector.collectData();
+		}
+		assertTrue(store.hasOpenChunk("v1"));
+
+		// The vehicle has arrived
+		active.clear();
+		time[0] = 3;
+		collector.collectData();
+		assertFalse(store.hasOpenChunk("v1"));
+		List<TrajectoryPoint> path = store.getPath("v1");
+		assertEquals(2, path.size());
+		assertEquals(2.0, path.get(1).getTime(), 0.0);
+		assertEquals("E1", path.get(1).getEdgeId());
+		assertEquals(1, collector.snapshot().trips.size());
+	}
+
+	private static IVehicle vehicle(String id) {
+		Map<String, Object> values = Map.of("getId", id, "getPosition", new Point2D.Double(12.0, 34.0), "getSpeed", 8.0,
+				"getEdgeId", "E1", "getColor", "red", "getRouteId", "r0", "getEdgeLane", 0, "isIsVisible", true);
+		return stub(IVehicle.class, values);
+	}
+}
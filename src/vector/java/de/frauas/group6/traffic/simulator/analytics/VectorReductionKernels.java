@@ -0,0 +1,86 @@
+package de.frauas.group6.traffic.simulator.analytics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the ReductionKernels (jdk.incubator.vector).
+ * Compiled only with the vector profile (mvn -Pvector), so the default build needs no incubator
+ * module; ReductionKernels loads this class reflectively when the vector module is present.
+ * Every kernel runs the full vectors with the preferred species and finishes the tail scalar.
+ */
+final class VectorReductionKernels implements ReductionKernels.Kernels {
+
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	// Same lane count as DOUBLES (half the bits), for the int -> double conversion of the densities
+	private static final VectorSpecies<Integer> INTS_FOR_DOUBLES = VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+	// Created by ReductionKernels
+	VectorReductionKernels() {}
+
+	@Override
+	public double[] sumAndCountAbove(double[] values, int n, double threshold) {
+		DoubleVector sums = DoubleVector.zero(DOUBLES);
+		int count = 0;
+		int i = 0;
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector v = DoubleVector.fromArray(DOUBLES, values, i);
+			VectorMask<Double> above = v.compare(VectorOperators.GT, threshold);
+			sums = sums.add(v, above);
+			count += above.trueCount();
+		}
+		double sum = sums.reduceLanes(VectorOperators.ADD);
+		for (; i < n; i++) {
+			if (values[i] > threshold) {
+				sum += values[i];
+				count++;
+			}
+		}
+		return new double[] {sum, count};
+	}
+
+	@Override
+	public void divide(int[] counts, double[] lengths, double[] out, int n) {
+		DoubleVector zero = DoubleVector.zero(DOUBLES);
+		int i = 0;
+		for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+			DoubleVector c = (DoubleVector) IntVector.fromArray(INTS_FOR_DOUBLES, counts, i).convertShape(VectorOperators.I2D, DOUBLES, 0);
+			DoubleVector l = DoubleVector.fromArray(DOUBLES, lengths, i);
+			VectorMask<Double> positive = l.compare(VectorOperators.GT, 0.0);
+			zero.blend(c.div(l), positive).intoArray(out, i);
+		}
+		for (; i < n; i++) out[i] = lengths[i] > 0 ? counts[i] / lengths[i] : 0.0;
+	}
+
+	@Override
+	public int selectAtLeast(int[] values, int n, int threshold, int[] outIndices) {
+		int found = 0;
+		int i = 0;
+		for (int bound = INTS.loopBound(n); i < bound; i += INTS.length()) {
+			VectorMask<Integer> hit = IntVector.fromArray(INTS, values, i).compare(VectorOperators.GE, threshold);
+			// Congested edges are rare: most vectors have no hit at all
+			if (!hit.anyTrue()) continue;
+			for (long bits = hit.toLong(); bits != 0; bits &= bits - 1) {
+				outIndices[found++] = i + Long.numberOfTrailingZeros(bits);
+			}
+		}
+		for (; i < n; i++) {
+			if (values[i] >= threshold) outIndices[found++] = i;
+		}
+		return found;
+	}
+
+	@Override
+	public void add(int[] target, int[] source, int n) {
+		int i = 0;
+		for (int bound = INTS.loopBound(n); i < bound; i += INTS.length()) {
+			IntVector.fromArray(INTS, target, i).add(IntVector.fromArray(INTS, source, i)).intoArray(target, i);
+		}
+		for (; i < n; i++) target[i] += source[i];
+	}
+}